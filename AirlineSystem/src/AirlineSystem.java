@@ -1,7 +1,11 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 
 public class AirlineSystem {
     private Graph graph = new Graph();
+    private GraphJournal journal; // Records every change until the next save (null = not journaling)
+    private String unreadableFile; // Graph file that exists but could not be loaded, never overwritten
 
     public void mainMenu() {
         Scanner sc = new Scanner(System.in);
@@ -23,7 +27,7 @@ public class AirlineSystem {
             switch (choice) {
                 case "1" -> { // View airports and routes
                     cls();
-                    graph.displayGraph();
+                    displayGraph(graph);
                     pressEnterToContinue();
                     break;
                 }
@@ -66,12 +70,45 @@ public class AirlineSystem {
         }
     }
 
+    /**
+     * Runs a command script instead of the menu (see BatchSession) and writes
+     * one JSON line per command to out. Returns the number of failed commands.
+     */
+    public int runBatch(InputStream in, OutputStream out) throws IOException {
+        return new BatchSession(graph).run(new InputStreamReader(in, StandardCharsets.UTF_8),
+                new OutputStreamWriter(out, StandardCharsets.UTF_8));
+    }
+
     public void loadGraphFromFile(String filename) {
-        GraphIO.loadGraph(graph, filename);
+        // Loads the last snapshot, replays the changes journaled since then
+        // and journals every further change, so a crash loses nothing
+        try {
+            journal = GraphJournal.open(graph, filename);
+        } catch (IOException e) {
+            System.out.println("Error opening graph journal: " + e.getMessage());
+            if (!GraphIO.loadGraph(graph, filename) && new File(filename).exists()) {
+                unreadableFile = filename;
+            }
+        }
     }
 
     public void saveGraphToFile(String filename) {
-        GraphIO.saveGraph(graph, filename);
+        if (filename.equals(unreadableFile)) {
+            // Saving would replace the damaged file (and the data it still holds) with this graph
+            System.out.println("Graph file " + filename + " could not be loaded, so it is not overwritten.");
+            return;
+        }
+        if (journal != null && journal.snapshotFile().equals(filename)) {
+            try {
+                journal.checkpoint(); // Folds the journal into a new snapshot
+                journal.close();
+                journal = null;
+                return;
+            } catch (IOException e) {
+                System.out.println("Error saving graph journal: " + e.getMessage());
+            }
+        }
+        GraphIO.saveGraph(graph, filename, GraphIO.formatFor(filename));
     }
 
     private void addOrRemoveAirportOption(Scanner sc) {
@@ -132,11 +169,10 @@ public class AirlineSystem {
                     // Validate the airport code
                     if (isValidAirportCode(code)) {
                         code = code.trim().toUpperCase();
-                        boolean removed = graph.removeAirport(code);
-                        if (removed) {
-                            Vertex removedAirport = graph.getAirports().get(code);
+                        GraphResult<Vertex> removed = graph.tryRemoveAirport(code);
+                        if (removed.ok()) {
                             System.out.println(
-                                    "\nAirport removed successfully: " + removedAirport.toString() + ".");
+                                    "\nAirport removed successfully: " + removed.value.toString() + ".");
                         } else {
                             System.out.println("\nAirport with code " + code + " does not exist. Cannot remove.");
                         }
@@ -233,7 +269,12 @@ public class AirlineSystem {
                     }
 
                     Edge route = new Edge(from, to, cost, time);
-                    graph.addRoute(route);
+                    GraphResult<Edge> added = graph.tryAddRoute(route);
+                    if (added.ok()) {
+                        System.out.println("\nRoute successfully added: " + route.toString() + ".");
+                    } else {
+                        System.out.println("\n" + added.message);
+                    }
 
                     pressEnterToContinue();
                     break; // Exit the loop after successful addition
@@ -254,14 +295,9 @@ public class AirlineSystem {
                         from = from.trim().toUpperCase();
                         to = to.trim().toUpperCase();
 
-                        boolean removed = graph.removeRoute(from, to);
-                        if (removed) {
-                            for (Edge edge : graph.getAdjacencyList().get(from)) {
-                                if (edge.destinationCode.equals(to)) {
-                                    System.out.println("\nRoute removed successfully: " + edge.toString() + ".");
-                                    break;
-                                }
-                            }
+                        GraphResult<Edge> removed = graph.tryRemoveRoute(from, to);
+                        if (removed.ok()) {
+                            System.out.println("\nRoute removed successfully: " + removed.value.toString() + ".");
                         } else {
                             System.out
                                     .println("\nRoute from " + from + " to " + to + " does not exist. Cannot remove.");
@@ -306,10 +342,10 @@ public class AirlineSystem {
                     // Check if the start code is a 3-letter code
                     if (isValidAirportCode(start)) {
                         start = start.trim().toUpperCase(); // Convert to uppercase
-                        List<Vertex> reachable = graph.bfsReachable(start);
-                        if (reachable == null) {
-                            // This is to just filter out the null return value
-                            // The bfsReachable method already prints the reason
+                        GraphResult<List<Vertex>> result = graph.findReachable(start);
+                        List<Vertex> reachable = result.value;
+                        if (!result.ok()) {
+                            System.out.println(result.message);
                         } else if (reachable.isEmpty()) {
                             System.out.println("\nNo reachable airports from " + start);
                         } else {
@@ -386,10 +422,10 @@ public class AirlineSystem {
                         }
                     }
 
-                    List<Edge> leastTransitsPath = graph.bfsShortestPath(start, end);
-                    if (leastTransitsPath == null) {
-                        // This is to just filter out the null return value
-                        // The bfsShortestPath method already prints the reason
+                    GraphResult<List<Edge>> result = graph.findLeastTransits(start, end);
+                    List<Edge> leastTransitsPath = result.value;
+                    if (!result.ok()) {
+                        System.out.println(result.message);
                     } else if (leastTransitsPath.isEmpty()) {
                         System.out.println("\nNo path found from " + start + " to " + end + ".");
                     } else {
@@ -507,10 +543,10 @@ public class AirlineSystem {
                         }
                     }
 
-                    List<Edge> shortestPath = graph.dijkstra(start, end, useCost);
-                    if (shortestPath == null) {
-                        // This is to just filter out the null return value
-                        // The dijkstra method already prints the reason
+                    GraphResult<List<Edge>> result = graph.findShortestPath(start, end, useCost);
+                    List<Edge> shortestPath = result.value;
+                    if (!result.ok()) {
+                        System.out.println(result.message);
                     } else if (shortestPath.isEmpty()) {
                         System.out.println("\nNo path found from " + start + " to " + end + ".");
                     } else {
@@ -553,6 +589,33 @@ public class AirlineSystem {
         }
     }
 
+    // Also used by Graph.displayGraph
+    static void displayGraph(Graph graph) {
+        Map<String, Vertex> airports = graph.getAirports();
+        Map<String, List<Edge>> adjacencyList = graph.getAdjacencyList();
+        System.out.println("\nAirline Routes Graph:");
+        System.out.println(
+                "===========================================================================================================================");
+        System.out.printf("%-3s | %-45s | %-45s | %-10s | %-10s%n", "No.", "Starting Airport", "Destination Airport", "Cost (RM)",
+                "Time (h)");
+        System.out.println(
+                "---------------------------------------------------------------------------------------------------------------------------");
+
+        int count = 0;
+        for (String airportCode : adjacencyList.keySet()) {
+            Vertex airport = airports.get(airportCode);
+
+            for (Edge route : adjacencyList.get(airportCode)) {
+                Vertex destinationAirport = airports.get(route.destinationCode);
+                count++;
+
+                System.out.printf("%-3d | %-39s (%3s) | %-39s (%3s) | %-10.2f | %-10.2f%n", count,
+                        airport.name, airport.code, destinationAirport.name, destinationAirport.code, route.cost,
+                        route.time);
+            }
+        }
+    }
+
     private void pressEnterToContinue() {
         System.out.print("\nPress enter to continue.......");
         @SuppressWarnings("resource")
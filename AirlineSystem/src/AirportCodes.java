@@ -0,0 +1,115 @@
+import java.util.*;
+
+/**
+ * Packs airport codes into int keys, so Graph can index airports without
+ * hashing or comparing Strings.
+ *
+ * A code of 1 to 6 upper-case letters (every IATA code, and the generated
+ * codes of NetworkGenerator) is packed directly, 5 bits per letter with A = 1,
+ * which gives a positive key that is the same everywhere and that decode()
+ * turns back into the code without any table. Any other code gets a negative
+ * key from the fallback table of the AirportCodes it is encoded in. Key 0 is
+ * never used, so it can mean "no airport".
+ *
+ * Every Graph and every GraphSnapshot has its own table, and Graph releases
+ * the key of a removed airport, so a table only holds the codes of the
+ * airports it indexes. A released key may be given to another code later;
+ * that is why fallback keys mean nothing outside their table, and why Edge
+ * caches packed keys only. Lookups use find(), which never adds a code.
+ *
+ * A table is not thread-safe: it is changed only by the thread that changes
+ * its graph, and the table of a snapshot is not changed after construction.
+ */
+public final class AirportCodes {
+    private static final int MAX_PACKED_LENGTH = 6; // 6 * 5 bits still fit in a positive int
+
+    private final Map<String, Integer> fallbackKeys = new HashMap<>(); // code -> key
+    private final List<String> fallbackCodes = new ArrayList<>();     // -key - 1 -> code (null = released)
+    private final Deque<Integer> releasedKeys = new ArrayDeque<>();   // Keys to hand out again
+
+    /** Key of a code; codes that cannot be packed are added to the fallback table. */
+    public int encode(String code) {
+        int key = pack(code);
+        if (key != 0) {
+            return key;
+        }
+        Integer known = fallbackKeys.get(code);
+        return known != null ? known : register(code);
+    }
+
+    /** Key of a code, or 0 if the code cannot be packed and is not in the table (the table is not changed). */
+    public int find(String code) {
+        int key = pack(code);
+        if (key != 0) {
+            return key;
+        }
+        Integer known = fallbackKeys.get(code);
+        return known != null ? known : 0;
+    }
+
+    /** The code of a key returned by encode() or find() of this table. */
+    public String decode(int key) {
+        if (key > 0) {
+            char[] letters = new char[MAX_PACKED_LENGTH];
+            int pos = letters.length;
+            for (; key != 0; key >>>= 5) {
+                letters[--pos] = (char) ('A' - 1 + (key & 31));
+            }
+            return new String(letters, pos, letters.length - pos);
+        }
+        if (key == 0) {
+            throw new IllegalArgumentException("0 is not an airport key");
+        }
+        return fallbackCodes.get(-key - 1);
+    }
+
+    /** Removes a code from the fallback table (packed codes are not in it); its key may be reused. */
+    public void release(String code) {
+        Integer key = fallbackKeys.remove(code);
+        if (key != null) {
+            fallbackCodes.set(-key - 1, null);
+            releasedKeys.push(key);
+        }
+    }
+
+    /** Empties the fallback table (before indexing a whole graph again). */
+    public void clear() {
+        fallbackKeys.clear();
+        fallbackCodes.clear();
+        releasedKeys.clear();
+    }
+
+    /** Number of codes in the fallback table. */
+    public int fallbackCount() {
+        return fallbackKeys.size();
+    }
+
+    /** Packed key of 1 to 6 upper-case letters, 0 for any other code (and for null). */
+    public static int pack(String code) {
+        int length = code == null ? 0 : code.length();
+        if (length == 0 || length > MAX_PACKED_LENGTH) {
+            return 0;
+        }
+        int key = 0;
+        for (int i = 0; i < length; i++) {
+            char c = code.charAt(i);
+            if (c < 'A' || c > 'Z') {
+                return 0;
+            }
+            key = key << 5 | (c - 'A' + 1);
+        }
+        return key;
+    }
+
+    private int register(String code) {
+        Integer key = releasedKeys.poll();
+        if (key != null) {
+            fallbackCodes.set(-key - 1, code);
+        } else {
+            fallbackCodes.add(code);
+            key = -fallbackCodes.size();
+        }
+        fallbackKeys.put(code, key);
+        return key;
+    }
+}
@@ -0,0 +1,222 @@
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Cheapest-cost or fastest-time between every pair of airports.
+ *
+ * compute() runs one full DijkstraEngine search per origin, the origins spread
+ * over a fork-join pool (each worker reuses its own engine arrays), and writes
+ * row i of the matrix straight from the search from airport i. Rows are separate
+ * primitive arrays, so the matrix is not limited to 2^31 cells and each worker
+ * only ever writes its own rows.
+ *
+ * With paths enabled the matrix also keeps, for every pair (i, j), the route
+ * (edge index of the snapshot) that reaches j on the best path from i. Walking
+ * these entries back from j stays inside the shortest-path tree of i, so any
+ * path is rebuilt without searching again, in O(path length * log n): each hop
+ * finds the origin of its route with GraphSnapshot.sourceOf, a binary search
+ * over the offsets (storing the origin too would cost another int per pair).
+ * Files only store the airport before j, as edge indexes mean nothing without
+ * the snapshot.
+ *
+ * Matrices can be written and read back with GraphIO.saveMatrix / loadMatrix.
+ */
+public class AllPairsMatrix {
+    private final String[] codes;           // id -> airport code (same ids as the snapshot)
+    private final boolean useCost;          // true = cost matrix, false = time matrix
+    private final double[][] dist;          // [from][to] -> best cost/time (infinity = unreachable)
+    private final int[][] previous;         // [from][to] -> airport before 'to' on the best path (loaded matrices)
+    private final int[][] previousEdge;     // [from][to] -> edge index that reaches 'to' (computed matrices)
+    private final long version;             // Graph version the matrix was computed from
+    private final GraphSnapshot snapshot;   // Source of the Edge objects for path() (null if loaded from a file)
+    private Map<String, Integer> ids;       // airport code -> id (built on first use)
+
+    AllPairsMatrix(String[] codes, boolean useCost, double[][] dist, int[][] previous, long version,
+            GraphSnapshot snapshot) {
+        this(codes, useCost, dist, previous, null, version, snapshot);
+    }
+
+    private AllPairsMatrix(String[] codes, boolean useCost, double[][] dist, int[][] previous, int[][] previousEdge,
+            long version, GraphSnapshot snapshot) {
+        this.codes = codes;
+        this.useCost = useCost;
+        this.dist = dist;
+        this.previous = previous;
+        this.previousEdge = previousEdge;
+        this.version = version;
+        this.snapshot = snapshot;
+    }
+
+    /** Computes the matrix on the common fork-join pool. */
+    public static AllPairsMatrix compute(GraphSnapshot snapshot, boolean useCost, boolean keepPaths) {
+        return compute(snapshot, useCost, keepPaths, ForkJoinPool.commonPool());
+    }
+
+    /** Computes the matrix with one single-source search per origin on the given pool. */
+    public static AllPairsMatrix compute(GraphSnapshot snapshot, boolean useCost, boolean keepPaths,
+            ForkJoinPool pool) {
+        int n = snapshot.airportCount();
+        String[] codes = new String[n];
+        for (int u = 0; u < n; u++) {
+            codes[u] = snapshot.codeOf(u);
+        }
+        double[][] dist = new double[n][];
+        int[][] previousEdge = keepPaths ? new int[n][] : null;
+
+        // A parallel stream started inside the pool runs on that pool's workers
+        pool.submit(() -> IntStream.range(0, n).parallel().forEach(from -> {
+            DijkstraEngine engine = DijkstraEngine.forCurrentThread();
+            engine.search(snapshot, from, -1, useCost);
+            double[] row = new double[n];
+            for (int to = 0; to < n; to++) {
+                row[to] = engine.distance(to);
+            }
+            dist[from] = row;
+            if (keepPaths) {
+                int[] parents = new int[n];
+                for (int to = 0; to < n; to++) {
+                    parents[to] = engine.parentEdge(to);
+                }
+                previousEdge[from] = parents;
+            }
+        })).join();
+
+        return new AllPairsMatrix(codes, useCost, dist, null, previousEdge, snapshot.version(), snapshot);
+    }
+
+    public int size() {
+        return codes.length;
+    }
+
+    public boolean usesCost() {
+        return useCost;
+    }
+
+    public boolean hasPaths() {
+        return previous != null || previousEdge != null;
+    }
+
+    public long version() {
+        return version;
+    }
+
+    public String codeOf(int id) {
+        return codes[id];
+    }
+
+    /** Id of an airport code, -1 if it is not in the matrix. */
+    public int idOf(String code) {
+        if (ids == null) {
+            Map<String, Integer> map = new HashMap<>(codes.length * 2);
+            for (int u = 0; u < codes.length; u++) {
+                map.put(codes[u], u);
+            }
+            ids = map;
+        }
+        return ids.getOrDefault(code, -1);
+    }
+
+    /** Best cost/time from one airport to another (infinity if unreachable). */
+    public double distance(int from, int to) {
+        return dist[from][to];
+    }
+
+    /** Same as distance(int, int); NaN if an airport is not in the matrix. */
+    public double distance(String from, String to) {
+        int u = idOf(from);
+        int v = idOf(to);
+        return u < 0 || v < 0 ? Double.NaN : dist[u][v];
+    }
+
+    /** Row of the matrix for one origin (not a copy, do not modify). */
+    double[] row(int from) {
+        return dist[from];
+    }
+
+    /** Airport before each destination for one origin (do not modify, null without paths). */
+    int[] previousRow(int from) {
+        if (previousEdge == null) {
+            return previous == null ? null : previous[from];
+        }
+        int[] row = new int[codes.length];
+        for (int to = 0; to < row.length; to++) {
+            row[to] = previousAirport(from, to);
+        }
+        return row;
+    }
+
+    // Airport before 'to' on the best path from 'from' (-1 for the origin and unreachable airports)
+    private int previousAirport(int from, int to) {
+        if (previousEdge == null) {
+            return previous[from][to];
+        }
+        int e = previousEdge[from][to];
+        return e < 0 ? -1 : snapshot.sourceOf(e);
+    }
+
+    /**
+     * Airport ids along the best path, both ends included. Empty if the
+     * destination is unreachable. Requires a matrix computed with paths.
+     */
+    public int[] route(int from, int to) {
+        if (!hasPaths()) {
+            throw new IllegalStateException("Matrix was computed without paths");
+        }
+        if (dist[from][to] == Double.POSITIVE_INFINITY) {
+            return new int[0];
+        }
+        int length = 1;
+        for (int node = to; node != from; node = previousAirport(from, node)) {
+            length++;
+        }
+        int[] route = new int[length];
+        for (int node = to; ; node = previousAirport(from, node)) {
+            route[--length] = node;
+            if (node == from) {
+                break;
+            }
+        }
+        return route;
+    }
+
+    /**
+     * Best path as routes, with the same return values as Graph.dijkstra but no
+     * console output: null if an airport does not exist or both are the same,
+     * an empty list if the destination is unreachable. Needs the snapshot the
+     * matrix was computed from, so it is not available on loaded matrices (use
+     * route() there).
+     */
+    public List<Edge> path(String start, String end) {
+        if (snapshot == null) {
+            throw new IllegalStateException("Matrix has no graph attached, use route() instead");
+        }
+        int from = idOf(start);
+        int to = idOf(end);
+        if (from < 0 || to < 0 || from == to) {
+            return null;
+        }
+        if (previousEdge == null) {
+            throw new IllegalStateException("Matrix was computed without paths");
+        }
+        if (dist[from][to] == Double.POSITIVE_INFINITY) {
+            return new ArrayList<>();
+        }
+        // Follow the stored routes back from the destination, then reverse
+        int[] parents = previousEdge[from];
+        int[] edges = new int[8];
+        int length = 0;
+        for (int node = to; node != from; node = snapshot.sourceOf(edges[length++])) {
+            if (length == edges.length) {
+                edges = Arrays.copyOf(edges, length * 2);
+            }
+            edges[length] = parents[node];
+        }
+        for (int i = 0, j = length - 1; i < j; i++, j--) {
+            int swap = edges[i];
+            edges[i] = edges[j];
+            edges[j] = swap;
+        }
+        return snapshot.toPath(edges, length);
+    }
+}
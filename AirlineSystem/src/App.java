@@ -1,10 +1,24 @@
 
+import java.io.FileInputStream;
+import java.io.InputStream;
+
 public class App {
     public static void main(String[] args) throws Exception {
         AirlineSystem as = new AirlineSystem();
 
         // Load graph data from file
         as.loadGraphFromFile("graph.json");
+        if (args.length == 2 && args[0].equals("--batch")) {
+            // Run a command script (a file, or standard input for "-") instead of the menu;
+            // the exit status is 1 if any command failed
+            InputStream in = args[1].equals("-") ? System.in : new FileInputStream(args[1]);
+            int failed;
+            try (in) {
+                failed = as.runBatch(in, System.out);
+            }
+            as.saveGraphToFile("graph.json");
+            System.exit(failed == 0 ? 0 : 1);
+        }
         // Show the main menu
         as.mainMenu();
         // Save graph data to file before exiting
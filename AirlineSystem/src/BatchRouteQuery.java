@@ -0,0 +1,158 @@
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+/**
+ * Answers large numbers of (origin, destination) questions with one search per
+ * origin instead of one per pair.
+ *
+ * The input is read in chunks. Within a chunk the pairs are grouped by origin
+ * (stable counting sort on the origin id), every distinct origin gets one full
+ * DijkstraEngine search on a work-stealing fork-join pool, and all pairs of
+ * that origin are answered from the resulting tree. The results of the chunk
+ * are then handed to the sink in input order before the next chunk is read, so
+ * memory stays proportional to the chunk size no matter how long the input is.
+ * Bigger chunks share more searches between pairs (an origin that appears in
+ * several chunks is searched once per chunk).
+ */
+public class BatchRouteQuery {
+    public static final int DEFAULT_CHUNK_SIZE = 65_536;
+
+    /** Outcome of one pair, matching the cases of Graph.dijkstra. */
+    public enum Status {
+        OK, UNREACHABLE, UNKNOWN_AIRPORT, SAME_AIRPORT
+    }
+
+    /** One question: best route from origin to destination. */
+    public static class Pair {
+        public final String origin;
+        public final String destination;
+
+        public Pair(String origin, String destination) {
+            this.origin = origin;
+            this.destination = destination;
+        }
+    }
+
+    /** Answer to the pair at position index of the input. */
+    public static class Result {
+        public final long index;
+        public final String origin;
+        public final String destination;
+        public final Status status;
+        public final double value;        // Total cost or time (NaN unless status is OK)
+        public final List<Edge> path;     // Only when paths were requested and status is OK
+
+        Result(long index, Pair pair, Status status, double value, List<Edge> path) {
+            this.index = index;
+            this.origin = pair.origin;
+            this.destination = pair.destination;
+            this.status = status;
+            this.value = value;
+            this.path = path;
+        }
+    }
+
+    private final GraphSnapshot graph;
+    private final boolean useCost;
+    private final boolean withPaths;
+    private final int chunkSize;
+    private final ForkJoinPool pool;
+
+    public BatchRouteQuery(GraphSnapshot graph, boolean useCost) {
+        this(graph, useCost, false, DEFAULT_CHUNK_SIZE, ForkJoinPool.commonPool());
+    }
+
+    public BatchRouteQuery(GraphSnapshot graph, boolean useCost, boolean withPaths, int chunkSize, ForkJoinPool pool) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("chunkSize must be at least 1");
+        }
+        this.graph = graph;
+        this.useCost = useCost;
+        this.withPaths = withPaths;
+        this.chunkSize = chunkSize;
+        this.pool = pool;
+    }
+
+    public void run(List<Pair> pairs, Consumer<Result> sink) {
+        run(pairs.iterator(), sink);
+    }
+
+    /** Reads pairs until the iterator is exhausted and passes every result to sink, in input order. */
+    public void run(Iterator<Pair> pairs, Consumer<Result> sink) {
+        Pair[] chunk = new Pair[chunkSize];
+        long base = 0;
+        while (pairs.hasNext()) {
+            int size = 0;
+            while (size < chunkSize && pairs.hasNext()) {
+                chunk[size++] = pairs.next();
+            }
+            runChunk(chunk, size, base, sink);
+            base += size;
+        }
+    }
+
+    private void runChunk(Pair[] chunk, int size, long base, Consumer<Result> sink) {
+        int n = graph.airportCount();
+        int[] origin = new int[size];
+        int[] destination = new int[size];
+        Status[] status = new Status[size];
+        double[] value = new double[size];
+        List<List<Edge>> paths = withPaths ? new ArrayList<>(Collections.nCopies(size, null)) : null;
+
+        // Resolve codes, then group the valid pairs by origin (stable counting sort)
+        int[] offsets = new int[n + 1];
+        for (int i = 0; i < size; i++) {
+            origin[i] = graph.idOf(chunk[i].origin);
+            destination[i] = graph.idOf(chunk[i].destination);
+            value[i] = Double.NaN;
+            if (origin[i] < 0 || destination[i] < 0) {
+                status[i] = Status.UNKNOWN_AIRPORT;
+            } else if (origin[i] == destination[i]) {
+                status[i] = Status.SAME_AIRPORT;
+            } else {
+                offsets[origin[i] + 1]++;
+            }
+        }
+        int[] origins = new int[n]; // Distinct origins of this chunk
+        int distinct = 0;
+        for (int u = 0; u < n; u++) {
+            if (offsets[u + 1] > 0) {
+                origins[distinct++] = u;
+            }
+            offsets[u + 1] += offsets[u];
+        }
+        int[] grouped = new int[offsets[n]];
+        int[] fill = Arrays.copyOf(offsets, n);
+        for (int i = 0; i < size; i++) {
+            if (status[i] == null) {
+                grouped[fill[origin[i]]++] = i;
+            }
+        }
+
+        // One full search per distinct origin, each worker on its own engine
+        int[] work = Arrays.copyOf(origins, distinct);
+        pool.submit(() -> IntStream.of(work).parallel().forEach(u -> {
+            DijkstraEngine engine = DijkstraEngine.forCurrentThread();
+            engine.search(graph, u, -1, useCost);
+            for (int k = offsets[u]; k < offsets[u + 1]; k++) {
+                int i = grouped[k];
+                if (engine.reached(destination[i])) {
+                    status[i] = Status.OK;
+                    value[i] = engine.distance(destination[i]);
+                    if (paths != null) {
+                        paths.set(i, engine.path(destination[i]));
+                    }
+                } else {
+                    status[i] = Status.UNREACHABLE;
+                }
+            }
+        })).join();
+
+        for (int i = 0; i < size; i++) {
+            sink.accept(new Result(base + i, chunk[i], status[i], value[i], paths == null ? null : paths.get(i)));
+            chunk[i] = null;
+        }
+    }
+}
@@ -0,0 +1,275 @@
+import com.google.gson.stream.JsonWriter;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * Non-interactive mode: runs a script of graph commands, one per line, and
+ * writes one JSON object per command (JSON lines) instead of the menu output.
+ *
+ *   addAirport KUL "Kuala Lumpur International Airport" Selangor
+ *   addRoute KUL PEN 150 1.5
+ *   path KUL PEN cost
+ *
+ * Commands: addAirport CODE NAME STATE, removeAirport CODE, addRoute FROM TO
+ * COST TIME, removeRoute FROM TO, reachable CODE, transits FROM TO and path
+ * FROM TO cost|time. Arguments are separated by spaces ("double quotes" keep
+ * spaces together), codes are upper-cased like in the menu, and blank lines
+ * and lines starting with # are skipped. A command that fails does not stop
+ * the script: its line has "ok":false with the error kind and message.
+ *
+ * The output is only flushed when the input has nothing more ready, so a
+ * script file is answered in large buffered writes while a pipe still gets
+ * every answer as soon as the command that produced it was read.
+ *
+ * transits and path are answered through a RouteCache: between two changes
+ * to the graph, a repeated query costs a map lookup and a query from an
+ * origin seen before walks that origin's cached shortest-path tree.
+ */
+public class BatchSession {
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final String BAD_COMMAND = "BAD_COMMAND"; // Not a GraphResult.Error: the line could not be parsed
+    private static final int CACHED_PATHS = 10_000;
+    private static final int CACHED_TREES = 16; // One int per airport each
+
+    private final Graph graph;
+    private final RouteCache routes;
+    private int commands = 0;
+    private int failed = 0;
+
+    public BatchSession(Graph graph) {
+        this.graph = graph;
+        this.routes = new RouteCache(graph, CACHED_PATHS, CACHED_TREES);
+    }
+
+    /** Runs every command of in and writes the results to out; returns the number of failed commands. */
+    public int run(Reader in, Writer out) throws IOException {
+        BufferedReader reader = in instanceof BufferedReader ? (BufferedReader) in : new BufferedReader(in, BUFFER_SIZE);
+        Writer buffered = out instanceof BufferedWriter ? out : new BufferedWriter(out, BUFFER_SIZE);
+        JsonWriter json = new JsonWriter(buffered);
+        json.setLenient(true); // One top-level object per line
+        int lineNumber = 0;
+        int failedBefore = failed;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            String trimmed = line.trim();
+            if (!trimmed.isEmpty() && !trimmed.startsWith("#")) {
+                commands++;
+                json.beginObject();
+                json.name("line").value(lineNumber);
+                execute(trimmed, json);
+                json.endObject();
+                buffered.write('\n');
+            }
+            if (!reader.ready()) {
+                buffered.flush(); // Input is waiting on its producer, answer what was read so far
+            }
+        }
+        buffered.flush();
+        return failed - failedBefore;
+    }
+
+    /** Commands run so far (blank and comment lines not counted). */
+    public int commandCount() {
+        return commands;
+    }
+
+    public int failedCount() {
+        return failed;
+    }
+
+    private void execute(String line, JsonWriter json) throws IOException {
+        List<String> args = tokenize(line);
+        if (args == null) {
+            badCommand(json, "Unterminated quote");
+            return;
+        }
+        String op = args.get(0);
+        json.name("op").value(op);
+        switch (op) {
+            case "addAirport" -> {
+                if (args.size() != 4) {
+                    badCommand(json, "Usage: addAirport CODE NAME STATE");
+                    return;
+                }
+                GraphResult<Vertex> result = graph.tryAddAirport(new Vertex(args.get(2), code(args.get(1)), args.get(3)));
+                if (status(json, result)) {
+                    json.name("airport").value(result.value.code);
+                }
+            }
+            case "removeAirport" -> {
+                if (args.size() != 2) {
+                    badCommand(json, "Usage: removeAirport CODE");
+                    return;
+                }
+                GraphResult<Vertex> result = graph.tryRemoveAirport(code(args.get(1)));
+                if (status(json, result)) {
+                    json.name("airport").value(result.value.code);
+                }
+            }
+            case "addRoute" -> {
+                double cost = args.size() == 5 ? positive(args.get(3)) : -1;
+                double time = args.size() == 5 ? positive(args.get(4)) : -1;
+                if (cost <= 0 || time <= 0) {
+                    badCommand(json, "Usage: addRoute FROM TO COST TIME (cost and time positive numbers)");
+                    return;
+                }
+                GraphResult<Edge> result = graph.tryAddRoute(new Edge(code(args.get(1)), code(args.get(2)), cost, time));
+                if (status(json, result)) {
+                    route(json, result.value);
+                }
+            }
+            case "removeRoute" -> {
+                if (args.size() != 3) {
+                    badCommand(json, "Usage: removeRoute FROM TO");
+                    return;
+                }
+                GraphResult<Edge> result = graph.tryRemoveRoute(code(args.get(1)), code(args.get(2)));
+                if (status(json, result)) {
+                    route(json, result.value);
+                }
+            }
+            case "reachable" -> {
+                if (args.size() != 2) {
+                    badCommand(json, "Usage: reachable CODE");
+                    return;
+                }
+                GraphResult<List<Vertex>> result = graph.findReachable(code(args.get(1)));
+                if (status(json, result)) {
+                    json.name("airports").beginArray();
+                    for (Vertex airport : result.value) {
+                        json.value(airport.code);
+                    }
+                    json.endArray();
+                }
+            }
+            case "transits" -> {
+                if (args.size() != 3) {
+                    badCommand(json, "Usage: transits FROM TO");
+                    return;
+                }
+                path(json, cachedPath(code(args.get(1)), code(args.get(2)), RouteCache.Metric.HOPS));
+            }
+            case "path" -> {
+                if (args.size() != 4 || !(args.get(3).equals("cost") || args.get(3).equals("time"))) {
+                    badCommand(json, "Usage: path FROM TO cost|time");
+                    return;
+                }
+                path(json, cachedPath(code(args.get(1)), code(args.get(2)),
+                        args.get(3).equals("cost") ? RouteCache.Metric.COST : RouteCache.Metric.TIME));
+            }
+            default -> badCommand(json, "Unknown command " + op);
+        }
+    }
+
+    // Writes "ok" (and the error when there is one); returns true if the result has a value to write
+    private boolean status(JsonWriter json, GraphResult<?> result) throws IOException {
+        json.name("ok").value(result.ok());
+        if (!result.ok()) {
+            failed++;
+            json.name("error").value(result.error.name());
+            json.name("message").value(result.message);
+        }
+        return result.ok();
+    }
+
+    private void badCommand(JsonWriter json, String message) throws IOException {
+        failed++;
+        json.name("ok").value(false);
+        json.name("error").value(BAD_COMMAND);
+        json.name("message").value(message);
+    }
+
+    // Same result as Graph.findLeastTransits / findShortestPath; the cache answers null
+    // for an invalid query, which Graph then turns into the matching error
+    private GraphResult<List<Edge>> cachedPath(String from, String to, RouteCache.Metric metric) {
+        List<Edge> path = routes.shortestPath(from, to, metric);
+        if (path != null) {
+            return GraphResult.ok(path);
+        }
+        return metric == RouteCache.Metric.HOPS ? graph.findLeastTransits(from, to)
+                : graph.findShortestPath(from, to, metric == RouteCache.Metric.COST);
+    }
+
+    // "found" is false when the destination is unreachable (an empty path)
+    private void path(JsonWriter json, GraphResult<List<Edge>> result) throws IOException {
+        if (!status(json, result)) {
+            return;
+        }
+        List<Edge> path = result.value;
+        double totalCost = 0;
+        double totalTime = 0;
+        json.name("found").value(!path.isEmpty());
+        json.name("path").beginArray();
+        for (int i = 0; i < path.size(); i++) {
+            Edge edge = path.get(i);
+            if (i == 0) {
+                json.value(edge.startingCode);
+            }
+            json.value(edge.destinationCode);
+            totalCost += edge.cost;
+            totalTime += edge.time;
+        }
+        json.endArray();
+        if (!path.isEmpty()) {
+            json.name("transits").value(path.size() - 1); // no of transits = no of edges - 1
+            json.name("cost").value(totalCost);
+            json.name("time").value(totalTime);
+        }
+    }
+
+    private static void route(JsonWriter json, Edge route) throws IOException {
+        json.name("route").beginObject();
+        json.name("from").value(route.startingCode);
+        json.name("to").value(route.destinationCode);
+        json.name("cost").value(route.cost);
+        json.name("time").value(route.time);
+        json.endObject();
+    }
+
+    private static String code(String code) {
+        return code.toUpperCase(Locale.ROOT);
+    }
+
+    // The number, or -1 if it is not a positive number
+    private static double positive(String text) {
+        try {
+            double value = Double.parseDouble(text);
+            return value > 0 && !Double.isInfinite(value) ? value : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    // Splits on whitespace, keeping "quoted text" as one argument; null if a quote is not closed
+    private static List<String> tokenize(String line) {
+        List<String> args = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        boolean inToken = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"') {
+                quoted = !quoted;
+                inToken = true;
+            } else if (!quoted && Character.isWhitespace(c)) {
+                if (inToken) {
+                    args.add(current.toString());
+                    current.setLength(0);
+                    inToken = false;
+                }
+            } else {
+                current.append(c);
+                inToken = true;
+            }
+        }
+        if (quoted) {
+            return null;
+        }
+        if (inToken) {
+            args.add(current.toString());
+        }
+        return args;
+    }
+}
@@ -0,0 +1,314 @@
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Compressed set of non-negative ints in the style of a roaring bitmap.
+ *
+ * Values are split into 65536-wide chunks by their high 16 bits. Each chunk
+ * that holds anything gets a container: a sorted char array while it has at
+ * most ARRAY_LIMIT values, a fixed 8 KB bitmap once it is denser than that.
+ * Sparse sets therefore cost about 2 bytes per value, dense sets about 1 bit,
+ * and contains() is a binary search over the chunk keys plus one container
+ * lookup.
+ */
+public class CompactBitSet {
+    private static final int ARRAY_LIMIT = 4096; // Above this an array container turns into a bitmap
+
+    private char[] keys = new char[0];           // High 16 bits of each chunk (sorted)
+    private Container[] containers = new Container[0];
+    private int chunks = 0;                      // Number of keys/containers in use
+
+    public CompactBitSet() {
+    }
+
+    private CompactBitSet(CompactBitSet other) {
+        keys = Arrays.copyOf(other.keys, other.chunks);
+        containers = new Container[other.chunks];
+        chunks = other.chunks;
+        for (int i = 0; i < chunks; i++) {
+            containers[i] = other.containers[i].copy();
+        }
+    }
+
+    public CompactBitSet copy() {
+        return new CompactBitSet(this);
+    }
+
+    public boolean contains(int value) {
+        int i = find((char) (value >>> 16));
+        return i >= 0 && containers[i].contains((char) value);
+    }
+
+    /** Adds a value, returns false if it was already present. */
+    public boolean add(int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Negative value: " + value);
+        }
+        char high = (char) (value >>> 16);
+        int i = find(high);
+        if (i < 0) {
+            i = -i - 1;
+            insertChunk(i, high, new ArrayContainer());
+        }
+        Container container = containers[i];
+        int before = container.cardinality();
+        containers[i] = container.add((char) value);
+        return containers[i].cardinality() != before;
+    }
+
+    /** Adds every value of other to this set (in place). */
+    public void or(CompactBitSet other) {
+        int i = 0;
+        int j = 0;
+        while (j < other.chunks) {
+            if (i == chunks || keys[i] > other.keys[j]) {
+                insertChunk(i, other.keys[j], other.containers[j].copy());
+                i++;
+                j++;
+            } else if (keys[i] == other.keys[j]) {
+                containers[i] = containers[i].or(other.containers[j]);
+                i++;
+                j++;
+            } else {
+                i++;
+            }
+        }
+    }
+
+    public int cardinality() {
+        int total = 0;
+        for (int i = 0; i < chunks; i++) {
+            total += containers[i].cardinality();
+        }
+        return total;
+    }
+
+    public boolean isEmpty() {
+        return chunks == 0;
+    }
+
+    /** Calls action for every value in ascending order. */
+    public void forEach(IntConsumer action) {
+        for (int i = 0; i < chunks; i++) {
+            containers[i].forEach(keys[i] << 16, action);
+        }
+    }
+
+    /** Approximate heap size of the containers in bytes. */
+    public long sizeInBytes() {
+        long total = 2L * keys.length + 8L * containers.length;
+        for (int i = 0; i < chunks; i++) {
+            total += containers[i].sizeInBytes();
+        }
+        return total;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder("{");
+        forEach(value -> text.append(text.length() > 1 ? ", " : "").append(value));
+        return text.append('}').toString();
+    }
+
+    private int find(char high) {
+        return Arrays.binarySearch(keys, 0, chunks, high);
+    }
+
+    private void insertChunk(int i, char high, Container container) {
+        if (chunks == keys.length) {
+            int capacity = Math.max(4, chunks * 2);
+            keys = Arrays.copyOf(keys, capacity);
+            containers = Arrays.copyOf(containers, capacity);
+        }
+        System.arraycopy(keys, i, keys, i + 1, chunks - i);
+        System.arraycopy(containers, i, containers, i + 1, chunks - i);
+        keys[i] = high;
+        containers[i] = container;
+        chunks++;
+    }
+
+    // Values of one 65536-wide chunk (low 16 bits only)
+    private abstract static class Container {
+        abstract boolean contains(char low);
+
+        // May return a different container (array -> bitmap conversion)
+        abstract Container add(char low);
+
+        abstract Container or(Container other);
+
+        abstract int cardinality();
+
+        abstract void forEach(int base, IntConsumer action);
+
+        abstract Container copy();
+
+        abstract long sizeInBytes();
+    }
+
+    private static class ArrayContainer extends Container {
+        private char[] values = new char[4];
+        private int size = 0;
+
+        @Override
+        boolean contains(char low) {
+            return Arrays.binarySearch(values, 0, size, low) >= 0;
+        }
+
+        @Override
+        Container add(char low) {
+            int i = Arrays.binarySearch(values, 0, size, low);
+            if (i >= 0) {
+                return this;
+            }
+            if (size == ARRAY_LIMIT) {
+                return toBitmap().add(low);
+            }
+            i = -i - 1;
+            if (size == values.length) {
+                values = Arrays.copyOf(values, Math.min(ARRAY_LIMIT, size * 2));
+            }
+            System.arraycopy(values, i, values, i + 1, size - i);
+            values[i] = low;
+            size++;
+            return this;
+        }
+
+        @Override
+        Container or(Container other) {
+            if (other instanceof BitmapContainer) {
+                return toBitmap().or(other);
+            }
+            ArrayContainer that = (ArrayContainer) other;
+            char[] merged = new char[size + that.size];
+            int i = 0;
+            int j = 0;
+            int k = 0;
+            while (i < size && j < that.size) {
+                char a = values[i];
+                char b = that.values[j];
+                if (a < b) {
+                    merged[k++] = a;
+                    i++;
+                } else if (a > b) {
+                    merged[k++] = b;
+                    j++;
+                } else {
+                    merged[k++] = a;
+                    i++;
+                    j++;
+                }
+            }
+            while (i < size) {
+                merged[k++] = values[i++];
+            }
+            while (j < that.size) {
+                merged[k++] = that.values[j++];
+            }
+            values = merged;
+            size = k;
+            return size > ARRAY_LIMIT ? toBitmap() : this;
+        }
+
+        @Override
+        int cardinality() {
+            return size;
+        }
+
+        @Override
+        void forEach(int base, IntConsumer action) {
+            for (int i = 0; i < size; i++) {
+                action.accept(base | values[i]);
+            }
+        }
+
+        @Override
+        Container copy() {
+            ArrayContainer copy = new ArrayContainer();
+            copy.values = Arrays.copyOf(values, Math.max(4, size));
+            copy.size = size;
+            return copy;
+        }
+
+        @Override
+        long sizeInBytes() {
+            return 16 + 2L * values.length;
+        }
+
+        private BitmapContainer toBitmap() {
+            BitmapContainer bitmap = new BitmapContainer();
+            for (int i = 0; i < size; i++) {
+                bitmap.words[values[i] >>> 6] |= 1L << values[i];
+            }
+            bitmap.cardinality = size;
+            return bitmap;
+        }
+    }
+
+    private static class BitmapContainer extends Container {
+        private final long[] words = new long[1024]; // 65536 bits
+        private int cardinality = 0;
+
+        @Override
+        boolean contains(char low) {
+            return (words[low >>> 6] & (1L << low)) != 0;
+        }
+
+        @Override
+        Container add(char low) {
+            long before = words[low >>> 6];
+            words[low >>> 6] = before | (1L << low);
+            if (before != words[low >>> 6]) {
+                cardinality++;
+            }
+            return this;
+        }
+
+        @Override
+        Container or(Container other) {
+            if (other instanceof ArrayContainer) {
+                ArrayContainer that = (ArrayContainer) other;
+                for (int i = 0; i < that.size; i++) {
+                    add(that.values[i]);
+                }
+                return this;
+            }
+            long[] theirs = ((BitmapContainer) other).words;
+            int total = 0;
+            for (int i = 0; i < words.length; i++) {
+                words[i] |= theirs[i];
+                total += Long.bitCount(words[i]);
+            }
+            cardinality = total;
+            return this;
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        void forEach(int base, IntConsumer action) {
+            for (int i = 0; i < words.length; i++) {
+                long word = words[i];
+                while (word != 0) {
+                    action.accept(base | (i << 6) | Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+        }
+
+        @Override
+        Container copy() {
+            BitmapContainer copy = new BitmapContainer();
+            System.arraycopy(words, 0, copy.words, 0, words.length);
+            copy.cardinality = cardinality;
+            return copy;
+        }
+
+        @Override
+        long sizeInBytes() {
+            return 16 + 8L * words.length;
+        }
+    }
+}
@@ -0,0 +1,226 @@
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Thread-safe front for a Graph: any number of reader threads, one writer.
+ *
+ * Reads never lock. They run on the current GraphSnapshot, an immutable CSR
+ * copy published through a volatile field, so a query sees one consistent
+ * version of the network from start to end even while routes are changing.
+ *
+ * All mutations are queued to a single writer thread, the only thread that
+ * ever touches the underlying Graph. The writer drains whatever has queued up,
+ * applies it as one batch and then publishes a single new snapshot, so the
+ * O(airports + routes) cost of building a snapshot is shared by the whole batch
+ * rather than paid per change. Every mutation returns a future that completes
+ * once its change is visible to readers.
+ */
+public class ConcurrentGraph implements AutoCloseable {
+    private static final int MAX_BATCH = 4096; // Mutations applied before a snapshot is published
+
+    private final Graph graph;                 // Only touched by the writer thread
+    private volatile GraphSnapshot current;
+    private final BlockingQueue<Mutation<?>> queue = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    private final Object submitLock = new Object(); // Makes "not closed yet" and the enqueue one step
+    private volatile boolean closed = false;
+    private volatile long batches = 0;         // Snapshots published (written by the writer only)
+
+    public ConcurrentGraph() {
+        this(new Graph());
+    }
+
+    /** Takes ownership of graph: it must not be used directly afterwards. */
+    public ConcurrentGraph(Graph graph) {
+        this.graph = graph;
+        this.current = graph.snapshot();
+        this.writer = new Thread(this::writeLoop, "graph-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    // ---------------------------------------------------------------------
+    // Reads (lock-free, on the published snapshot, no console output)
+    // ---------------------------------------------------------------------
+
+    /** The latest published snapshot; use it to run several queries on the same version. */
+    public GraphSnapshot snapshot() {
+        return current;
+    }
+
+    public long version() {
+        return current.version();
+    }
+
+    /** Same return values as GraphSnapshot.dijkstra. */
+    public List<Edge> dijkstra(String start, String end, boolean useCost) {
+        return current.dijkstra(start, end, useCost);
+    }
+
+    /** Same return values as GraphSnapshot.bfsShortestPath. */
+    public List<Edge> bfsShortestPath(String startCode, String destinationCode) {
+        return current.bfsShortestPath(startCode, destinationCode);
+    }
+
+    /** Same return values as GraphSnapshot.bfsReachable. */
+    public List<Vertex> bfsReachable(String startCode) {
+        return current.bfsReachable(startCode);
+    }
+
+    // ---------------------------------------------------------------------
+    // Writes (queued to the writer thread)
+    // ---------------------------------------------------------------------
+
+    public CompletableFuture<Boolean> addAirport(Vertex airport) {
+        return submit(graph -> graph.addAirport(airport));
+    }
+
+    public CompletableFuture<Boolean> removeAirport(String airportCode) {
+        return submit(graph -> graph.removeAirport(airportCode));
+    }
+
+    public CompletableFuture<Boolean> addRoute(Edge route) {
+        return submit(graph -> graph.addRoute(route));
+    }
+
+    public CompletableFuture<Boolean> removeRoute(String from, String to) {
+        return submit(graph -> graph.removeRoute(from, to));
+    }
+
+    /**
+     * Runs several changes as one unit: readers never see only some of them.
+     * There is no rollback, so if changes throws halfway the part it already
+     * applied is published with the batch.
+     */
+    public CompletableFuture<Void> batch(Consumer<Graph> changes) {
+        return submit(graph -> {
+            changes.accept(graph);
+            return null;
+        });
+    }
+
+    /**
+     * Runs any function against the Graph on the writer thread. The future
+     * completes with its result once the resulting snapshot is published, or
+     * exceptionally if the function threw (Errors included) or the snapshot
+     * could not be built. Either way the writer goes on with the next change.
+     */
+    public <T> CompletableFuture<T> submit(Function<Graph, T> change) {
+        Mutation<T> mutation = new Mutation<>(change);
+        synchronized (submitLock) {
+            if (closed) {
+                throw new IllegalStateException("ConcurrentGraph is closed");
+            }
+            queue.add(mutation);
+        }
+        return mutation.result;
+    }
+
+    /** Number of snapshots published by the writer so far. */
+    public long batchCount() {
+        return batches;
+    }
+
+    /**
+     * Applies everything already queued, then stops the writer thread. If the
+     * calling thread is interrupted while waiting, close() returns early with
+     * the interrupt flag set and the writer finishes the queue on its own.
+     */
+    @Override
+    public void close() {
+        synchronized (submitLock) {
+            if (closed) {
+                return;
+            }
+            closed = true; // No submit can enqueue after this, so the writer's empty check is final
+        }
+        writer.interrupt();
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void writeLoop() {
+        List<Mutation<?>> batch = new ArrayList<>();
+        try {
+            while (true) {
+                try {
+                    if (closed && queue.isEmpty()) {
+                        return;
+                    }
+                    Mutation<?> first = queue.poll(100, TimeUnit.MILLISECONDS);
+                    if (first == null) {
+                        continue;
+                    }
+                    batch.add(first);
+                } catch (InterruptedException e) {
+                    if (queue.isEmpty()) {
+                        return;
+                    }
+                }
+                queue.drainTo(batch, MAX_BATCH - batch.size());
+
+                for (Mutation<?> mutation : batch) {
+                    mutation.apply(graph);
+                }
+                try {
+                    current = graph.snapshot(); // Publish before completing, so callers see their change
+                    batches++;
+                    for (Mutation<?> mutation : batch) {
+                        mutation.complete();
+                    }
+                } catch (Throwable e) {
+                    // The changes stay in the graph and go out with the next batch that publishes
+                    for (Mutation<?> mutation : batch) {
+                        mutation.result.completeExceptionally(e);
+                    }
+                }
+                batch.clear();
+            }
+        } catch (Throwable e) {
+            // Only reached if the loop itself breaks: nobody may wait for a writer that is gone
+            synchronized (submitLock) {
+                closed = true;
+            }
+            for (Mutation<?> mutation : batch) {
+                mutation.result.completeExceptionally(e);
+            }
+            for (Mutation<?> mutation; (mutation = queue.poll()) != null;) {
+                mutation.result.completeExceptionally(e);
+            }
+            throw e;
+        }
+    }
+
+    // One queued change and its outcome
+    private static class Mutation<T> {
+        final Function<Graph, T> change;
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        T value;
+        Throwable failure;
+
+        Mutation(Function<Graph, T> change) {
+            this.change = change;
+        }
+
+        void apply(Graph graph) {
+            try {
+                value = change.apply(graph);
+            } catch (Throwable e) {
+                failure = e; // Errors too: the writer must survive them, and the caller gets the failure
+            }
+        }
+
+        void complete() {
+            if (failure != null) {
+                result.completeExceptionally(failure);
+            } else {
+                result.complete(value);
+            }
+        }
+    }
+}
@@ -0,0 +1,114 @@
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Read throughput of ConcurrentGraph with 1, 2, 4, ... reader threads while a
+ * writer keeps adding and removing routes.
+ *
+ * Usage: java ConcurrentGraphBenchmark [airports] [routesPerAirport] [seconds] [writesPerSecond]
+ *
+ * Each reader runs random cost-optimal Dijkstra queries on the published
+ * snapshot; the table shows queries per second for every thread count together
+ * with the writes and snapshots published during the same run.
+ */
+public class ConcurrentGraphBenchmark {
+    public static void main(String[] args) throws Exception {
+        int airports = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+        int routesPerAirport = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+        int writesPerSecond = args.length > 3 ? Integer.parseInt(args[3]) : 1000;
+
+        Random random = new Random(42);
+        GraphBuilder builder = new GraphBuilder();
+        for (int i = 0; i < airports; i++) {
+            builder.addAirport(new Vertex("Airport " + i, code(i), "Bench"));
+        }
+        for (int i = 0; i < airports * routesPerAirport; i++) {
+            builder.addRoute(randomRoute(random, airports));
+        }
+        Graph graph = builder.build();
+
+
+        System.out.printf("%d airports, %d routes, %d s per run, %d writes/s%n", airports,
+                graph.snapshot().routeCount(), seconds, writesPerSecond);
+        System.out.printf("%-8s | %-14s | %-12s | %-10s | %-9s%n", "Readers", "Queries/s", "Per reader", "Writes", "Snapshots");
+
+        try (ConcurrentGraph concurrent = new ConcurrentGraph(graph)) {
+            int cores = Runtime.getRuntime().availableProcessors();
+            for (int readers = 1; readers <= Math.max(2, cores); readers *= 2) {
+                Result result = run(concurrent, airports, readers, seconds, writesPerSecond);
+                System.out.printf("%-8d | %-14.0f | %-12.0f | %-10d | %-9d%n", readers, result.queriesPerSecond,
+                        result.queriesPerSecond / readers, result.writes, result.snapshots);
+            }
+        }
+    }
+
+    private static Result run(ConcurrentGraph graph, int airports, int readers, int seconds, int writesPerSecond)
+            throws InterruptedException {
+        LongAdder queries = new LongAdder();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        long batchesBefore = graph.batchCount();
+        ExecutorService pool = Executors.newFixedThreadPool(readers + 1);
+
+        for (int r = 0; r < readers; r++) {
+            long seed = r;
+            pool.execute(() -> {
+                Random random = new Random(seed);
+                while (System.nanoTime() < deadline) {
+                    graph.dijkstra(code(random.nextInt(airports)), code(random.nextInt(airports)), true);
+                    queries.increment();
+                }
+            });
+        }
+
+        long[] writes = new long[1];
+        pool.execute(() -> {
+            Random random = new Random(-1);
+            long interval = writesPerSecond > 0 ? 1_000_000_000L / writesPerSecond : Long.MAX_VALUE;
+            long next = System.nanoTime();
+            while (System.nanoTime() < deadline) {
+                if (random.nextBoolean()) {
+                    graph.addRoute(randomRoute(random, airports));
+                } else {
+                    graph.removeRoute(code(random.nextInt(airports)), code(random.nextInt(airports)));
+                }
+                writes[0]++;
+                next += interval;
+                long wait = next - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+            }
+        });
+
+        pool.shutdown();
+        pool.awaitTermination(seconds + 60L, TimeUnit.SECONDS);
+        graph.batch(g -> { }).join(); // Wait until the writer caught up
+        return new Result(queries.sum() / (double) seconds, writes[0], graph.batchCount() - batchesBefore);
+    }
+
+    private static Edge randomRoute(Random random, int airports) {
+        int from = random.nextInt(airports);
+        int to = (from + 1 + random.nextInt(airports - 1)) % airports;
+        double distance = 100 + random.nextInt(2000);
+        return new Edge(code(from), code(to), Math.round(distance * 0.4), Math.round(distance / 8.0) / 10.0 + 0.5);
+    }
+
+    private static String code(int i) {
+        return "B" + i;
+    }
+
+    private static class Result {
+        final double queriesPerSecond;
+        final long writes;
+        final long snapshots;
+
+        Result(double queriesPerSecond, long writes, long snapshots) {
+            this.queriesPerSecond = queriesPerSecond;
+            this.writes = writes;
+            this.snapshots = snapshots;
+        }
+    }
+}
@@ -0,0 +1,579 @@
+import java.util.*;
+import java.util.stream.IntStream;
+
+/**
+ * Contraction hierarchy of a GraphSnapshot for one metric (cost or time).
+ *
+ * Preprocessing contracts airports from least to most important. Contracting
+ * an airport v removes it from the remaining graph and adds a shortcut u -> w
+ * for every pair of neighbours whose only shortest connection ran through v
+ * (checked with a bounded "witness" search). Airports are contracted in rounds:
+ * every round takes the airports whose priority is lower than that of all
+ * their remaining neighbours (so no two of them are adjacent), computes their
+ * shortcuts in parallel and applies them. Priorities (edge difference) are
+ * computed in parallel and refreshed lazily when an airport becomes a candidate.
+ *
+ * A query then only walks "upwards" (towards more important airports) from
+ * both ends and meets in the middle, which settles a tiny part of the network.
+ * Shortcuts remember the two arcs they replace, so the result is unpacked back
+ * into the original route edges.
+ */
+public class ContractionHierarchy {
+    private static final int ESTIMATE_SETTLE_LIMIT = 50;  // Max airports settled per witness search (priorities)
+    private static final int CONTRACT_SETTLE_LIMIT = 500; // Max airports settled per witness search (contraction)
+
+    private final GraphSnapshot graph;
+    private final boolean useCost;
+    private final int[] rank;  // id -> contraction order (higher = more important)
+
+    // Arcs of the hierarchy (original routes first, then shortcuts)
+    private int arcCount;
+    private int[] arcFrom;
+    private int[] arcTo;
+    private double[] arcWeight;
+    private int[] arcFirst;    // Shortcut: arc u -> v it replaces (-1 for an original route)
+    private int[] arcSecond;   // Shortcut: arc v -> w it replaces (original route: edge index in the snapshot)
+
+    // Upward search graphs in CSR form (arc ids), built when preprocessing is done
+    private int[] upOffsets;   // forward search: arcs u -> w with rank[w] > rank[u], grouped by u
+    private int[] upArcs;
+    private int[] downOffsets; // backward search: arcs u -> w with rank[u] > rank[w], grouped by w
+    private int[] downArcs;
+
+    private final ThreadLocal<QueryScratch> scratch = ThreadLocal.withInitial(QueryScratch::new);
+
+    /** Builds the hierarchy; witness searches and re-prioritisation run on the common ForkJoinPool. */
+    public ContractionHierarchy(GraphSnapshot graph, boolean useCost) {
+        this.graph = graph;
+        this.useCost = useCost;
+        this.rank = new int[graph.airportCount()];
+        new Builder().contractAll();
+        buildSearchGraphs();
+    }
+
+    public GraphSnapshot snapshot() {
+        return graph;
+    }
+
+    public boolean usesCost() {
+        return useCost;
+    }
+
+    /** Number of shortcut arcs added by preprocessing. */
+    public int shortcutCount() {
+        return arcCount - graph.routeCount();
+    }
+
+    // ---------------------------------------------------------------------
+    // Query
+    // ---------------------------------------------------------------------
+
+    /**
+     * Optimal path from source to target, unpacked into original routes.
+     * Returns an empty list if the target is unreachable.
+     */
+    public List<Edge> shortestPath(int source, int target) {
+        int[] edges = shortestPathEdges(source, target);
+        return graph.toPath(edges, edges.length);
+    }
+
+    /** Same as shortestPath but returns snapshot edge indexes (travel order). */
+    public int[] shortestPathEdges(int source, int target) {
+        QueryScratch q = scratch.get();
+        q.reset(graph.airportCount());
+        q.forward.start(source);
+        q.backward.start(target);
+
+        double best = Double.POSITIVE_INFINITY;
+        int meeting = -1;
+        if (source == target) {
+            return new int[0];
+        }
+
+        while (!q.forward.heap.isEmpty() || !q.backward.heap.isEmpty()) {
+            // Each side may stop once its smallest key cannot improve the best meeting
+            boolean forwardDone = q.forward.heap.isEmpty() || q.forward.heap.peekKey() >= best;
+            boolean backwardDone = q.backward.heap.isEmpty() || q.backward.heap.peekKey() >= best;
+            if (forwardDone && backwardDone) {
+                break;
+            }
+            boolean forward = !forwardDone
+                    && (backwardDone || q.forward.heap.peekKey() <= q.backward.heap.peekKey());
+            Side side = forward ? q.forward : q.backward;
+            Side other = forward ? q.backward : q.forward;
+            int[] offsets = forward ? upOffsets : downOffsets;
+            int[] arcs = forward ? upArcs : downArcs;
+
+            int current = side.heap.poll();
+            double base = side.dist[current];
+            if (other.reached(current) && base + other.dist[current] < best) {
+                best = base + other.dist[current];
+                meeting = current;
+            }
+            for (int i = offsets[current]; i < offsets[current + 1]; i++) {
+                int arc = arcs[i];
+                int next = forward ? arcTo[arc] : arcFrom[arc];
+                side.relax(next, base + arcWeight[arc], arc);
+            }
+        }
+
+        if (meeting < 0) {
+            return new int[0]; // Destination unreachable
+        }
+
+        // Collect hierarchy arcs source -> meeting -> target, then unpack shortcuts
+        IntList hierarchyArcs = new IntList();
+        for (int node = meeting; node != source; node = arcFrom[q.forward.parentArc[node]]) {
+            hierarchyArcs.add(q.forward.parentArc[node]);
+        }
+        hierarchyArcs.reverse();
+        for (int node = meeting; node != target; node = arcTo[q.backward.parentArc[node]]) {
+            hierarchyArcs.add(q.backward.parentArc[node]);
+        }
+        IntList edges = new IntList();
+        for (int i = 0; i < hierarchyArcs.size; i++) {
+            unpack(hierarchyArcs.data[i], edges);
+        }
+        return Arrays.copyOf(edges.data, edges.size);
+    }
+
+    // Expands an arc into original snapshot edge indexes (iteratively, shortcuts can nest deeply)
+    private void unpack(int arc, IntList out) {
+        IntList stack = new IntList();
+        stack.add(arc);
+        while (stack.size > 0) {
+            int a = stack.data[--stack.size];
+            if (arcFirst[a] < 0) {
+                out.add(arcSecond[a]);
+            } else {
+                stack.add(arcSecond[a]); // pushed first so that the first half is expanded first
+                stack.add(arcFirst[a]);
+            }
+        }
+    }
+
+    private void buildSearchGraphs() {
+        int n = graph.airportCount();
+        upOffsets = new int[n + 1];
+        downOffsets = new int[n + 1];
+        for (int a = 0; a < arcCount; a++) {
+            if (rank[arcTo[a]] > rank[arcFrom[a]]) {
+                upOffsets[arcFrom[a] + 1]++;
+            } else {
+                downOffsets[arcTo[a] + 1]++;
+            }
+        }
+        for (int u = 0; u < n; u++) {
+            upOffsets[u + 1] += upOffsets[u];
+            downOffsets[u + 1] += downOffsets[u];
+        }
+        upArcs = new int[upOffsets[n]];
+        downArcs = new int[downOffsets[n]];
+        int[] upFill = Arrays.copyOf(upOffsets, n);
+        int[] downFill = Arrays.copyOf(downOffsets, n);
+        for (int a = 0; a < arcCount; a++) {
+            if (rank[arcTo[a]] > rank[arcFrom[a]]) {
+                upArcs[upFill[arcFrom[a]]++] = a;
+            } else {
+                downArcs[downFill[arcTo[a]]++] = a;
+            }
+        }
+    }
+
+    private int addArc(int from, int to, double weight, int first, int second) {
+        if (arcCount == arcFrom.length) {
+            int capacity = Math.max(16, arcCount * 2);
+            arcFrom = Arrays.copyOf(arcFrom, capacity);
+            arcTo = Arrays.copyOf(arcTo, capacity);
+            arcWeight = Arrays.copyOf(arcWeight, capacity);
+            arcFirst = Arrays.copyOf(arcFirst, capacity);
+            arcSecond = Arrays.copyOf(arcSecond, capacity);
+        }
+        arcFrom[arcCount] = from;
+        arcTo[arcCount] = to;
+        arcWeight[arcCount] = weight;
+        arcFirst[arcCount] = first;
+        arcSecond[arcCount] = second;
+        return arcCount++;
+    }
+
+    // ---------------------------------------------------------------------
+    // Preprocessing
+    // ---------------------------------------------------------------------
+
+    // State that only exists while contracting
+    private class Builder {
+        final int n = graph.airportCount();
+        final IntList[] outArcs = new IntList[n];  // arcs leaving each airport (may point at contracted airports)
+        final IntList[] inArcs = new IntList[n];   // arcs entering each airport
+        final boolean[] contracted = new boolean[n];
+        final boolean[] inRound = new boolean[n];  // airports being contracted in the current round
+        final boolean[] stale = new boolean[n];    // priority needs recomputing before contraction
+        final int[] contractedNeighbours = new int[n];
+        final double[] priority = new double[n];
+        final ThreadLocal<WitnessScratch> witness = ThreadLocal.withInitial(WitnessScratch::new);
+
+        Builder() {
+            int m = graph.routeCount();
+            arcFrom = new int[Math.max(16, m * 2)];
+            arcTo = new int[arcFrom.length];
+            arcWeight = new double[arcFrom.length];
+            arcFirst = new int[arcFrom.length];
+            arcSecond = new int[arcFrom.length];
+            for (int u = 0; u < n; u++) {
+                outArcs[u] = new IntList();
+                inArcs[u] = new IntList();
+            }
+            int[] offsets = graph.offsets();
+            int[] dest = graph.destinations();
+            double[] weight = graph.weights(useCost);
+            for (int u = 0; u < n; u++) {
+                for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+                    int arc = addArc(u, dest[e], weight[e], -1, e);
+                    outArcs[u].add(arc);
+                    inArcs[dest[e]].add(arc);
+                }
+            }
+        }
+
+        void contractAll() {
+            IntStream.range(0, n).parallel().forEach(v -> priority[v] = computePriority(v));
+
+            int order = 0;
+            IntList remaining = new IntList();
+            for (int v = 0; v < n; v++) {
+                remaining.add(v);
+            }
+            while (remaining.size > 0) {
+                // Candidates: airports that beat every remaining neighbour. Priorities of
+                // airports next to contracted ones are only refreshed lazily, here, when
+                // they become candidates (hubs would otherwise be re-evaluated every round).
+                IntList candidates = new IntList();
+                for (int i = 0; i < remaining.size; i++) {
+                    int v = remaining.data[i];
+                    if (isLocalMinimum(v)) {
+                        candidates.add(v);
+                    }
+                }
+                IntStream.range(0, candidates.size).parallel().forEach(i -> {
+                    int v = candidates.data[i];
+                    if (stale[v]) {
+                        priority[v] = computePriority(v);
+                        stale[v] = false;
+                    }
+                });
+
+                // Independent set: candidates that still win with refreshed priorities
+                IntList round = new IntList();
+                for (int i = 0; i < candidates.size; i++) {
+                    int v = candidates.data[i];
+                    if (isLocalMinimum(v)) {
+                        round.add(v);
+                    }
+                }
+                if (round.size == 0) {
+                    continue; // Refreshed priorities changed the picture, select again
+                }
+
+                // Shortcuts of independent airports can be computed in parallel. Witness
+                // paths may not run through any airport of the round: they all disappear
+                // together, so two of them must not rely on each other.
+                int[] batch = Arrays.copyOf(round.data, round.size);
+                for (int v : batch) {
+                    inRound[v] = true;
+                }
+                List<double[]> shortcuts = Arrays.asList(new double[batch.length][]);
+                IntStream.range(0, batch.length).parallel()
+                        .forEach(i -> shortcuts.set(i, findShortcuts(batch[i], CONTRACT_SETTLE_LIMIT)));
+
+                // Apply sequentially (arc arrays are not thread-safe)
+                Set<Integer> touched = new HashSet<>();
+                for (int i = 0; i < batch.length; i++) {
+                    int v = batch[i];
+                    forEachNeighbour(v, u -> {
+                        contractedNeighbours[u]++;
+                        touched.add(u);
+                    });
+                    contracted[v] = true;
+                    inRound[v] = false;
+                    rank[v] = order++;
+                    double[] found = shortcuts.get(i);
+                    for (int s = 0; s < found.length; s += 3) {
+                        addShortcut((int) found[s], (int) found[s + 1], found[s + 2]);
+                    }
+                }
+
+                // Drop arcs to contracted airports and mark the neighbours for re-prioritising
+                for (int u : touched) {
+                    removeArcs(outArcs[u], true);
+                    removeArcs(inArcs[u], false);
+                    priority[u]++; // Cheap part of the update (contracted neighbours term)
+                    stale[u] = true;
+                }
+
+                IntList next = new IntList();
+                for (int i = 0; i < remaining.size; i++) {
+                    if (!contracted[remaining.data[i]]) {
+                        next.add(remaining.data[i]);
+                    }
+                }
+                remaining = next;
+            }
+        }
+
+        // Adds shortcut in -> out unless an arc between the same airports is already as short
+        void addShortcut(int in, int out, double weight) {
+            int from = arcFrom[in];
+            int to = arcTo[out];
+            IntList fromArcs = outArcs[from];
+            for (int i = 0; i < fromArcs.size; i++) {
+                int existing = fromArcs.data[i];
+                if (arcTo[existing] == to) {
+                    if (arcWeight[existing] <= weight) {
+                        return;
+                    }
+                    fromArcs.removeAt(i);
+                    inArcs[to].removeValue(existing);
+                    break;
+                }
+            }
+            int arc = addArc(from, to, weight, in, out);
+            fromArcs.add(arc);
+            inArcs[to].add(arc);
+        }
+
+        // Removes arcs whose other end has been contracted
+        void removeArcs(IntList arcs, boolean outgoing) {
+            int kept = 0;
+            for (int i = 0; i < arcs.size; i++) {
+                int arc = arcs.data[i];
+                if (!contracted[outgoing ? arcTo[arc] : arcFrom[arc]]) {
+                    arcs.data[kept++] = arc;
+                }
+            }
+            arcs.size = kept;
+        }
+
+        boolean isLocalMinimum(int v) {
+            boolean[] minimum = { true };
+            forEachNeighbour(v, u -> {
+                if (priority[u] < priority[v] || (priority[u] == priority[v] && u < v)) {
+                    minimum[0] = false;
+                }
+            });
+            return minimum[0];
+        }
+
+        // Calls action for every remaining (uncontracted) neighbour of v, in or out
+        void forEachNeighbour(int v, java.util.function.IntConsumer action) {
+            for (int i = 0; i < outArcs[v].size; i++) {
+                int u = arcTo[outArcs[v].data[i]];
+                if (!contracted[u] && u != v) {
+                    action.accept(u);
+                }
+            }
+            for (int i = 0; i < inArcs[v].size; i++) {
+                int u = arcFrom[inArcs[v].data[i]];
+                if (!contracted[u] && u != v) {
+                    action.accept(u);
+                }
+            }
+        }
+
+        // Edge difference + contracted neighbours: prefer airports that add few shortcuts
+        double computePriority(int v) {
+            int shortcuts = findShortcuts(v, ESTIMATE_SETTLE_LIMIT).length / 3;
+            int degree = 0;
+            for (int i = 0; i < outArcs[v].size; i++) {
+                if (!contracted[arcTo[outArcs[v].data[i]]]) {
+                    degree++;
+                }
+            }
+            for (int i = 0; i < inArcs[v].size; i++) {
+                if (!contracted[arcFrom[inArcs[v].data[i]]]) {
+                    degree++;
+                }
+            }
+            return shortcuts - degree + contractedNeighbours[v];
+        }
+
+        /**
+         * Shortcuts needed if v were contracted, as triples (in arc, out arc, weight).
+         * A witness search that gives up early only adds shortcuts, never loses paths.
+         */
+        double[] findShortcuts(int v, int settleLimit) {
+            WitnessScratch ws = witness.get();
+            DoubleList result = new DoubleList();
+            double maxOut = 0;
+            for (int j = 0; j < outArcs[v].size; j++) {
+                int out = outArcs[v].data[j];
+                if (!contracted[arcTo[out]]) {
+                    maxOut = Math.max(maxOut, arcWeight[out]);
+                }
+            }
+            for (int i = 0; i < inArcs[v].size; i++) {
+                int in = inArcs[v].data[i];
+                int u = arcFrom[in];
+                if (contracted[u] || u == v) {
+                    continue;
+                }
+                // Distances from u avoiding v, bounded by the longest path through v
+                ws.search(u, v, arcWeight[in] + maxOut, settleLimit, outArcs[v]);
+                for (int j = 0; j < outArcs[v].size; j++) {
+                    int out = outArcs[v].data[j];
+                    int w = arcTo[out];
+                    if (contracted[w] || w == u || w == v) {
+                        continue;
+                    }
+                    double via = arcWeight[in] + arcWeight[out];
+                    if (ws.distance(w) > via) {
+                        result.add(in);
+                        result.add(out);
+                        result.add(via);
+                    }
+                }
+            }
+            return result.toArray();
+        }
+
+        // Per-thread Dijkstra over the remaining graph, used to look for witness paths
+        class WitnessScratch {
+            final double[] dist = new double[n];
+            final int[] stamp = new int[n];
+            final int[] targetStamp = new int[n]; // airports the search still has to settle
+            int generation = 0;
+            final IndexedMinHeap heap = new IndexedMinHeap();
+
+            double distance(int id) {
+                return stamp[id] == generation ? dist[id] : Double.POSITIVE_INFINITY;
+            }
+
+            // Stops early once every head of targetArcs is settled
+            void search(int source, int avoid, double limit, int settleLimit, IntList targetArcs) {
+                if (++generation == Integer.MAX_VALUE) { // Wrapped around, reset stamps once
+                    Arrays.fill(stamp, 0);
+                    Arrays.fill(targetStamp, 0);
+                    generation = 1;
+                }
+                int targets = 0;
+                for (int i = 0; i < targetArcs.size; i++) {
+                    int w = arcTo[targetArcs.data[i]];
+                    if (!contracted[w] && w != source && w != avoid && targetStamp[w] != generation) {
+                        targetStamp[w] = generation;
+                        targets++;
+                    }
+                }
+                heap.ensureCapacity(n);
+                stamp[source] = generation;
+                dist[source] = 0.0;
+                heap.insert(source, 0.0);
+                int settled = 0;
+                while (!heap.isEmpty() && settled < settleLimit) {
+                    if (heap.peekKey() > limit) {
+                        break;
+                    }
+                    int current = heap.poll();
+                    settled++;
+                    if (targetStamp[current] == generation && --targets == 0) {
+                        break;
+                    }
+                    IntList arcs = outArcs[current];
+                    for (int i = 0; i < arcs.size; i++) {
+                        int arc = arcs.data[i];
+                        int next = arcTo[arc];
+                        if (next == avoid || contracted[next] || inRound[next]) {
+                            continue;
+                        }
+                        double alt = dist[current] + arcWeight[arc];
+                        if (stamp[next] != generation) {
+                            stamp[next] = generation;
+                            dist[next] = alt;
+                            heap.insert(next, alt);
+                        } else if (alt < dist[next] && heap.contains(next)) {
+                            dist[next] = alt;
+                            heap.decreaseKey(next, alt);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    // ---------------------------------------------------------------------
+    // Small helpers
+    // ---------------------------------------------------------------------
+
+    // One direction of a query: tentative distances, parent arcs and a heap
+    private static class Side {
+        double[] dist = new double[0];
+        int[] parentArc = new int[0];
+        int[] stamp = new int[0];
+        int generation = 0;
+        final IndexedMinHeap heap = new IndexedMinHeap();
+
+        void reset(int n) {
+            if (stamp.length < n) {
+                dist = new double[n];
+                parentArc = new int[n];
+                stamp = new int[n];
+                generation = 0;
+            }
+            if (++generation == Integer.MAX_VALUE) { // Wrapped around, reset stamps once
+                Arrays.fill(stamp, 0);
+                generation = 1;
+            }
+            heap.ensureCapacity(n);
+        }
+
+        void start(int id) {
+            stamp[id] = generation;
+            dist[id] = 0.0;
+            parentArc[id] = -1;
+            heap.insert(id, 0.0);
+        }
+
+        boolean reached(int id) {
+            return stamp[id] == generation;
+        }
+
+        void relax(int id, double alt, int arc) {
+            if (stamp[id] != generation) {
+                stamp[id] = generation;
+                dist[id] = alt;
+                parentArc[id] = arc;
+                heap.insert(id, alt);
+            } else if (alt < dist[id] && heap.contains(id)) {
+                dist[id] = alt;
+                parentArc[id] = arc;
+                heap.decreaseKey(id, alt);
+            }
+        }
+    }
+
+    private static class QueryScratch {
+        final Side forward = new Side();
+        final Side backward = new Side();
+
+        void reset(int n) {
+            forward.reset(n);
+            backward.reset(n);
+        }
+    }
+
+    // Growable double array
+    static class DoubleList {
+        double[] data = new double[6];
+        int size = 0;
+
+        void add(double value) {
+            if (size == data.length) {
+                data = Arrays.copyOf(data, size * 2);
+            }
+            data[size++] = value;
+        }
+
+        double[] toArray() {
+            return Arrays.copyOf(data, size);
+        }
+    }
+}
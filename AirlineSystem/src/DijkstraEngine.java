@@ -0,0 +1,224 @@
+import java.util.*;
+
+/**
+ * Dijkstra over a GraphSnapshot using an IndexedMinHeap (real decrease-key)
+ * and primitive distance / parent arrays.
+ *
+ * Each thread owns one engine (see forCurrentThread()) whose arrays are reused
+ * across queries. Instead of refilling dist/parent on every call, an entry is
+ * only trusted when its stamp equals the current generation, so starting a new
+ * search is O(1) and a query allocates nothing but its result path.
+ */
+public class DijkstraEngine {
+    private static final ThreadLocal<DijkstraEngine> LOCAL = ThreadLocal.withInitial(DijkstraEngine::new);
+
+    private double[] dist = new double[0];  // id -> best known distance
+    private int[] parent = new int[0];      // id -> previous airport id on the best path
+    private int[] parentEdge = new int[0];  // id -> edge index used to reach it
+    private int[] stamp = new int[0];       // id -> generation in which the entries above were written
+    private int generation = 0;
+    private final IndexedMinHeap heap = new IndexedMinHeap();
+
+    private GraphSnapshot graph;            // Snapshot of the last search
+    private int source = -1;                // Source of the last search
+    private int settled = 0;                // Airports polled by the last search
+    private int relaxed = 0;                // Edges looked at by the last search
+
+    /** Returns the reusable engine of the calling thread. */
+    public static DijkstraEngine forCurrentThread() {
+        return LOCAL.get();
+    }
+
+    /**
+     * Convenience wrapper: optimal path from source to target by cost (useCost)
+     * or time. Returns an empty list if the target is unreachable.
+     */
+    public static List<Edge> shortestPath(GraphSnapshot graph, int source, int target, boolean useCost) {
+        DijkstraEngine engine = forCurrentThread();
+        if (!engine.search(graph, source, target, useCost)) {
+            return Collections.emptyList();
+        }
+        return engine.path(target);
+    }
+
+    /**
+     * Runs Dijkstra from source. Stops as soon as target is settled; pass -1 as
+     * target to settle every reachable airport (a full shortest-path tree).
+     * Returns true if target was reached (always true for a full search).
+     */
+    public boolean search(GraphSnapshot graph, int source, int target, boolean useCost) {
+        return search(graph, source, target, useCost, null, null);
+    }
+
+    /**
+     * Same as search(graph, source, target, useCost), but never enters an airport
+     * whose blockedAirports entry is true and never uses an edge index whose
+     * blockedEdges entry is true (either array may be null). Used for the spur
+     * searches of KShortestPaths.
+     */
+    public boolean search(GraphSnapshot graph, int source, int target, boolean useCost,
+            boolean[] blockedAirports, boolean[] blockedEdges) {
+        return search(graph, source, target, useCost, blockedAirports, blockedEdges, null);
+    }
+
+    /**
+     * Same as search(graph, source, target, useCost), but counts every heap
+     * operation and fills profile with the counters and the search boundary.
+     */
+    public boolean search(GraphSnapshot graph, int source, int target, boolean useCost, SearchProfile profile) {
+        return search(graph, source, target, useCost, null, null, profile);
+    }
+
+    private boolean search(GraphSnapshot graph, int source, int target, boolean useCost,
+            boolean[] blockedAirports, boolean[] blockedEdges, SearchProfile profile) {
+        reset(graph, source);
+
+        int[] offsets = graph.offsets();
+        int[] dest = graph.destinations();
+        double[] weight = graph.weights(useCost);
+
+        // The profile-only counters are dead code (and removed by the JIT) without a profile
+        int polled = 0;
+        int scanned = 0;
+        int pushes = 1;
+        int decreases = 0;
+        int maxFrontier = 1;
+        double radius = 0;
+        boolean found = target < 0;
+        heap.insert(source, 0.0);
+        while (!heap.isEmpty()) {
+            int current = heap.poll();
+            polled++;
+            double base = dist[current];
+            if (current == target) {
+                radius = base;
+                found = true;
+                break; // Found destination, exit loop
+            }
+            scanned += offsets[current + 1] - offsets[current];
+            for (int e = offsets[current]; e < offsets[current + 1]; e++) {
+                int next = dest[e];
+                if ((blockedEdges != null && blockedEdges[e]) || (blockedAirports != null && blockedAirports[next])) {
+                    continue;
+                }
+                double alt = base + weight[e];
+                if (stamp[next] != generation) { // First time we see this airport
+                    stamp[next] = generation;
+                    dist[next] = alt;
+                    parent[next] = current;
+                    parentEdge[next] = e;
+                    heap.insert(next, alt);
+                    pushes++;
+                } else if (alt < dist[next] && heap.contains(next)) { // Shorter way to an unsettled airport
+                    dist[next] = alt;
+                    parent[next] = current;
+                    parentEdge[next] = e;
+                    heap.decreaseKey(next, alt);
+                    decreases++;
+                }
+            }
+            if (profile != null) {
+                radius = base;
+                maxFrontier = Math.max(maxFrontier, heap.size());
+            }
+        }
+        settled = polled;
+        relaxed = scanned;
+        if (profile != null) {
+            // Boundary: discovered airports still waiting in the heap
+            List<String> boundary = new ArrayList<>(heap.size());
+            for (int id = 0; id < graph.airportCount() && boundary.size() < heap.size(); id++) {
+                if (reached(id) && heap.contains(id)) {
+                    boundary.add(graph.codeOf(id));
+                }
+            }
+            profile.counts(polled, scanned, pushes, decreases, polled, maxFrontier, radius);
+            profile.boundary(boundary);
+        }
+        return found;
+    }
+
+    private void reset(GraphSnapshot graph, int source) {
+        int n = graph.airportCount();
+        if (stamp.length < n) {
+            dist = new double[n];
+            parent = new int[n];
+            parentEdge = new int[n];
+            stamp = new int[n];
+            generation = 0;
+        }
+        if (++generation == Integer.MAX_VALUE) { // Wrapped around, reset stamps once
+            Arrays.fill(stamp, 0);
+            generation = 1;
+        }
+        heap.ensureCapacity(n);
+
+        this.graph = graph;
+        this.source = source;
+        stamp[source] = generation;
+        dist[source] = 0.0;
+        parent[source] = -1;
+        parentEdge[source] = -1;
+    }
+
+    // ---------------------------------------------------------------------
+    // Results of the last search (valid until the next search on this thread)
+    // ---------------------------------------------------------------------
+
+    /** Airports taken off the heap by the last search. */
+    public int settledCount() {
+        return settled;
+    }
+
+    /** Edges looked at by the last search. */
+    public int relaxedCount() {
+        return relaxed;
+    }
+
+    public boolean reached(int id) {
+        return stamp[id] == generation;
+    }
+
+    public double distance(int id) {
+        return reached(id) ? dist[id] : Double.POSITIVE_INFINITY;
+    }
+
+    public int parent(int id) {
+        return reached(id) ? parent[id] : -1;
+    }
+
+    public int parentEdge(int id) {
+        return reached(id) ? parentEdge[id] : -1;
+    }
+
+    /** Number of hops on the best path to target (0 for the source, -1 if unreached). */
+    public int hops(int target) {
+        if (!reached(target)) {
+            return -1;
+        }
+        int length = 0;
+        for (int node = target; node != source; node = parent[node]) {
+            length++;
+        }
+        return length;
+    }
+
+    /** Edge indexes of the best path to target in travel order (empty if unreached). */
+    public int[] pathEdges(int target) {
+        int length = hops(target);
+        if (length <= 0) {
+            return new int[0];
+        }
+        int[] path = new int[length];
+        for (int node = target; node != source; node = parent[node]) {
+            path[--length] = parentEdge[node];
+        }
+        return path;
+    }
+
+    /** Best path to target as Edge objects (empty if unreached). */
+    public List<Edge> path(int target) {
+        int[] edges = pathEdges(target);
+        return graph.toPath(edges, edges.length);
+    }
+}
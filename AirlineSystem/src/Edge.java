@@ -1,8 +1,12 @@
+import java.util.Objects;
+
 public class Edge {
     public String startingCode;         // Code of the starting airport
     public String destinationCode;      // Code of the destination airport
     public double cost;                 // Price of the flight route (in RM)
     public double time;                 // Flight time of the route (in hours)
+    private transient int startingKey;      // Packed starting code (0 = not computed yet, -1 = cannot be packed)
+    private transient int destinationKey;   // Packed destination code (same values)
 
     public Edge(String startingCode, String destinationCode, double cost, double time) {
         this.startingCode = startingCode;
@@ -11,17 +15,57 @@ public class Edge {
         this.time = time;
     }
 
+    // Key of the starting code in the table of a graph (see AirportCodes). Packed keys
+    // are cached on first use (edges read by Gson skip the constructor); fallback keys
+    // belong to one table, so they are looked up there every time
+    public int startingKey(AirportCodes keys) {
+        if (startingKey == 0) {
+            startingKey = packed(startingCode);
+        }
+        return startingKey > 0 ? startingKey : keys.find(startingCode);
+    }
+
+    public int destinationKey(AirportCodes keys) {
+        if (destinationKey == 0) {
+            destinationKey = packed(destinationCode);
+        }
+        return destinationKey > 0 ? destinationKey : keys.find(destinationCode);
+    }
+
+    private static int packed(String code) {
+        int key = AirportCodes.pack(code);
+        return key != 0 ? key : -1;
+    }
+
     @Override
     public boolean equals(Object obj) {
         // Check if the object is an instance of Edge
         if ((obj instanceof Edge)) {
             Edge edge = (Edge) obj;
             // Check if both starting and destination codes are the same
-            return this.startingCode.equals(edge.startingCode) && this.destinationCode.equals(edge.destinationCode);
+            return sameCode(startingKey, startingCode, edge.startingKey, edge.startingCode)
+                    && sameCode(destinationKey, destinationCode, edge.destinationKey, edge.destinationCode);
         };
         return false;   // Return false if the object is not an Edge
     }
 
+    @Override
+    public int hashCode() {
+        return 31 * codeHash(startingCode) + codeHash(destinationCode);
+    }
+
+    // Packed keys are compared when both are cached, the codes otherwise. Neither this
+    // nor codeHash looks at any fallback table, so they cannot fail or change it
+    private static boolean sameCode(int key, String code, int otherKey, String otherCode) {
+        return key > 0 && otherKey > 0 ? key == otherKey : Objects.equals(code, otherCode);
+    }
+
+    // The packed key where there is one, so the hash does not depend on whether it is cached
+    private static int codeHash(String code) {
+        int key = AirportCodes.pack(code);
+        return key != 0 ? key : Objects.hashCode(code);
+    }
+
     @Override
     public String toString() {
         return String.format("From %s to %s | Cost: RM%.2f | Time: %.2f hours", startingCode, destinationCode, cost, time);
@@ -0,0 +1,37 @@
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+public class Flight {
+    private static final DateTimeFormatter FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm")
+            .withZone(ZoneOffset.UTC);
+
+    public String flightNumber;         // Flight number (e.g. MH1234)
+    public String startingCode;         // Code of the departure airport
+    public String destinationCode;      // Code of the arrival airport
+    public long departureTime;          // Scheduled departure (epoch seconds, UTC)
+    public long arrivalTime;            // Scheduled arrival (epoch seconds, UTC)
+    public double cost;                 // Fare of this flight (in RM)
+
+    public Flight(String flightNumber, String startingCode, String destinationCode, long departureTime,
+            long arrivalTime, double cost) {
+        this.flightNumber = flightNumber;
+        this.startingCode = startingCode;
+        this.destinationCode = destinationCode;
+        this.departureTime = departureTime;
+        this.arrivalTime = arrivalTime;
+        this.cost = cost;
+    }
+
+    /** Flight time in hours (same unit as Edge.time). */
+    public double duration() {
+        return (arrivalTime - departureTime) / 3600.0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s from %s to %s | Departs: %s | Arrives: %s | Cost: RM%.2f", flightNumber,
+                startingCode, destinationCode, FORMAT.format(Instant.ofEpochSecond(departureTime)),
+                FORMAT.format(Instant.ofEpochSecond(arrivalTime)), cost);
+    }
+}
@@ -3,296 +3,888 @@ import java.util.*;
 public class Graph {
     private Map<String, Vertex> airports = new HashMap<>(); // Map of airports with their codes as keys
     private Map<String, List<Edge>> adjacencyList = new HashMap<>(); // Adjacency list
+    // Route index by packed airport code (see AirportCodes): the outgoing and
+    // incoming routes of every airport, found without hashing a String
+    private IntMap<AirportRoutes> routeIndex = new IntMap<>();
+    private AirportCodes airportKeys = new AirportCodes(); // Keys of this graph's codes that cannot be packed
+    private long version = 0; // Bumped on every successful change, used to detect stale snapshots
+    private GraphSnapshot snapshot; // Cached read-only CSR copy (null = not built yet)
+    private final List<GraphListener> listeners = new ArrayList<>(); // Notified after every successful change
+    private ReachabilityIndex reachability; // Created by the first bfsReachable call, then kept up to date
+    private ImportReport importReport; // Rows skipped by Graph(List, List) (null for graphs built otherwise)
 
     public Graph() {
     } // Empty constructor
 
+    // Bulk load through GraphBuilder: invalid and duplicate rows are skipped
+    // silently, see importReport() for the details. Of several airports with
+    // the same code the last one is kept, of several routes between the same
+    // two airports the first one (as with addRoute)
     public Graph(List<Vertex> airports, List<Edge> routes) {
-        for (Vertex airport : airports) {
-            this.airports.put(airport.code, airport);
-            adjacencyList.put(airport.code, new ArrayList<>());
+        GraphBuilder builder = new GraphBuilder()
+                .lastAirportWins()
+                .addAirports(airports.iterator())
+                .addRoutes(routes.iterator());
+        builder.buildInto(this);
+        importReport = builder.report();
+    }
+
+    /** Rows that Graph(List, List) skipped and why; null if the graph was not built that way. */
+    public ImportReport importReport() {
+        return importReport;
+    }
+
+    public boolean addAirport(Vertex airport) {
+        return tryAddAirport(airport).ok();
+    }
+
+    public boolean removeAirport(String airportCode) {
+        return tryRemoveAirport(airportCode).ok();
+    }
+
+    public boolean addRoute(Edge route) {
+        return tryAddRoute(route).ok();
+    }
+
+    public boolean removeRoute(String from, String to) {
+        return tryRemoveRoute(from, to).ok();
+    }
+
+    // The try* methods do the same as the boolean ones, but say why an operation
+    // failed (nothing is printed here, the caller decides what to show)
+
+    /** Adds an airport; the value is the airport added. */
+    public GraphResult<Vertex> tryAddAirport(Vertex airport) {
+        GraphMetrics.Probe probe = GraphMetrics.ENABLED ? GraphMetrics.begin(GraphMetrics.Operation.ADD_AIRPORT) : null;
+        GraphResult<Vertex> result = putAirport(airport);
+        if (probe != null) {
+            probe.mutation(airport.code, null, result.ok());
         }
+        return result;
+    }
 
-        for (Edge route : routes) {
-            addRoute(route);
+    /** Removes an airport and all its routes; the value is the airport removed. */
+    public GraphResult<Vertex> tryRemoveAirport(String airportCode) {
+        GraphMetrics.Probe probe = GraphMetrics.ENABLED ? GraphMetrics.begin(GraphMetrics.Operation.REMOVE_AIRPORT) : null;
+        GraphResult<Vertex> result = deleteAirport(airportCode);
+        if (probe != null) {
+            probe.mutation(airportCode, null, result.ok());
         }
+        return result;
     }
 
-    public boolean addAirport(Vertex airport) {
+    /** Adds a route; the value is the route added. */
+    public GraphResult<Edge> tryAddRoute(Edge route) {
+        GraphMetrics.Probe probe = GraphMetrics.ENABLED ? GraphMetrics.begin(GraphMetrics.Operation.ADD_ROUTE) : null;
+        GraphResult<Edge> result = putRoute(route);
+        if (probe != null) {
+            probe.mutation(route.startingCode, route.destinationCode, result.ok());
+        }
+        return result;
+    }
+
+    /** Removes a route; the value is the route removed. */
+    public GraphResult<Edge> tryRemoveRoute(String from, String to) {
+        GraphMetrics.Probe probe = GraphMetrics.ENABLED ? GraphMetrics.begin(GraphMetrics.Operation.REMOVE_ROUTE) : null;
+        GraphResult<Edge> result = deleteRoute(from, to);
+        if (probe != null) {
+            probe.mutation(from, to, result.ok());
+        }
+        return result;
+    }
+
+    private GraphResult<Vertex> putAirport(Vertex airport) {
         if (!airports.containsKey(airport.code)) {
+            int key = airportKeys.encode(airport.code);
             airports.put(airport.code, airport);
-            adjacencyList.put(airport.code, new ArrayList<>());
-            return true;    // Airport added successfully
+            List<Edge> routes = new ArrayList<>();
+            adjacencyList.put(airport.code, routes);
+            routeIndex.put(key, new AirportRoutes(routes));
+            version++;
+            for (GraphListener listener : listeners) {
+                listener.airportAdded(airport);
+            }
+            return GraphResult.ok(airport);    // Airport added successfully
         }
-        return false; // Airport already exists
+        return GraphResult.error(GraphResult.Error.DUPLICATE_AIRPORT,
+                "Airport with code " + airport.code + " already exists."); // Airport already exists
     }
 
-    public boolean removeAirport(String airportCode) {
+    private GraphResult<Vertex> deleteAirport(String airportCode) {
         if (airports.containsKey(airportCode)) {
             // Remove the airport from the airports map and adjacency list
-            airports.remove(airportCode);
+            int key = airportKeys.find(airportCode);
+            Vertex removed = airports.remove(airportCode);
             adjacencyList.remove(airportCode);
+            AirportRoutes routes = routeIndex.remove(key);
+
+            // Remove the outgoing edges of this airport from the reverse index
+            for (Edge edge : routes.outgoing) {
+                routeIndex.get(edge.destinationKey(airportKeys)).unlinkIncoming(key);
+            }
 
             // Remove all the edges that have this airport as the destination
-            for (List<Edge> edges : adjacencyList.values()) {
-                edges.removeIf(e -> e.destinationCode.equals(airportCode));
+            // (only the origins found in the reverse index are touched)
+            for (Edge edge : routes.incoming) {
+                routeIndex.get(edge.startingKey(airportKeys)).unlinkOutgoing(key);
+            }
+            airportKeys.release(airportCode); // No index holds its key any more
+            version++;
+            for (GraphListener listener : listeners) {
+                listener.airportRemoved(removed);
             }
-            return true;    // Airport removed successfully
+            return GraphResult.ok(removed);    // Airport removed successfully
         }
-        return false; // Airport not found
+        return unknownAirport(airportCode); // Airport not found
     }
 
-    /** 
-    *   this function must have print statements to display the detailed reason
-    *   why the route is not added (e.g. route already exists, one or both airports
-    *   do not exist, etc.) 
-    **/
-    public boolean addRoute(Edge route) {
+    private GraphResult<Edge> putRoute(Edge route) {
         if (route.startingCode.equals(route.destinationCode)) { // Filter out self-loop routes
-            System.out.println("Cannot add a route from " + route.startingCode + " airport to itself!");
-            return false; // Cannot add a route from an airport to itself
+            return GraphResult.error(GraphResult.Error.SELF_LOOP,
+                    "Cannot add a route from " + route.startingCode + " airport to itself!");
         }
 
         // Route that enters here is not a self-loop
         else if (airports.containsKey(route.startingCode) && airports.containsKey(route.destinationCode)) {
-            // Must check if the adjacency list for the starting airport is not null
-            // If it's null, directly use adjacencyList.get(route.startingCode) will cause NPE
-            if (adjacencyList.get(route.startingCode) != null) {
-                for (Edge r : adjacencyList.get(route.startingCode)) {
-                    // Check if the route already exists in the adjacency list
-                    if (route.equals(r)) {
-                        System.out.println(
-                                "\nRoute already exists from " + route.startingCode + " to " + route.destinationCode);
-                        return false; // Route already exists
-                    }
-                }
+            // Check if the route already exists (O(1) lookup by destination)
+            AirportRoutes origin = routeIndex.get(route.startingKey(airportKeys));
+            if (origin.positions.containsKey(route.destinationKey(airportKeys))) {
+                return GraphResult.error(GraphResult.Error.DUPLICATE_ROUTE,
+                        "Route already exists from " + route.startingCode + " to " + route.destinationCode);
             }
             // Route reaches here means the route does not exist, so we can add it
-            adjacencyList.get(route.startingCode).add(route);
-            System.out.println("\nRoute successfully added: " + route.toString() + ".");
-            return true; // Route added successfully
+            origin.link(route);
+            routeIndex.get(route.destinationKey(airportKeys)).linkIncoming(route);
+            version++;
+            for (GraphListener listener : listeners) {
+                listener.routeAdded(route);
+            }
+            return GraphResult.ok(route); // Route added successfully
         }
 
         else { // Route that enters here does not have both airports existing in the graph
-            System.out.println(
-                    "\nOne or both airports do not exist: " + route.startingCode + " / " + route.destinationCode);
-            return false; // One or both airports do not exist
+            return checkAirports(route.startingCode, route.destinationCode);
         }
     }
 
-    public boolean removeRoute(String from, String to) {
-        List<Edge> routes = adjacencyList.get(from);
-        if (routes != null) {
-            for (Edge route : routes) {
-                if (route.destinationCode.equals(to)) {
-                    routes.remove(route);
-                    return true; // Route removed successfully
-                }
+    private GraphResult<Edge> deleteRoute(String from, String to) {
+        int fromKey = airportKeys.find(from);
+        int toKey = airportKeys.find(to);
+        AirportRoutes origin = routeIndex.get(fromKey);
+        Edge route = origin == null ? null : origin.unlinkOutgoing(toKey);
+        if (route != null) {
+            routeIndex.get(toKey).unlinkIncoming(fromKey);
+            version++;
+            for (GraphListener listener : listeners) {
+                listener.routeRemoved(route);
             }
+            return GraphResult.ok(route); // Route removed successfully
         }
-        return false; // Route not found
+        return GraphResult.error(GraphResult.Error.NO_SUCH_ROUTE, "Route from " + from + " to " + to + " does not exist.");
     }
 
-    public void displayGraph() {
-        System.out.println("\nAirline Routes Graph:");
-        System.out.println(
-                "===========================================================================================================================");
-        System.out.printf("%-3s | %-45s | %-45s | %-10s | %-10s%n", "No.", "Starting Airport", "Destination Airport", "Cost (RM)",
-                "Time (h)");
-        System.out.println(
-                "---------------------------------------------------------------------------------------------------------------------------");
-        
-        int count = 0;
-        for (String airportCode : adjacencyList.keySet()) {
-            Vertex airport = airports.get(airportCode);
-
-            for (Edge route : adjacencyList.get(airportCode)) {
-                Vertex destinationAirport = airports.get(route.destinationCode);
-                count++;
-
-                System.out.printf("%-3d | %-39s (%3s) | %-39s (%3s) | %-10.2f | %-10.2f%n", count,
-                        airport.name, airport.code, destinationAirport.name, destinationAirport.code, route.cost,
-                        route.time);
-            }
+    private static <T> GraphResult<T> unknownAirport(String airportCode) {
+        return GraphResult.error(GraphResult.Error.UNKNOWN_AIRPORT, "Airport with code " + airportCode + " does not exist.");
+    }
+
+    // Error result when start or end is not an airport of this graph, or when both
+    // are the same airport; null when the pair is valid for a route search
+    private <T> GraphResult<T> checkAirports(String start, String end) {
+        if (!airports.containsKey(start) || !airports.containsKey(end)) {
+            return GraphResult.error(GraphResult.Error.UNKNOWN_AIRPORT,
+                    "One or both airports do not exist: " + start + " / " + end);
+        }
+        if (start.equals(end)) {
+            return GraphResult.error(GraphResult.Error.SAME_AIRPORT,
+                    "Start and destination airports should not be the same: " + start);
         }
+        return null;
     }
 
-    public List<Vertex> bfsReachable(String startCode) {
-        // return null = startCode does not exist (got output in this function)
-        // return empty list = startCode is not reachable from any other airport (no
-        // output in this function)
-        // return non-empty list = there are reachable airports from startCode (no
-        // output in this function)
-        if (!airports.containsKey(startCode)) {
-            System.out.println("Airport with code " + startCode + " does not exist.");
-            return null;
+    /** Returns the route from one airport to another, or null if there is none (O(1)). */
+    public Edge getRoute(String from, String to) {
+        AirportRoutes origin = routeIndex.get(airportKeys.find(from));
+        int position = origin == null ? -1 : origin.positions.get(airportKeys.find(to));
+        return position < 0 ? null : origin.outgoing.get(position);
+    }
+
+    // Routes of one airport with O(1) lookup and removal by the packed code of the
+    // airport at the other end. A removed route's place is taken by the last route
+    // of its list (so the order of the remaining routes may change).
+    private class AirportRoutes {
+        final List<Edge> outgoing;                              // Same list as in adjacencyList
+        final IntIntMap positions = new IntIntMap();            // destination key -> position in outgoing
+        final List<Edge> incoming = new ArrayList<>();          // Routes arriving here
+        final IntIntMap incomingPositions = new IntIntMap();    // origin key -> position in incoming
+
+        AirportRoutes(List<Edge> outgoing) {
+            this.outgoing = outgoing;
         }
 
-        Set<String> visited = new HashSet<>();
-        Queue<String> queue = new LinkedList<>();
+        void link(Edge route) {
+            positions.put(route.destinationKey(airportKeys), outgoing.size());
+            outgoing.add(route);
+        }
 
-        queue.offer(startCode);
-        visited.add(startCode);
+        void linkIncoming(Edge route) {
+            incomingPositions.put(route.startingKey(airportKeys), incoming.size());
+            incoming.add(route);
+        }
 
-        while (!queue.isEmpty()) {
-            String current = queue.poll();
+        Edge unlinkOutgoing(int destinationKey) {
+            return unlink(outgoing, positions, destinationKey, true);
+        }
 
-            for (Edge edge : adjacencyList.getOrDefault(current, new ArrayList<>())) {
-                if (!visited.contains(edge.destinationCode)) {
-                    visited.add(edge.destinationCode);
-                    queue.offer(edge.destinationCode);
-                }
+        Edge unlinkIncoming(int startingKey) {
+            return unlink(incoming, incomingPositions, startingKey, false);
+        }
+
+        private Edge unlink(List<Edge> routes, IntIntMap index, int key, boolean byDestination) {
+            int position = index.remove(key);
+            if (position < 0) {
+                return null;
+            }
+            Edge route = routes.get(position);
+            Edge last = routes.remove(routes.size() - 1);
+            if (last != route) {
+                routes.set(position, last);
+                index.put(byDestination ? last.destinationKey(airportKeys) : last.startingKey(airportKeys), position);
             }
+            return route;
         }
+    }
 
-        visited.remove(startCode); // Remove starting node (only want reachable nodes)
-        List<Vertex> reachableAirports = new ArrayList<>();
+    // The find* methods answer the same queries as bfsReachable, bfsShortestPath and
+    // dijkstra, with the reason instead of null when the query is not valid
 
-        // Convert visited codes to Vertex objects
-        for (String code : visited) {
-            reachableAirports.add(airports.get(code));
+    /** Airports reachable from startCode (empty when none). */
+    public GraphResult<List<Vertex>> findReachable(String startCode) {
+        if (!airports.containsKey(startCode)) {
+            return unknownAirport(startCode);
         }
-        return reachableAirports;
+        return GraphResult.ok(bfsReachable(startCode));
     }
 
-    public List<Edge> bfsShortestPath(String startCode, String destinationCode) {
-        // return null = startCode or destinationCode does not exist (got output in this
-        // function)
-        // return null = startCode and destinationCode are the same airport (got output
-        // in this function)
-        // return empty list = destinationCode is unreachable from startCode (no output
-        // in this function)
-        // return non-empty list = the shortest path from startCode to destinationCode
-        // (no output in this function)
+    /** Path with the fewest transits (empty when destinationCode is unreachable). */
+    public GraphResult<List<Edge>> findLeastTransits(String startCode, String destinationCode) {
+        GraphResult<List<Edge>> invalid = checkAirports(startCode, destinationCode);
+        return invalid != null ? invalid : GraphResult.ok(bfsShortestPath(startCode, destinationCode));
+    }
+
+    /** Cheapest (useCost) or fastest path (empty when end is unreachable). */
+    public GraphResult<List<Edge>> findShortestPath(String start, String end, boolean useCost) {
+        GraphResult<List<Edge>> invalid = checkAirports(start, end);
+        return invalid != null ? invalid : GraphResult.ok(dijkstra(start, end, useCost));
+    }
 
-        if (!airports.containsKey(startCode) || !airports.containsKey(destinationCode)) {
-            System.out.println("One or both airports do not exist: " + startCode + " / " + destinationCode);
-            return null; // One or both airports do not exist
+    /** Prints every route as a table (the console menu's "Display Graph"). */
+    public void displayGraph() {
+        AirlineSystem.displayGraph(this);
+    }
+
+    public List<Vertex> bfsReachable(String startCode) {
+        return bfsReachable(startCode, null);
+    }
+
+    /**
+     * Explain mode of bfsReachable: same result, and profile (if not null) gets
+     * the time spent bringing the reachability index up to date and answering.
+     */
+    public List<Vertex> bfsReachable(String startCode, SearchProfile profile) {
+        long mark = profile == null ? 0 : System.nanoTime();
+        // return null = startCode does not exist (see findReachable for the reason)
+        // return empty list = startCode is not reachable from any other airport
+        // return non-empty list = there are reachable airports from startCode
+        GraphMetrics.Probe probe = GraphMetrics.ENABLED ? GraphMetrics.begin(GraphMetrics.Operation.BFS_REACHABLE) : null;
+        if (!airports.containsKey(startCode)) {
+            if (probe != null) {
+                probe.search(startCode, null, 0, 0, -1);
+            }
+            return null;
+        }
+
+        // Answered from the SCC/bitset index, see reachability()
+        if (profile != null) {
+            mark = profile.lap("validate", mark);
+            reachability().reachableCount(startCode); // Rebuilds a stale index, timed on its own
+            mark = profile.lap("index", mark);
         }
-        if (startCode.equals(destinationCode)) {
-            System.out.println("Start and destination airports should not be the same: " + startCode);
-            return null; // Start and destination airports are the same
+        List<Vertex> reachable = reachability().reachable(startCode);
+        if (probe != null) { // A lookup in the index, no airport is settled
+            probe.search(startCode, null, 0, 0, reachable.size());
+        }
+        if (profile != null) {
+            profile.lap("query", mark);
+            profile.strategy("reachability index (" + reachability().componentCount()
+                    + " strongly connected component(s), no search)");
+            profile.counts(reachable.size(), 0, 0, 0, 0, 0, 0);
+        }
+        return reachable;
+    }
+
+    /**
+     * Reachability index of this graph (also answers "is B reachable from A"),
+     * created on first use. It follows later changes through the listener hooks,
+     * incrementally for new airports and routes.
+     */
+    public ReachabilityIndex reachability() {
+        if (reachability == null) {
+            reachability = new ReachabilityIndex(this);
         }
+        return reachability;
+    }
 
-        Queue<String> queue = new LinkedList<>();
-        // key = child, value = parent
-        Map<String, String> parents = new HashMap<>();
-        Set<String> visited = new HashSet<>();
+    public List<Edge> bfsShortestPath(String startCode, String destinationCode) {
+        return bfsShortestPath(startCode, destinationCode, null);
+    }
 
-        queue.offer(startCode);
-        visited.add(startCode);
-        parents.put(startCode, null);
+    /**
+     * Explain mode of bfsShortestPath: same result, and profile (if not null)
+     * is filled in with the queue operations, the frontier left when the
+     * destination was found and the time of every phase.
+     */
+    public List<Edge> bfsShortestPath(String startCode, String destinationCode, SearchProfile profile) {
+        long mark = profile == null ? 0 : System.nanoTime();
+        // return null = startCode or destinationCode does not exist, or they are the
+        // same airport (see findLeastTransits for the reason)
+        // return empty list = destinationCode is unreachable from startCode
+        // return non-empty list = the shortest path from startCode to destinationCode
+        GraphMetrics.Probe probe = GraphMetrics.ENABLED ? GraphMetrics.begin(GraphMetrics.Operation.BFS_SHORTEST_PATH) : null;
+        if (checkAirports(startCode, destinationCode) != null) {
+            if (probe != null) {
+                probe.search(startCode, destinationCode, 0, 0, -1);
+            }
+            return null;
+        }
 
-        while (!queue.isEmpty()) {
-            String current = queue.poll();
+        if (profile != null) {
+            mark = profile.lap("validate", mark);
+            profile.strategy("breadth-first search (int-keyed open addressing)");
+        }
+        int settled = 0;
+        int relaxed = 0;
+        int maxFrontier = 1;
+        int target = airportKeys.find(destinationCode);
+        int current = airportKeys.find(startCode);
+        // Every airport is queued at most once, so the queue is a plain array: head..tail-1
+        int[] queue = new int[16];
+        int head = 0;
+        int tail = 0;
+        // key = child, value = route from its parent (null for the start); also the visited set
+        IntMap<Edge> parents = new IntMap<>();
+
+        queue[tail++] = current;
+        parents.put(current, null);
+
+        while (head < tail) {
+            current = queue[head++];
+            settled++;
             // current node is destination, return the path
-            if (current.equals(destinationCode)) {
+            if (current == target) {
+                if (profile != null) {
+                    mark = profile.lap("search", mark);
+                }
                 List<Edge> path = new ArrayList<>();
                 // Backtrack to get the path
                 // until we reach the starting airport (airport with null parent)
-                for (String node = destinationCode; node != null; node = parents.get(node)) {
-                    String parentNode = parents.get(node);
-                    if (parentNode != null) {
-                        for (Edge edge : adjacencyList.get(parentNode)) {
-                            if (edge.destinationCode.equals(node)) {
-                                path.add(edge);
-                                break;
-                            }
-                        }
-                    }
+                for (Edge edge = parents.get(target); edge != null; edge = parents.get(edge.startingKey(airportKeys))) {
+                    path.add(edge);
                 }
                 // reverse the path to get the correct order
                 Collections.reverse(path);
+                if (probe != null) {
+                    probe.search(startCode, destinationCode, settled, relaxed, path.size());
+                }
+                if (profile != null) {
+                    profile.lap("path", mark);
+                    explainBfs(profile, settled, relaxed, parents.size(), maxFrontier, path.size(), queue, head, tail);
+                }
                 return path;
             }
 
             // Add children to queue and mark as visited
-            for (Edge edge : adjacencyList.getOrDefault(current, new ArrayList<>())) {
-                if (!visited.contains(edge.destinationCode)) {
-                    visited.add(edge.destinationCode);
-                    parents.put(edge.destinationCode, current);
-                    queue.offer(edge.destinationCode);
+            AirportRoutes routes = routeIndex.get(current);
+            if (routes == null) {
+                continue;
+            }
+            for (Edge edge : routes.outgoing) {
+                relaxed++;
+                int next = edge.destinationKey(airportKeys);
+                if (!parents.containsKey(next)) {
+                    parents.put(next, edge);
+                    if (tail == queue.length) {
+                        queue = Arrays.copyOf(queue, tail * 2);
+                    }
+                    queue[tail++] = next;
                 }
             }
+            maxFrontier = Math.max(maxFrontier, tail - head);
+        }
+        if (probe != null) {
+            probe.search(startCode, destinationCode, settled, relaxed, 0);
+        }
+        if (profile != null) {
+            profile.lap("search", mark);
+            int depth = 0; // Hops to the last (deepest) airport settled
+            for (Edge edge = parents.get(current); edge != null; edge = parents.get(edge.startingKey(airportKeys))) {
+                depth++;
+            }
+            explainBfs(profile, settled, relaxed, parents.size(), maxFrontier, depth, queue, head, tail);
         }
         return Collections.emptyList(); // Destination unreachable
     }
 
+    // Fills a BFS profile; every airport is queued once, the ones left in the queue
+    // (queue[head..tail-1]) are the boundary
+    private void explainBfs(SearchProfile profile, int settled, int relaxed, int discovered, int maxFrontier,
+            int hops, int[] queue, int head, int tail) {
+        profile.counts(settled, relaxed, discovered, 0, settled, maxFrontier, hops);
+        List<String> boundary = new ArrayList<>(tail - head);
+        for (int i = head; i < tail; i++) {
+            boundary.add(airportKeys.decode(queue[i]));
+        }
+        profile.boundary(boundary);
+    }
+
     public List<Edge> dijkstra(String start, String end, boolean useCost) {
-        // return null = start or end does not exist (got output in this function)
-        // return null = start and end are the same airport (got output in this
-        // function)
-        // return empty list = end is unreachable from start (no output in this
-        // function)
-        // return non-empty list = the path is the optimal path from start to end (no
-        // output in this function)
-        if (!airports.containsKey(start) || !airports.containsKey(end)) {
-            System.out.println("One or both airports do not exist: " + start + " / " + end);
+        return dijkstra(start, end, useCost, null);
+    }
+
+    /**
+     * Explain mode of dijkstra: same result, and profile (if not null) is
+     * filled in with the heap operations, the airports still queued when the
+     * destination was settled and the time of every phase (including getting
+     * the CSR snapshot, which is rebuilt after the graph changed).
+     */
+    public List<Edge> dijkstra(String start, String end, boolean useCost, SearchProfile profile) {
+        long mark = profile == null ? 0 : System.nanoTime();
+        // return null = start or end does not exist, or they are the same airport
+        // (see findShortestPath for the reason)
+        // return empty list = end is unreachable from start
+        // return non-empty list = the path is the optimal path from start to end
+        GraphMetrics.Probe probe = GraphMetrics.ENABLED ? GraphMetrics.begin(GraphMetrics.Operation.DIJKSTRA) : null;
+        if (checkAirports(start, end) != null) {
+            if (probe != null) {
+                probe.search(start, end, 0, 0, -1);
+            }
             return null;
         }
-        if (start.equals(end)) {
-            System.out.println("Start and destination airports should not be the same: " + start);
+
+        // Runs on the cached CSR snapshot with an indexed heap (O(log n) decrease-key)
+        // and per-thread reusable distance/parent arrays, see DijkstraEngine
+        if (profile != null) {
+            mark = profile.lap("validate", mark);
+        }
+        GraphSnapshot csr = snapshot();
+        List<Edge> path;
+        if (profile == null) {
+            path = DijkstraEngine.shortestPath(csr, csr.idOf(start), csr.idOf(end), useCost);
+        } else {
+            mark = profile.lap("snapshot", mark);
+            profile.strategy("dijkstra by " + (useCost ? "cost" : "time") + " (CSR snapshot, indexed heap)");
+            DijkstraEngine engine = DijkstraEngine.forCurrentThread();
+            boolean found = engine.search(csr, csr.idOf(start), csr.idOf(end), useCost, profile);
+            mark = profile.lap("search", mark);
+            path = found ? engine.path(csr.idOf(end)) : Collections.emptyList();
+            profile.lap("path", mark);
+        }
+        if (probe != null) {
+            DijkstraEngine engine = DijkstraEngine.forCurrentThread();
+            probe.search(start, end, engine.settledCount(), engine.relaxedCount(), path.size());
+        }
+        return path;
+    }
+
+    /**
+     * Every cost/time trade-off between two airports: the paths that no other
+     * path beats on both cost and time, cheapest first (see ParetoSearch).
+     */
+    public ParetoSearch.Result paretoRoutes(String start, String end) {
+        // Same null cases as dijkstra; an empty result = end is unreachable
+        if (checkAirports(start, end) != null) {
+            return null;
+        }
+        return ParetoSearch.search(snapshot(), start, end);
+    }
+
+    /**
+     * Up to k alternative paths without repeated airports, best first by cost
+     * (useCost) or time (see KShortestPaths).
+     */
+    public List<List<Edge>> kShortestPaths(String start, String end, int k, boolean useCost) {
+        // Same null cases as dijkstra; an empty list = end is unreachable
+        if (checkAirports(start, end) != null) {
             return null;
         }
+        GraphSnapshot csr = snapshot();
+        return KShortestPaths.find(csr, csr.idOf(start), csr.idOf(end), k, useCost);
+    }
 
-        // Distance from start to each airport (key = destination airport, value = cost
-        // or time)
-        Map<String, Double> dist = new HashMap<>();
-        // Previous airport in optimal path (key = current airport, value = previous
-        // airport)
-        Map<String, String> prev = new HashMap<>();
-        // Edge used to reach each airport (key = current airport, value = edge)
-        Map<String, Edge> prevEdge = new HashMap<>();
+    /**
+     * Same result as bfsShortestPath (a minimum-transit path), but searches
+     * forward from the start and backward from the destination at the same
+     * time, expanding whichever frontier is smaller one whole level at a time.
+     */
+    public List<Edge> bidirectionalBfsShortestPath(String startCode, String destinationCode) {
+        // Same return values as bfsShortestPath
+        GraphMetrics.Probe probe = GraphMetrics.ENABLED ? GraphMetrics.begin(GraphMetrics.Operation.BIDIRECTIONAL_BFS) : null;
+        if (checkAirports(startCode, destinationCode) != null) {
+            if (probe != null) {
+                probe.search(startCode, destinationCode, 0, 0, -1);
+            }
+            return null;
+        }
 
-        for (String code : airports.keySet()) {
-            dist.put(code, Double.POSITIVE_INFINITY); // initialisng all distance to infinity
-            prev.put(code, null);
-            prevEdge.put(code, null);
-        }
-        dist.put(start, 0.0);
-
-        // Priority queue that stores airport codes (sorted by distance)
-        PriorityQueue<String> pq = new PriorityQueue<>(Comparator.comparingDouble(dist::get));
-        pq.add(start);
-
-        while (!pq.isEmpty()) {
-            String current = pq.poll();
-
-            if (current.equals(end))
-                break; // Found destination, exit loop
-
-            for (Edge edge : adjacencyList.getOrDefault(current, new ArrayList<>())) {
-                double weight = useCost ? edge.cost : edge.time;
-                double alt = dist.get(current) + weight; // Calculate new distance from start to destination
-
-                // If new distance from start to destination is shorter than previously known
-                // distance, then update
-                if (alt < dist.get(edge.destinationCode)) {
-                    dist.put(edge.destinationCode, alt); // Update shortest distance
-                    prev.put(edge.destinationCode, current); // Record best way to reach destination is via current
-                                                             // airport
-                    prevEdge.put(edge.destinationCode, edge); // Record the edge used to reach destination
-                    pq.remove(edge.destinationCode); // Remove old entry (if any)
-                    pq.add(edge.destinationCode); // Add new entry with updated priority
+        int settled = 0;
+        int relaxed = 0;
+        // key = airport, value = edge used to reach it from the start (forward)
+        // or edge used to leave it towards the destination (backward)
+        IntMap<Edge> forwardParents = new IntMap<>();
+        IntMap<Edge> backwardParents = new IntMap<>();
+        int start = airportKeys.find(startCode);
+        int destination = airportKeys.find(destinationCode);
+        forwardParents.put(start, null);
+        backwardParents.put(destination, null);
+        int[] forwardFrontier = {start};
+        int[] backwardFrontier = {destination};
+        int forwardSize = 1;
+        int backwardSize = 1;
+
+        while (forwardSize > 0 && backwardSize > 0) {
+            boolean forward = forwardSize <= backwardSize;
+            IntMap<Edge> parents = forward ? forwardParents : backwardParents;
+            IntMap<Edge> other = forward ? backwardParents : forwardParents;
+            int[] frontier = forward ? forwardFrontier : backwardFrontier;
+            int frontierSize = forward ? forwardSize : backwardSize;
+            int[] nextFrontier = new int[Math.max(16, frontierSize)];
+            int nextSize = 0;
+            int meeting = 0;
+            int bestLength = Integer.MAX_VALUE;
+
+            // Expand the whole level, the shortest meeting point may be found late in it
+            for (int f = 0; f < frontierSize; f++) {
+                AirportRoutes routes = routeIndex.get(frontier[f]);
+                settled++;
+                if (routes == null) {
+                    continue;
+                }
+                for (Edge edge : forward ? routes.outgoing : routes.incoming) {
+                    relaxed++;
+                    int next = forward ? edge.destinationKey(airportKeys) : edge.startingKey(airportKeys);
+                    if (parents.containsKey(next)) {
+                        continue;
+                    }
+                    parents.put(next, edge);
+                    if (nextSize == nextFrontier.length) {
+                        nextFrontier = Arrays.copyOf(nextFrontier, nextSize * 2);
+                    }
+                    nextFrontier[nextSize++] = next;
+                    if (other.containsKey(next)) {
+                        int length = pathLength(forwardParents, next, true) + pathLength(backwardParents, next, false);
+                        if (length < bestLength) {
+                            bestLength = length;
+                            meeting = next;
+                        }
+                    }
                 }
             }
+
+            if (meeting != 0) {
+                List<Edge> path = new ArrayList<>();
+                for (Edge edge = forwardParents.get(meeting); edge != null; edge = forwardParents.get(edge.startingKey(airportKeys))) {
+                    path.add(edge);
+                }
+                Collections.reverse(path);
+                for (Edge edge = backwardParents.get(meeting); edge != null; edge = backwardParents.get(edge.destinationKey(airportKeys))) {
+                    path.add(edge);
+                }
+                if (probe != null) {
+                    probe.search(startCode, destinationCode, settled, relaxed, path.size());
+                }
+                return path;
+            }
+            if (forward) {
+                forwardFrontier = nextFrontier;
+                forwardSize = nextSize;
+            } else {
+                backwardFrontier = nextFrontier;
+                backwardSize = nextSize;
+            }
+        }
+        if (probe != null) {
+            probe.search(startCode, destinationCode, settled, relaxed, 0);
         }
+        return Collections.emptyList(); // Destination unreachable
+    }
+
+    // Number of edges between an airport and the root of a bidirectional BFS tree
+    private int pathLength(IntMap<Edge> parents, int key, boolean forward) {
+        int length = 0;
+        for (Edge edge = parents.get(key); edge != null;
+                edge = parents.get(forward ? edge.startingKey(airportKeys) : edge.destinationKey(airportKeys))) {
+            length++;
+        }
+        return length;
+    }
 
-        // Reconstruct path
+    /**
+     * Same result as dijkstra (an optimal path by cost or time), but runs one
+     * search forward from start and one backward from end over the reverse
+     * adjacency list. Stops once the smallest keys of both queues add up to at
+     * least the best start-to-end distance seen so far.
+     */
+    public List<Edge> bidirectionalDijkstra(String start, String end, boolean useCost) {
+        // Same return values as dijkstra
+        GraphMetrics.Probe probe = GraphMetrics.ENABLED ? GraphMetrics.begin(GraphMetrics.Operation.BIDIRECTIONAL_DIJKSTRA) : null;
+        if (checkAirports(start, end) != null) {
+            if (probe != null) {
+                probe.search(start, end, 0, 0, -1);
+            }
+            return null;
+        }
+
+        int settledCount = 0;
+        int relaxedCount = 0;
+        IntMap<SearchLabel> forwardLabels = new IntMap<>();  // edge: used to reach the airport from start
+        IntMap<SearchLabel> backwardLabels = new IntMap<>(); // edge: used to leave the airport towards end
+        PriorityQueue<SearchEntry> forwardQueue = new PriorityQueue<>();
+        PriorityQueue<SearchEntry> backwardQueue = new PriorityQueue<>();
+
+        int startKey = airportKeys.find(start);
+        int endKey = airportKeys.find(end);
+        forwardLabels.put(startKey, new SearchLabel(0.0, null));
+        backwardLabels.put(endKey, new SearchLabel(0.0, null));
+        forwardQueue.add(new SearchEntry(startKey, 0.0));
+        backwardQueue.add(new SearchEntry(endKey, 0.0));
+
+        double best = Double.POSITIVE_INFINITY; // Best start-to-end distance found so far
+        int meeting = 0;                        // Airport where the best forward and backward paths meet
+
+        while (!forwardQueue.isEmpty() && !backwardQueue.isEmpty()) {
+            if (forwardQueue.peek().dist + backwardQueue.peek().dist >= best) {
+                break; // No unexplored path can be shorter than the best one
+            }
+
+            boolean forward = forwardQueue.size() <= backwardQueue.size();
+            PriorityQueue<SearchEntry> queue = forward ? forwardQueue : backwardQueue;
+            IntMap<SearchLabel> labels = forward ? forwardLabels : backwardLabels;
+            IntMap<SearchLabel> otherLabels = forward ? backwardLabels : forwardLabels;
+
+            SearchEntry current = queue.poll();
+            SearchLabel currentLabel = labels.get(current.key);
+            if (currentLabel.settled) {
+                continue; // Stale queue entry
+            }
+            currentLabel.settled = true;
+            settledCount++;
+
+            AirportRoutes routes = routeIndex.get(current.key);
+            if (routes == null) {
+                continue;
+            }
+            for (Edge edge : forward ? routes.outgoing : routes.incoming) {
+                relaxedCount++;
+                int next = forward ? edge.destinationKey(airportKeys) : edge.startingKey(airportKeys);
+                double alt = current.dist + (useCost ? edge.cost : edge.time);
+                SearchLabel label = labels.get(next);
+                if (label == null) {
+                    label = new SearchLabel(alt, edge);
+                    labels.put(next, label);
+                    queue.add(new SearchEntry(next, alt));
+                } else if (alt < label.dist) {
+                    label.dist = alt;
+                    label.edge = edge;
+                    queue.add(new SearchEntry(next, alt));
+                }
+                SearchLabel rest = otherLabels.get(next);
+                if (rest != null && label.dist + rest.dist < best) {
+                    best = label.dist + rest.dist;
+                    meeting = next;
+                }
+            }
+        }
+
+        if (meeting == 0) {
+            if (probe != null) {
+                probe.search(start, end, settledCount, relaxedCount, 0);
+            }
+            return Collections.emptyList(); // Destination unreachable
+        }
         List<Edge> path = new ArrayList<>();
-        String node = end;
-        while (prev.get(node) != null) {
-            Edge edge = prevEdge.get(node); // edge = best edge used to reach node
-            if (edge != null) {
-                path.add(edge);
-                node = prev.get(node); // Move to parent node
-            } else
-                break;
-        }
-        Collections.reverse(path); // Reverse the path to get the correct order
+        for (Edge edge = forwardLabels.get(meeting).edge; edge != null; edge = forwardLabels.get(edge.startingKey(airportKeys)).edge) {
+            path.add(edge);
+        }
+        Collections.reverse(path);
+        for (Edge edge = backwardLabels.get(meeting).edge; edge != null; edge = backwardLabels.get(edge.destinationKey(airportKeys)).edge) {
+            path.add(edge);
+        }
+        if (probe != null) {
+            probe.search(start, end, settledCount, relaxedCount, path.size());
+        }
         return path;
     }
 
+    // Queue entry of the bidirectional search (airport key and its distance when queued)
+    private static class SearchEntry implements Comparable<SearchEntry> {
+        final int key;
+        final double dist;
+
+        SearchEntry(int key, double dist) {
+            this.key = key;
+            this.dist = dist;
+        }
+
+        @Override
+        public int compareTo(SearchEntry other) {
+            return Double.compare(dist, other.dist);
+        }
+    }
+
+    // What one direction of the bidirectional search knows about an airport
+    private static class SearchLabel {
+        double dist;        // Best distance found so far
+        Edge edge;          // Route that gave it (null for the airport the search started from)
+        boolean settled;    // dist is final
+
+        SearchLabel(double dist, Edge edge) {
+            this.dist = dist;
+            this.edge = edge;
+        }
+    }
+
+    /**
+     * Returns a read-only CSR copy of the graph for fast route queries.
+     * The copy is cached and rebuilt only after the graph has changed.
+     */
+    public GraphSnapshot snapshot() {
+        if (snapshot == null || snapshot.version() != version) {
+            snapshot = new GraphSnapshot(this);
+            for (GraphListener listener : listeners) {
+                listener.snapshotBuilt(snapshot);
+            }
+        }
+        return snapshot;
+    }
+
+    /** Counter that increases on every change to the graph. */
+    public long version() {
+        return version;
+    }
+
+    /**
+     * Must be called after the maps returned by getAirports()/getAdjacencyList()
+     * were modified directly (e.g. by GraphIO), so cached data is not reused.
+     * Routes that addRoute would have rejected are dropped: duplicates (the
+     * first is kept), self-loops and routes from or to an unknown airport.
+     * So are routes in the list of another airport than their startingCode,
+     * which the indexes could not find again when that airport goes.
+     */
+    public void refreshIndexes() {
+        adjacencyList.keySet().retainAll(airports.keySet());
+        for (String code : airports.keySet()) {
+            adjacencyList.putIfAbsent(code, new ArrayList<>());
+        }
+        routeIndex = new IntMap<>(adjacencyList.size());
+        airportKeys.clear();
+        for (Map.Entry<String, List<Edge>> entry : adjacencyList.entrySet()) {
+            routeIndex.put(airportKeys.encode(entry.getKey()), new AirportRoutes(entry.getValue()));
+        }
+        for (String code : adjacencyList.keySet()) {
+            int originKey = airportKeys.find(code);
+            AirportRoutes origin = routeIndex.get(originKey);
+            List<Edge> routes = origin.outgoing;
+            int kept = 0;
+            for (Edge edge : routes) {
+                if (edge.startingKey(airportKeys) == originKey
+                        && airports.containsKey(edge.destinationCode)
+                        && edge.destinationKey(airportKeys) != originKey
+                        && !origin.positions.containsKey(edge.destinationKey(airportKeys))) {
+                    origin.positions.put(edge.destinationKey(airportKeys), kept);
+                    routes.set(kept++, edge);
+                }
+            }
+            routes.subList(kept, routes.size()).clear();
+            for (Edge edge : routes) {
+                routeIndex.get(edge.destinationKey(airportKeys)).linkIncoming(edge);
+            }
+        }
+        version++;
+        for (GraphListener listener : listeners) {
+            listener.graphReloaded();
+        }
+    }
+
+    /**
+     * Replaces the whole graph with the airports and routes of a snapshot (e.g.
+     * one read by GraphIO.readSnapshot). Lists and indexes are filled in one
+     * pass over the CSR arrays (one new Edge per route); self-loops and
+     * duplicate routes are dropped as in refreshIndexes.
+     */
+    public void replaceWith(GraphSnapshot source) {
+        int n = source.airportCount();
+        int[] offsets = source.offsets();
+        int[] dest = source.destinations();
+        double[] cost = source.costs();
+        double[] time = source.times();
+        airports.clear();
+        adjacencyList.clear();
+        routeIndex = new IntMap<>(n);
+        airportKeys.clear();
+        AirportRoutes[] byId = new AirportRoutes[n];
+        for (int u = 0; u < n; u++) {
+            Vertex airport = source.vertex(u);
+            List<Edge> routes = new ArrayList<>(offsets[u + 1] - offsets[u]);
+            airports.put(airport.code, airport);
+            adjacencyList.put(airport.code, routes);
+            byId[u] = new AirportRoutes(routes);
+            routeIndex.put(airportKeys.encode(airport.code), byId[u]);
+        }
+        for (int u = 0; u < n; u++) {
+            for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+                int v = dest[e];
+                Edge edge = new Edge(source.codeOf(u), source.codeOf(v), cost[e], time[e]);
+                if (v != u && !byId[u].positions.containsKey(edge.destinationKey(airportKeys))) {
+                    byId[u].link(edge);
+                    byId[v].linkIncoming(edge);
+                }
+            }
+        }
+        version++;
+        for (GraphListener listener : listeners) {
+            listener.graphReloaded();
+        }
+    }
+
+    /**
+     * Replaces the whole graph with another graph that was filled and indexed
+     * on its own (e.g. the staging graph of a GraphIO load), so this graph only
+     * changes once the other one is complete. source must not be used afterwards.
+     */
+    public void replaceWith(Graph source) {
+        airports = source.airports;
+        adjacencyList = source.adjacencyList;
+        routeIndex = source.routeIndex;
+        airportKeys = source.airportKeys; // The AirportRoutes of source look their keys up in this table
+        version++;
+        for (GraphListener listener : listeners) {
+            listener.graphReloaded();
+        }
+    }
+
+    public void addListener(GraphListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(GraphListener listener) {
+        listeners.remove(listener);
+    }
+
+    /** Routes that arrive at the given airport (reverse adjacency index). */
+    public Collection<Edge> getIncomingRoutes(String airportCode) {
+        AirportRoutes routes = routeIndex.get(airportKeys.find(airportCode));
+        return routes == null ? Collections.emptyList() : Collections.unmodifiableList(routes.incoming);
+    }
+
     public Map<String, Vertex> getAirports() {
         return airports;
     }
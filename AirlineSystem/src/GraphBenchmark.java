@@ -0,0 +1,510 @@
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import java.io.*;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Benchmark suite for the core Graph operations on generated networks.
+ *
+ * Usage: java GraphBenchmark [--topology HUB_AND_SPOKE,SCALE_FREE,REGIONAL]
+ *            [--airports 100,10000,100000] [--routes 4] [--seed 42]
+ *            [--warmup 3] [--iterations 5] [--time 1000] [--forks 1] [--only dijkstra,...]
+ *            [--label name] [--out results.jsonl] [--compare baseline.jsonl]
+ *
+ * Works like a JMH average-time run: every benchmark runs in --forks fresh
+ * JVMs of its own (same flags and class path as this one), so the JIT
+ * profile one benchmark leaves behind cannot make the next one faster or
+ * slower; --forks 0 runs everything in this JVM, e.g. under a profiler. Each
+ * fork gets a freshly generated graph (NetworkGenerator, so the same seed
+ * gives the same graph on every commit), then warmup iterations whose results
+ * are thrown away, then measured iterations of --time milliseconds each. The
+ * score is the mean time per operation with a 99.9% confidence interval over
+ * the measured iterations of all forks. Every result an operation returns is
+ * passed to a blackhole, so the JIT cannot drop a query as dead code.
+ * Allocation is profiled like JMH's gc profiler: bytes allocated by the
+ * benchmark thread per operation, plus GC count and time.
+ *
+ * Every result is written as one JSON object per line to --out, tagged with
+ * --label (e.g. the commit id). With --compare the results are also put next
+ * to an earlier results file and changes outside both error bars are marked.
+ */
+public class GraphBenchmark {
+    private static final double Z_999 = 3.291; // Two-sided 99.9% quantile of the normal distribution
+    private static final int QUERY_POOL = 4096; // Pre-drawn airport pairs cycled through by the read benchmarks
+
+    /** One timed operation; i counts the calls since the last reset. Returns what the call produced. */
+    private interface Operation {
+        Object run(int i) throws Exception;
+    }
+
+    /** Undoes the changes of the last calls operations (not timed). */
+    private interface Reset {
+        void run(int calls) throws Exception;
+    }
+
+    // A benchmark: op is timed; every batch calls reset is called untimed to undo changes
+    private static class Benchmark {
+        final String name;
+        final Operation op;
+        final int batch;
+        final Reset reset;
+
+        Benchmark(String name, Operation op) {
+            this(name, op, Integer.MAX_VALUE, null);
+        }
+
+        Benchmark(String name, Operation op, int batch, Reset reset) {
+            this.name = name;
+            this.op = op;
+            this.batch = batch;
+            this.reset = reset;
+        }
+    }
+
+    private static class Result {
+        final String benchmark;
+        final String topology;
+        final int airports;
+        final int routes;
+        final double score;        // ns/op
+        final double error;        // ns/op, half width of the 99.9% interval
+        final double allocated;    // bytes/op (NaN if the JVM cannot tell)
+        final long gcCount;
+        final long gcTime;         // ms
+        final long operations;
+        final double[] scores;     // ns/op of every measured iteration (null if not known)
+
+        Result(String benchmark, String topology, int airports, int routes, double score, double error,
+                double allocated, long gcCount, long gcTime, long operations, double[] scores) {
+            this.benchmark = benchmark;
+            this.topology = topology;
+            this.airports = airports;
+            this.routes = routes;
+            this.score = score;
+            this.error = error;
+            this.allocated = allocated;
+            this.gcCount = gcCount;
+            this.gcTime = gcTime;
+            this.operations = operations;
+            this.scores = scores;
+        }
+
+        String key() {
+            return benchmark + "/" + topology + "/" + airports;
+        }
+    }
+
+    private final Map<String, String> options;
+    private final int warmup;
+    private final int iterations;
+    private final long iterationNanos;
+    private final int forks;
+    private final Set<String> only;
+
+    // Never returned by an operation; comparing every result against it (a volatile read)
+    // keeps the result alive without a store, like JMH's Blackhole
+    private static volatile Object blackhole = new Object();
+
+    private GraphBenchmark(Map<String, String> options) {
+        this.options = options;
+        this.warmup = Integer.parseInt(options.getOrDefault("warmup", "3"));
+        this.iterations = Integer.parseInt(options.getOrDefault("iterations", "5"));
+        this.iterationNanos = Long.parseLong(options.getOrDefault("time", "1000")) * 1_000_000L;
+        this.forks = Integer.parseInt(options.getOrDefault("forks", "1"));
+        this.only = options.containsKey("only") ? new HashSet<>(Arrays.asList(options.get("only").split(","))) : null;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (!args[i].startsWith("--")) {
+                throw new IllegalArgumentException("Expected --option value, got " + args[i]);
+            }
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+        new GraphBenchmark(options).runAll();
+    }
+
+    private void runAll() throws Exception {
+        String label = options.getOrDefault("label", "current");
+        String out = options.getOrDefault("out", "benchmark-" + label + ".jsonl");
+        int routes = Integer.parseInt(options.getOrDefault("routes", "4"));
+        long seed = Long.parseLong(options.getOrDefault("seed", "42"));
+
+        List<Result> results = new ArrayList<>();
+        Gson gson = new Gson();
+        try (Writer writer = Files.newBufferedWriter(Paths.get(out), StandardCharsets.UTF_8)) {
+            System.out.printf("%-16s | %-13s | %-8s | %-14s | %-12s | %-12s | %-6s%n", "Benchmark", "Topology",
+                    "Airports", "ns/op", "Error", "B/op", "GCs");
+            for (String topologyName : options.getOrDefault("topology", "HUB_AND_SPOKE,SCALE_FREE,REGIONAL").split(",")) {
+                NetworkGenerator.Topology topology = NetworkGenerator.Topology.valueOf(topologyName.trim());
+                for (String size : options.getOrDefault("airports", "100,10000,100000").split(",")) {
+                    NetworkGenerator generator = new NetworkGenerator(topology, Integer.parseInt(size.trim()), seed)
+                            .routesPerAirport(routes);
+                    for (String name : benchmarkNames()) {
+                        if (only != null && !only.contains(name)) {
+                            continue;
+                        }
+                        Result result = forks > 0 ? fork(name, topology, size.trim())
+                                : measure(name, topology, generator, seed);
+                        results.add(result);
+                        writer.write(toJson(gson, result, label));
+                        writer.write('\n');
+                        writer.flush();
+                        System.out.printf("%-16s | %-13s | %-8d | %-14.1f | %-12.1f | %-12.1f | %-6d%n", result.benchmark,
+                                result.topology, result.airports, result.score, result.error, result.allocated,
+                                result.gcCount);
+                    }
+                }
+            }
+        }
+        System.out.println("Results written to " + out);
+
+        if (options.containsKey("compare")) {
+            compare(readResults(options.get("compare")), results);
+        }
+    }
+
+    private static List<String> benchmarkNames() {
+        return Arrays.asList("dijkstraCost", "dijkstraTime", "bfsShortestPath", "bfsReachable", "addRoute",
+                "removeAirport", "saveGraphJson", "loadGraphJson", "saveGraphBinary", "loadGraphBinary");
+    }
+
+    // Runs one benchmark in forks fresh JVMs (this class with --forks 0) and pools their iterations
+    private Result fork(String name, NetworkGenerator.Topology topology, String airports) throws Exception {
+        List<Result> runs = new ArrayList<>();
+        for (int f = 0; f < forks; f++) {
+            String out = temporaryFile("jsonl");
+            List<String> command = new ArrayList<>();
+            command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+            command.addAll(ManagementFactory.getRuntimeMXBean().getInputArguments());
+            command.add("-cp");
+            command.add(System.getProperty("java.class.path"));
+            command.add(GraphBenchmark.class.getName());
+            for (Map.Entry<String, String> option : options.entrySet()) {
+                if (!Arrays.asList("topology", "airports", "only", "forks", "out", "compare").contains(option.getKey())) {
+                    command.add("--" + option.getKey());
+                    command.add(option.getValue());
+                }
+            }
+            command.addAll(Arrays.asList("--topology", topology.name(), "--airports", airports, "--only", name,
+                    "--forks", "0", "--out", out));
+            Process process = new ProcessBuilder(command)
+                    .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                    .redirectError(ProcessBuilder.Redirect.INHERIT)
+                    .start();
+            int exit = process.waitFor();
+            if (exit != 0) {
+                throw new IllegalStateException("Fork of " + name + " exited with " + exit);
+            }
+            runs.addAll(readResults(out).values());
+            Files.delete(Paths.get(out));
+            temporaryFiles.remove(Paths.get(out));
+        }
+
+        Result first = runs.get(0);
+        double[] scores = runs.stream().flatMapToDouble(run -> Arrays.stream(run.scores)).toArray();
+        long operations = 0;
+        double allocated = 0;
+        long gcCount = 0;
+        long gcTime = 0;
+        for (Result run : runs) {
+            operations += run.operations;
+            allocated += run.allocated * run.operations;
+            gcCount += run.gcCount;
+            gcTime += run.gcTime;
+        }
+        return summarize(name, topology, first.airports, first.routes, scores, operations, allocated / operations,
+                gcCount, gcTime);
+    }
+
+    private Result measure(String name, NetworkGenerator.Topology topology, NetworkGenerator generator, long seed)
+            throws Exception {
+        Graph graph = generator.generate();
+        int airports = graph.getAirports().size();
+        int routes = graph.snapshot().routeCount();
+        Benchmark benchmark = create(name, graph, new Random(seed));
+        try {
+            for (int i = 0; i < warmup; i++) {
+                iteration(benchmark, new long[3]);
+            }
+            double[] scores = new double[iterations];
+            long[] totals = new long[3]; // operations, timed nanos, allocated bytes
+            long gcCountBefore = gcCount();
+            long gcTimeBefore = gcTime();
+            for (int i = 0; i < iterations; i++) {
+                long[] counters = new long[3];
+                iteration(benchmark, counters);
+                scores[i] = counters[1] / (double) counters[0];
+                for (int k = 0; k < 3; k++) {
+                    totals[k] += counters[k];
+                }
+            }
+            double allocated = totals[2] < 0 ? Double.NaN : totals[2] / (double) totals[0];
+            return summarize(name, topology, airports, routes, scores, totals[0], allocated,
+                    gcCount() - gcCountBefore, gcTime() - gcTimeBefore);
+        } finally {
+            deleteTemporaryFiles();
+        }
+    }
+
+    // Mean and 99.9% confidence interval over the measured iterations
+    private static Result summarize(String name, NetworkGenerator.Topology topology, int airports, int routes,
+            double[] scores, long operations, double allocated, long gcCount, long gcTime) {
+        int n = scores.length;
+        double mean = Arrays.stream(scores).average().orElse(Double.NaN);
+        double variance = 0;
+        for (double score : scores) {
+            variance += (score - mean) * (score - mean);
+        }
+        double error = n > 1 ? Z_999 * Math.sqrt(variance / (n - 1) / n) : Double.NaN;
+        return new Result(name, topology.name(), airports, routes, mean, error, allocated, gcCount, gcTime,
+                operations, scores);
+    }
+
+    // Runs operations for one iteration; adds operations, timed nanos and allocated bytes to counters
+    // (allocated bytes stay -1 once the JVM could not tell)
+    private void iteration(Benchmark benchmark, long[] counters) throws Exception {
+        long end = System.nanoTime() + iterationNanos;
+        int calls = 0;
+        do {
+            int batchEnd = (int) Math.min(benchmark.batch, calls + 64L);
+            long allocatedBefore = allocatedBytes();
+            long start = System.nanoTime();
+            for (int i = calls; i < batchEnd; i++) {
+                if (benchmark.op.run(i) == blackhole) {
+                    throw new IllegalStateException("Unreachable");
+                }
+            }
+            long stop = System.nanoTime();
+            long allocatedAfter = allocatedBytes();
+            counters[0] += batchEnd - calls;
+            counters[1] += stop - start;
+            counters[2] = allocatedBefore < 0 || counters[2] < 0 ? -1 : counters[2] + allocatedAfter - allocatedBefore;
+            calls = batchEnd;
+            if (calls == benchmark.batch) {
+                benchmark.reset.run(calls);
+                calls = 0;
+            } else if (calls < 0) {
+                calls = 0; // Wrapped around (read benchmarks only use the low bits)
+            }
+        } while (System.nanoTime() < end);
+        if (benchmark.reset != null && calls > 0) {
+            benchmark.reset.run(calls);
+        }
+    }
+
+    private Benchmark create(String name, Graph graph, Random random) throws IOException {
+        List<String> codes = new ArrayList<>(graph.getAirports().keySet());
+        Collections.sort(codes);
+        String[] from = new String[QUERY_POOL];
+        String[] to = new String[QUERY_POOL];
+        for (int i = 0; i < QUERY_POOL; i++) {
+            from[i] = codes.get(random.nextInt(codes.size()));
+            to[i] = codes.get(random.nextInt(codes.size()));
+        }
+        int mask = QUERY_POOL - 1;
+
+        switch (name) {
+            case "dijkstraCost":
+                return new Benchmark(name, i -> graph.dijkstra(from[i & mask], to[i & mask], true));
+            case "dijkstraTime":
+                return new Benchmark(name, i -> graph.dijkstra(from[i & mask], to[i & mask], false));
+            case "bfsShortestPath":
+                return new Benchmark(name, i -> graph.bfsShortestPath(from[i & mask], to[i & mask]));
+            case "bfsReachable":
+                return new Benchmark(name, i -> graph.bfsReachable(from[i & mask]));
+            case "addRoute": {
+                // Routes that do not exist yet; reset removes them again
+                List<Edge> fresh = new ArrayList<>();
+                for (int i = 0; fresh.size() < QUERY_POOL && i < QUERY_POOL * 4; i++) {
+                    String a = from[i & mask];
+                    String b = codes.get(random.nextInt(codes.size()));
+                    if (!a.equals(b) && graph.getRoute(a, b) == null && !fresh.contains(new Edge(a, b, 0, 0))) {
+                        fresh.add(new Edge(a, b, 100 + random.nextInt(500), 1 + random.nextInt(5)));
+                    }
+                }
+                return new Benchmark(name, i -> graph.addRoute(fresh.get(i)), fresh.size(), calls -> {
+                    for (int i = 0; i < calls; i++) {
+                        graph.removeRoute(fresh.get(i).startingCode, fresh.get(i).destinationCode);
+                    }
+                });
+            }
+            case "removeAirport": {
+                // Removes distinct airports; reset puts them back with all their routes. Every batch
+                // removes the same airports from the same graph, so what to restore is collected once
+                // here instead of inside the timed calls
+                List<String> victims = new ArrayList<>(new LinkedHashSet<>(Arrays.asList(from)));
+                int batch = Math.max(1, Math.min(victims.size(), codes.size() / 10));
+                List<Vertex> removed = new ArrayList<>();
+                List<Edge> removedRoutes = new ArrayList<>();
+                for (String code : victims.subList(0, batch)) {
+                    removed.add(graph.getAirports().get(code));
+                    removedRoutes.addAll(graph.getAdjacencyList().get(code));
+                    removedRoutes.addAll(graph.getIncomingRoutes(code));
+                }
+                return new Benchmark(name, i -> graph.removeAirport(victims.get(i)), batch, calls -> {
+                    for (Vertex airport : removed) {
+                        graph.addAirport(airport); // Rejected for the ones not removed yet
+                    }
+                    for (Edge route : removedRoutes) {
+                        graph.addRoute(route);     // Rejected if it still exists
+                    }
+                });
+            }
+            case "saveGraphJson": {
+                String file = temporaryFile("json");
+                return new Benchmark(name, i -> {
+                    GraphIO.saveGraph(graph, file, GraphIO.Format.JSON);
+                    return file;
+                });
+            }
+            case "loadGraphJson": {
+                String file = temporaryFile("json");
+                GraphIO.saveGraph(graph, file, GraphIO.Format.JSON);
+                return new Benchmark(name, i -> {
+                    Graph loaded = new Graph();
+                    GraphIO.loadGraph(loaded, file);
+                    return loaded;
+                });
+            }
+            case "saveGraphBinary": {
+                String file = temporaryFile("bin");
+                return new Benchmark(name, i -> {
+                    GraphIO.saveGraph(graph, file, GraphIO.Format.BINARY);
+                    return file;
+                });
+            }
+            case "loadGraphBinary": {
+                String file = temporaryFile("bin");
+                GraphIO.saveGraph(graph, file, GraphIO.Format.BINARY);
+                return new Benchmark(name, i -> {
+                    Graph loaded = new Graph();
+                    GraphIO.loadGraph(loaded, file);
+                    return loaded;
+                });
+            }
+            default:
+                throw new IllegalArgumentException("Unknown benchmark " + name);
+        }
+    }
+
+    // ---------------------------------------------------------------------
+    // Profiling
+    // ---------------------------------------------------------------------
+
+    // Bytes allocated so far by this thread, -1 if the JVM does not support it
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean hotspot = (com.sun.management.ThreadMXBean) threads;
+            if (hotspot.isThreadAllocatedMemorySupported() && hotspot.isThreadAllocatedMemoryEnabled()) {
+                return hotspot.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gc.getCollectionCount());
+        }
+        return count;
+    }
+
+    private static long gcTime() {
+        long time = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            time += Math.max(0, gc.getCollectionTime());
+        }
+        return time;
+    }
+
+    // ---------------------------------------------------------------------
+    // Results
+    // ---------------------------------------------------------------------
+
+    private static String toJson(Gson gson, Result result, String label) {
+        JsonObject json = new JsonObject();
+        json.addProperty("label", label);
+        json.addProperty("benchmark", result.benchmark);
+        json.addProperty("topology", result.topology);
+        json.addProperty("airports", result.airports);
+        json.addProperty("routes", result.routes);
+        json.addProperty("mode", "avgt");
+        json.addProperty("unit", "ns/op");
+        json.addProperty("score", result.score);
+        json.addProperty("error", Double.isNaN(result.error) ? 0 : result.error);
+        if (!Double.isNaN(result.allocated)) {
+            json.addProperty("allocatedBytesPerOp", result.allocated);
+        }
+        json.addProperty("gcCount", result.gcCount);
+        json.addProperty("gcTimeMillis", result.gcTime);
+        json.addProperty("operations", result.operations);
+        if (result.scores != null) {
+            json.add("iterationScores", gson.toJsonTree(result.scores));
+        }
+        json.addProperty("jvm", System.getProperty("java.vm.name") + " " + System.getProperty("java.version"));
+        json.addProperty("timestamp", System.currentTimeMillis());
+        return gson.toJson(json);
+    }
+
+    private static Map<String, Result> readResults(String filename) throws IOException {
+        Gson gson = new Gson();
+        Map<String, Result> results = new LinkedHashMap<>();
+        for (String line : Files.readAllLines(Paths.get(filename), StandardCharsets.UTF_8)) {
+            if (line.isBlank()) {
+                continue;
+            }
+            JsonObject json = gson.fromJson(line, JsonObject.class);
+            Result result = new Result(json.get("benchmark").getAsString(), json.get("topology").getAsString(),
+                    json.get("airports").getAsInt(), json.get("routes").getAsInt(), json.get("score").getAsDouble(),
+                    json.get("error").getAsDouble(),
+                    json.has("allocatedBytesPerOp") ? json.get("allocatedBytesPerOp").getAsDouble() : Double.NaN,
+                    json.get("gcCount").getAsLong(), json.get("gcTimeMillis").getAsLong(),
+                    json.get("operations").getAsLong(),
+                    json.has("iterationScores") ? gson.fromJson(json.get("iterationScores"), double[].class) : null);
+            results.put(result.key(), result);
+        }
+        return results;
+    }
+
+    // Current / baseline time per operation; marked when the error bars do not overlap
+    private static void compare(Map<String, Result> baseline, List<Result> current) {
+        System.out.println();
+        System.out.printf("%-16s | %-13s | %-8s | %-14s | %-14s | %-8s | %s%n", "Benchmark", "Topology", "Airports",
+                "Baseline ns/op", "Current ns/op", "Ratio", "");
+        for (Result now : current) {
+            Result before = baseline.get(now.key());
+            if (before == null) {
+                continue;
+            }
+            double ratio = now.score / before.score;
+            double margin = (Double.isNaN(now.error) ? 0 : now.error) + before.error;
+            String verdict = Math.abs(now.score - before.score) <= margin ? ""
+                    : ratio > 1 ? "SLOWER" : "faster";
+            System.out.printf("%-16s | %-13s | %-8d | %-14.1f | %-14.1f | %-8.3f | %s%n", now.benchmark, now.topology,
+                    now.airports, before.score, now.score, ratio, verdict);
+        }
+    }
+
+    private final List<Path> temporaryFiles = new ArrayList<>(); // Deleted after every benchmark
+
+    private String temporaryFile(String extension) throws IOException {
+        Path file = Files.createTempFile("graph-benchmark", "." + extension);
+        temporaryFiles.add(file);
+        return file.toString();
+    }
+
+    private void deleteTemporaryFiles() throws IOException {
+        for (Path file : temporaryFiles) {
+            Files.deleteIfExists(file);
+        }
+        temporaryFiles.clear();
+    }
+}
@@ -0,0 +1,257 @@
+import java.util.*;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Bulk import of airports and routes without going through addRoute one by
+ * one (which prints a line and scans the origin's routes for every row).
+ *
+ * Rows are only collected while they are added. build() / buildSnapshot()
+ * then validate all routes at once: rows are checked in parallel, grouped by
+ * origin with a stable counting sort, and duplicates are found per origin in
+ * parallel with a marker array instead of pairwise comparisons. Like addRoute,
+ * the first of several routes between the same two airports wins. Of several
+ * airports with the same code the first wins too, unless lastAirportWins()
+ * was called. Rejected rows end up in an ImportReport instead of on the
+ * console.
+ */
+public class GraphBuilder {
+    private static final int DEFAULT_MAX_DETAILS = 1000; // Rejections kept in detail by default
+
+    // Route row status after validation
+    private static final byte OK = 0;
+    private static final byte SELF_LOOP = 1;
+    private static final byte UNKNOWN_AIRPORT = 2;
+    private static final byte DUPLICATE_ROUTE = 3;
+
+    private final int maxDetails;
+    private final Map<String, Vertex> airports = new LinkedHashMap<>();
+    private final List<ImportReport.Rejection> airportRejections = new ArrayList<>();
+    private final List<Edge> routes = new ArrayList<>();
+    private Map<String, Long> airportRowNumbers; // code -> row of the airport kept (only when the last wins)
+    private long airportRows = 0;
+    private ImportReport report;
+
+    public GraphBuilder() {
+        this(DEFAULT_MAX_DETAILS);
+    }
+
+    public GraphBuilder(int maxRejectionDetails) {
+        this.maxDetails = maxRejectionDetails;
+    }
+
+    /**
+     * Lets a later airport with an already used code replace the earlier one
+     * (as Map.put does), the earlier row is reported as the duplicate. Must be
+     * called before the first airport is added.
+     */
+    public GraphBuilder lastAirportWins() {
+        if (airportRows > 0) {
+            throw new IllegalStateException("Airports were already added");
+        }
+        airportRowNumbers = new HashMap<>();
+        return this;
+    }
+
+    public GraphBuilder addAirport(Vertex airport) {
+        if (airportRowNumbers != null) {
+            Vertex earlier = airports.put(airport.code, airport);
+            Long earlierRow = airportRowNumbers.put(airport.code, airportRows);
+            if (earlier != null) {
+                airportRejections.add(new ImportReport.Rejection(ImportReport.Reason.DUPLICATE_AIRPORT, earlierRow, earlier));
+            }
+        } else if (airports.putIfAbsent(airport.code, airport) != null) {
+            airportRejections.add(new ImportReport.Rejection(ImportReport.Reason.DUPLICATE_AIRPORT, airportRows, airport));
+        }
+        airportRows++;
+        return this;
+    }
+
+    public GraphBuilder addAirports(Iterator<? extends Vertex> rows) {
+        while (rows.hasNext()) {
+            addAirport(rows.next());
+        }
+        return this;
+    }
+
+    public GraphBuilder addAirports(Stream<? extends Vertex> rows) {
+        rows.sequential().forEachOrdered(this::addAirport);
+        return this;
+    }
+
+    public GraphBuilder addRoute(Edge route) {
+        routes.add(route);
+        return this;
+    }
+
+    public GraphBuilder addRoutes(Iterator<? extends Edge> rows) {
+        while (rows.hasNext()) {
+            routes.add(rows.next());
+        }
+        return this;
+    }
+
+    public GraphBuilder addRoutes(Stream<? extends Edge> rows) {
+        rows.sequential().forEachOrdered(routes::add);
+        return this;
+    }
+
+    /** Report of the last build (null before the first build). */
+    public ImportReport report() {
+        return report;
+    }
+
+    /** Builds a new Graph from the rows added so far. */
+    public Graph build() {
+        Graph graph = new Graph();
+        buildInto(graph);
+        return graph;
+    }
+
+    /**
+     * Replaces the contents of an existing graph with the rows added so far.
+     * Routes are grouped by their startingCode, so each one lands in the list
+     * of its own origin, as refreshIndexes requires.
+     */
+    public void buildInto(Graph graph) {
+        Grouped grouped = group();
+        Map<String, List<Edge>> adjacencyList = new HashMap<>(grouped.vertices.length * 2);
+        for (int u = 0; u < grouped.vertices.length; u++) {
+            List<Edge> outgoing = new ArrayList<>(grouped.offsets[u + 1] - grouped.offsets[u]);
+            for (int i = grouped.offsets[u]; i < grouped.offsets[u + 1]; i++) {
+                outgoing.add(routes.get(grouped.rows[i]));
+            }
+            adjacencyList.put(grouped.vertices[u].code, outgoing);
+        }
+
+        graph.getAirports().clear();
+        graph.getAdjacencyList().clear();
+        graph.getAirports().putAll(airports);
+        graph.getAdjacencyList().putAll(adjacencyList);
+        graph.refreshIndexes();
+    }
+
+    /** Builds a read-only CSR snapshot directly, without creating a Graph. */
+    public GraphSnapshot buildSnapshot() {
+        Grouped grouped = group();
+        int m = grouped.rows.length;
+        int[] dest = new int[m];
+        double[] cost = new double[m];
+        double[] time = new double[m];
+        IntStream.range(0, m).parallel().forEach(i -> {
+            int row = grouped.rows[i];
+            dest[i] = grouped.to[row];
+            cost[i] = routes.get(row).cost;
+            time[i] = routes.get(row).time;
+        });
+        return new GraphSnapshot(grouped.vertices, grouped.offsets, dest, cost, time, 0);
+    }
+
+    // Accepted route rows grouped by origin id (CSR layout over row numbers)
+    private static class Grouped {
+        Vertex[] vertices;
+        int[] offsets;
+        int[] rows;
+        int[] to;
+    }
+
+    private Grouped group() {
+        int n = airports.size();
+        int m = routes.size();
+        Vertex[] vertices = airports.values().toArray(new Vertex[0]);
+        Map<String, Integer> ids = new HashMap<>(n * 2);
+        for (int u = 0; u < n; u++) {
+            ids.put(vertices[u].code, u);
+        }
+
+        // 1. Resolve and check every row in parallel
+        int[] from = new int[m];
+        int[] to = new int[m];
+        byte[] status = new byte[m];
+        IntStream.range(0, m).parallel().forEach(row -> {
+            Edge route = routes.get(row);
+            Integer start = ids.get(route.startingCode);
+            Integer destination = ids.get(route.destinationCode);
+            if (route.startingCode != null && route.startingCode.equals(route.destinationCode)) {
+                status[row] = SELF_LOOP;
+            } else if (start == null || destination == null) {
+                status[row] = UNKNOWN_AIRPORT; // Also when a code is missing
+            } else {
+                from[row] = start;
+                to[row] = destination;
+            }
+        });
+
+        // 2. Stable counting sort of the valid rows by origin
+        int[] offsets = new int[n + 1];
+        for (int row = 0; row < m; row++) {
+            if (status[row] == OK) {
+                offsets[from[row] + 1]++;
+            }
+        }
+        for (int u = 0; u < n; u++) {
+            offsets[u + 1] += offsets[u];
+        }
+        int[] grouped = new int[offsets[n]];
+        int[] fill = Arrays.copyOf(offsets, n);
+        for (int row = 0; row < m; row++) {
+            if (status[row] == OK) {
+                grouped[fill[from[row]]++] = row;
+            }
+        }
+
+        // 3. Duplicates per origin, origins spread over all cores. seen[v] == u + 1 marks
+        //    destination v as already used by origin u (no clearing needed between origins)
+        ThreadLocal<int[]> seenArrays = ThreadLocal.withInitial(() -> new int[n]);
+        int[] kept = new int[n];
+        IntStream.range(0, n).parallel().forEach(u -> {
+            int[] seen = seenArrays.get();
+            for (int i = offsets[u]; i < offsets[u + 1]; i++) {
+                int row = grouped[i];
+                if (seen[to[row]] == u + 1) {
+                    status[row] = DUPLICATE_ROUTE;
+                } else {
+                    seen[to[row]] = u + 1;
+                    kept[u]++;
+                }
+            }
+        });
+
+        // 4. Drop the duplicates from the grouping
+        int[] keptOffsets = new int[n + 1];
+        for (int u = 0; u < n; u++) {
+            keptOffsets[u + 1] = keptOffsets[u] + kept[u];
+        }
+        int[] keptRows = new int[keptOffsets[n]];
+        int k = 0;
+        for (int row : grouped) {
+            if (status[row] == OK) {
+                keptRows[k++] = row;
+            }
+        }
+
+        // 5. Report in input order
+        report = new ImportReport(maxDetails);
+        airportRejections.sort(Comparator.comparingLong(rejection -> rejection.index)); // Out of order when the last wins
+        for (ImportReport.Rejection rejection : airportRejections) {
+            report.reject(rejection.reason, rejection.index, rejection.row);
+        }
+        for (int row = 0; row < m; row++) {
+            switch (status[row]) {
+                case SELF_LOOP -> report.reject(ImportReport.Reason.SELF_LOOP, row, routes.get(row));
+                case UNKNOWN_AIRPORT -> report.reject(ImportReport.Reason.UNKNOWN_AIRPORT, row, routes.get(row));
+                case DUPLICATE_ROUTE -> report.reject(ImportReport.Reason.DUPLICATE_ROUTE, row, routes.get(row));
+                default -> {
+                }
+            }
+        }
+        report.setAccepted(n, keptRows.length);
+
+        Grouped result = new Grouped();
+        result.vertices = vertices;
+        result.offsets = keptOffsets;
+        result.rows = keptRows;
+        result.to = to;
+        return result;
+    }
+}
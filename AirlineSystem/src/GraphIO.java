@@ -1,43 +1,688 @@
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
-import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 import java.io.*;
-import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
 import java.util.*;
+import java.util.zip.CRC32;
 
 public class GraphIO {
     private static final Gson gson = new GsonBuilder().setPrettyPrinting().create();
+    private static final int PROGRESS_INTERVAL = 10_000; // Records between two progress reports
+
+    // Binary format: header, then payload = string table, offsets, destinations, costs, times
+    private static final int BINARY_MAGIC = 0x47534641;  // "AFSG" when read as little-endian bytes
+    private static final int BINARY_VERSION = 1;
+    private static final int BINARY_HEADER_SIZE = 32;    // magic, version, airports, routes, payload length, CRC32
+    private static final int WRITE_CHUNK_BYTES = 64 * 1024; // Arrays are written through a buffer of this size
+
+    // Matrix format: header, then payload = graph version, string table, distance rows, path rows
+    private static final int MATRIX_MAGIC = 0x4D534641;  // "AFSM" when read as little-endian bytes
+    private static final int MATRIX_VERSION = 1;
+    private static final int MATRIX_HEADER_SIZE = 32;    // magic, version, airports, flags, payload length, CRC32
+    private static final int MATRIX_USES_COST = 1;       // Flag: cost matrix (otherwise time)
+    private static final int MATRIX_HAS_PATHS = 2;       // Flag: path rows follow the distance rows
+
+    /** On-disk formats understood by loadGraph (detected from the file header). */
+    public enum Format {
+        JSON, BINARY
+    }
+
+    /** Receives progress updates while a graph file is being loaded. */
+    public interface ProgressListener {
+        void onProgress(long bytesRead, long totalBytes, int airportsRead, int routesRead);
+    }
 
     public static void saveGraph(Graph graph, String filename) {
-        try (Writer writer = new FileWriter(filename)) {
-            Map<String, Object> data = new HashMap<>();
-            data.put("airports", graph.getAirports());
-            data.put("adjacencyList", graph.getAdjacencyList());
-            gson.toJson(data, writer);
+        saveGraph(graph, filename, Format.JSON);
+    }
+
+    /** Saves the graph in the given format (saveGraph(graph, filename) writes JSON). */
+    public static void saveGraph(Graph graph, String filename, Format format) {
+        GraphMetrics.Probe probe = GraphMetrics.ENABLED ? GraphMetrics.begin(GraphMetrics.Operation.SAVE) : null;
+        boolean saved = true;
+        try {
+            if (format == Format.BINARY) {
+                saveBinary(graph.snapshot(), filename);
+            } else {
+                try (Writer writer = new FileWriter(filename)) {
+                    Map<String, Object> data = new HashMap<>();
+                    data.put("airports", graph.getAirports());
+                    data.put("adjacencyList", graph.getAdjacencyList());
+                    gson.toJson(data, writer);
+                }
+            }
         } catch (IOException e) {
+            saved = false;
             System.out.println("Error saving graph: " + e.getMessage());
         }
+        if (probe != null) {
+            probe.file(filename, format.name(), graph.getAirports().size(), routeCount(graph), saved);
+        }
     }
 
-    public static void loadGraph(Graph graph, String filename) {
-        try (Reader reader = new FileReader(filename)) {
-            Type type = new TypeToken<Map<String, Object>>() {}.getType();
-            Map<String, Object> data = gson.fromJson(reader, type);
+    /**
+     * Writes a snapshot to a temporary file and atomically moves it over
+     * filename, so readers never see a half-written graph. Safe to call from a
+     * background thread because a snapshot never changes.
+     */
+    public static void saveSnapshot(GraphSnapshot snapshot, String filename, Format format) throws IOException {
+        if (format == Format.BINARY) {
+            saveBinary(snapshot, filename);
+            return;
+        }
+        Path temp = Paths.get(filename + ".tmp");
+        try (JsonWriter writer = new JsonWriter(Files.newBufferedWriter(temp, StandardCharsets.UTF_8))) {
+            writer.setIndent("  "); // Same layout as saveGraph
+            int n = snapshot.airportCount();
+            int[] offsets = snapshot.offsets();
+            writer.beginObject();
+            writer.name("adjacencyList").beginObject();
+            for (int u = 0; u < n; u++) {
+                writer.name(snapshot.codeOf(u)).beginArray();
+                for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+                    writer.beginObject();
+                    writer.name("startingCode").value(snapshot.codeOf(u));
+                    writer.name("destinationCode").value(snapshot.codeOf(snapshot.destinations()[e]));
+                    writer.name("cost").value(snapshot.costs()[e]);
+                    writer.name("time").value(snapshot.times()[e]);
+                    writer.endObject();
+                }
+                writer.endArray();
+            }
+            writer.endObject();
+            writer.name("airports").beginObject();
+            for (int u = 0; u < n; u++) {
+                Vertex airport = snapshot.vertex(u);
+                writer.name(snapshot.codeOf(u)).beginObject();
+                writer.name("name").value(airport.name);
+                writer.name("code").value(airport.code);
+                writer.name("state").value(airport.state);
+                writer.endObject();
+            }
+            writer.endObject();
+            writer.endObject();
+        }
+        Files.move(temp, Paths.get(filename), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
 
-            // Clear existing data
-            graph.getAirports().clear();
-            graph.getAdjacencyList().clear();
+    public static boolean loadGraph(Graph graph, String filename) {
+        return loadGraph(graph, filename, null);
+    }
 
-            // Load airports
-            Map<String, Vertex> airportsData = gson.fromJson(gson.toJson(data.get("airports")), new TypeToken<Map<String, Vertex>>() {}.getType());
-            graph.getAirports().putAll(airportsData);
+    /** Looks at the first bytes of a file to tell the binary format from JSON. */
+    public static Format detectFormat(String filename) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            ByteBuffer magic = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+            while (magic.hasRemaining() && channel.read(magic) >= 0) {
+                // Keep reading until 4 bytes or end of file
+            }
+            return magic.position() == 4 && magic.getInt(0) == BINARY_MAGIC ? Format.BINARY : Format.JSON;
+        }
+    }
 
-            // Load adjacencyList
-            Map<String, List<Edge>> adjacencyListData = gson.fromJson(gson.toJson(data.get("adjacencyList")), new TypeToken<Map<String, List<Edge>>>() {}.getType());
-            graph.getAdjacencyList().putAll(adjacencyListData);
+    /** Format for a new file: BINARY for names ending in ".bin", JSON otherwise. */
+    public static Format formatFor(String filename) {
+        return filename.endsWith(".bin") ? Format.BINARY : Format.JSON;
+    }
 
+    /** Converts a graph file from one format to the other (the source format is detected). */
+    public static void convert(String sourceFile, String targetFile, Format targetFormat) {
+        Graph graph = new Graph();
+        if (loadGraph(graph, sourceFile)) {
+            saveGraph(graph, targetFile, targetFormat);
+        }
+    }
+
+    /**
+     * Loads a graph file, picking the format from the file header. Binary files
+     * are read in bulk (see readSnapshot). JSON is streamed token by token
+     * straight into the graph, without building an intermediate tree, so memory
+     * stays close to the size of the graph itself. progress (may be null) is
+     * called every PROGRESS_INTERVAL records and once at the end.
+     *
+     * Returns false (and prints why) if the file is missing or cannot be read
+     * completely; the graph is then left exactly as it was, it is only replaced
+     * once the whole file was parsed.
+     */
+    public static boolean loadGraph(Graph graph, String filename, ProgressListener progress) {
+        GraphMetrics.Probe probe = GraphMetrics.ENABLED ? GraphMetrics.begin(GraphMetrics.Operation.LOAD) : null;
+        Format format = Format.JSON;
+        boolean loaded = false;
+        try {
+            format = new File(filename).isFile() ? detectFormat(filename) : Format.JSON;
+            if (format == Format.BINARY) {
+                loadBinary(graph, filename, progress);
+                loaded = true;
+            } else {
+                loaded = loadJson(graph, filename, progress);
+            }
         } catch (IOException e) {
             System.out.println("Error loading graph: " + e.getMessage());
         }
+        if (probe != null) {
+            probe.file(filename, format.name(), graph.getAirports().size(), routeCount(graph), loaded);
+        }
+        return loaded;
+    }
+
+    // Streams a JSON graph file into a staging graph and moves it into graph once
+    // the whole file was read, see loadGraph
+    private static boolean loadJson(Graph graph, String filename, ProgressListener progress) {
+        File file = new File(filename);
+        Graph staging = new Graph(); // Filled and indexed here, graph takes it over at the end
+
+        try (CountingInputStream counter = new CountingInputStream(new FileInputStream(file));
+                JsonReader reader = new JsonReader(new InputStreamReader(counter, "UTF-8"))) {
+            Loader loader = new Loader(staging, counter, file.length(), progress);
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String section = reader.nextName();
+                if (section.equals("airports") && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                    loader.readAirports(reader);
+                } else if (section.equals("adjacencyList") && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                    loader.readAdjacencyList(reader);
+                } else {
+                    reader.skipValue(); // Unknown or empty section
+                }
+            }
+            reader.endObject();
+
+            // Index the staging graph first: graph keeps its data if anything fails up to here
+            staging.refreshIndexes();
+            graph.replaceWith(staging);
+            loader.report();
+            return true;
+
+        } catch (IOException | IllegalStateException | NumberFormatException e) {
+            System.out.println("Error loading graph: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private static int routeCount(Graph graph) {
+        int routes = 0;
+        for (List<Edge> list : graph.getAdjacencyList().values()) {
+            routes += list.size();
+        }
+        return routes;
+    }
+
+    // ---------------------------------------------------------------------
+    // Binary format
+    // ---------------------------------------------------------------------
+
+    /**
+     * Writes a snapshot in the binary format. All numbers are little-endian:
+     *
+     *   header  : int magic "AFSG", int format version, int airports (n), int routes (m),
+     *             long payload length, long CRC32 of the payload
+     *   payload : string table - code, name, state of every airport as (int byte length, UTF-8 bytes),
+     *                            length -1 for null; padded to a multiple of 8 bytes
+     *             int[n + 1] offsets, int[m] destinations; padded to a multiple of 8 bytes
+     *             double[m] costs, double[m] times
+     *
+     * The file is streamed through the channel (like saveMatrix), so no mapping
+     * of it is alive when it is renamed into place. readSnapshot reads the whole
+     * file into one buffer, so it must stay below 2 GB.
+     */
+    public static void saveBinary(GraphSnapshot snapshot, String filename) throws IOException {
+        int n = snapshot.airportCount();
+        int m = snapshot.routeCount();
+        ByteArrayOutputStream table = new ByteArrayOutputStream();
+        DataOutputStream tableOut = new DataOutputStream(table);
+        for (int u = 0; u < n; u++) {
+            Vertex airport = snapshot.vertex(u);
+            for (String value : new String[]{snapshot.codeOf(u), airport.name, airport.state}) {
+                byte[] bytes = utf8(value);
+                tableOut.writeInt(Integer.reverseBytes(bytes == null ? -1 : bytes.length));
+                if (bytes != null) {
+                    tableOut.write(bytes);
+                }
+            }
+        }
+        while ((table.size() & 7) != 0) {
+            table.write(0);
+        }
+        byte[] strings = table.toByteArray();
+        long fileLength = BINARY_HEADER_SIZE + strings.length + align8(4L * (n + 1) + 4L * m) + 16L * m;
+        if (fileLength > Integer.MAX_VALUE) {
+            throw new IOException("Graph too large for the binary format: " + fileLength + " bytes");
+        }
+
+        Path temp = Paths.get(filename + ".tmp");
+        Files.deleteIfExists(temp);
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            CRC32 crc = new CRC32();
+            channel.position(BINARY_HEADER_SIZE);
+            long payloadLength = writeChecked(channel, ByteBuffer.wrap(strings), crc);
+            ByteBuffer chunk = ByteBuffer.allocate(WRITE_CHUNK_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            payloadLength += writeInts(channel, chunk, snapshot.offsets(), n + 1, crc);
+            payloadLength += writeInts(channel, chunk, snapshot.destinations(), m, crc);
+            if ((payloadLength & 7) != 0) {
+                payloadLength += writeChecked(channel, ByteBuffer.allocate(4), crc);
+            }
+            payloadLength += writeDoubles(channel, chunk, snapshot.costs(), m, crc);
+            payloadLength += writeDoubles(channel, chunk, snapshot.times(), m, crc);
+
+            ByteBuffer header = ByteBuffer.allocate(BINARY_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(BINARY_MAGIC).putInt(BINARY_VERSION).putInt(n).putInt(m)
+                    .putLong(payloadLength).putLong(crc.getValue()).flip();
+            channel.position(0);
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+            channel.force(true);
+        }
+        Files.move(temp, Paths.get(filename), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads a binary graph file and returns it as a GraphSnapshot. The file is
+     * read into a heap buffer rather than mapped, so no mapping keeps it open
+     * (on Windows a mapped file cannot be replaced until the mapping is garbage
+     * collected, which would break the next save). The CSR arrays are then
+     * copied out in bulk; Edge objects are only created when the snapshot is
+     * turned into a Graph (see Graph.replaceWith).
+     * Throws IOException if the header, version or checksum does not match.
+     */
+    public static GraphSnapshot readSnapshot(String filename) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            long fileLength = channel.size();
+            if (fileLength < BINARY_HEADER_SIZE || fileLength > Integer.MAX_VALUE) {
+                throw new IOException("Not a binary graph file: " + filename);
+            }
+            ByteBuffer in = ByteBuffer.allocate((int) fileLength).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(channel, in);
+            if (in.getInt(0) != BINARY_MAGIC) {
+                throw new IOException("Not a binary graph file: " + filename);
+            }
+            if (in.getInt(4) != BINARY_VERSION) {
+                throw new IOException("Unsupported binary graph version " + in.getInt(4) + " in " + filename);
+            }
+            int n = in.getInt(8);
+            int m = in.getInt(12);
+            long payloadLength = in.getLong(16);
+            if (n < 0 || m < 0 || BINARY_HEADER_SIZE + payloadLength != fileLength) {
+                throw new IOException("Truncated or corrupt binary graph file: " + filename);
+            }
+            CRC32 crc = new CRC32();
+            crc.update(in.duplicate().position(BINARY_HEADER_SIZE).limit((int) fileLength));
+            if (crc.getValue() != in.getLong(24)) {
+                throw new IOException("Checksum mismatch in binary graph file: " + filename);
+            }
+
+            in.position(BINARY_HEADER_SIZE);
+            Vertex[] vertices = new Vertex[n];
+            for (int u = 0; u < n; u++) {
+                String code = readString(in);
+                String name = readString(in);
+                String state = readString(in);
+                vertices[u] = new Vertex(name, code, state);
+            }
+            skipPadding(in);
+            int[] offsets = new int[n + 1];
+            int[] dest = new int[m];
+            double[] cost = new double[m];
+            double[] time = new double[m];
+            in.asIntBuffer().get(offsets);
+            in.position(in.position() + 4 * (n + 1));
+            in.asIntBuffer().get(dest);
+            in.position(in.position() + 4 * m);
+            skipPadding(in);
+            in.asDoubleBuffer().get(cost);
+            in.position(in.position() + 8 * m);
+            in.asDoubleBuffer().get(time);
+            return new GraphSnapshot(vertices, offsets, dest, cost, time, 0);
+        }
+    }
+
+    private static void loadBinary(Graph graph, String filename, ProgressListener progress) throws IOException {
+        GraphSnapshot snapshot = readSnapshot(filename);
+        graph.replaceWith(snapshot);
+        if (progress != null) {
+            long length = new File(filename).length();
+            progress.onProgress(length, length, snapshot.airportCount(), snapshot.routeCount());
+        }
+    }
+
+    /**
+     * Writes an all-pairs matrix in a checksummed binary file (same header
+     * layout and temp-file-then-rename scheme as saveBinary). Rows are streamed
+     * through the channel one at a time, so the file may exceed 2 GB.
+     */
+    public static void saveMatrix(AllPairsMatrix matrix, String filename) throws IOException {
+        int n = matrix.size();
+        ByteArrayOutputStream table = new ByteArrayOutputStream();
+        DataOutputStream tableOut = new DataOutputStream(table);
+        for (int u = 0; u < n; u++) {
+            byte[] code = utf8(matrix.codeOf(u));
+            tableOut.writeInt(Integer.reverseBytes(code.length));
+            tableOut.write(code);
+        }
+        while ((table.size() & 7) != 0) {
+            table.write(0);
+        }
+        byte[] strings = table.toByteArray();
+        int flags = (matrix.usesCost() ? MATRIX_USES_COST : 0) | (matrix.hasPaths() ? MATRIX_HAS_PATHS : 0);
+
+        Path temp = Paths.get(filename + ".tmp");
+        Files.deleteIfExists(temp);
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            CRC32 crc = new CRC32();
+            channel.position(MATRIX_HEADER_SIZE);
+            ByteBuffer head = ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN);
+            head.putLong(matrix.version()).putLong(strings.length).flip();
+            long payloadLength = writeChecked(channel, head, crc);
+            payloadLength += writeChecked(channel, ByteBuffer.wrap(strings), crc);
+
+            ByteBuffer row = ByteBuffer.allocate(8 * n).order(ByteOrder.LITTLE_ENDIAN);
+            for (int u = 0; u < n; u++) {
+                row.clear();
+                row.asDoubleBuffer().put(matrix.row(u));
+                row.limit(8 * n);
+                payloadLength += writeChecked(channel, row, crc);
+            }
+            if (matrix.hasPaths()) {
+                for (int u = 0; u < n; u++) {
+                    row.clear();
+                    row.asIntBuffer().put(matrix.previousRow(u));
+                    row.limit(4 * n);
+                    payloadLength += writeChecked(channel, row, crc);
+                }
+            }
+
+            ByteBuffer header = ByteBuffer.allocate(MATRIX_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MATRIX_MAGIC).putInt(MATRIX_VERSION).putInt(n).putInt(flags)
+                    .putLong(payloadLength).putLong(crc.getValue()).flip();
+            channel.position(0);
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+            channel.force(true);
+        }
+        Files.move(temp, Paths.get(filename), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads a matrix written by saveMatrix. The result answers distance() and
+     * route() queries but has no graph attached (path() is not available).
+     * Throws IOException if the header, version or checksum does not match.
+     */
+    public static AllPairsMatrix loadMatrix(String filename) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(MATRIX_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(channel, header);
+            if (header.getInt(0) != MATRIX_MAGIC) {
+                throw new IOException("Not a matrix file: " + filename);
+            }
+            if (header.getInt(4) != MATRIX_VERSION) {
+                throw new IOException("Unsupported matrix version " + header.getInt(4) + " in " + filename);
+            }
+            int n = header.getInt(8);
+            int flags = header.getInt(12);
+            long payloadLength = header.getLong(16);
+            boolean hasPaths = (flags & MATRIX_HAS_PATHS) != 0;
+            if (n < 0 || MATRIX_HEADER_SIZE + payloadLength != channel.size()
+                    || payloadLength < 16 + (long) n * n * (hasPaths ? 12 : 8)) {
+                throw new IOException("Truncated or corrupt matrix file: " + filename);
+            }
+
+            CRC32 crc = new CRC32();
+            ByteBuffer head = ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN);
+            readChecked(channel, head, crc);
+            long version = head.getLong(0);
+            long stringBytes = head.getLong(8);
+            if (stringBytes < 0 || 16 + stringBytes + (long) n * n * (hasPaths ? 12 : 8) != payloadLength) {
+                throw new IOException("Truncated or corrupt matrix file: " + filename);
+            }
+            ByteBuffer table = ByteBuffer.allocate((int) stringBytes).order(ByteOrder.LITTLE_ENDIAN);
+            readChecked(channel, table, crc);
+            String[] codes = new String[n];
+            for (int u = 0; u < n; u++) {
+                codes[u] = readString(table);
+            }
+
+            double[][] dist = new double[n][n];
+            ByteBuffer row = ByteBuffer.allocate(8 * n).order(ByteOrder.LITTLE_ENDIAN);
+            for (int u = 0; u < n; u++) {
+                row.clear();
+                readChecked(channel, row, crc);
+                row.asDoubleBuffer().get(dist[u]);
+            }
+            int[][] previous = null;
+            if (hasPaths) {
+                previous = new int[n][n];
+                for (int u = 0; u < n; u++) {
+                    row.clear().limit(4 * n);
+                    readChecked(channel, row, crc);
+                    row.asIntBuffer().get(previous[u]);
+                }
+            }
+            if (crc.getValue() != header.getLong(24)) {
+                throw new IOException("Checksum mismatch in matrix file: " + filename);
+            }
+            return new AllPairsMatrix(codes, (flags & MATRIX_USES_COST) != 0, dist, previous, version, null);
+        }
+    }
+
+    // Writes the remaining bytes of buffer, adds them to the checksum and returns their count
+    private static int writeChecked(FileChannel channel, ByteBuffer buffer, CRC32 crc) throws IOException {
+        int length = buffer.remaining();
+        crc.update(buffer.duplicate());
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        return length;
+    }
+
+    // Writes values[0, count) through chunk, a few kilobytes at a time; returns the byte count
+    private static long writeInts(FileChannel channel, ByteBuffer chunk, int[] values, int count, CRC32 crc) throws IOException {
+        int perChunk = chunk.capacity() / 4;
+        for (int from = 0; from < count; from += perChunk) {
+            int length = Math.min(perChunk, count - from);
+            chunk.clear();
+            chunk.asIntBuffer().put(values, from, length);
+            chunk.limit(4 * length);
+            writeChecked(channel, chunk, crc);
+        }
+        return 4L * count;
+    }
+
+    private static long writeDoubles(FileChannel channel, ByteBuffer chunk, double[] values, int count, CRC32 crc) throws IOException {
+        int perChunk = chunk.capacity() / 8;
+        for (int from = 0; from < count; from += perChunk) {
+            int length = Math.min(perChunk, count - from);
+            chunk.clear();
+            chunk.asDoubleBuffer().put(values, from, length);
+            chunk.limit(8 * length);
+            writeChecked(channel, chunk, crc);
+        }
+        return 8L * count;
+    }
+
+    // Fills buffer up to its limit, adds the bytes to the checksum and flips it for reading
+    private static void readChecked(FileChannel channel, ByteBuffer buffer, CRC32 crc) throws IOException {
+        readFully(channel, buffer);
+        crc.update(buffer.duplicate());
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException("Unexpected end of file");
+            }
+        }
+        buffer.flip();
+    }
+
+    private static byte[] utf8(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static long align8(long value) {
+        return (value + 7) & ~7L;
+    }
+
+    private static void skipPadding(ByteBuffer in) {
+        in.position((int) align8(in.position()));
+    }
+
+    // Reads the two sections of the JSON file and keeps the progress counters
+    private static class Loader {
+        private final Graph graph;
+        private final CountingInputStream counter;
+        private final long totalBytes;
+        private final ProgressListener progress;
+        private int airportsRead = 0;
+        private int routesRead = 0;
+
+        Loader(Graph graph, CountingInputStream counter, long totalBytes, ProgressListener progress) {
+            this.graph = graph;
+            this.counter = counter;
+            this.totalBytes = totalBytes;
+            this.progress = progress;
+        }
+
+        // "airports": { "KUL": { "name": ..., "code": ..., "state": ... }, ... }
+        void readAirports(JsonReader reader) throws IOException {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String key = reader.nextName();
+                if (reader.peek() == JsonToken.NULL) {
+                    reader.nextNull();
+                    continue;
+                }
+                String name = null;
+                String code = key;
+                String state = null;
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    switch (reader.nextName()) {
+                        case "name" -> name = nextString(reader);
+                        case "code" -> code = readCode(reader, "code", key);
+                        case "state" -> state = nextString(reader);
+                        default -> reader.skipValue();
+                    }
+                }
+                reader.endObject();
+                graph.getAirports().put(key, new Vertex(name, code, state));
+                if (++airportsRead % PROGRESS_INTERVAL == 0) {
+                    report();
+                }
+            }
+            reader.endObject();
+        }
+
+        // "adjacencyList": { "KUL": [ { "startingCode": ..., "destinationCode": ..., "cost": ..., "time": ... } ], ... }
+        void readAdjacencyList(JsonReader reader) throws IOException {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String key = reader.nextName();
+                List<Edge> routes = new ArrayList<>();
+                if (reader.peek() == JsonToken.NULL) {
+                    reader.nextNull();
+                } else {
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        routes.add(readEdge(reader));
+                        if (++routesRead % PROGRESS_INTERVAL == 0) {
+                            report();
+                        }
+                    }
+                    reader.endArray();
+                }
+                graph.getAdjacencyList().put(key, routes);
+            }
+            reader.endObject();
+        }
+
+        Edge readEdge(JsonReader reader) throws IOException {
+            String where = "route " + (routesRead + 1);
+            String startingCode = null;
+            String destinationCode = null;
+            double cost = 0;
+            double time = 0;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "startingCode" -> startingCode = readCode(reader, "startingCode", where);
+                    case "destinationCode" -> destinationCode = readCode(reader, "destinationCode", where);
+                    case "cost" -> cost = reader.nextDouble();
+                    case "time" -> time = reader.nextDouble();
+                    default -> reader.skipValue();
+                }
+            }
+            reader.endObject();
+            if (startingCode == null || destinationCode == null) {
+                throw new IOException(where + " has no " + (startingCode == null ? "startingCode" : "destinationCode"));
+            }
+            return new Edge(startingCode, destinationCode, cost, time);
+        }
+
+        void report() {
+            if (progress != null) {
+                progress.onProgress(counter.count, totalBytes, airportsRead, routesRead);
+            }
+        }
+
+        // An airport code must be a JSON string (null would break the indexes later)
+        private static String readCode(JsonReader reader, String field, String where) throws IOException {
+            if (reader.peek() != JsonToken.STRING) {
+                throw new IOException(field + " of " + where + " is " + reader.peek() + ", not a string");
+            }
+            return reader.nextString();
+        }
+
+        private static String nextString(JsonReader reader) throws IOException {
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+                return null;
+            }
+            return reader.nextString();
+        }
+    }
+
+    // Buffered input stream that counts the bytes handed to the JSON reader
+    private static class CountingInputStream extends BufferedInputStream {
+        long count = 0;
+
+        CountingInputStream(InputStream in) {
+            super(in, 1 << 16);
+        }
+
+        @Override
+        public synchronized int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public synchronized int read(byte[] buffer, int offset, int length) throws IOException {
+            int n = super.read(buffer, offset, length);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
     }
 }
@@ -0,0 +1,441 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.concurrent.*;
+import java.util.zip.CRC32;
+
+/**
+ * Write-ahead journal of Graph mutations on top of a snapshot file.
+ *
+ * Every successful addAirport / removeAirport / addRoute / removeRoute is
+ * appended as a small record to "<snapshot>.journal", so persisting a change
+ * costs the same no matter how large the graph is. Records are buffered and a
+ * background thread writes and fsyncs them in groups (group commit) every few
+ * milliseconds; sync() waits until everything appended so far is on disk.
+ *
+ * On startup the snapshot is loaded and the journal replayed on top of it.
+ * When the journal grows past a threshold it is compacted: the journal is
+ * renamed to "<snapshot>.journal.compacting", a fresh journal is started, and
+ * a background thread writes the current graph as the new snapshot and then
+ * deletes the old journal. Replaying a journal on a graph that already
+ * contains its changes gives the same graph, so a crash at any point of a
+ * compaction is safe.
+ *
+ * Record layout: int body length, body, int CRC32 of the body. A torn or
+ * corrupt record at the end of the journal (crash while writing) ends replay.
+ */
+public class GraphJournal implements GraphListener, Closeable {
+    private static final byte ADD_AIRPORT = 1;
+    private static final byte REMOVE_AIRPORT = 2;
+    private static final byte ADD_ROUTE = 3;
+    private static final byte REMOVE_ROUTE = 4;
+
+    private static final long COMMIT_INTERVAL_MILLIS = 5;            // Max delay before a group commit
+    private static final int COMMIT_BATCH_BYTES = 64 * 1024;          // Commit early once this much is buffered
+    private static final int MAX_RECORD_BYTES = 1 << 20;              // Larger lengths mean the file is damaged
+    private static final long DEFAULT_COMPACT_THRESHOLD = 4L << 20;  // Journal size that triggers compaction
+
+    private final Graph graph;
+    private final String snapshotFile;
+    private final Path journalPath;
+    private final Path compactingPath;
+    private final long compactThreshold;
+
+    private final Object lock = new Object();      // Guards the fields below
+    private ByteArrayOutputStream pending = new ByteArrayOutputStream(); // Records not written yet
+    private long appendedSequence = 0;             // Records appended so far
+    private long durableSequence = 0;              // Records written and fsynced
+    private long journalSize;                      // Bytes in the current journal (incl. pending)
+    private IOException failure;                   // First write error, reported by sync()
+    private boolean closed = false;
+
+    private final Object ioLock = new Object();    // Serialises writes with journal rotation
+    private FileChannel channel;
+
+    private final Thread flusher;
+    private final ExecutorService compactor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "graph-journal-compaction");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private Future<?> compaction;                  // Last compaction (owner thread only)
+
+    private GraphJournal(Graph graph, String snapshotFile, long compactThreshold, long journalSize) throws IOException {
+        this.graph = graph;
+        this.snapshotFile = snapshotFile;
+        this.journalPath = Paths.get(snapshotFile + ".journal");
+        this.compactingPath = Paths.get(snapshotFile + ".journal.compacting");
+        this.compactThreshold = compactThreshold;
+        this.journalSize = journalSize;
+        this.channel = openJournal();
+        this.flusher = new Thread(this::flushLoop, "graph-journal-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /**
+     * Loads snapshotFile (if it exists), replays its journal and journals all
+     * further changes. Throws IOException without touching the snapshot or
+     * its journal if the snapshot exists but cannot be loaded.
+     */
+    public static GraphJournal open(Graph graph, String snapshotFile) throws IOException {
+        return open(graph, snapshotFile, DEFAULT_COMPACT_THRESHOLD);
+    }
+
+    public static GraphJournal open(Graph graph, String snapshotFile, long compactThreshold) throws IOException {
+        if (Files.exists(Paths.get(snapshotFile)) && !GraphIO.loadGraph(graph, snapshotFile)) {
+            // Replaying onto a partial graph and checkpointing it later would overwrite the file
+            throw new IOException("Graph snapshot " + snapshotFile + " could not be loaded");
+        }
+        // A compaction that did not finish left its journal behind, it goes first
+        Path compacting = Paths.get(snapshotFile + ".journal.compacting");
+        if (Files.exists(compacting)) {
+            replay(graph, compacting);
+        }
+        Path journal = Paths.get(snapshotFile + ".journal");
+        long validLength = Files.exists(journal) ? replay(graph, journal) : 0;
+        if (Files.exists(journal) && Files.size(journal) > validLength) {
+            try (FileChannel torn = FileChannel.open(journal, StandardOpenOption.WRITE)) {
+                torn.truncate(validLength); // Drop a record that was only half written
+            }
+        }
+        GraphJournal graphJournal = new GraphJournal(graph, snapshotFile, compactThreshold, validLength);
+        graph.addListener(graphJournal);
+        return graphJournal;
+    }
+
+    /** Applies the records of a journal file to the graph; returns the length of the valid part. */
+    static long replay(Graph graph, Path journal) throws IOException {
+        long valid = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(journal)))) {
+            CRC32 crc = new CRC32();
+            while (true) {
+                byte[] body;
+                try {
+                    int length = in.readInt();
+                    if (length <= 0 || length > MAX_RECORD_BYTES) {
+                        break; // Garbage, not a record
+                    }
+                    body = new byte[length];
+                    in.readFully(body);
+                    crc.reset();
+                    crc.update(body);
+                    if (in.readInt() != (int) crc.getValue()) {
+                        break; // Corrupt record
+                    }
+                } catch (EOFException e) {
+                    break; // Torn record at the end
+                }
+                apply(graph, body);
+                valid += 8 + body.length;
+            }
+        }
+        return valid;
+    }
+
+    private static void apply(Graph graph, byte[] body) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(body));
+        switch (in.readByte()) {
+            case ADD_AIRPORT -> {
+                String code = readString(in);
+                String name = readString(in);
+                String state = readString(in);
+                graph.addAirport(new Vertex(name, code, state));
+            }
+            case REMOVE_AIRPORT -> graph.removeAirport(readString(in));
+            case ADD_ROUTE -> {
+                String from = readString(in);
+                String to = readString(in);
+                double cost = in.readDouble();
+                double time = in.readDouble();
+                graph.addRoute(new Edge(from, to, cost, time));
+            }
+            case REMOVE_ROUTE -> graph.removeRoute(readString(in), readString(in));
+            default -> throw new IOException("Unknown journal record type");
+        }
+    }
+
+    // ---------------------------------------------------------------------
+    // GraphListener: one record per successful mutation
+    // ---------------------------------------------------------------------
+
+    @Override
+    public void airportAdded(Vertex airport) {
+        append(ADD_AIRPORT, airport.code, airport.name, airport.state, 0, 0, false);
+    }
+
+    @Override
+    public void airportRemoved(Vertex airport) {
+        append(REMOVE_AIRPORT, airport.code, null, null, 0, 0, false);
+    }
+
+    @Override
+    public void routeAdded(Edge route) {
+        append(ADD_ROUTE, route.startingCode, route.destinationCode, null, route.cost, route.time, true);
+    }
+
+    @Override
+    public void routeRemoved(Edge route) {
+        append(REMOVE_ROUTE, route.startingCode, route.destinationCode, null, 0, 0, false);
+    }
+
+    @Override
+    public void graphReloaded() {
+        // The graph no longer matches snapshot + journal, write it out as a new snapshot
+        compact();
+    }
+
+    private void append(byte op, String first, String second, String third, double cost, double time,
+            boolean withNumbers) {
+        byte[] record;
+        try {
+            ByteArrayOutputStream body = new ByteArrayOutputStream(64);
+            DataOutputStream out = new DataOutputStream(body);
+            out.writeByte(op);
+            writeString(out, first);
+            if (op != REMOVE_AIRPORT) {
+                writeString(out, second);
+            }
+            if (op == ADD_AIRPORT) {
+                writeString(out, third);
+            }
+            if (withNumbers) {
+                out.writeDouble(cost);
+                out.writeDouble(time);
+            }
+            CRC32 crc = new CRC32();
+            crc.update(body.toByteArray());
+            ByteArrayOutputStream framed = new ByteArrayOutputStream(body.size() + 8);
+            DataOutputStream frame = new DataOutputStream(framed);
+            frame.writeInt(body.size());
+            body.writeTo(frame);
+            frame.writeInt((int) crc.getValue());
+            record = framed.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // ByteArrayOutputStream never throws
+        }
+
+        boolean compactNow;
+        synchronized (lock) {
+            if (closed) {
+                return;
+            }
+            pending.write(record, 0, record.length);
+            appendedSequence++;
+            journalSize += record.length;
+            if (pending.size() == record.length || pending.size() >= COMMIT_BATCH_BYTES) {
+                lock.notifyAll(); // First record of a batch, or enough to commit right away
+            }
+            compactNow = journalSize >= compactThreshold;
+        }
+        if (compactNow && (compaction == null || compaction.isDone())) {
+            compact();
+        }
+    }
+
+    // ---------------------------------------------------------------------
+    // Group commit
+    // ---------------------------------------------------------------------
+
+    private void flushLoop() {
+        while (true) {
+            byte[] batch;
+            long sequence;
+            synchronized (lock) {
+                while (pending.size() == 0 && !closed) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (pending.size() == 0 && closed) {
+                    return;
+                }
+                if (pending.size() < COMMIT_BATCH_BYTES && !closed) {
+                    // Give concurrent mutations a moment to join this commit
+                    try {
+                        lock.wait(COMMIT_INTERVAL_MILLIS);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                batch = pending.toByteArray();
+                pending = new ByteArrayOutputStream();
+                sequence = appendedSequence;
+            }
+
+            try {
+                synchronized (ioLock) {
+                    ByteBuffer buffer = ByteBuffer.wrap(batch);
+                    while (buffer.hasRemaining()) {
+                        channel.write(buffer);
+                    }
+                    channel.force(false);
+                }
+                synchronized (lock) {
+                    durableSequence = sequence;
+                    lock.notifyAll();
+                }
+            } catch (IOException e) {
+                synchronized (lock) {
+                    if (failure == null) {
+                        failure = e;
+                        System.out.println("Error writing graph journal: " + e.getMessage());
+                    }
+                    lock.notifyAll();
+                }
+                return;
+            }
+        }
+    }
+
+    /** Blocks until every change recorded so far is on disk. */
+    public void sync() throws IOException {
+        synchronized (lock) {
+            long target = appendedSequence;
+            lock.notifyAll();
+            while (durableSequence < target && failure == null) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while syncing the graph journal");
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    // ---------------------------------------------------------------------
+    // Compaction
+    // ---------------------------------------------------------------------
+
+    /**
+     * Starts a new journal and writes the current graph as the new snapshot in
+     * the background. Must be called on the thread that mutates the graph.
+     * The future fails with the IOException if the journal could not be
+     * rotated or the snapshot not written; the records stay in the
+     * ".compacting" journal then and the next compaction picks them up.
+     */
+    public Future<?> compact() {
+        try {
+            if (compaction != null) {
+                try {
+                    compaction.get(); // Its journal must be gone before the next one is rotated out
+                } catch (ExecutionException e) {
+                    // Already reported through its future, its journal is kept below
+                }
+            }
+            sync();
+            synchronized (ioLock) {
+                channel.close();
+                try {
+                    if (Files.exists(compactingPath)) {
+                        // The previous compaction failed, keep its records in front of ours
+                        Files.write(compactingPath, Files.readAllBytes(journalPath), StandardOpenOption.APPEND);
+                        Files.delete(journalPath);
+                    } else {
+                        Files.move(journalPath, compactingPath, StandardCopyOption.ATOMIC_MOVE);
+                    }
+                } finally {
+                    channel = openJournal(); // Also when rotating failed, so appends go on
+                }
+            }
+            synchronized (lock) {
+                journalSize = 0;
+            }
+        } catch (IOException e) {
+            System.out.println("Error compacting graph journal: " + e.getMessage());
+            return CompletableFuture.failedFuture(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return CompletableFuture.failedFuture(new InterruptedIOException("Interrupted while compacting"));
+        }
+
+        GraphSnapshot snapshot = graph.snapshot();
+        compaction = compactor.submit(() -> {
+            try {
+                GraphIO.Format format = Files.exists(Paths.get(snapshotFile))
+                        ? GraphIO.detectFormat(snapshotFile)
+                        : GraphIO.formatFor(snapshotFile);
+                GraphIO.saveSnapshot(snapshot, snapshotFile, format);
+                Files.delete(compactingPath);
+            } catch (IOException e) {
+                System.out.println("Error compacting graph journal: " + e.getMessage());
+                throw e; // Fails the future
+            }
+            return null;
+        });
+        return compaction;
+    }
+
+    /**
+     * Compacts and waits until the new snapshot is written (e.g. before
+     * exiting). Throws the IOException if that failed.
+     */
+    public void checkpoint() throws IOException {
+        try {
+            compact().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while writing the graph snapshot");
+        } catch (ExecutionException e) {
+            throw new IOException("Could not write the graph snapshot " + snapshotFile, e.getCause());
+        }
+    }
+
+    public String snapshotFile() {
+        return snapshotFile;
+    }
+
+    /** Size in bytes of the current journal. */
+    public long journalSize() {
+        synchronized (lock) {
+            return journalSize;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        graph.removeListener(this);
+        try {
+            sync();
+        } finally {
+            synchronized (lock) {
+                closed = true;
+                lock.notifyAll();
+            }
+            try {
+                flusher.join();
+                compactor.shutdown();
+                compactor.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            synchronized (ioLock) {
+                channel.close();
+            }
+        }
+    }
+
+    private FileChannel openJournal() throws IOException {
+        FileChannel opened = FileChannel.open(journalPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        opened.position(opened.size());
+        return opened;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
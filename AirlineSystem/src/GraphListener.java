@@ -0,0 +1,30 @@
+/**
+ * Callback for changes made through Graph's mutation methods. Listeners are
+ * called on the mutating thread, after the change has been applied and only
+ * when it succeeded. All methods do nothing by default.
+ */
+public interface GraphListener {
+    default void airportAdded(Vertex airport) {
+    }
+
+    /** Routes from and to the airport are removed with it and not reported one by one. */
+    default void airportRemoved(Vertex airport) {
+    }
+
+    default void routeAdded(Edge route) {
+    }
+
+    default void routeRemoved(Edge route) {
+    }
+
+    /** The maps were replaced in bulk (e.g. a file was loaded) and refreshIndexes() was called. */
+    default void graphReloaded() {
+    }
+
+    /**
+     * snapshot() built a new snapshot because the graph changed since the last
+     * one (e.g. for a query, or ConcurrentGraph publishing a batch of changes).
+     */
+    default void snapshotBuilt(GraphSnapshot snapshot) {
+    }
+}
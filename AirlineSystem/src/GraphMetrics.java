@@ -0,0 +1,365 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Counters, latency histograms and JDK Flight Recorder events for Graph,
+ * GraphSnapshot and GraphIO operations.
+ *
+ * Switched on with -Dairline.metrics=true. ENABLED is a static final field, so
+ * when it is off the JIT removes every "if (GraphMetrics.ENABLED)" and
+ * "probe != null" branch, and the work counters in the search loops become
+ * dead code: the hot paths run as if the instrumentation did not exist.
+ *
+ * When it is on, every instrumented call is wrapped like this:
+ *
+ *   GraphMetrics.Probe probe = GraphMetrics.ENABLED ? GraphMetrics.begin(Operation.DIJKSTRA) : null;
+ *   ...
+ *   if (probe != null) probe.search(start, end, settled, relaxed, path.size());
+ *
+ * which adds to the per-operation counters (calls, failures, airports settled,
+ * routes relaxed), records the latency in a striped histogram and commits a
+ * JFR event (airline.RouteSearch, airline.GraphMutation or airline.GraphFile)
+ * if a recording is running, e.g. java -XX:StartFlightRecording -Dairline.metrics=true.
+ *
+ * Exporters get a snapshot of all operations, either on demand (snapshot(),
+ * prometheus()) or periodically (schedule(), with dumpFile() writing the
+ * Prometheus text format to a file). RouteServer serves it at /metrics.
+ */
+public final class GraphMetrics {
+    public static final boolean ENABLED = Boolean.getBoolean("airline.metrics");
+
+    private static final long HIGHEST_LATENCY = TimeUnit.HOURS.toNanos(1);
+    private static final int DIGITS = 2;
+    private static final int STRIPES = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors()) * 2);
+
+    /** Instrumented operations. */
+    public enum Operation {
+        DIJKSTRA("dijkstra"), BIDIRECTIONAL_DIJKSTRA("bidirectional_dijkstra"),
+        BFS_SHORTEST_PATH("bfs_shortest_path"), BIDIRECTIONAL_BFS("bidirectional_bfs"),
+        BFS_REACHABLE("bfs_reachable"), ADD_AIRPORT("add_airport"), REMOVE_AIRPORT("remove_airport"),
+        ADD_ROUTE("add_route"), REMOVE_ROUTE("remove_route"), LOAD("load"), SAVE("save");
+
+        public final String label;
+
+        Operation(String label) {
+            this.label = label;
+        }
+    }
+
+    /** Totals of one operation since the start of the JVM (or the last reset()). */
+    public static final class Stats {
+        public final Operation operation;
+        public final long calls;
+        public final long failures;     // Unknown airports, rejected changes, I/O errors
+        public final long settled;      // Airports taken off the queue by searches
+        public final long relaxed;      // Routes looked at by searches
+        public final LatencyHistogram latency; // Nanoseconds
+
+        Stats(Operation operation, long calls, long failures, long settled, long relaxed, LatencyHistogram latency) {
+            this.operation = operation;
+            this.calls = calls;
+            this.failures = failures;
+            this.settled = settled;
+            this.relaxed = relaxed;
+            this.latency = latency;
+        }
+    }
+
+    /** Receives the statistics of all operations that were used at least once. */
+    public interface Exporter {
+        void export(List<Stats> stats) throws IOException;
+    }
+
+    // Per operation: counters, and histograms striped by thread so recording threads rarely share a lock
+    private static final class Meter {
+        final LongAdder calls = new LongAdder();
+        final LongAdder failures = new LongAdder();
+        final LongAdder settled = new LongAdder();
+        final LongAdder relaxed = new LongAdder();
+        final LatencyHistogram[] stripes = new LatencyHistogram[STRIPES];
+
+        Meter() {
+            for (int i = 0; i < STRIPES; i++) {
+                stripes[i] = new LatencyHistogram(HIGHEST_LATENCY, DIGITS);
+            }
+        }
+
+        void record(long nanos, boolean failed, long settledCount, long relaxedCount) {
+            calls.increment();
+            if (failed) {
+                failures.increment();
+            }
+            if (settledCount > 0) {
+                settled.add(settledCount);
+            }
+            if (relaxedCount > 0) {
+                relaxed.add(relaxedCount);
+            }
+            LatencyHistogram stripe = stripes[(int) (Thread.currentThread().getId() * 0x9E3779B97F4A7C15L >>> 40) & (STRIPES - 1)];
+            synchronized (stripe) {
+                stripe.record(nanos);
+            }
+        }
+    }
+
+    private static final Meter[] METERS = new Meter[Operation.values().length];
+
+    static {
+        for (Operation operation : Operation.values()) {
+            METERS[operation.ordinal()] = new Meter();
+        }
+    }
+
+    private GraphMetrics() {
+    }
+
+    /** Starts timing one operation (only call when ENABLED). */
+    public static Probe begin(Operation operation) {
+        return new Probe(operation);
+    }
+
+    /** One running operation; finish it with exactly one of search(), mutation() or file(). */
+    public static final class Probe {
+        private final Operation operation;
+        private final long start = System.nanoTime();
+        private final Event event;
+
+        Probe(Operation operation) {
+            this.operation = operation;
+            switch (operation) {
+                case LOAD:
+                case SAVE:
+                    event = new GraphFileEvent();
+                    break;
+                case ADD_AIRPORT:
+                case REMOVE_AIRPORT:
+                case ADD_ROUTE:
+                case REMOVE_ROUTE:
+                    event = new GraphMutationEvent();
+                    break;
+                default:
+                    event = new RouteSearchEvent();
+                    break;
+            }
+            event.begin();
+        }
+
+        /**
+         * A finished search. pathLength is the number of routes (or airports for
+         * bfsReachable) in the result, -1 if the query was rejected (an unknown
+         * airport, or the same airport as origin and destination).
+         */
+        public void search(String origin, String destination, long settled, long relaxed, int pathLength) {
+            METERS[operation.ordinal()].record(System.nanoTime() - start, pathLength < 0, settled, relaxed);
+            RouteSearchEvent e = (RouteSearchEvent) event;
+            if (e.shouldCommit()) {
+                e.operation = operation.label;
+                e.origin = origin;
+                e.destination = destination;
+                e.settled = settled;
+                e.relaxed = relaxed;
+                e.pathLength = pathLength;
+                e.commit();
+            }
+        }
+
+        /** A finished change; destination is null for airport changes. */
+        public void mutation(String origin, String destination, boolean success) {
+            METERS[operation.ordinal()].record(System.nanoTime() - start, !success, 0, 0);
+            GraphMutationEvent e = (GraphMutationEvent) event;
+            if (e.shouldCommit()) {
+                e.operation = operation.label;
+                e.origin = origin;
+                e.destination = destination;
+                e.success = success;
+                e.commit();
+            }
+        }
+
+        /** A finished load or save. */
+        public void file(String filename, String format, int airports, int routes, boolean success) {
+            METERS[operation.ordinal()].record(System.nanoTime() - start, !success, 0, 0);
+            GraphFileEvent e = (GraphFileEvent) event;
+            if (e.shouldCommit()) {
+                e.operation = operation.label;
+                e.file = filename;
+                e.format = format;
+                e.airports = airports;
+                e.routes = routes;
+                e.success = success;
+                e.commit();
+            }
+        }
+    }
+
+    // ---------------------------------------------------------------------
+    // Export
+    // ---------------------------------------------------------------------
+
+    /** Statistics of every operation called at least once (histograms are copies). */
+    public static List<Stats> snapshot() {
+        List<Stats> stats = new ArrayList<>();
+        for (Operation operation : Operation.values()) {
+            Meter meter = METERS[operation.ordinal()];
+            long calls = meter.calls.sum();
+            if (calls == 0) {
+                continue;
+            }
+            LatencyHistogram latency = new LatencyHistogram(HIGHEST_LATENCY, DIGITS);
+            for (LatencyHistogram stripe : meter.stripes) {
+                synchronized (stripe) {
+                    latency.add(stripe);
+                }
+            }
+            stats.add(new Stats(operation, calls, meter.failures.sum(), meter.settled.sum(), meter.relaxed.sum(), latency));
+        }
+        return stats;
+    }
+
+    /** Clears all counters and histograms. */
+    public static void reset() {
+        for (int i = 0; i < METERS.length; i++) {
+            METERS[i] = new Meter();
+        }
+    }
+
+    /** All statistics in the Prometheus text exposition format. */
+    public static String prometheus() {
+        return prometheus(snapshot());
+    }
+
+    public static String prometheus(List<Stats> stats) {
+        StringBuilder out = new StringBuilder();
+        counter(out, stats, "airline_graph_operations_total", "Operations started", s -> s.calls);
+        counter(out, stats, "airline_graph_failures_total", "Operations that failed or were rejected", s -> s.failures);
+        counter(out, stats, "airline_graph_settled_total", "Airports settled by searches", s -> s.settled);
+        counter(out, stats, "airline_graph_relaxed_total", "Routes relaxed by searches", s -> s.relaxed);
+
+        out.append("# HELP airline_graph_latency_seconds Operation latency\n");
+        out.append("# TYPE airline_graph_latency_seconds summary\n");
+        for (Stats s : stats) {
+            for (double quantile : new double[] { 0.5, 0.9, 0.99, 0.999 }) {
+                out.append(String.format(Locale.ROOT, "airline_graph_latency_seconds{operation=\"%s\",quantile=\"%s\"} %.9f%n",
+                        s.operation.label, quantile, s.latency.percentile(quantile * 100) / 1e9));
+            }
+            out.append(String.format(Locale.ROOT, "airline_graph_latency_seconds_sum{operation=\"%s\"} %.9f%n",
+                    s.operation.label, s.latency.mean() * s.latency.count() / 1e9));
+            out.append(String.format(Locale.ROOT, "airline_graph_latency_seconds_count{operation=\"%s\"} %d%n",
+                    s.operation.label, s.latency.count()));
+        }
+        return out.toString();
+    }
+
+    private interface Value {
+        long of(Stats stats);
+    }
+
+    private static void counter(StringBuilder out, List<Stats> stats, String name, String help, Value value) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(" counter\n");
+        for (Stats s : stats) {
+            out.append(name).append("{operation=\"").append(s.operation.label).append("\"} ")
+                    .append(value.of(s)).append('\n');
+        }
+    }
+
+    /**
+     * Calls exporter every periodMillis on a daemon thread until the returned
+     * handle is closed. Errors of one export are printed and the next one still runs.
+     */
+    public static AutoCloseable schedule(Exporter exporter, long periodMillis) {
+        ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "graph-metrics-export");
+            thread.setDaemon(true);
+            return thread;
+        });
+        timer.scheduleAtFixedRate(() -> {
+            try {
+                exporter.export(snapshot());
+            } catch (IOException | RuntimeException e) {
+                System.out.println("Error exporting metrics: " + e.getMessage());
+            }
+        }, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+        return timer::shutdown;
+    }
+
+    /**
+     * Exporter that rewrites filename with the Prometheus text format (e.g. for
+     * the node exporter's textfile collector). The file is replaced atomically.
+     */
+    public static Exporter dumpFile(String filename) {
+        return stats -> {
+            Path target = Paths.get(filename).toAbsolutePath();
+            Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+            Files.write(temp, prometheus(stats).getBytes(StandardCharsets.UTF_8));
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        };
+    }
+
+    // ---------------------------------------------------------------------
+    // Flight Recorder events
+    // ---------------------------------------------------------------------
+
+    @Name("airline.RouteSearch")
+    @Label("Route Search")
+    @Category({ "Airline", "Graph" })
+    @Description("Dijkstra, BFS or reachability query")
+    static class RouteSearchEvent extends Event {
+        @Label("Operation")
+        String operation;
+        @Label("Origin")
+        String origin;
+        @Label("Destination")
+        String destination;
+        @Label("Airports Settled")
+        long settled;
+        @Label("Routes Relaxed")
+        long relaxed;
+        @Label("Path Length")
+        @Description("Routes on the path (airports for reachability), -1 for unknown airports")
+        int pathLength;
+    }
+
+    @Name("airline.GraphMutation")
+    @Label("Graph Mutation")
+    @Category({ "Airline", "Graph" })
+    @Description("Airport or route added or removed")
+    static class GraphMutationEvent extends Event {
+        @Label("Operation")
+        String operation;
+        @Label("Origin")
+        String origin;
+        @Label("Destination")
+        String destination;
+        @Label("Success")
+        boolean success;
+    }
+
+    @Name("airline.GraphFile")
+    @Label("Graph Load/Save")
+    @Category({ "Airline", "I/O" })
+    @Description("Graph loaded from or saved to a file")
+    static class GraphFileEvent extends Event {
+        @Label("Operation")
+        String operation;
+        @Label("File")
+        String file;
+        @Label("Format")
+        String format;
+        @Label("Airports")
+        int airports;
+        @Label("Routes")
+        int routes;
+        @Label("Success")
+        boolean success;
+    }
+}
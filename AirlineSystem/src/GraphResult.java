@@ -0,0 +1,43 @@
+/**
+ * Outcome of a Graph operation: either a value, or an error kind with the
+ * message that used to be printed by Graph itself. Returned by the try* and
+ * find* methods of Graph, so callers decide what (if anything) to show.
+ */
+public class GraphResult<T> {
+    /** Why an operation did not succeed. */
+    public enum Error {
+        UNKNOWN_AIRPORT,    // An airport code is not in the graph
+        SAME_AIRPORT,       // Start and destination are the same airport
+        SELF_LOOP,          // Route from an airport to itself
+        DUPLICATE_AIRPORT,  // Airport code already taken
+        DUPLICATE_ROUTE,    // Route between the two airports already exists
+        NO_SUCH_ROUTE       // Route to remove does not exist
+    }
+
+    public final T value;           // Result when ok(), null otherwise
+    public final Error error;       // null when ok()
+    public final String message;    // Human-readable reason when not ok()
+
+    private GraphResult(T value, Error error, String message) {
+        this.value = value;
+        this.error = error;
+        this.message = message;
+    }
+
+    public static <T> GraphResult<T> ok(T value) {
+        return new GraphResult<>(value, null, null);
+    }
+
+    public static <T> GraphResult<T> error(Error error, String message) {
+        return new GraphResult<>(null, error, message);
+    }
+
+    public boolean ok() {
+        return error == null;
+    }
+
+    @Override
+    public String toString() {
+        return ok() ? String.valueOf(value) : error + ": " + message;
+    }
+}
@@ -0,0 +1,329 @@
+import java.util.*;
+
+/**
+ * Read-only CSR (compressed sparse row) copy of a Graph for route queries.
+ *
+ * Every airport gets a dense int id (0..n-1) and the outgoing routes of airport
+ * u live in positions offsets[u] .. offsets[u + 1] - 1 of the dest / cost / time
+ * arrays. Searches only touch int and double arrays; Edge and Vertex objects are
+ * created (or looked up) only for the final result.
+ */
+public class GraphSnapshot {
+    private final String[] codes;           // id -> airport code
+    private final Vertex[] vertices;        // id -> airport
+    private final IntIntMap ids;            // packed airport code (see AirportCodes) -> id
+    private final AirportCodes keys = new AirportCodes(); // Own keys for codes that cannot be packed
+    private final int[] offsets;            // id -> first edge index (length n + 1)
+    private final int[] dest;               // edge index -> destination id
+    private final double[] cost;            // edge index -> cost (RM)
+    private final double[] time;            // edge index -> time (hours)
+    private final Edge[] edges;             // edge index -> original edge (null if built from raw arrays)
+    private final long version;             // Graph version this snapshot was taken from
+
+    public GraphSnapshot(Graph graph) {
+        this(graph.getAirports(), graph.getAdjacencyList(), graph.version());
+    }
+
+    public GraphSnapshot(Map<String, Vertex> airports, Map<String, List<Edge>> adjacencyList, long version) {
+        int n = airports.size();
+        this.codes = new String[n];
+        this.vertices = new Vertex[n];
+        this.ids = new IntIntMap(n);
+        this.version = version;
+
+        int id = 0;
+        for (Map.Entry<String, Vertex> entry : airports.entrySet()) {
+            codes[id] = entry.getKey();
+            vertices[id] = entry.getValue();
+            ids.put(keys.encode(entry.getKey()), id);
+            id++;
+        }
+
+        // First pass: count the routes of every airport (routes to unknown airports are skipped)
+        this.offsets = new int[n + 1];
+        for (int u = 0; u < n; u++) {
+            List<Edge> routes = adjacencyList.get(codes[u]);
+            if (routes != null) {
+                for (Edge route : routes) {
+                    if (ids.containsKey(route.destinationKey(keys))) {
+                        offsets[u + 1]++;
+                    }
+                }
+            }
+        }
+        for (int u = 0; u < n; u++) {
+            offsets[u + 1] += offsets[u];
+        }
+
+        // Second pass: fill the edge arrays
+        int m = offsets[n];
+        this.dest = new int[m];
+        this.cost = new double[m];
+        this.time = new double[m];
+        this.edges = new Edge[m];
+        for (int u = 0; u < n; u++) {
+            List<Edge> routes = adjacencyList.get(codes[u]);
+            if (routes == null) {
+                continue;
+            }
+            int e = offsets[u];
+            for (Edge route : routes) {
+                int v = ids.get(route.destinationKey(keys));
+                if (v >= 0) {
+                    dest[e] = v;
+                    cost[e] = route.cost;
+                    time[e] = route.time;
+                    edges[e] = route;
+                    e++;
+                }
+            }
+        }
+    }
+
+    /** Builds a snapshot directly from CSR arrays (used by loaders that never materialise Edge objects). */
+    public GraphSnapshot(Vertex[] vertices, int[] offsets, int[] dest, double[] cost, double[] time, long version) {
+        int n = vertices.length;
+        this.codes = new String[n];
+        this.vertices = vertices;
+        this.ids = new IntIntMap(n);
+        for (int u = 0; u < n; u++) {
+            codes[u] = vertices[u].code;
+            ids.put(keys.encode(vertices[u].code), u);
+        }
+        this.offsets = offsets;
+        this.dest = dest;
+        this.cost = cost;
+        this.time = time;
+        this.edges = null;
+        this.version = version;
+    }
+
+    // ---------------------------------------------------------------------
+    // Raw CSR access
+    // ---------------------------------------------------------------------
+
+    public int airportCount() {
+        return codes.length;
+    }
+
+    public int routeCount() {
+        return dest.length;
+    }
+
+    public long version() {
+        return version;
+    }
+
+    /** Returns the id of an airport code, or -1 if the airport is not in this snapshot. */
+    public int idOf(String code) {
+        return ids.get(keys.find(code));
+    }
+
+    public String codeOf(int id) {
+        return codes[id];
+    }
+
+    public Vertex vertex(int id) {
+        return vertices[id];
+    }
+
+    public int[] offsets() {
+        return offsets;
+    }
+
+    public int[] destinations() {
+        return dest;
+    }
+
+    public double[] costs() {
+        return cost;
+    }
+
+    public double[] times() {
+        return time;
+    }
+
+    /** Weight array for the chosen criterion (cost or time). */
+    public double[] weights(boolean useCost) {
+        return useCost ? cost : time;
+    }
+
+    /** Index of the edge from u to v, or -1 if there is no such route. */
+    public int edgeIndex(int u, int v) {
+        for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+            if (dest[e] == v) {
+                return e;
+            }
+        }
+        return -1;
+    }
+
+    /** Origin id of an edge index (binary search over offsets). */
+    public int sourceOf(int e) {
+        int lo = 0;
+        int hi = codes.length - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (offsets[mid] <= e) {
+                lo = mid;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return lo;
+    }
+
+    /** Turns an edge index back into an Edge (the original object when available). */
+    public Edge edge(int e) {
+        if (edges != null) {
+            return edges[e];
+        }
+        return new Edge(codes[sourceOf(e)], codes[dest[e]], cost[e], time[e]);
+    }
+
+    /** Turns a list of edge indexes (in path order) into Edge objects. */
+    public List<Edge> toPath(int[] edgeIndexes, int length) {
+        List<Edge> path = new ArrayList<>(length);
+        for (int i = 0; i < length; i++) {
+            path.add(edge(edgeIndexes[i]));
+        }
+        return path;
+    }
+
+    // ---------------------------------------------------------------------
+    // Queries (same return conventions as Graph, without console output)
+    // ---------------------------------------------------------------------
+
+    /** Airports reachable from startCode (excluding itself), or null if startCode does not exist. */
+    public List<Vertex> bfsReachable(String startCode) {
+        GraphMetrics.Probe probe = GraphMetrics.ENABLED ? GraphMetrics.begin(GraphMetrics.Operation.BFS_REACHABLE) : null;
+        int start = idOf(startCode);
+        if (start < 0) {
+            if (probe != null) {
+                probe.search(startCode, null, 0, 0, -1);
+            }
+            return null;
+        }
+
+        boolean[] visited = new boolean[codes.length];
+        int[] queue = new int[codes.length];
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = start;
+        visited[start] = true;
+
+        while (head < tail) {
+            int current = queue[head++];
+            for (int e = offsets[current]; e < offsets[current + 1]; e++) {
+                int next = dest[e];
+                if (!visited[next]) {
+                    visited[next] = true;
+                    queue[tail++] = next;
+                }
+            }
+        }
+
+        // queue[0] is the start airport, everything after it is reachable
+        List<Vertex> reachableAirports = new ArrayList<>(tail - 1);
+        for (int i = 1; i < tail; i++) {
+            reachableAirports.add(vertices[queue[i]]);
+        }
+        if (probe != null) { // Every reached airport was settled and all its routes relaxed
+            long relaxed = 0;
+            for (int i = 0; i < tail; i++) {
+                relaxed += offsets[queue[i] + 1] - offsets[queue[i]];
+            }
+            probe.search(startCode, null, tail, relaxed, tail - 1);
+        }
+        return reachableAirports;
+    }
+
+    /**
+     * Minimum-transit path from startCode to destinationCode.
+     * Returns null if either airport does not exist or both are the same,
+     * an empty list if the destination is unreachable.
+     */
+    public List<Edge> bfsShortestPath(String startCode, String destinationCode) {
+        GraphMetrics.Probe probe = GraphMetrics.ENABLED ? GraphMetrics.begin(GraphMetrics.Operation.BFS_SHORTEST_PATH) : null;
+        int start = idOf(startCode);
+        int target = idOf(destinationCode);
+        if (start < 0 || target < 0 || start == target) {
+            if (probe != null) {
+                probe.search(startCode, destinationCode, 0, 0, -1);
+            }
+            return null;
+        }
+
+        long relaxed = 0;
+        int n = codes.length;
+        int[] parentEdge = new int[n]; // edge used to reach each airport (-1 = not visited)
+        Arrays.fill(parentEdge, -1);
+        boolean[] visited = new boolean[n];
+        int[] queue = new int[n];
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = start;
+        visited[start] = true;
+
+        while (head < tail) {
+            int current = queue[head++];
+            if (current == target) {
+                List<Edge> path = buildPath(parentEdge, start, target);
+                if (probe != null) {
+                    probe.search(startCode, destinationCode, head, relaxed, path.size());
+                }
+                return path;
+            }
+            relaxed += offsets[current + 1] - offsets[current];
+            for (int e = offsets[current]; e < offsets[current + 1]; e++) {
+                int next = dest[e];
+                if (!visited[next]) {
+                    visited[next] = true;
+                    parentEdge[next] = e;
+                    queue[tail++] = next;
+                }
+            }
+        }
+        if (probe != null) {
+            probe.search(startCode, destinationCode, head, relaxed, 0);
+        }
+        return Collections.emptyList(); // Destination unreachable
+    }
+
+    /**
+     * Cheapest (useCost) or fastest path from start to end.
+     * Same return conventions as bfsShortestPath.
+     */
+    public List<Edge> dijkstra(String start, String end, boolean useCost) {
+        GraphMetrics.Probe probe = GraphMetrics.ENABLED ? GraphMetrics.begin(GraphMetrics.Operation.DIJKSTRA) : null;
+        int source = idOf(start);
+        int target = idOf(end);
+        if (source < 0 || target < 0 || source == target) {
+            if (probe != null) {
+                probe.search(start, end, 0, 0, -1);
+            }
+            return null;
+        }
+
+        List<Edge> path = DijkstraEngine.shortestPath(this, source, target, useCost);
+        if (probe != null) {
+            DijkstraEngine engine = DijkstraEngine.forCurrentThread();
+            probe.search(start, end, engine.settledCount(), engine.relaxedCount(), path.size());
+        }
+        return path;
+    }
+
+    /** Walks parentEdge back from target to source and returns the path in travel order. */
+    List<Edge> buildPath(int[] parentEdge, int source, int target) {
+        int length = 0;
+        for (int node = target; node != source; node = sourceOf(parentEdge[node])) {
+            length++;
+        }
+        int[] path = new int[length];
+        int i = length;
+        for (int node = target; node != source; node = sourceOf(parentEdge[node])) {
+            path[--i] = parentEdge[node];
+        }
+        return toPath(path, length);
+    }
+}
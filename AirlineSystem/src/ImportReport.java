@@ -0,0 +1,89 @@
+import java.util.*;
+
+/**
+ * Outcome of a bulk import (see GraphBuilder): how many airports and routes
+ * were accepted and which rows were rejected and why. Only the first
+ * maxDetails rejections are kept in detail, all of them are counted.
+ */
+public class ImportReport {
+    public enum Reason {
+        DUPLICATE_AIRPORT,  // Another airport with the same code was kept
+        SELF_LOOP,          // Route from an airport to itself
+        UNKNOWN_AIRPORT,    // Starting or destination airport does not exist
+        DUPLICATE_ROUTE     // A route between the same airports came earlier
+    }
+
+    /** One rejected input row. index is the position of the row among the airports or the routes. */
+    public static class Rejection {
+        public final Reason reason;
+        public final long index;
+        public final Object row; // Vertex or Edge
+
+        public Rejection(Reason reason, long index, Object row) {
+            this.reason = reason;
+            this.index = index;
+            this.row = row;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s at row %d: %s", reason, index, row);
+        }
+    }
+
+    private final int maxDetails;
+    private final List<Rejection> rejections = new ArrayList<>();
+    private final EnumMap<Reason, Long> counts = new EnumMap<>(Reason.class);
+    private long airportsAccepted = 0;
+    private long routesAccepted = 0;
+
+    public ImportReport(int maxDetails) {
+        this.maxDetails = maxDetails;
+        for (Reason reason : Reason.values()) {
+            counts.put(reason, 0L);
+        }
+    }
+
+    void reject(Reason reason, long index, Object row) {
+        counts.merge(reason, 1L, Long::sum);
+        if (rejections.size() < maxDetails) {
+            rejections.add(new Rejection(reason, index, row));
+        }
+    }
+
+    void setAccepted(long airports, long routes) {
+        this.airportsAccepted = airports;
+        this.routesAccepted = routes;
+    }
+
+    public long airportsAccepted() {
+        return airportsAccepted;
+    }
+
+    public long routesAccepted() {
+        return routesAccepted;
+    }
+
+    public long rejectedCount(Reason reason) {
+        return counts.get(reason);
+    }
+
+    public long rejectedCount() {
+        long total = 0;
+        for (long count : counts.values()) {
+            total += count;
+        }
+        return total;
+    }
+
+    /** The first rejections in input order (airports first, then routes). */
+    public List<Rejection> rejections() {
+        return Collections.unmodifiableList(rejections);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d airports and %d routes imported, %d rows rejected %s", airportsAccepted,
+                routesAccepted, rejectedCount(), counts);
+    }
+}
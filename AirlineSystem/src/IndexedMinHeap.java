@@ -0,0 +1,139 @@
+import java.util.Arrays;
+
+/**
+ * Binary min-heap of int ids (0..capacity-1) keyed by double, with O(log n)
+ * decrease-key. The position of every id is tracked, so an id is never in the
+ * heap twice and no linear scan is needed to update it.
+ *
+ * clear() is O(1): positions are only trusted when their stamp matches the
+ * current generation, so the arrays can be reused across searches.
+ */
+public class IndexedMinHeap {
+    private int[] heap = new int[0];      // heap slot -> id
+    private double[] keys = new double[0]; // id -> key (valid while the id is in the heap)
+    private int[] pos = new int[0];       // id -> heap slot
+    private int[] stamp = new int[0];     // id -> generation in which pos was written
+    private int generation = 1;
+    private int size = 0;
+
+    /** Makes room for ids 0..capacity-1 (existing contents are discarded). */
+    public void ensureCapacity(int capacity) {
+        if (pos.length < capacity) {
+            heap = new int[capacity];
+            keys = new double[capacity];
+            pos = new int[capacity];
+            stamp = new int[capacity];
+            generation = 1;
+        }
+        clear();
+    }
+
+    /** Empties the heap in O(1). */
+    public void clear() {
+        size = 0;
+        if (++generation == Integer.MAX_VALUE) { // Wrapped around, reset stamps once
+            Arrays.fill(stamp, 0);
+            generation = 1;
+        }
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean contains(int id) {
+        return stamp[id] == generation && pos[id] >= 0;
+    }
+
+    public double key(int id) {
+        return keys[id];
+    }
+
+    public double peekKey() {
+        return keys[heap[0]];
+    }
+
+    public int peek() {
+        return heap[0];
+    }
+
+    /** Inserts id with the given key, or lowers its key if it is already in the heap and the new key is smaller. */
+    public void insertOrDecrease(int id, double key) {
+        if (contains(id)) {
+            decreaseKey(id, key);
+        } else {
+            insert(id, key);
+        }
+    }
+
+    public void insert(int id, double key) {
+        keys[id] = key;
+        heap[size] = id;
+        pos[id] = size;
+        stamp[id] = generation;
+        siftUp(size++);
+    }
+
+    public void decreaseKey(int id, double key) {
+        if (key < keys[id]) {
+            keys[id] = key;
+            siftUp(pos[id]);
+        }
+    }
+
+    /** Removes and returns the id with the smallest key. */
+    public int poll() {
+        int top = heap[0];
+        pos[top] = -1;
+        size--;
+        if (size > 0) {
+            heap[0] = heap[size];
+            pos[heap[0]] = 0;
+            siftDown(0);
+        }
+        return top;
+    }
+
+    private void siftUp(int slot) {
+        int id = heap[slot];
+        double key = keys[id];
+        while (slot > 0) {
+            int parent = (slot - 1) >>> 1;
+            int parentId = heap[parent];
+            if (keys[parentId] <= key) {
+                break;
+            }
+            heap[slot] = parentId;
+            pos[parentId] = slot;
+            slot = parent;
+        }
+        heap[slot] = id;
+        pos[id] = slot;
+    }
+
+    private void siftDown(int slot) {
+        int id = heap[slot];
+        double key = keys[id];
+        int half = size >>> 1;
+        while (slot < half) {
+            int child = 2 * slot + 1;
+            int right = child + 1;
+            if (right < size && keys[heap[right]] < keys[heap[child]]) {
+                child = right;
+            }
+            int childId = heap[child];
+            if (key <= keys[childId]) {
+                break;
+            }
+            heap[slot] = childId;
+            pos[childId] = slot;
+            slot = child;
+        }
+        heap[slot] = id;
+        pos[id] = slot;
+    }
+}
@@ -0,0 +1,139 @@
+import java.util.Arrays;
+
+/**
+ * Hash map from int keys to non-negative int values with open addressing
+ * (linear probing), for airport keys of AirportCodes (e.g. destination key ->
+ * position of the route). Same layout as IntMap without the boxing: get()
+ * returns -1 for a missing key. Key 0 is the empty-slot marker and is never
+ * stored.
+ */
+public class IntIntMap {
+    private static final int[] NO_KEYS = new int[0];
+    private static final int MIN_TABLE_SIZE = 4;
+
+    private int[] keys = NO_KEYS;  // 0 = free slot
+    private int[] values = NO_KEYS;
+    private int size = 0;
+
+    public IntIntMap() {
+    }
+
+    /** Map that can hold expectedSize keys before it has to grow. */
+    public IntIntMap(int expectedSize) {
+        if (expectedSize > 0) {
+            allocate(tableSize(expectedSize));
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean containsKey(int key) {
+        return slot(key) >= 0;
+    }
+
+    /** Value of key, or -1 if the key is not in the map. */
+    public int get(int key) {
+        int slot = slot(key);
+        return slot < 0 ? -1 : values[slot];
+    }
+
+    /** Stores value (>= 0) under key and returns the previous value (-1 if there was none). */
+    public int put(int key, int value) {
+        if (key == 0) {
+            throw new IllegalArgumentException("Key 0 is reserved");
+        }
+        if (value < 0) {
+            throw new IllegalArgumentException("Negative value " + value);
+        }
+        if (2 * (size + 1) > keys.length) {
+            allocate(tableSize(size + 1));
+        }
+        int mask = keys.length - 1;
+        for (int i = hash(key) & mask; ; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                int previous = values[i];
+                values[i] = value;
+                return previous;
+            }
+            if (keys[i] == 0) {
+                keys[i] = key;
+                values[i] = value;
+                size++;
+                return -1;
+            }
+        }
+    }
+
+    /** Removes key and returns its value (-1 if it was not there). */
+    public int remove(int key) {
+        int slot = slot(key);
+        if (slot < 0) {
+            return -1;
+        }
+        int removed = values[slot];
+        // Backward-shift deletion: move later entries of the probe run into the gap
+        int mask = keys.length - 1;
+        int gap = slot;
+        for (int i = (gap + 1) & mask; keys[i] != 0; i = (i + 1) & mask) {
+            int home = hash(keys[i]) & mask;
+            if (((i - home) & mask) >= ((i - gap) & mask)) {
+                keys[gap] = keys[i];
+                values[gap] = values[i];
+                gap = i;
+            }
+        }
+        keys[gap] = 0;
+        size--;
+        return removed;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, 0);
+        size = 0;
+    }
+
+    private int slot(int key) {
+        if (size == 0 || key == 0) {
+            return -1;
+        }
+        int mask = keys.length - 1;
+        for (int i = hash(key) & mask; keys[i] != 0; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void allocate(int capacity) {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new int[capacity];
+        values = new int[capacity];
+        int mask = capacity - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldKeys[j] != 0) {
+                int i = hash(oldKeys[j]) & mask;
+                while (keys[i] != 0) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = oldKeys[j];
+                values[i] = oldValues[j];
+            }
+        }
+    }
+
+    // Packed codes differ mostly in their low bits (the last letter): spread them
+    // over the whole int before masking (Fibonacci hashing)
+    static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    // Power-of-two table size that keeps the load factor at or below 1/2
+    static int tableSize(int size) {
+        return Math.max(MIN_TABLE_SIZE, Integer.highestOneBit(Math.max(1, 2 * size - 1)) << 1);
+    }
+}
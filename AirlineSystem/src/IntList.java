@@ -0,0 +1,42 @@
+import java.util.Arrays;
+
+/**
+ * Growable array of ints, for the id and arc lists of the route searches
+ * (ContractionHierarchy, ParetoSearch). data and size are read directly by
+ * the search loops, so iterating allocates nothing and boxes no Integer;
+ * only data[0..size-1] is valid.
+ */
+public class IntList {
+    int[] data = new int[4];
+    int size = 0;
+
+    public void add(int value) {
+        if (size == data.length) {
+            data = Arrays.copyOf(data, size * 2);
+        }
+        data[size++] = value;
+    }
+
+    /** Removes the value at index in O(1) by moving the last value there (order is not kept). */
+    public void removeAt(int index) {
+        data[index] = data[--size];
+    }
+
+    /** Removes one occurrence of value, if any (order is not kept). */
+    public void removeValue(int value) {
+        for (int i = 0; i < size; i++) {
+            if (data[i] == value) {
+                removeAt(i);
+                return;
+            }
+        }
+    }
+
+    public void reverse() {
+        for (int i = 0, j = size - 1; i < j; i++, j--) {
+            int tmp = data[i];
+            data[i] = data[j];
+            data[j] = tmp;
+        }
+    }
+}
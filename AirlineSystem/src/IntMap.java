@@ -0,0 +1,133 @@
+import java.util.Arrays;
+
+/**
+ * Hash map from int keys to objects with open addressing (linear probing),
+ * for airport keys of AirportCodes. Keys and values sit in two plain arrays,
+ * so a lookup hashes no String and allocates no entry object. Key 0 is the
+ * empty-slot marker: it is never stored, get(0) is always null. Null values
+ * are allowed (containsKey tells them apart from missing keys).
+ */
+public class IntMap<V> {
+    private static final int[] NO_KEYS = new int[0];
+
+    private int[] keys = NO_KEYS;  // 0 = free slot
+    private Object[] values;
+    private int size = 0;
+
+    public IntMap() {
+    }
+
+    /** Map that can hold expectedSize keys before it has to grow. */
+    public IntMap(int expectedSize) {
+        if (expectedSize > 0) {
+            allocate(IntIntMap.tableSize(expectedSize));
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean containsKey(int key) {
+        return slot(key) >= 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        int slot = slot(key);
+        return slot < 0 ? null : (V) values[slot];
+    }
+
+    /** Stores value under key and returns the previous value (null if there was none). */
+    @SuppressWarnings("unchecked")
+    public V put(int key, V value) {
+        if (key == 0) {
+            throw new IllegalArgumentException("Key 0 is reserved");
+        }
+        if (2 * (size + 1) > keys.length) {
+            allocate(IntIntMap.tableSize(size + 1));
+        }
+        int mask = keys.length - 1;
+        for (int i = IntIntMap.hash(key) & mask; ; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                V previous = (V) values[i];
+                values[i] = value;
+                return previous;
+            }
+            if (keys[i] == 0) {
+                keys[i] = key;
+                values[i] = value;
+                size++;
+                return null;
+            }
+        }
+    }
+
+    /** Removes key and returns its value (null if it was not there). */
+    @SuppressWarnings("unchecked")
+    public V remove(int key) {
+        int slot = slot(key);
+        if (slot < 0) {
+            return null;
+        }
+        V removed = (V) values[slot];
+        // Backward-shift deletion: move later entries of the probe run into the gap
+        int mask = keys.length - 1;
+        int gap = slot;
+        for (int i = (gap + 1) & mask; keys[i] != 0; i = (i + 1) & mask) {
+            int home = IntIntMap.hash(keys[i]) & mask;
+            if (((i - home) & mask) >= ((i - gap) & mask)) {
+                keys[gap] = keys[i];
+                values[gap] = values[i];
+                gap = i;
+            }
+        }
+        keys[gap] = 0;
+        values[gap] = null;
+        size--;
+        return removed;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, 0);
+        if (values != null) {
+            Arrays.fill(values, null);
+        }
+        size = 0;
+    }
+
+    private int slot(int key) {
+        if (size == 0 || key == 0) {
+            return -1;
+        }
+        int mask = keys.length - 1;
+        for (int i = IntIntMap.hash(key) & mask; keys[i] != 0; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void allocate(int capacity) {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        keys = new int[capacity];
+        values = new Object[capacity];
+        int mask = capacity - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldKeys[j] != 0) {
+                int i = IntIntMap.hash(oldKeys[j]) & mask;
+                while (keys[i] != 0) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = oldKeys[j];
+                values[i] = oldValues[j];
+            }
+        }
+    }
+}
@@ -0,0 +1,216 @@
+import java.util.*;
+import java.util.stream.IntStream;
+
+/**
+ * K shortest loopless paths between two airports by cost or time (Yen's
+ * algorithm with Lawler's improvement), produced one at a time.
+ *
+ * Each call to next() returns the next best path. The paths before it are
+ * never recomputed: for the last accepted path, a spur search runs from every
+ * airport on it (blocking the root part of the path and the routes already
+ * used after the same root), and the root + spur joins the candidate queue.
+ * Lawler's improvement skips the spur airports before the point where the
+ * path left its parent, since those spurs were already tried for the parent.
+ *
+ * The spur searches of one path are independent, so they run in parallel,
+ * each one on its worker's DijkstraEngine. Callers that only need the paths up
+ * to some weight can stop calling next() early; nothing beyond the paths
+ * already returned is computed.
+ */
+public class KShortestPaths {
+    private static final int PARALLEL_SPURS = 4; // Fewer spur searches than this run on the calling thread
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    private final GraphSnapshot graph;
+    private final int source;
+    private final int target;
+    private final boolean useCost;
+    private final double[] weight;
+
+    private final List<Found> accepted = new ArrayList<>();
+    private final PriorityQueue<Found> candidates = new PriorityQueue<>();
+    private final Set<Found> seen = new HashSet<>(); // Accepted and queued paths, to skip duplicates
+    private boolean started = false;
+    private int spurred = 0;                         // Accepted paths whose spurs are already queued
+    private long sequence = 0;                       // Tie-breaker for equal weights (first found first)
+
+    public KShortestPaths(GraphSnapshot graph, int source, int target, boolean useCost) {
+        if (source == target) {
+            throw new IllegalArgumentException("Start and destination must differ");
+        }
+        this.graph = graph;
+        this.source = source;
+        this.target = target;
+        this.useCost = useCost;
+        this.weight = graph.weights(useCost);
+    }
+
+    /** Up to k best loopless paths, best first (empty if target is unreachable). */
+    public static List<List<Edge>> find(GraphSnapshot graph, int source, int target, int k, boolean useCost) {
+        KShortestPaths paths = new KShortestPaths(graph, source, target, useCost);
+        List<List<Edge>> result = new ArrayList<>();
+        List<Edge> path;
+        while (result.size() < k && (path = paths.next()) != null) {
+            result.add(path);
+        }
+        return result;
+    }
+
+    /** Next best path, or null if there are no more loopless paths. */
+    public List<Edge> next() {
+        if (!started) {
+            started = true;
+            DijkstraEngine engine = DijkstraEngine.forCurrentThread();
+            if (engine.search(graph, source, target, useCost)) {
+                offer(new Found(engine.pathEdges(target), engine.distance(target), 0, sequence++));
+            }
+        }
+        while (spurred < accepted.size()) {
+            spur(accepted.get(spurred++));
+        }
+
+        Found best = candidates.poll();
+        if (best == null) {
+            return null;
+        }
+        accepted.add(best);
+        return graph.toPath(best.edges, best.edges.length);
+    }
+
+    /** Number of paths returned by next() so far. */
+    public int count() {
+        return accepted.size();
+    }
+
+    /** Total cost/time of the i-th returned path (0 = best). */
+    public double weight(int rank) {
+        return accepted.get(rank).weight;
+    }
+
+    private void offer(Found path) {
+        if (seen.add(path)) {
+            candidates.add(path);
+        }
+    }
+
+    // Queues the spur paths of an accepted path
+    private void spur(Found path) {
+        int length = path.edges.length;
+        int[] airports = new int[length + 1]; // Airports along the path
+        double[] prefix = new double[length + 1]; // Weight of the root part up to each airport
+        airports[0] = source;
+        for (int i = 0; i < length; i++) {
+            airports[i + 1] = graph.destinations()[path.edges[i]];
+            prefix[i + 1] = prefix[i] + weight[path.edges[i]];
+        }
+
+        int first = path.deviation;
+        Found[] spurs = new Found[length];
+        IntStream range = IntStream.range(first, length);
+        if (length - first >= PARALLEL_SPURS) {
+            range = range.parallel();
+        }
+        range.forEach(i -> spurs[i] = spurFrom(path, i, airports, prefix));
+
+        // Queue in spur order so equal weights always come out the same way
+        for (int i = first; i < length; i++) {
+            if (spurs[i] != null) {
+                spurs[i] = new Found(spurs[i].edges, spurs[i].weight, i, sequence++);
+                offer(spurs[i]);
+            }
+        }
+    }
+
+    // Best path that shares the first i routes with path and then leaves it (null if none)
+    private Found spurFrom(Found path, int i, int[] airports, double[] prefix) {
+        Scratch scratch = SCRATCH.get();
+        scratch.ensureCapacity(graph.airportCount(), graph.routeCount());
+
+        // The root part must not be revisited (loopless)
+        for (int j = 0; j < i; j++) {
+            scratch.airports[airports[j]] = true;
+        }
+        // Routes already taken after this same root (accepted only grows between
+        // spur rounds, so the workers can read it)
+        setBlockedEdges(scratch, path, i, true);
+
+        DijkstraEngine engine = DijkstraEngine.forCurrentThread();
+        Found result = null;
+        if (engine.search(graph, airports[i], target, useCost, scratch.airports, scratch.edges)) {
+            int[] spur = engine.pathEdges(target);
+            int[] edges = Arrays.copyOf(path.edges, i + spur.length);
+            System.arraycopy(spur, 0, edges, i, spur.length);
+            result = new Found(edges, prefix[i] + engine.distance(target), i, 0);
+        }
+
+        // Leave the scratch arrays clean for the next spur on this thread
+        for (int j = 0; j < i; j++) {
+            scratch.airports[airports[j]] = false;
+        }
+        setBlockedEdges(scratch, path, i, false);
+        return result;
+    }
+
+    private void setBlockedEdges(Scratch scratch, Found path, int i, boolean blocked) {
+        for (Found other : accepted) {
+            if (other.edges.length > i && samePrefix(other.edges, path.edges, i)) {
+                scratch.edges[other.edges[i]] = blocked;
+            }
+        }
+    }
+
+    private static boolean samePrefix(int[] a, int[] b, int length) {
+        for (int j = 0; j < length; j++) {
+            if (a[j] != b[j]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // One path as edge indexes, with the spur position it was created at
+    private static class Found implements Comparable<Found> {
+        final int[] edges;
+        final double weight;
+        final int deviation;  // Index of the first route that differs from the parent path
+        final long sequence;
+
+        Found(int[] edges, double weight, int deviation, long sequence) {
+            this.edges = edges;
+            this.weight = weight;
+            this.deviation = deviation;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(Found other) {
+            int byWeight = Double.compare(weight, other.weight);
+            return byWeight != 0 ? byWeight : Long.compare(sequence, other.sequence);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Found && Arrays.equals(edges, ((Found) o).edges);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(edges);
+        }
+    }
+
+    // Per-thread blocked flags, all false between spur searches
+    private static class Scratch {
+        boolean[] airports = new boolean[0];
+        boolean[] edges = new boolean[0];
+
+        void ensureCapacity(int n, int m) {
+            if (airports.length < n) {
+                airports = new boolean[n];
+            }
+            if (edges.length < m) {
+                edges = new boolean[m];
+            }
+        }
+    }
+}
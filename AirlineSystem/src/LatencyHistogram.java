@@ -0,0 +1,111 @@
+/**
+ * Fixed-memory latency histogram in the style of HdrHistogram.
+ *
+ * Values (e.g. nanoseconds) are counted in log-linear buckets: every power of
+ * two is split into the same number of linear sub-buckets, enough to keep
+ * about the requested number of significant decimal digits. Recording is a
+ * few shifts and an array increment, and percentiles keep their relative
+ * precision from microseconds up to minutes. Not thread-safe: give every
+ * thread its own histogram and add() them together at the end.
+ */
+public class LatencyHistogram {
+    private final long highestTrackable;
+    private final int subBucketBits;     // log2 of the sub-buckets per power of two
+    private final int subBucketHalf;     // Sub-buckets that each bucket after the first adds
+    private final long subBucketMask;
+    private final long[] counts;
+    private long totalCount = 0;
+    private long min = Long.MAX_VALUE;
+    private long max = 0;
+    private double sum = 0;
+
+    /** Histogram for values from 0 to highestTrackable, with 1 to 5 significant digits. */
+    public LatencyHistogram(long highestTrackable, int significantDigits) {
+        if (highestTrackable < 2 || significantDigits < 1 || significantDigits > 5) {
+            throw new IllegalArgumentException("Need highestTrackable >= 2 and 1 to 5 significant digits");
+        }
+        this.highestTrackable = highestTrackable;
+        long subBuckets = 2 * (long) Math.pow(10, significantDigits);
+        this.subBucketBits = 64 - Long.numberOfLeadingZeros(subBuckets - 1);
+        this.subBucketHalf = 1 << (subBucketBits - 1);
+        this.subBucketMask = (1L << subBucketBits) - 1;
+        this.counts = new long[index(highestTrackable) + 1];
+    }
+
+    /** Counts one value. Values above highestTrackable are counted as highestTrackable. */
+    public void record(long value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Negative value " + value);
+        }
+        counts[index(Math.min(value, highestTrackable))]++;
+        totalCount++;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+        sum += value;
+    }
+
+    /** Adds all counts of other, which must have the same range and precision. */
+    public void add(LatencyHistogram other) {
+        if (other.counts.length != counts.length || other.subBucketBits != subBucketBits) {
+            throw new IllegalArgumentException("Histograms have different ranges or precision");
+        }
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        totalCount += other.totalCount;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+        sum += other.sum;
+    }
+
+    public long count() {
+        return totalCount;
+    }
+
+    public long min() {
+        return totalCount == 0 ? 0 : min;
+    }
+
+    public long max() {
+        return max;
+    }
+
+    public double mean() {
+        return totalCount == 0 ? 0 : sum / totalCount;
+    }
+
+    /**
+     * Value below or at which the given percentage (0 to 100) of all values
+     * fall, reported as the highest value of its sub-bucket like HdrHistogram.
+     */
+    public long percentile(double percentile) {
+        if (totalCount == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(Math.min(100, percentile) / 100 * totalCount));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(max, highestValueAt(i));
+            }
+        }
+        return max;
+    }
+
+    // Bucket b holds values [2^b * half, 2^(b+1) * half) with a step of 2^b;
+    // bucket 0 also holds everything below half, so it has twice the sub-buckets
+    private int index(long value) {
+        int bucket = 64 - Long.numberOfLeadingZeros(value | subBucketMask) - subBucketBits;
+        return bucket * subBucketHalf + (int) (value >>> bucket);
+    }
+
+    private long highestValueAt(int index) {
+        if (index < 2 * subBucketHalf) {
+            return index;
+        }
+        int bucket = index / subBucketHalf - 1;
+        long sub = index - (long) bucket * subBucketHalf;
+        return ((sub + 1) << bucket) - 1;
+    }
+}
@@ -0,0 +1,456 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Replays a mixed read/write workload against a graph at a fixed schedule and
+ * reports latency percentiles per operation.
+ *
+ * Usage: java LoadDriver [--graph graph.json] [--trace trace.txt | --rate 1000 --duration 30]
+ *            [--mix reachable=20,path=25,dijkstra=45,addRoute=5,removeRoute=4.9,removeAirport=0.1]
+ *            [--threads 4] [--speed 1.0] [--target concurrent|graph] [--seed 42] [--record trace.txt]
+ *
+ * The graph is loaded with GraphIO. The operations come from a trace file or
+ * are generated (Poisson arrivals at --rate per second for --duration
+ * seconds, picked by --mix weights); --record saves a generated trace so
+ * exactly the same load can be replayed later. Trace lines are
+ * "<start offset in microseconds> <operation> <arguments>", for example
+ *
+ *   0 dijkstra KUL PEN cost
+ *   850 reachable KUL
+ *   1900 path JHB KCH
+ *   2300 addRoute KUL BKI 180.0 2.5
+ *   4100 removeRoute PEN LGK
+ *   5200 removeAirport TGG
+ *
+ * The run is open-loop: every operation has an intended start time from the
+ * trace (divided by --speed) and the worker threads never wait for the
+ * previous one to finish before the schedule moves on. Response time is
+ * measured from the intended start, so when the system stalls, the time the
+ * waiting operations spend queued is counted too instead of silently being
+ * left out (coordinated omission). Service time, measured from the actual
+ * start, is reported next to it.
+ *
+ * --target concurrent (default) wraps the graph in a ConcurrentGraph: reads
+ * run on the published snapshot and writes wait until the writer applied
+ * them. --target graph calls the plain Graph under one lock, since Graph
+ * itself is not thread-safe.
+ */
+public class LoadDriver {
+    private static final long HIGHEST_LATENCY = TimeUnit.MINUTES.toNanos(10);
+    private static final int DIGITS = 3;
+
+    /** Kinds of operation in a trace, with their name in the trace file. */
+    enum Type {
+        REACHABLE("reachable"), PATH("path"), DIJKSTRA("dijkstra"), ADD_ROUTE("addRoute"),
+        REMOVE_ROUTE("removeRoute"), REMOVE_AIRPORT("removeAirport");
+
+        final String label;
+
+        Type(String label) {
+            this.label = label;
+        }
+
+        static Type of(String label) {
+            for (Type type : values()) {
+                if (type.label.equals(label)) {
+                    return type;
+                }
+            }
+            throw new IllegalArgumentException("Unknown operation " + label);
+        }
+    }
+
+    /** One scheduled operation of a trace. */
+    static class Operation {
+        final long offset;     // Intended start, nanoseconds after the run started
+        final Type type;
+        final String from;
+        final String to;       // null for reachable and removeAirport
+        final boolean useCost; // dijkstra: cost or time
+        final double cost;     // addRoute
+        final double time;     // addRoute
+
+        Operation(long offset, Type type, String from, String to, boolean useCost, double cost, double time) {
+            this.offset = offset;
+            this.type = type;
+            this.from = from;
+            this.to = to;
+            this.useCost = useCost;
+            this.cost = cost;
+            this.time = time;
+        }
+
+        static Operation parse(String line) {
+            String[] parts = line.trim().split("\\s+");
+            long offset = TimeUnit.MICROSECONDS.toNanos(Long.parseLong(parts[0]));
+            Type type = Type.of(parts[1]);
+            switch (type) {
+                case REACHABLE:
+                case REMOVE_AIRPORT:
+                    return new Operation(offset, type, parts[2], null, false, 0, 0);
+                case DIJKSTRA:
+                    return new Operation(offset, type, parts[2], parts[3], !"time".equals(parts[4]), 0, 0);
+                case ADD_ROUTE:
+                    return new Operation(offset, type, parts[2], parts[3], false, Double.parseDouble(parts[4]),
+                            Double.parseDouble(parts[5]));
+                default:
+                    return new Operation(offset, type, parts[2], parts[3], false, 0, 0);
+            }
+        }
+
+        String format() {
+            StringBuilder line = new StringBuilder();
+            line.append(TimeUnit.NANOSECONDS.toMicros(offset)).append(' ').append(type.label).append(' ').append(from);
+            if (to != null) {
+                line.append(' ').append(to);
+            }
+            if (type == Type.DIJKSTRA) {
+                line.append(useCost ? " cost" : " time");
+            } else if (type == Type.ADD_ROUTE) {
+                line.append(' ').append(cost).append(' ').append(time);
+            }
+            return line.toString();
+        }
+    }
+
+    /** Something the operations can run against. */
+    interface Target extends AutoCloseable {
+        void run(Operation operation) throws Exception;
+
+        @Override
+        void close();
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (!args[i].startsWith("--")) {
+                throw new IllegalArgumentException("Expected --option value, got " + args[i]);
+            }
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+        int threads = Integer.parseInt(options.getOrDefault("threads", "4"));
+        double speed = Double.parseDouble(options.getOrDefault("speed", "1.0"));
+
+        Graph graph = new Graph();
+        GraphIO.loadGraph(graph, options.getOrDefault("graph", "graph.json"));
+        if (graph.getAirports().isEmpty()) {
+            System.out.println("The graph has no airports, nothing to replay.");
+            return;
+        }
+
+        List<Operation> trace;
+        if (options.containsKey("trace")) {
+            trace = readTrace(options.get("trace"));
+        } else {
+            trace = generateTrace(graph, Double.parseDouble(options.getOrDefault("rate", "1000")),
+                    Double.parseDouble(options.getOrDefault("duration", "30")),
+                    parseMix(options.getOrDefault("mix",
+                            "reachable=20,path=25,dijkstra=45,addRoute=5,removeRoute=4.9,removeAirport=0.1")),
+                    new Random(Long.parseLong(options.getOrDefault("seed", "42"))));
+        }
+        if (options.containsKey("record")) {
+            writeTrace(trace, options.get("record"));
+        }
+        System.out.printf("%d airports, %d operations over %.1f s, %d threads, target %s%n",
+                graph.getAirports().size(), trace.size(),
+                trace.isEmpty() ? 0 : trace.get(trace.size() - 1).offset / speed / 1e9, threads,
+                options.getOrDefault("target", "concurrent"));
+
+        Report report;
+        try (Target target = "graph".equals(options.get("target")) ? lockedTarget(graph) : concurrentTarget(graph)) {
+            report = replay(trace, target, threads, speed);
+        }
+        report.print(System.out);
+    }
+
+    /**
+     * Runs the trace open-loop: threads take the next operation in schedule
+     * order, wait for its intended start if it is still in the future, run it
+     * and record response time (from the intended start) and service time.
+     */
+    static Report replay(List<Operation> trace, Target target, int threads, double speed) throws InterruptedException {
+        Operation[] operations = trace.toArray(new Operation[0]);
+        AtomicInteger next = new AtomicInteger();
+        Report[] partial = new Report[threads];
+        Thread[] workers = new Thread[threads];
+        long start = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(50); // Let every worker get going first
+
+        for (int w = 0; w < threads; w++) {
+            Report mine = partial[w] = new Report();
+            workers[w] = new Thread(() -> {
+                for (int i = next.getAndIncrement(); i < operations.length; i = next.getAndIncrement()) {
+                    Operation operation = operations[i];
+                    long intended = start + (long) (operation.offset / speed);
+                    long wait;
+                    while ((wait = intended - System.nanoTime()) > 0) {
+                        LockSupport.parkNanos(wait);
+                    }
+                    long begin = System.nanoTime();
+                    boolean failed = false;
+                    try {
+                        target.run(operation);
+                    } catch (Exception e) {
+                        failed = true;
+                    }
+                    long end = System.nanoTime();
+                    mine.record(operation.type, end - intended, end - begin, failed);
+                    mine.end = Math.max(mine.end, end);
+                }
+            }, "load-driver-" + w);
+            workers[w].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        Report total = new Report();
+        for (Report report : partial) {
+            total.add(report);
+        }
+        total.elapsed = Math.max(1, total.end - start);
+        return total;
+    }
+
+    // ---------------------------------------------------------------------
+    // Targets
+    // ---------------------------------------------------------------------
+
+    static Target concurrentTarget(Graph graph) {
+        ConcurrentGraph concurrent = new ConcurrentGraph(graph);
+        return new Target() {
+            @Override
+            public void run(Operation op) {
+                switch (op.type) {
+                    case REACHABLE:
+                        concurrent.bfsReachable(op.from);
+                        break;
+                    case PATH:
+                        concurrent.bfsShortestPath(op.from, op.to);
+                        break;
+                    case DIJKSTRA:
+                        concurrent.dijkstra(op.from, op.to, op.useCost);
+                        break;
+                    case ADD_ROUTE:
+                        concurrent.addRoute(new Edge(op.from, op.to, op.cost, op.time)).join();
+                        break;
+                    case REMOVE_ROUTE:
+                        concurrent.removeRoute(op.from, op.to).join();
+                        break;
+                    default:
+                        concurrent.removeAirport(op.from).join();
+                        break;
+                }
+            }
+
+            @Override
+            public void close() {
+                concurrent.close();
+            }
+        };
+    }
+
+    static Target lockedTarget(Graph graph) {
+        ReentrantLock lock = new ReentrantLock();
+        return new Target() {
+            @Override
+            public void run(Operation op) {
+                lock.lock();
+                try {
+                    switch (op.type) {
+                        case REACHABLE:
+                            graph.bfsReachable(op.from);
+                            break;
+                        case PATH:
+                            graph.bfsShortestPath(op.from, op.to);
+                            break;
+                        case DIJKSTRA:
+                            graph.dijkstra(op.from, op.to, op.useCost);
+                            break;
+                        case ADD_ROUTE:
+                            graph.addRoute(new Edge(op.from, op.to, op.cost, op.time));
+                            break;
+                        case REMOVE_ROUTE:
+                            graph.removeRoute(op.from, op.to);
+                            break;
+                        default:
+                            graph.removeAirport(op.from);
+                            break;
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    // ---------------------------------------------------------------------
+    // Traces
+    // ---------------------------------------------------------------------
+
+    static List<Operation> readTrace(String filename) throws IOException {
+        List<Operation> trace = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(Paths.get(filename), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isBlank() && !line.startsWith("#")) {
+                    trace.add(Operation.parse(line));
+                }
+            }
+        }
+        trace.sort(Comparator.comparingLong(operation -> operation.offset)); // Stable: ties keep file order
+        return trace;
+    }
+
+    static void writeTrace(List<Operation> trace, String filename) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(Paths.get(filename), StandardCharsets.UTF_8)) {
+            writer.write("# <offset us> <operation> <arguments>");
+            writer.newLine();
+            for (Operation operation : trace) {
+                writer.write(operation.format());
+                writer.newLine();
+            }
+        }
+    }
+
+    static Map<Type, Double> parseMix(String mix) {
+        Map<Type, Double> weights = new EnumMap<>(Type.class);
+        for (String part : mix.split(",")) {
+            String[] pair = part.split("=");
+            weights.put(Type.of(pair[0].trim()), Double.parseDouble(pair[1].trim()));
+        }
+        return weights;
+    }
+
+    /**
+     * Poisson arrivals at rate operations per second. Airports are picked
+     * uniformly; removeRoute picks a route that exists in the loaded graph
+     * (it may be gone by the time it runs, like in real traffic).
+     */
+    static List<Operation> generateTrace(Graph graph, double rate, double seconds, Map<Type, Double> mix,
+            Random random) {
+        List<String> codes = new ArrayList<>(graph.getAirports().keySet());
+        Collections.sort(codes);
+        List<Edge> routes = new ArrayList<>();
+        for (String code : codes) {
+            routes.addAll(graph.getAdjacencyList().get(code));
+        }
+        Type[] types = mix.keySet().toArray(new Type[0]);
+        double[] cumulative = new double[types.length];
+        double total = 0;
+        for (int i = 0; i < types.length; i++) {
+            total += mix.get(types[i]);
+            cumulative[i] = total;
+        }
+
+        List<Operation> trace = new ArrayList<>();
+        long end = (long) (seconds * 1e9);
+        double meanGap = 1e9 / rate;
+        for (long offset = 0; offset < end; offset += (long) (-Math.log(1 - random.nextDouble()) * meanGap)) {
+            double pick = random.nextDouble() * total;
+            int k = 0;
+            while (k < types.length - 1 && pick >= cumulative[k]) {
+                k++;
+            }
+            String from = codes.get(random.nextInt(codes.size()));
+            String to = codes.get(random.nextInt(codes.size()));
+            switch (types[k]) {
+                case REACHABLE:
+                case REMOVE_AIRPORT:
+                    trace.add(new Operation(offset, types[k], from, null, false, 0, 0));
+                    break;
+                case DIJKSTRA:
+                    trace.add(new Operation(offset, types[k], from, to, random.nextBoolean(), 0, 0));
+                    break;
+                case ADD_ROUTE:
+                    trace.add(new Operation(offset, types[k], from, to, false, 50 + random.nextInt(450),
+                            Math.round((0.5 + random.nextDouble() * 4) * 100) / 100.0));
+                    break;
+                case REMOVE_ROUTE:
+                    if (!routes.isEmpty()) {
+                        Edge route = routes.get(random.nextInt(routes.size()));
+                        trace.add(new Operation(offset, types[k], route.startingCode, route.destinationCode, false, 0, 0));
+                    }
+                    break;
+                default:
+                    trace.add(new Operation(offset, types[k], from, to, false, 0, 0));
+                    break;
+            }
+        }
+        return trace;
+    }
+
+    // ---------------------------------------------------------------------
+    // Results
+    // ---------------------------------------------------------------------
+
+    /** Response and service time histograms per operation type. */
+    static class Report {
+        final Map<Type, LatencyHistogram> response = new EnumMap<>(Type.class);
+        final Map<Type, LatencyHistogram> service = new EnumMap<>(Type.class);
+        final Map<Type, Long> errors = new EnumMap<>(Type.class);
+        long end = 0;      // Completion of the last operation (System.nanoTime)
+        long elapsed = 0;  // From the start of the schedule to the last completion
+
+        void record(Type type, long responseTime, long serviceTime, boolean failed) {
+            response.computeIfAbsent(type, t -> new LatencyHistogram(HIGHEST_LATENCY, DIGITS)).record(responseTime);
+            service.computeIfAbsent(type, t -> new LatencyHistogram(HIGHEST_LATENCY, DIGITS)).record(serviceTime);
+            if (failed) {
+                errors.merge(type, 1L, Long::sum);
+            }
+        }
+
+        void add(Report other) {
+            other.response.forEach((type, histogram) ->
+                    response.computeIfAbsent(type, t -> new LatencyHistogram(HIGHEST_LATENCY, DIGITS)).add(histogram));
+            other.service.forEach((type, histogram) ->
+                    service.computeIfAbsent(type, t -> new LatencyHistogram(HIGHEST_LATENCY, DIGITS)).add(histogram));
+            other.errors.forEach((type, count) -> errors.merge(type, count, Long::sum));
+            end = Math.max(end, other.end);
+        }
+
+        void print(PrintStream out) {
+            double seconds = elapsed / 1e9;
+            out.println("Response time (from intended start, ms):");
+            out.printf("%-14s | %-9s | %-10s | %-9s | %-9s | %-9s | %-9s | %-13s | %-6s%n", "Operation", "Count",
+                    "Ops/s", "p50", "p99", "p99.9", "Max", "Service p99", "Errors");
+            LatencyHistogram all = new LatencyHistogram(HIGHEST_LATENCY, DIGITS);
+            LatencyHistogram allService = new LatencyHistogram(HIGHEST_LATENCY, DIGITS);
+            long allErrors = 0;
+            for (Type type : Type.values()) {
+                LatencyHistogram histogram = response.get(type);
+                if (histogram == null) {
+                    continue;
+                }
+                long failed = errors.getOrDefault(type, 0L);
+                row(out, type.label, histogram, service.get(type), failed, seconds);
+                all.add(histogram);
+                allService.add(service.get(type));
+                allErrors += failed;
+            }
+            row(out, "all", all, allService, allErrors, seconds);
+        }
+
+        private static void row(PrintStream out, String name, LatencyHistogram histogram, LatencyHistogram service,
+                long errors, double seconds) {
+            out.printf("%-14s | %-9d | %-10.1f | %-9.3f | %-9.3f | %-9.3f | %-9.3f | %-13.3f | %-6d%n", name,
+                    histogram.count(), histogram.count() / seconds, millis(histogram.percentile(50)),
+                    millis(histogram.percentile(99)), millis(histogram.percentile(99.9)), millis(histogram.max()),
+                    millis(service.percentile(99)), errors);
+        }
+
+        private static double millis(long nanos) {
+            return nanos / 1e6;
+        }
+    }
+}
@@ -0,0 +1,230 @@
+import java.util.*;
+
+/**
+ * Builds synthetic airline networks for benchmarks and load tests.
+ *
+ * The same topology, size, route density and seed always give the same graph,
+ * so results measured on different commits stay comparable. Airports get
+ * letter codes (AAA, AAB, ... then longer codes past 17576 airports) and a
+ * position on a 4000 x 4000 km map; the cost and flight time of a route follow
+ * from the distance between its airports. Every route is added in both
+ * directions, like a real return service.
+ *
+ * - HUB_AND_SPOKE: 1 in 50 airports is a hub on a grid; every other airport
+ *   flies to the hub of its cell and to a few hubs nearby, hubs fly to each other
+ * - SCALE_FREE: preferential attachment (Barabasi-Albert), a few airports end
+ *   up with very many routes and most with only a handful
+ * - REGIONAL: clusters of about 200 airports with dense routes inside the
+ *   cluster, connected only through one gateway airport per cluster
+ */
+public class NetworkGenerator {
+    public enum Topology {
+        HUB_AND_SPOKE, SCALE_FREE, REGIONAL
+    }
+
+    private static final double MAP_SIZE = 4000;   // Width and height of the map in km
+    private static final int HUB_RATIO = 50;        // Airports per hub (HUB_AND_SPOKE)
+    private static final int REGION_SIZE = 200;     // Airports per cluster (REGIONAL)
+    private static final double REGION_SPREAD = 150; // Standard deviation around a cluster centre in km
+
+    private final Topology topology;
+    private final int airports;
+    private final long seed;
+    private int routesPerAirport = 4;
+
+    private Random random;
+    private double[] x;
+    private double[] y;
+    private GraphBuilder builder;
+
+    public NetworkGenerator(Topology topology, int airports, long seed) {
+        if (airports < 2) {
+            throw new IllegalArgumentException("A network needs at least 2 airports");
+        }
+        this.topology = topology;
+        this.airports = airports;
+        this.seed = seed;
+    }
+
+    /** Average number of routes leaving an airport (default 4). */
+    public NetworkGenerator routesPerAirport(int routes) {
+        if (routes < 1) {
+            throw new IllegalArgumentException("routesPerAirport must be at least 1");
+        }
+        this.routesPerAirport = routes;
+        return this;
+    }
+
+    public Graph generate() {
+        return builder().build();
+    }
+
+    /** Builder holding all generated airports and routes (duplicates are dropped on build). */
+    public GraphBuilder builder() {
+        random = new Random(seed);
+        x = new double[airports];
+        y = new double[airports];
+        builder = new GraphBuilder(0);
+        switch (topology) {
+            case HUB_AND_SPOKE:
+                hubAndSpoke();
+                break;
+            case SCALE_FREE:
+                scaleFree();
+                break;
+            default:
+                regional();
+                break;
+        }
+        for (int i = 0; i < airports; i++) {
+            builder.addAirport(new Vertex("Airport " + code(i), code(i), "Region " + region(i)));
+        }
+        GraphBuilder result = builder;
+        random = null;
+        x = y = null;
+        builder = null;
+        return result;
+    }
+
+    /** Code of the i-th airport: AAA, AAB, ..., ZZZ, BAAA, ... */
+    public static String code(int i) {
+        char[] letters = new char[8];
+        int pos = letters.length;
+        do {
+            letters[--pos] = (char) ('A' + i % 26);
+            i /= 26;
+        } while (i > 0);
+        while (letters.length - pos < 3) {
+            letters[--pos] = 'A';
+        }
+        return new String(letters, pos, letters.length - pos);
+    }
+
+    private void hubAndSpoke() {
+        int grid = Math.max(1, (int) Math.sqrt(Math.max(2, airports / HUB_RATIO)));
+        int hubs = Math.min(airports, grid * grid);
+        double cell = MAP_SIZE / grid;
+
+        // Hub h sits in the middle of grid cell h and is airport h
+        for (int h = 0; h < hubs; h++) {
+            x[h] = (h % grid + 0.5) * cell;
+            y[h] = (h / grid + 0.5) * cell;
+        }
+        int hubLinks = Math.min(hubs - 1, routesPerAirport * 2);
+        for (int h = 0; h < hubs; h++) {
+            for (int k = 0; k < hubLinks; k++) {
+                link(h, (h + 1 + random.nextInt(hubs - 1)) % hubs);
+            }
+        }
+
+        // Spokes: random place in a random cell, routes to that cell's hub and to nearby hubs
+        for (int i = hubs; i < airports; i++) {
+            int home = random.nextInt(hubs);
+            x[i] = x[home] + (random.nextDouble() - 0.5) * cell;
+            y[i] = y[home] + (random.nextDouble() - 0.5) * cell;
+            link(i, home);
+            for (int k = 1; k < routesPerAirport / 2; k++) {
+                int col = Math.floorMod(home % grid + random.nextInt(3) - 1, grid);
+                int row = Math.floorMod(home / grid + random.nextInt(3) - 1, grid);
+                link(i, Math.min(hubs - 1, row * grid + col));
+            }
+        }
+    }
+
+    private void scaleFree() {
+        int m = Math.max(1, routesPerAirport / 2); // Undirected links per new airport
+        int core = Math.min(airports, m + 1);
+        for (int i = 0; i < airports; i++) {
+            x[i] = random.nextDouble() * MAP_SIZE;
+            y[i] = random.nextDouble() * MAP_SIZE;
+        }
+
+        // Every link end is recorded once, so a uniform pick from ends picks
+        // an airport with probability proportional to its number of routes
+        int[] ends = new int[2 * (core * (core - 1) / 2 + (airports - core) * m)];
+        int size = 0;
+        for (int i = 0; i < core; i++) {
+            for (int j = i + 1; j < core; j++) {
+                link(i, j);
+                ends[size++] = i;
+                ends[size++] = j;
+            }
+        }
+        int[] chosen = new int[m];
+        for (int i = core; i < airports; i++) {
+            int count = 0;
+            while (count < m) {
+                int target = ends[random.nextInt(size)];
+                boolean seen = false;
+                for (int k = 0; k < count; k++) {
+                    seen |= chosen[k] == target;
+                }
+                if (!seen) {
+                    chosen[count++] = target;
+                }
+            }
+            for (int k = 0; k < m; k++) {
+                link(i, chosen[k]);
+                ends[size++] = i;
+                ends[size++] = chosen[k];
+            }
+        }
+    }
+
+    private void regional() {
+        int regions = Math.max(1, (airports + REGION_SIZE - 1) / REGION_SIZE);
+        double[] centreX = new double[regions];
+        double[] centreY = new double[regions];
+        for (int r = 0; r < regions; r++) {
+            centreX[r] = random.nextDouble() * MAP_SIZE;
+            centreY[r] = random.nextDouble() * MAP_SIZE;
+        }
+        for (int i = 0; i < airports; i++) {
+            int r = region(i);
+            x[i] = centreX[r] + random.nextGaussian() * REGION_SPREAD;
+            y[i] = centreY[r] + random.nextGaussian() * REGION_SPREAD;
+        }
+
+        // Inside a region: random links between its airports
+        int local = Math.max(1, routesPerAirport / 2);
+        for (int i = 0; i < airports; i++) {
+            int first = region(i) * REGION_SIZE;
+            int size = Math.min(REGION_SIZE, airports - first);
+            for (int k = 0; k < local && size > 1; k++) {
+                int j = first + random.nextInt(size);
+                if (j != i) {
+                    link(i, j);
+                }
+            }
+        }
+
+        // Between regions: gateway (first airport of the region) to gateway, plus a
+        // chain so every region can be reached
+        for (int r = 0; r < regions; r++) {
+            if (r + 1 < regions) {
+                link(r * REGION_SIZE, (r + 1) * REGION_SIZE);
+            }
+            for (int k = 0; k < routesPerAirport && regions > 1; k++) {
+                int other = (r + 1 + random.nextInt(regions - 1)) % regions;
+                link(r * REGION_SIZE, other * REGION_SIZE);
+            }
+        }
+    }
+
+    // Region an airport is listed under (REGIONAL clusters; blocks of the same size otherwise)
+    private int region(int i) {
+        return i / REGION_SIZE;
+    }
+
+    // Adds the route between two airports in both directions
+    private void link(int a, int b) {
+        if (a == b) {
+            return;
+        }
+        double distance = Math.max(50, Math.hypot(x[a] - x[b], y[a] - y[b]));
+        double cost = Math.round(50 + distance * 0.12);
+        double time = Math.round((0.5 + distance / 800) * 100) / 100.0;
+        builder.addRoute(new Edge(code(a), code(b), cost, time));
+        builder.addRoute(new Edge(code(b), code(a), cost, time));
+    }
+}
@@ -0,0 +1,286 @@
+import java.util.*;
+
+/**
+ * Multi-criteria route search: every path between two airports that is not
+ * beaten on both cost and time by another one (the Pareto frontier).
+ *
+ * Label-setting algorithm over a GraphSnapshot. A label is one partial path
+ * (airport, cost, time, previous label), stored in parallel primitive arrays.
+ * Labels are settled in lexicographic (cost, time) order from a binary heap, so
+ * a settled label is final. Each airport keeps a bag of its non-dominated
+ * labels; a new label is dropped if a label in its airport's bag or in the
+ * destination's bag is at least as good on both criteria, and it kills the
+ * labels it beats on both.
+ *
+ * maxLabelsPerAirport bounds each bag. When a bag is full, further labels for
+ * that airport are dropped and the result is flagged as possibly incomplete.
+ */
+public class ParetoSearch {
+    public static final int DEFAULT_MAX_LABELS = 64; // Per airport, enough for real fare/time trade-offs
+
+    /** One path on the frontier. */
+    public static class Option {
+        public final List<Edge> path;
+        public final double cost;
+        public final double time;
+
+        Option(List<Edge> path, double cost, double time) {
+            this.path = path;
+            this.cost = cost;
+            this.time = time;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("RM%.2f / %.2f hours, %d flight(s)", cost, time, path.size());
+        }
+    }
+
+    /** Frontier between two airports, cheapest (and therefore slowest) first. */
+    public static class Result {
+        private final List<Option> options;
+        private final boolean complete;
+
+        Result(List<Option> options, boolean complete) {
+            this.options = options;
+            this.complete = complete;
+        }
+
+        public List<Option> options() {
+            return options;
+        }
+
+        /** False if a label bag was full, so some trade-offs may be missing. */
+        public boolean isComplete() {
+            return complete;
+        }
+
+        public boolean isEmpty() {
+            return options.isEmpty();
+        }
+
+        /** Cheapest option that takes at most maxTime hours (null if none). */
+        public Option cheapestWithin(double maxTime) {
+            for (Option option : options) {
+                if (option.time <= maxTime) {
+                    return option;
+                }
+            }
+            return null;
+        }
+
+        /** Fastest option that costs at most maxCost (null if none). */
+        public Option fastestWithin(double maxCost) {
+            Option best = null;
+            for (Option option : options) {
+                if (option.cost <= maxCost) {
+                    best = option; // Later options are faster and more expensive
+                }
+            }
+            return best;
+        }
+    }
+
+    private final GraphSnapshot graph;
+    private final int maxLabels;
+
+    // Labels (index = label id)
+    private int labelCount = 0;
+    private int[] node = new int[64];
+    private double[] cost = new double[64];
+    private double[] time = new double[64];
+    private int[] previous = new int[64];    // Label this one was extended from (-1 = start)
+    private int[] viaEdge = new int[64];     // Edge index used to get here (-1 = start)
+    private boolean[] dead = new boolean[64];
+
+    private final IntList[] bags; // airport id -> live label ids
+    private int[] heap = new int[64];                  // Unsettled label ids, lexicographic min-heap
+    private int heapSize = 0;
+    private boolean complete = true;
+
+    private ParetoSearch(GraphSnapshot graph, int maxLabels) {
+        this.graph = graph;
+        this.maxLabels = maxLabels;
+        this.bags = new IntList[graph.airportCount()];
+    }
+
+    /** Frontier with the default bag size. Returns null if an airport does not exist or both are the same. */
+    public static Result search(GraphSnapshot graph, String start, String end) {
+        return search(graph, start, end, DEFAULT_MAX_LABELS);
+    }
+
+    public static Result search(GraphSnapshot graph, String start, String end, int maxLabelsPerAirport) {
+        if (maxLabelsPerAirport < 1) {
+            throw new IllegalArgumentException("maxLabelsPerAirport must be at least 1");
+        }
+        int source = graph.idOf(start);
+        int target = graph.idOf(end);
+        if (source < 0 || target < 0 || source == target) {
+            return null;
+        }
+        return new ParetoSearch(graph, maxLabelsPerAirport).run(source, target);
+    }
+
+    private Result run(int source, int target) {
+        int[] offsets = graph.offsets();
+        int[] dest = graph.destinations();
+        double[] costs = graph.costs();
+        double[] times = graph.times();
+
+        offer(source, 0.0, 0.0, -1, -1, target);
+        while (heapSize > 0) {
+            int label = poll();
+            if (dead[label]) {
+                continue; // Dominated after it was queued
+            }
+            int u = node[label];
+            if (u == target) {
+                continue; // Settled frontier point, paths through the destination are never better
+            }
+            if (dominatedBy(target, cost[label], time[label])) {
+                dead[label] = true;
+                continue; // Destination already has something at least as good
+            }
+            for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+                offer(dest[e], cost[label] + costs[e], time[label] + times[e], label, e, target);
+            }
+        }
+
+        List<Option> options = new ArrayList<>();
+        IntList frontier = bags[target];
+        if (frontier != null) {
+            Integer[] order = new Integer[frontier.size];
+            for (int i = 0; i < frontier.size; i++) {
+                order[i] = frontier.data[i];
+            }
+            Arrays.sort(order, this::compare);
+            for (int label : order) {
+                options.add(new Option(path(label), cost[label], time[label]));
+            }
+        }
+        return new Result(options, complete);
+    }
+
+    // Creates a label unless it is dominated at its airport or at the destination
+    private void offer(int v, double c, double t, int from, int edge, int target) {
+        if (v != target && dominatedBy(target, c, t)) {
+            return;
+        }
+        IntList bag = bags[v];
+        if (bag == null) {
+            bag = bags[v] = new IntList();
+        }
+        for (int i = 0; i < bag.size; i++) {
+            int other = bag.data[i];
+            if (cost[other] <= c && time[other] <= t) {
+                return; // At least as good on both criteria
+            }
+        }
+        for (int i = bag.size - 1; i >= 0; i--) {
+            int other = bag.data[i];
+            if (c <= cost[other] && t <= time[other]) {
+                dead[other] = true; // Beaten on both criteria
+                bag.removeAt(i);
+            }
+        }
+        if (bag.size >= maxLabels) {
+            complete = false;
+            return;
+        }
+
+        int label = newLabel(v, c, t, from, edge);
+        bag.add(label);
+        push(label);
+    }
+
+    private boolean dominatedBy(int airport, double c, double t) {
+        IntList bag = bags[airport];
+        if (bag == null) {
+            return false;
+        }
+        for (int i = 0; i < bag.size; i++) {
+            int other = bag.data[i];
+            if (cost[other] <= c && time[other] <= t) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int newLabel(int v, double c, double t, int from, int edge) {
+        if (labelCount == node.length) {
+            int capacity = labelCount * 2;
+            node = Arrays.copyOf(node, capacity);
+            cost = Arrays.copyOf(cost, capacity);
+            time = Arrays.copyOf(time, capacity);
+            previous = Arrays.copyOf(previous, capacity);
+            viaEdge = Arrays.copyOf(viaEdge, capacity);
+            dead = Arrays.copyOf(dead, capacity);
+        }
+        int label = labelCount++;
+        node[label] = v;
+        cost[label] = c;
+        time[label] = t;
+        previous[label] = from;
+        viaEdge[label] = edge;
+        return label;
+    }
+
+    private List<Edge> path(int label) {
+        int length = 0;
+        for (int l = label; previous[l] >= 0; l = previous[l]) {
+            length++;
+        }
+        int[] edges = new int[length];
+        for (int l = label; previous[l] >= 0; l = previous[l]) {
+            edges[--length] = viaEdge[l];
+        }
+        return graph.toPath(edges, edges.length);
+    }
+
+    // Lexicographic (cost, time) order
+    private int compare(int a, int b) {
+        int byCost = Double.compare(cost[a], cost[b]);
+        return byCost != 0 ? byCost : Double.compare(time[a], time[b]);
+    }
+
+    private void push(int label) {
+        if (heapSize == heap.length) {
+            heap = Arrays.copyOf(heap, heapSize * 2);
+        }
+        int i = heapSize++;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (compare(heap[parent], label) <= 0) {
+                break;
+            }
+            heap[i] = heap[parent];
+            i = parent;
+        }
+        heap[i] = label;
+    }
+
+    private int poll() {
+        int top = heap[0];
+        int last = heap[--heapSize];
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= heapSize) {
+                break;
+            }
+            if (child + 1 < heapSize && compare(heap[child + 1], heap[child]) < 0) {
+                child++;
+            }
+            if (compare(last, heap[child]) <= 0) {
+                break;
+            }
+            heap[i] = heap[child];
+            i = child;
+        }
+        if (heapSize > 0) {
+            heap[i] = last;
+        }
+        return top;
+    }
+}
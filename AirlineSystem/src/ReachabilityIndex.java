@@ -0,0 +1,271 @@
+import java.util.*;
+
+/**
+ * Precomputed "which airports can be reached from here" for a Graph.
+ *
+ * A full build finds the strongly connected components of the route network
+ * (iterative Tarjan over a GraphSnapshot) and walks the condensed DAG from the
+ * sinks up. Every component gets one CompactBitSet of the airport ids reachable
+ * from it, so bfsReachable and canReach become set lookups instead of a BFS.
+ * All airports of a component share the same set.
+ *
+ * The index registers itself as a GraphListener:
+ * - addAirport gives the new airport an id and an empty set
+ * - addRoute(u -> v) is applied incrementally: if v was not reachable from u
+ *   yet, v and everything reachable from v are added to the set of every
+ *   component that reaches u (a new cycle simply makes those sets equal)
+ * - removeRoute / removeAirport / a reload can shrink reachability, which
+ *   cannot be patched cheaply, so they only mark the index stale and the next
+ *   query rebuilds it
+ *
+ * Not thread-safe, like Graph itself.
+ */
+public class ReachabilityIndex implements GraphListener {
+    private final Graph graph;
+
+    private boolean stale = true;                                 // Rebuild before the next query
+    private final Map<String, Integer> ids = new HashMap<>();     // airport code -> id
+    private final List<String> codes = new ArrayList<>();         // id -> airport code (null = removed)
+    private int[] component = new int[0];                         // id -> component
+    private final List<CompactBitSet> reach = new ArrayList<>();  // component -> reachable airport ids
+    private int componentCount = 0;                               // Components found by the last full build
+    private long rebuilds = 0;
+
+    public ReachabilityIndex(Graph graph) {
+        this.graph = graph;
+        graph.addListener(this);
+    }
+
+    /** Stops following the graph. */
+    public void detach() {
+        graph.removeListener(this);
+    }
+
+    /**
+     * Airports reachable from startCode, excluding startCode itself (same
+     * result as Graph.bfsReachable, in airport id order, no console output).
+     * Returns null if the airport does not exist.
+     */
+    public List<Vertex> reachable(String startCode) {
+        ensureBuilt();
+        Integer start = ids.get(startCode);
+        if (start == null) {
+            return null;
+        }
+        List<Vertex> result = new ArrayList<>();
+        Map<String, Vertex> airports = graph.getAirports();
+        reach.get(component[start]).forEach(id -> {
+            if (id != start) {
+                result.add(airports.get(codes.get(id)));
+            }
+        });
+        return result;
+    }
+
+    /** Number of airports reachable from startCode (-1 if it does not exist). */
+    public int reachableCount(String startCode) {
+        ensureBuilt();
+        Integer start = ids.get(startCode);
+        if (start == null) {
+            return -1;
+        }
+        CompactBitSet set = reach.get(component[start]);
+        return set.cardinality() - (set.contains(start) ? 1 : 0);
+    }
+
+    /** True if there is a path from one airport to the other (false if either does not exist). */
+    public boolean canReach(String from, String to) {
+        ensureBuilt();
+        Integer source = ids.get(from);
+        Integer target = ids.get(to);
+        return source != null && target != null && reach.get(component[source]).contains(target);
+    }
+
+    /** Number of strongly connected components found by the last full build. */
+    public int componentCount() {
+        ensureBuilt();
+        return componentCount;
+    }
+
+    public long rebuildCount() {
+        return rebuilds;
+    }
+
+    /** Approximate heap size of all reachability sets in bytes. */
+    public long sizeInBytes() {
+        ensureBuilt();
+        long total = 0;
+        for (CompactBitSet set : reach) {
+            total += set.sizeInBytes();
+        }
+        return total;
+    }
+
+    // ---------------------------------------------------------------------
+    // GraphListener
+    // ---------------------------------------------------------------------
+
+    @Override
+    public void airportAdded(Vertex airport) {
+        if (stale) {
+            return;
+        }
+        int id = codes.size();
+        codes.add(airport.code);
+        ids.put(airport.code, id);
+        if (id == component.length) {
+            component = Arrays.copyOf(component, Math.max(16, id * 2));
+        }
+        component[id] = reach.size();
+        reach.add(new CompactBitSet());
+    }
+
+    @Override
+    public void airportRemoved(Vertex airport) {
+        stale = true;
+    }
+
+    @Override
+    public void routeAdded(Edge route) {
+        if (stale) {
+            return;
+        }
+        int u = ids.get(route.startingCode);
+        int v = ids.get(route.destinationCode);
+        CompactBitSet fromU = reach.get(component[u]);
+        if (fromU.contains(v)) {
+            return; // Nothing new becomes reachable
+        }
+
+        CompactBitSet gained = reach.get(component[v]).copy();
+        gained.add(v);
+        for (CompactBitSet set : reach) {
+            if (set == fromU || set.contains(u)) {
+                set.or(gained);
+            }
+        }
+    }
+
+    @Override
+    public void routeRemoved(Edge route) {
+        stale = true;
+    }
+
+    @Override
+    public void graphReloaded() {
+        stale = true;
+    }
+
+    // ---------------------------------------------------------------------
+    // Full build
+    // ---------------------------------------------------------------------
+
+    private void ensureBuilt() {
+        if (stale) {
+            build(graph.snapshot());
+            stale = false;
+        }
+    }
+
+    private void build(GraphSnapshot snapshot) {
+        int n = snapshot.airportCount();
+        int[] offsets = snapshot.offsets();
+        int[] dest = snapshot.destinations();
+
+        ids.clear();
+        codes.clear();
+        for (int u = 0; u < n; u++) {
+            codes.add(snapshot.codeOf(u));
+            ids.put(snapshot.codeOf(u), u);
+        }
+
+        // Iterative Tarjan: components come out in reverse topological order (sinks first)
+        component = new int[Math.max(16, n)];
+        Arrays.fill(component, -1);
+        int[] index = new int[n];
+        int[] low = new int[n];
+        Arrays.fill(index, -1);
+        boolean[] onStack = new boolean[n];
+        int[] stack = new int[n];
+        int stackSize = 0;
+        int[] callStack = new int[n];    // DFS path
+        int[] nextEdge = new int[n];     // id -> next outgoing edge to look at
+        int counter = 0;
+        int components = 0;
+        List<int[]> members = new ArrayList<>();
+
+        for (int root = 0; root < n; root++) {
+            if (index[root] >= 0) {
+                continue;
+            }
+            int depth = 0;
+            callStack[depth++] = root;
+            index[root] = low[root] = counter++;
+            nextEdge[root] = offsets[root];
+            stack[stackSize++] = root;
+            onStack[root] = true;
+
+            while (depth > 0) {
+                int u = callStack[depth - 1];
+                if (nextEdge[u] < offsets[u + 1]) {
+                    int v = dest[nextEdge[u]++];
+                    if (index[v] < 0) {
+                        index[v] = low[v] = counter++;
+                        nextEdge[v] = offsets[v];
+                        stack[stackSize++] = v;
+                        onStack[v] = true;
+                        callStack[depth++] = v;
+                    } else if (onStack[v]) {
+                        low[u] = Math.min(low[u], index[v]);
+                    }
+                    continue;
+                }
+
+                // u is finished
+                depth--;
+                if (depth > 0) {
+                    int parent = callStack[depth - 1];
+                    low[parent] = Math.min(low[parent], low[u]);
+                }
+                if (low[u] == index[u]) {
+                    int start = stackSize;
+                    do {
+                        start--;
+                    } while (stack[start] != u);
+                    int[] scc = Arrays.copyOfRange(stack, start, stackSize);
+                    for (int w : scc) {
+                        onStack[w] = false;
+                        component[w] = components;
+                    }
+                    stackSize = start;
+                    members.add(scc);
+                    components++;
+                }
+            }
+        }
+
+        // Condensed DAG, sinks first: a component reaches its own airports (if it
+        // is a cycle) plus every successor component and what that one reaches
+        reach.clear();
+        for (int c = 0; c < components; c++) {
+            int[] scc = members.get(c);
+            CompactBitSet set = new CompactBitSet();
+            if (scc.length > 1) {
+                for (int w : scc) {
+                    set.add(w);
+                }
+            }
+            for (int w : scc) {
+                for (int e = offsets[w]; e < offsets[w + 1]; e++) {
+                    int next = component[dest[e]];
+                    if (next != c && set.add(dest[e])) {
+                        set.or(reach.get(next));
+                    }
+                }
+            }
+            reach.add(set);
+        }
+        componentCount = components;
+        rebuilds++;
+    }
+}
@@ -0,0 +1,233 @@
+import java.util.*;
+
+/**
+ * Bounded cache of route search results for a Graph.
+ *
+ * Two LRU maps sit in front of the searches:
+ * - paths: (start, end, metric) -> result list
+ * - trees: (start, metric) -> whole shortest-path tree from that airport
+ *
+ * A path miss is answered from the origin's tree when it is cached, otherwise
+ * the full tree is computed once (BFS for HOPS, DijkstraEngine for COST/TIME)
+ * so that later queries to other destinations from the same origin cost
+ * nothing but the walk back along the tree. With maxTrees = 0 every miss runs
+ * its own search that stops at the destination instead.
+ *
+ * Every entry belongs to the Graph version it was computed on. As soon as the
+ * graph changes (any add/remove bumps Graph.version()) the whole cache is
+ * dropped on the next lookup, so a stale path is never returned.
+ *
+ * Methods are synchronized; like Graph itself, the graph must not be modified
+ * while a lookup is running.
+ */
+public class RouteCache {
+    public enum Metric {
+        HOPS, COST, TIME
+    }
+
+    private final Graph graph;
+    private final int maxPaths;
+    private final int maxTrees;
+    private final LinkedHashMap<PathKey, List<Edge>> paths;
+    private final LinkedHashMap<TreeKey, Tree> trees;
+    private long version = -1; // Graph version of the cached entries
+
+    // Statistics
+    private long hits = 0;          // Served from the path map
+    private long treeHits = 0;      // Served by walking a cached tree
+    private long misses = 0;        // Needed a search
+    private long evictions = 0;     // Entries (paths or trees) dropped by the LRU bound
+    private long invalidations = 0; // Times the cache was cleared because the graph changed
+
+    public RouteCache(Graph graph, int maxPaths, int maxTrees) {
+        if (maxPaths < 0 || maxTrees < 0) {
+            throw new IllegalArgumentException("Cache sizes must not be negative");
+        }
+        this.graph = graph;
+        this.maxPaths = maxPaths;
+        this.maxTrees = maxTrees;
+        // Access-ordered maps: iteration starts at the least recently used entry
+        this.paths = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<PathKey, List<Edge>> eldest) {
+                return evictIf(size() > RouteCache.this.maxPaths);
+            }
+        };
+        this.trees = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<TreeKey, Tree> eldest) {
+                return evictIf(size() > RouteCache.this.maxTrees);
+            }
+        };
+    }
+
+    /**
+     * Same results as Graph.bfsShortestPath (HOPS) or Graph.dijkstra (COST/TIME),
+     * without console output: null if an airport does not exist or both are the
+     * same, an empty list if the destination is unreachable. The returned list
+     * is shared between callers and cannot be modified.
+     */
+    public synchronized List<Edge> shortestPath(String start, String end, Metric metric) {
+        GraphSnapshot snapshot = validate();
+        int source = snapshot.idOf(start);
+        int target = snapshot.idOf(end);
+        if (source < 0 || target < 0 || source == target) {
+            return null;
+        }
+
+        PathKey key = new PathKey(start, end, metric);
+        List<Edge> path = paths.get(key);
+        if (path != null) {
+            hits++;
+            return path;
+        }
+
+        Tree tree = trees.get(new TreeKey(start, metric));
+        if (tree != null) {
+            treeHits++;
+        } else {
+            misses++;
+            if (maxTrees > 0) {
+                tree = buildTree(snapshot, source, metric);
+                trees.put(new TreeKey(start, metric), tree);
+            }
+        }
+
+        if (tree != null) {
+            path = tree.path(snapshot, target);
+        } else if (metric == Metric.HOPS) {
+            path = snapshot.bfsShortestPath(start, end);
+        } else {
+            path = DijkstraEngine.shortestPath(snapshot, source, target, metric == Metric.COST);
+        }
+        path = Collections.unmodifiableList(path);
+        if (maxPaths > 0) {
+            paths.put(key, path);
+        }
+        return path;
+    }
+
+    /** Drops every cached entry (statistics are kept). */
+    public synchronized void clear() {
+        paths.clear();
+        trees.clear();
+    }
+
+    public synchronized int pathCount() {
+        return paths.size();
+    }
+
+    public synchronized int treeCount() {
+        return trees.size();
+    }
+
+    public synchronized long hitCount() {
+        return hits;
+    }
+
+    public synchronized long treeHitCount() {
+        return treeHits;
+    }
+
+    public synchronized long missCount() {
+        return misses;
+    }
+
+    public synchronized long evictionCount() {
+        return evictions;
+    }
+
+    public synchronized long invalidationCount() {
+        return invalidations;
+    }
+
+    /** Share of lookups that did not need a search (0 if there were none). */
+    public synchronized double hitRate() {
+        long total = hits + treeHits + misses;
+        return total == 0 ? 0.0 : (double) (hits + treeHits) / total;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("%d paths, %d trees cached | hits %d, tree hits %d, misses %d, evictions %d, invalidations %d (hit rate %.1f%%)",
+                paths.size(), trees.size(), hits, treeHits, misses, evictions, invalidations, hitRate() * 100);
+    }
+
+    // Clears the cache if the graph changed since the entries were computed
+    private GraphSnapshot validate() {
+        long current = graph.version();
+        if (current != version) {
+            if (!paths.isEmpty() || !trees.isEmpty()) {
+                invalidations++;
+            }
+            clear();
+            version = current;
+        }
+        return graph.snapshot();
+    }
+
+    private boolean evictIf(boolean full) {
+        if (full) {
+            evictions++;
+        }
+        return full;
+    }
+
+    private static Tree buildTree(GraphSnapshot snapshot, int source, Metric metric) {
+        int n = snapshot.airportCount();
+        int[] parentEdge = new int[n];
+        if (metric == Metric.HOPS) {
+            int[] offsets = snapshot.offsets();
+            int[] dest = snapshot.destinations();
+            boolean[] visited = new boolean[n];
+            int[] queue = new int[n];
+            int head = 0;
+            int tail = 0;
+            Arrays.fill(parentEdge, -1);
+            queue[tail++] = source;
+            visited[source] = true;
+            while (head < tail) {
+                int current = queue[head++];
+                for (int e = offsets[current]; e < offsets[current + 1]; e++) {
+                    int next = dest[e];
+                    if (!visited[next]) {
+                        visited[next] = true;
+                        parentEdge[next] = e;
+                        queue[tail++] = next;
+                    }
+                }
+            }
+        } else {
+            DijkstraEngine engine = DijkstraEngine.forCurrentThread();
+            engine.search(snapshot, source, -1, metric == Metric.COST);
+            for (int id = 0; id < n; id++) {
+                parentEdge[id] = engine.parentEdge(id);
+            }
+        }
+        return new Tree(source, parentEdge);
+    }
+
+    // Shortest-path tree: edge index used to reach each airport (-1 = source or unreachable)
+    private static class Tree {
+        final int source;
+        final int[] parentEdge;
+
+        Tree(int source, int[] parentEdge) {
+            this.source = source;
+            this.parentEdge = parentEdge;
+        }
+
+        List<Edge> path(GraphSnapshot snapshot, int target) {
+            if (parentEdge[target] < 0) {
+                return Collections.emptyList(); // Destination unreachable
+            }
+            return snapshot.buildPath(parentEdge, source, target);
+        }
+    }
+
+    private record PathKey(String start, String end, Metric metric) {
+    }
+
+    private record TreeKey(String start, Metric metric) {
+    }
+}
@@ -0,0 +1,130 @@
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Keeps cost and time ContractionHierarchy instances for a Graph up to date.
+ *
+ * The hierarchies are tied to the Graph version they were built from. They
+ * follow the graph as a GraphListener: whenever the graph builds a new
+ * snapshot after a change (for a query, or ConcurrentGraph publishing a batch
+ * of changes), a rebuild from that snapshot starts on a background thread and
+ * replaces a rebuild that is still waiting. Until it is done, queries on the
+ * new version fall back to a plain DijkstraEngine search. Both metrics are
+ * preprocessed at the same time, each one in parallel internally.
+ *
+ * shortestPath(snapshot, ...) only reads immutable data and may be called from
+ * any thread (RouteServer calls it on the snapshot published by its
+ * ConcurrentGraph). The methods without a snapshot argument use the Graph and
+ * must be called from the thread that owns it.
+ */
+public class RouteHierarchies implements GraphListener {
+    private final Graph graph;
+    private final ExecutorService rebuilder = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "route-hierarchy-rebuild");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile Built current;              // Last finished hierarchies (may be stale)
+    private long scheduledVersion = -1;          // Graph version of the last scheduled rebuild
+    private Future<Built> pending;               // Rebuild in progress (null if none)
+
+    /** Follows graph from now on (registers itself as a listener). */
+    public RouteHierarchies(Graph graph) {
+        this.graph = graph;
+        graph.addListener(this);
+    }
+
+    /** Same as shortestPath(graph.snapshot(), start, end, useCost). */
+    public List<Edge> shortestPath(String start, String end, boolean useCost) {
+        return shortestPath(graph.snapshot(), start, end, useCost);
+    }
+
+    /**
+     * Optimal path by cost (useCost) or time on snapshot. Uses the hierarchy
+     * when it was built from the same graph version, otherwise answers with
+     * Dijkstra on the snapshot. Returns null if an airport does not exist or
+     * both are the same, an empty list if the destination is unreachable (no
+     * console output).
+     */
+    public List<Edge> shortestPath(GraphSnapshot snapshot, String start, String end, boolean useCost) {
+        int source = snapshot.idOf(start);
+        int target = snapshot.idOf(end);
+        if (source < 0 || target < 0 || source == target) {
+            return null;
+        }
+
+        Built built = current;
+        if (built != null && built.version == snapshot.version()) {
+            return (useCost ? built.cost : built.time).shortestPath(source, target);
+        }
+        return DijkstraEngine.shortestPath(snapshot, source, target, useCost);
+    }
+
+    /** True if the hierarchies match the current state of the graph. */
+    public boolean isCurrent() {
+        Built built = current;
+        return built != null && built.version == graph.version();
+    }
+
+    @Override
+    public void snapshotBuilt(GraphSnapshot snapshot) {
+        rebuildInBackground(snapshot);
+    }
+
+    /** Starts a background rebuild for the current graph version unless one is already running for it. */
+    public Future<?> rebuildInBackground() {
+        return rebuildInBackground(graph.snapshot());
+    }
+
+    /** Rebuilds for the current graph version and waits for the result. */
+    public void rebuildNow() throws InterruptedException, ExecutionException {
+        rebuildInBackground().get();
+    }
+
+    /** Stops following the graph and stops the background rebuild thread. */
+    public void shutdown() {
+        graph.removeListener(this);
+        rebuilder.shutdownNow();
+    }
+
+    private synchronized Future<?> rebuildInBackground(GraphSnapshot snapshot) {
+        if (snapshot.version() != scheduledVersion || pending == null) {
+            if (pending != null && !pending.isDone()) {
+                pending.cancel(false); // Outdated before it even started
+            }
+            scheduledVersion = snapshot.version();
+            pending = rebuilder.submit(() -> publish(build(snapshot)));
+        }
+        return pending;
+    }
+
+    private static Built build(GraphSnapshot snapshot) {
+        // Preprocess both metrics at the same time
+        CompletableFuture<ContractionHierarchy> cost = CompletableFuture
+                .supplyAsync(() -> new ContractionHierarchy(snapshot, true));
+        ContractionHierarchy time = new ContractionHierarchy(snapshot, false);
+        return new Built(snapshot.version(), cost.join(), time);
+    }
+
+    private Built publish(Built built) {
+        Built previous = current;
+        if (previous == null || previous.version < built.version) {
+            current = built;
+        }
+        return built;
+    }
+
+    // Hierarchies for both metrics and the graph version they were built from
+    private static class Built {
+        final long version;
+        final ContractionHierarchy cost;
+        final ContractionHierarchy time;
+
+        Built(long version, ContractionHierarchy cost, ContractionHierarchy time) {
+            this.version = version;
+            this.cost = cost;
+            this.time = time;
+        }
+    }
+}
@@ -0,0 +1,388 @@
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * JSON over HTTP front end for the routing engine (JDK built-in HttpServer).
+ *
+ * Endpoints (GET unless noted, parameters in the query string):
+ *   /health                              status and graph version
+ *   /reachable?from=KUL                  airports reachable from an airport
+ *   /transits?from=KUL&to=PEN            least transits path (BFS)
+ *   /path?from=KUL&to=PEN&by=cost|time   cheapest / fastest path (Dijkstra)
+ *   /metrics                             GraphMetrics in Prometheus text format
+ *   POST   /airports   {"name":..,"code":..,"state":..}
+ *   DELETE /airports?code=KUL
+ *   POST   /routes     {"startingCode":..,"destinationCode":..,"cost":..,"time":..}, cost and time > 0
+ *   DELETE /routes?from=KUL&to=PEN
+ *
+ * The graph is wrapped in a ConcurrentGraph, so queries read the published
+ * snapshot without locking while mutations go through its single writer.
+ * /path is answered from contraction hierarchies (RouteHierarchies), which
+ * are rebuilt in the background after every published batch of changes;
+ * until the rebuild for the latest snapshot is done it runs Dijkstra on it.
+ *
+ * Each exchange runs on its own virtual thread when the JVM has them (Java 21+,
+ * looked up reflectively so the code still runs on 17, where a cached thread
+ * pool is used instead). At most maxInFlight requests are worked on at once;
+ * beyond that the server answers 503 right away instead of queueing. A request
+ * that takes longer than the timeout gets 504, but its work keeps its slot
+ * until it has really finished, so slow searches cannot pile up beyond the
+ * limit. Responses always carry a
+ * Content-Length, so HTTP/1.1 clients keep their connections open.
+ */
+public class RouteServer {
+    private static final Gson gson = new Gson();
+
+    private final ConcurrentGraph graph;
+    private final RouteHierarchies hierarchies;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Semaphore admission;
+    private final long timeoutMillis;
+
+    public RouteServer(Graph graph, int port, int maxInFlight, long timeoutMillis) throws IOException {
+        this.hierarchies = new RouteHierarchies(graph); // Before the writer thread owns the graph
+        this.graph = new ConcurrentGraph(graph);
+        this.admission = new Semaphore(maxInFlight);
+        this.timeoutMillis = timeoutMillis;
+        this.executor = newRequestExecutor();
+        this.server = HttpServer.create(new InetSocketAddress(port), 1024);
+        server.setExecutor(executor);
+        server.createContext("/health", exchange -> handle(exchange, "GET", this::health));
+        server.createContext("/reachable", exchange -> handle(exchange, "GET", this::reachable));
+        server.createContext("/transits", exchange -> handle(exchange, "GET", this::transits));
+        server.createContext("/path", exchange -> handle(exchange, "GET", this::path));
+        server.createContext("/airports", exchange -> handle(exchange, null, this::airports));
+        server.createContext("/routes", exchange -> handle(exchange, null, this::routes));
+        server.createContext("/metrics", RouteServer::metrics);
+    }
+
+    public static void main(String[] args) throws Exception {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        String file = args.length > 1 ? args[1] : "graph.json";
+        long timeoutMillis = 2000;
+
+        // Keep-alive and slow-client limits of the JDK server. They are JVM-wide and only
+        // read when the first server is created, so they are set here and not per instance
+        System.setProperty("sun.net.httpserver.idleInterval",
+                System.getProperty("sun.net.httpserver.idleInterval", "30"));
+        System.setProperty("sun.net.httpserver.maxIdleConnections",
+                System.getProperty("sun.net.httpserver.maxIdleConnections", "1000"));
+        System.setProperty("sun.net.httpserver.maxReqTime",
+                System.getProperty("sun.net.httpserver.maxReqTime", String.valueOf(Math.max(1, timeoutMillis / 1000))));
+
+        Graph graph = new Graph();
+        GraphIO.loadGraph(graph, file);
+
+        RouteServer server = new RouteServer(graph, port, 256, timeoutMillis);
+        server.start();
+        System.out.println("Route server listening on http://localhost:" + server.port() + "/ ("
+                + graph.getAirports().size() + " airports)");
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    /** Stops accepting requests, waits up to delaySeconds for running ones, then stops the writer. */
+    public void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+        executor.shutdown();
+        graph.close();
+        hierarchies.shutdown();
+    }
+
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    /** The wrapped graph (queries and mutations from outside the server go through it too). */
+    public ConcurrentGraph graph() {
+        return graph;
+    }
+
+    // Virtual thread per task if the JVM supports it, otherwise a cached pool
+    static ExecutorService newRequestExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(r -> {
+                Thread thread = new Thread(r, "route-server");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    // ---------------------------------------------------------------------
+    // Request plumbing
+    // ---------------------------------------------------------------------
+
+    private interface Handler {
+        Reply handle(HttpExchange exchange, Map<String, String> params) throws Exception;
+    }
+
+    // Status code and body of one response
+    private static class Reply {
+        final int status;
+        final Object body;
+
+        Reply(int status, Object body) {
+            this.status = status;
+            this.body = body;
+        }
+    }
+
+    private void handle(HttpExchange exchange, String method, Handler handler) throws IOException {
+        try (exchange) {
+            if (method != null && !method.equals(exchange.getRequestMethod())) {
+                send(exchange, error(405, "Method not allowed: " + exchange.getRequestMethod()));
+                return;
+            }
+            if (!admission.tryAcquire()) {
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                send(exchange, error(503, "Server busy, try again later"));
+                return;
+            }
+            // The task owns the permit and gives it back when it is done, not when the
+            // client got its answer: a search that outlives its 504 still counts as in flight
+            CompletableFuture<Reply> work = new CompletableFuture<>();
+            try {
+                executor.execute(() -> {
+                    try {
+                        work.complete(handler.handle(exchange, parseQuery(exchange.getRequestURI().getRawQuery())));
+                    } catch (Throwable e) {
+                        work.completeExceptionally(e); // Errors too, or the client would wait for its 504
+                    } finally {
+                        admission.release();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                admission.release();
+                send(exchange, error(503, "Server shutting down"));
+                return;
+            }
+            Reply reply;
+            try {
+                reply = work.get(timeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                reply = error(504, "Request timed out after " + timeoutMillis + " ms");
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                reply = cause instanceof IllegalArgumentException || cause instanceof JsonParseException
+                        ? error(400, cause.getMessage())
+                        : error(500, String.valueOf(cause));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                reply = error(503, "Server shutting down");
+            }
+            send(exchange, reply);
+        }
+    }
+
+    private static void send(HttpExchange exchange, Reply reply) throws IOException {
+        byte[] body = gson.toJson(reply.body).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(reply.status, body.length);
+        exchange.getResponseBody().write(body);
+    }
+
+    // Plain text for Prometheus scrapers, outside the admission limit so it works under overload
+    private static void metrics(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String text = GraphMetrics.ENABLED ? GraphMetrics.prometheus()
+                    : "# Metrics are disabled, start the JVM with -Dairline.metrics=true\n";
+            byte[] body = text.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+        }
+    }
+
+    private static Reply ok(Object body) {
+        return new Reply(200, body);
+    }
+
+    private static Reply error(int status, String message) {
+        return new Reply(status, Map.of("error", message == null ? "" : message));
+    }
+
+    private static Map<String, String> parseQuery(String query) {
+        Map<String, String> params = new HashMap<>();
+        if (query == null || query.isEmpty()) {
+            return params;
+        }
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            String key = URLDecoder.decode(eq < 0 ? pair : pair.substring(0, eq), StandardCharsets.UTF_8);
+            String value = eq < 0 ? "" : URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+            params.put(key, value);
+        }
+        return params;
+    }
+
+    private static String required(Map<String, String> params, String name) {
+        String value = params.get(name);
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException("Missing parameter: " + name);
+        }
+        return value.trim().toUpperCase();
+    }
+
+    private static <T> T readBody(HttpExchange exchange, Class<T> type) throws IOException {
+        try (Reader reader = new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8)) {
+            T value = gson.fromJson(reader, type);
+            if (value == null) {
+                throw new IllegalArgumentException("Missing request body");
+            }
+            return value;
+        }
+    }
+
+    // Waits for a mutation to be published, within the request timeout, and
+    // rethrows what the change failed with (Errors as they are)
+    private <T> T await(CompletableFuture<T> change) throws Exception {
+        try {
+            return change.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception exception) {
+                throw exception;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+
+    // Cost and time of a route must be real positive numbers
+    private static boolean positive(double value) {
+        return value > 0 && value < Double.POSITIVE_INFINITY; // False for NaN too
+    }
+
+    // ---------------------------------------------------------------------
+    // Endpoints
+    // ---------------------------------------------------------------------
+
+    private Reply health(HttpExchange exchange, Map<String, String> params) {
+        GraphSnapshot snapshot = graph.snapshot();
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("status", "ok");
+        body.put("version", snapshot.version());
+        body.put("airports", snapshot.airportCount());
+        body.put("routes", snapshot.routeCount());
+        return ok(body);
+    }
+
+    private Reply reachable(HttpExchange exchange, Map<String, String> params) {
+        String from = required(params, "from");
+        List<Vertex> airports = graph.bfsReachable(from);
+        if (airports == null) {
+            return error(404, "Airport with code " + from + " does not exist.");
+        }
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("from", from);
+        body.put("count", airports.size());
+        body.put("airports", airports);
+        return ok(body);
+    }
+
+    private Reply transits(HttpExchange exchange, Map<String, String> params) {
+        String from = required(params, "from");
+        String to = required(params, "to");
+        return pathReply(from, to, graph.bfsShortestPath(from, to));
+    }
+
+    private Reply path(HttpExchange exchange, Map<String, String> params) {
+        String from = required(params, "from");
+        String to = required(params, "to");
+        String by = params.getOrDefault("by", "cost").toLowerCase();
+        if (!by.equals("cost") && !by.equals("time")) {
+            throw new IllegalArgumentException("Parameter 'by' must be cost or time");
+        }
+        return pathReply(from, to, hierarchies.shortestPath(graph.snapshot(), from, to, by.equals("cost")));
+    }
+
+    private Reply pathReply(String from, String to, List<Edge> path) {
+        if (path == null) {
+            return from.equals(to)
+                    ? error(400, "Start and destination airports should not be the same: " + from)
+                    : error(404, "One or both airports do not exist: " + from + " / " + to);
+        }
+        double cost = 0;
+        double time = 0;
+        for (Edge route : path) {
+            cost += route.cost;
+            time += route.time;
+        }
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("from", from);
+        body.put("to", to);
+        body.put("found", !path.isEmpty());
+        body.put("transits", Math.max(0, path.size() - 1));
+        body.put("cost", cost);
+        body.put("time", time);
+        body.put("routes", new ArrayList<>(path)); // Gson cannot reflect on Collections.emptyList() on Java 16+
+        return ok(body);
+    }
+
+    private Reply airports(HttpExchange exchange, Map<String, String> params) throws Exception {
+        switch (exchange.getRequestMethod()) {
+            case "POST": {
+                Vertex airport = readBody(exchange, Vertex.class);
+                if (airport.code == null || airport.code.isBlank()) {
+                    throw new IllegalArgumentException("Airport code is required");
+                }
+                airport.code = airport.code.trim().toUpperCase();
+                return await(graph.addAirport(airport))
+                        ? new Reply(201, Map.of("added", airport.code))
+                        : error(409, "Airport with code " + airport.code + " already exists.");
+            }
+            case "DELETE": {
+                String code = required(params, "code");
+                return await(graph.removeAirport(code))
+                        ? ok(Map.of("removed", code))
+                        : error(404, "Airport with code " + code + " does not exist.");
+            }
+            default:
+                return error(405, "Method not allowed: " + exchange.getRequestMethod());
+        }
+    }
+
+    private Reply routes(HttpExchange exchange, Map<String, String> params) throws Exception {
+        switch (exchange.getRequestMethod()) {
+            case "POST": {
+                Edge route = readBody(exchange, Edge.class);
+                if (route.startingCode == null || route.destinationCode == null) {
+                    throw new IllegalArgumentException("startingCode and destinationCode are required");
+                }
+                if (!positive(route.cost) || !positive(route.time)) {
+                    throw new IllegalArgumentException("cost and time must be numbers greater than 0");
+                }
+                route.startingCode = route.startingCode.trim().toUpperCase();
+                route.destinationCode = route.destinationCode.trim().toUpperCase();
+                return await(graph.addRoute(route))
+                        ? new Reply(201, Map.of("added", route))
+                        : error(409, "Route was not added (it already exists, is a self-loop or an airport is missing)");
+            }
+            case "DELETE": {
+                String from = required(params, "from");
+                String to = required(params, "to");
+                return await(graph.removeRoute(from, to))
+                        ? ok(Map.of("removed", from + "-" + to))
+                        : error(404, "Route from " + from + " to " + to + " does not exist.");
+            }
+            default:
+                return error(405, "Method not allowed: " + exchange.getRequestMethod());
+        }
+    }
+}
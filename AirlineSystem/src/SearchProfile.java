@@ -0,0 +1,126 @@
+import java.util.*;
+
+/**
+ * What one route search did, filled in by the explain overloads of Graph
+ * (dijkstra, bfsShortestPath and bfsReachable with a SearchProfile argument).
+ *
+ *   SearchProfile profile = new SearchProfile();
+ *   List<Edge> path = graph.dijkstra("KUL", "BKI", true, profile);
+ *   System.out.println(profile);
+ *
+ * Besides the work counters it keeps the wall time of every phase and the
+ * search-space boundary: the airports that were discovered but not settled
+ * when the search stopped, i.e. the frontier it would have continued from.
+ * A large boundary or settled count on a short path means the search explored
+ * far more of the network than the answer needed.
+ */
+public class SearchProfile {
+    private String strategy = "";
+    private int settled = 0;        // Airports taken off the queue
+    private int relaxed = 0;        // Routes looked at
+    private int pushes = 0;         // Queue inserts
+    private int decreases = 0;      // Decrease-key operations (Dijkstra only)
+    private int polls = 0;          // Queue removals
+    private int maxFrontier = 0;    // Largest queue size seen
+    private double radius = 0;      // Distance (cost, time or hops) of the last settled airport
+    private List<String> boundary = Collections.emptyList();
+    private final Map<String, Long> phases = new LinkedHashMap<>(); // Phase -> nanoseconds
+
+    /** How the query was answered, e.g. "dijkstra (CSR snapshot, indexed heap)". */
+    public String strategy() {
+        return strategy;
+    }
+
+    public int settled() {
+        return settled;
+    }
+
+    public int relaxed() {
+        return relaxed;
+    }
+
+    public int pushes() {
+        return pushes;
+    }
+
+    public int decreases() {
+        return decreases;
+    }
+
+    public int polls() {
+        return polls;
+    }
+
+    public int maxFrontier() {
+        return maxFrontier;
+    }
+
+    public double radius() {
+        return radius;
+    }
+
+    /** Codes of the airports discovered but not settled when the search stopped. */
+    public List<String> boundary() {
+        return boundary;
+    }
+
+    /** Wall time of every phase in nanoseconds, in the order the phases ran. */
+    public Map<String, Long> phases() {
+        return Collections.unmodifiableMap(phases);
+    }
+
+    public long totalNanos() {
+        long total = 0;
+        for (long nanos : phases.values()) {
+            total += nanos;
+        }
+        return total;
+    }
+
+    // ---------------------------------------------------------------------
+    // Filled in by the searches
+    // ---------------------------------------------------------------------
+
+    void strategy(String strategy) {
+        this.strategy = strategy;
+    }
+
+    /** Ends the phase that started at since and returns the current time (start of the next phase). */
+    long lap(String phase, long since) {
+        long now = System.nanoTime();
+        phases.merge(phase, now - since, Long::sum);
+        return now;
+    }
+
+    void counts(int settled, int relaxed, int pushes, int decreases, int polls, int maxFrontier, double radius) {
+        this.settled = settled;
+        this.relaxed = relaxed;
+        this.pushes = pushes;
+        this.decreases = decreases;
+        this.polls = polls;
+        this.maxFrontier = maxFrontier;
+        this.radius = radius;
+    }
+
+    void boundary(List<String> boundary) {
+        this.boundary = boundary;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder out = new StringBuilder();
+        out.append(String.format("Strategy      : %s%n", strategy));
+        out.append(String.format("Settled       : %d airports (radius %.2f)%n", settled, radius));
+        out.append(String.format("Relaxed       : %d routes%n", relaxed));
+        out.append(String.format("Queue         : %d push, %d decrease, %d poll, max frontier %d%n", pushes, decreases,
+                polls, maxFrontier));
+        out.append(String.format("Boundary      : %d airports%s%n", boundary.size(),
+                boundary.isEmpty() ? "" : " " + (boundary.size() <= 20 ? boundary
+                        : boundary.subList(0, 20) + " ...")));
+        for (Map.Entry<String, Long> phase : phases.entrySet()) {
+            out.append(String.format("%-14s: %.3f ms%n", "Phase " + phase.getKey(), phase.getValue() / 1e6));
+        }
+        out.append(String.format("Total         : %.3f ms", totalNanos() / 1e6));
+        return out.toString();
+    }
+}
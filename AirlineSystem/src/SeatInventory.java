@@ -0,0 +1,294 @@
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Seats per route and travel date, with holds for whole itineraries.
+ *
+ * Every (route, date) has its own counter of free seats, created on first use
+ * and updated only with compare-and-set, so bookings on different flights never
+ * wait for each other and a counter can never go below zero (no oversells).
+ *
+ * hold() takes seats on every leg of a path (e.g. from Graph.dijkstra) or none
+ * of them: the legs are taken one by one and if one is sold out, the legs
+ * already taken are given back. A hold keeps its seats until it is confirmed,
+ * released, or its hold time runs out, after which a background thread returns
+ * the seats automatically.
+ *
+ * Holds wait for their expiry in EXPIRY_STRIPES queues, picked by hold id, each
+ * with its own lock, so threads placing holds at the same time rarely queue
+ * for the same lock (a single DelayQueue would serialise every hold() on one
+ * lock). All holds last the same time, so a hold added while the thread sleeps
+ * never expires before the thread's next wake-up, which is at most one hold
+ * time away, and adding a hold never has to wake it. Confirmed and released
+ * holds are not taken out of their queue (that would scan it under its lock);
+ * the thread drops them when their time comes, as their state is no longer HELD.
+ */
+public class SeatInventory implements AutoCloseable {
+    /** What happened to a hold. */
+    public enum State {
+        HELD, CONFIRMED, RELEASED, EXPIRED
+    }
+
+    private static final int EXPIRY_STRIPES = 16; // Expiry queues, a power of two
+    private static final long MIN_SLEEP_NANOS = TimeUnit.MILLISECONDS.toNanos(1); // Idle sleep for very short hold times
+
+    // One flight: a route on a travel date
+    private record FlightKey(String startingCode, String destinationCode, LocalDate date) {
+    }
+
+    /** Seats taken on every leg of an itinerary. */
+    public static class Hold implements Delayed {
+        public final long id;
+        public final int seats;
+        private final FlightKey[] legs;
+        private final long expiresAt; // System.nanoTime() deadline
+        private final AtomicInteger state = new AtomicInteger(State.HELD.ordinal());
+
+        Hold(long id, int seats, FlightKey[] legs, long expiresAt) {
+            this.id = id;
+            this.seats = seats;
+            this.legs = legs;
+            this.expiresAt = expiresAt;
+        }
+
+        public State state() {
+            return State.values()[state.get()];
+        }
+
+        public int legCount() {
+            return legs.length;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(expiresAt - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(expiresAt, ((Hold) other).expiresAt);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Hold %d: %d seat(s) on %d flight(s), %s", id, seats, legs.length, state());
+        }
+    }
+
+    private final int defaultCapacity;
+    private final long holdNanos;
+    private final ConcurrentHashMap<FlightKey, AtomicInteger> free = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<FlightKey, Integer> capacities = new ConcurrentHashMap<>();
+    private final ExpiryStripe[] expiring = new ExpiryStripe[EXPIRY_STRIPES];
+    private final AtomicLong nextId = new AtomicLong(1);
+    private final Thread reaper;
+
+    // Statistics
+    private final AtomicLong holds = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong expired = new AtomicLong();
+
+    public SeatInventory(int defaultCapacity, Duration holdTime) {
+        if (defaultCapacity < 0) {
+            throw new IllegalArgumentException("Capacity must not be negative");
+        }
+        this.defaultCapacity = defaultCapacity;
+        this.holdNanos = holdTime.toNanos();
+        for (int i = 0; i < expiring.length; i++) {
+            expiring[i] = new ExpiryStripe();
+        }
+        this.reaper = new Thread(this::reapLoop, "seat-hold-reaper");
+        this.reaper.setDaemon(true);
+        this.reaper.start();
+    }
+
+    /**
+     * Sets the number of seats of one flight. Only allowed before anything is
+     * held or sold on it; returns false otherwise.
+     */
+    public boolean setCapacity(Edge route, LocalDate date, int seats) {
+        if (seats < 0) {
+            throw new IllegalArgumentException("Capacity must not be negative");
+        }
+        FlightKey key = key(route, date);
+        if (free.putIfAbsent(key, new AtomicInteger(seats)) != null) {
+            return false;
+        }
+        capacities.put(key, seats);
+        return true;
+    }
+
+    public int capacity(Edge route, LocalDate date) {
+        return capacities.getOrDefault(key(route, date), defaultCapacity);
+    }
+
+    /** Seats still free on a flight (held and confirmed seats are not free). */
+    public int available(Edge route, LocalDate date) {
+        AtomicInteger counter = free.get(key(route, date));
+        return counter == null ? capacity(route, date) : counter.get();
+    }
+
+    /** Holds seats on every leg of path, all flown on date. Returns null if any leg is sold out. */
+    public Hold hold(List<Edge> path, LocalDate date, int seats) {
+        return hold(path, Collections.nCopies(path.size(), date), seats);
+    }
+
+    /**
+     * Holds seats on every leg of path, leg i on dates.get(i). Either all legs
+     * are held or none (returns null if any leg does not have enough seats).
+     */
+    public Hold hold(List<Edge> path, List<LocalDate> dates, int seats) {
+        if (seats < 1) {
+            throw new IllegalArgumentException("At least one seat must be held");
+        }
+        if (path.isEmpty() || dates.size() != path.size()) {
+            throw new IllegalArgumentException("Need one date for each leg of a non-empty path");
+        }
+
+        FlightKey[] legs = new FlightKey[path.size()];
+        for (int i = 0; i < legs.length; i++) {
+            legs[i] = key(path.get(i), dates.get(i));
+        }
+        for (int i = 0; i < legs.length; i++) {
+            if (!take(counter(legs[i]), seats)) {
+                for (int j = 0; j < i; j++) { // Roll back the legs already taken
+                    free.get(legs[j]).addAndGet(seats);
+                }
+                rejected.incrementAndGet();
+                return null;
+            }
+        }
+
+        Hold hold = new Hold(nextId.getAndIncrement(), seats, legs, System.nanoTime() + holdNanos);
+        expiring[(int) hold.id & (EXPIRY_STRIPES - 1)].add(hold);
+        holds.incrementAndGet();
+        return hold;
+    }
+
+    /** Turns a hold into a booking. False if it was already released, confirmed or expired. */
+    public boolean confirm(Hold hold) {
+        if (hold.getDelay(TimeUnit.NANOSECONDS) <= 0) {
+            expire(hold);
+            return false;
+        }
+        return hold.state.compareAndSet(State.HELD.ordinal(), State.CONFIRMED.ordinal());
+    }
+
+    /** Gives the seats of a hold back. False if it was not held any more. */
+    public boolean release(Hold hold) {
+        return finish(hold, State.RELEASED);
+    }
+
+    /** Cancels a confirmed booking and gives its seats back. */
+    public boolean cancel(Hold hold) {
+        if (hold.state.compareAndSet(State.CONFIRMED.ordinal(), State.RELEASED.ordinal())) {
+            giveBack(hold);
+            return true;
+        }
+        return false;
+    }
+
+    public long holdCount() {
+        return holds.get();
+    }
+
+    public long rejectedCount() {
+        return rejected.get();
+    }
+
+    public long expiredCount() {
+        return expired.get();
+    }
+
+    /** Stops the expiry thread (holds that run out afterwards keep their seats). */
+    @Override
+    public void close() {
+        reaper.interrupt();
+    }
+
+    private boolean expire(Hold hold) {
+        if (finish(hold, State.EXPIRED)) {
+            expired.incrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    private boolean finish(Hold hold, State end) {
+        if (hold.state.compareAndSet(State.HELD.ordinal(), end.ordinal())) {
+            giveBack(hold);
+            return true;
+        }
+        return false;
+    }
+
+    private void giveBack(Hold hold) {
+        for (FlightKey leg : hold.legs) {
+            free.get(leg).addAndGet(hold.seats);
+        }
+    }
+
+    private void reapLoop() {
+        List<Hold> due = new ArrayList<>();
+        try {
+            while (true) {
+                // Holds added from now on expire one hold time from now at the earliest
+                long sleep = Math.max(holdNanos, MIN_SLEEP_NANOS);
+                long now = System.nanoTime();
+                for (ExpiryStripe stripe : expiring) {
+                    sleep = Math.min(sleep, stripe.takeDue(now, due));
+                }
+                for (Hold hold : due) {
+                    expire(hold); // No-op for holds that were confirmed or released meanwhile
+                }
+                due.clear();
+                TimeUnit.NANOSECONDS.sleep(sleep);
+            }
+        } catch (InterruptedException e) {
+            // close() was called
+        }
+    }
+
+    // Holds of one stripe in expiry order, guarded by the stripe's own lock
+    private static class ExpiryStripe {
+        private final PriorityQueue<Hold> queue = new PriorityQueue<>();
+
+        synchronized void add(Hold hold) {
+            queue.add(hold);
+        }
+
+        // Moves the holds due at now to due; returns the nanos until the next one (Long.MAX_VALUE if none)
+        synchronized long takeDue(long now, List<Hold> due) {
+            Hold next;
+            while ((next = queue.peek()) != null && next.expiresAt - now <= 0) {
+                due.add(queue.poll());
+            }
+            return next == null ? Long.MAX_VALUE : next.expiresAt - now;
+        }
+    }
+
+    private AtomicInteger counter(FlightKey key) {
+        return free.computeIfAbsent(key, k -> new AtomicInteger(defaultCapacity));
+    }
+
+    // Compare-and-set loop: never lets the counter drop below zero
+    private static boolean take(AtomicInteger counter, int seats) {
+        while (true) {
+            int current = counter.get();
+            if (current < seats) {
+                return false;
+            }
+            if (counter.compareAndSet(current, current - seats)) {
+                return true;
+            }
+        }
+    }
+
+    private static FlightKey key(Edge route, LocalDate date) {
+        return new FlightKey(route.startingCode, route.destinationCode, date);
+    }
+}
@@ -0,0 +1,304 @@
+import java.util.*;
+
+/**
+ * Scheduled flights with Connection Scan Algorithm (CSA) queries.
+ *
+ * Unlike Graph, whose routes only have a fixed cost and time, a Timetable
+ * knows when every flight leaves and lands, so a journey can only continue on
+ * a flight that departs after the previous one arrived plus the minimum
+ * connection time (MCT) of the airport.
+ *
+ * All flights are kept in one int array, four ints per flight (departure
+ * airport, arrival airport, departure, arrival) sorted by departure time, with
+ * times stored as seconds since the earliest departure. A query is a single
+ * linear pass over that array, which the CPU prefetches well even for
+ * millions of flights:
+ * - earliestArrival scans forward from the requested departure time and stops
+ *   as soon as flights leave after the best known arrival at the destination
+ * - profile scans backward and returns every journey in a departure window
+ *   that no later departure in the window beats (leave later, arrive no later)
+ */
+public class Timetable {
+    private static final int STRIDE = 4;     // Ints per flight in connections
+    private static final int NONE = Integer.MAX_VALUE;
+
+    private final String[] codes;            // id -> airport code
+    private final Map<String, Integer> ids;  // airport code -> id
+    private final int[] minConnection;       // id -> minimum connection time (seconds)
+    private final long base;                 // Epoch second that relative time 0 stands for
+    private final int[] connections;         // [departure airport, arrival airport, departure, arrival] per flight
+    private final Flight[] flights;          // Flight of each connection
+
+    /** A trip made of one or more flights. */
+    public static class Journey {
+        public final List<Flight> flights;
+        public final long departureTime;
+        public final long arrivalTime;
+
+        Journey(List<Flight> flights) {
+            this.flights = flights;
+            this.departureTime = flights.get(0).departureTime;
+            this.arrivalTime = flights.get(flights.size() - 1).arrivalTime;
+        }
+
+        /** Door-to-door travel time in hours. */
+        public double duration() {
+            return (arrivalTime - departureTime) / 3600.0;
+        }
+
+        public double cost() {
+            double total = 0;
+            for (Flight flight : flights) {
+                total += flight.cost;
+            }
+            return total;
+        }
+
+        public int transfers() {
+            return flights.size() - 1;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d flight(s), %.2f hours, RM%.2f", flights.size(), duration(), cost());
+        }
+    }
+
+    public Timetable(Collection<Flight> flights, int defaultMinConnectionSeconds) {
+        this(flights, defaultMinConnectionSeconds, Collections.emptyMap());
+    }
+
+    /**
+     * Builds the timetable. minConnectionSeconds overrides the default MCT for
+     * single airports. Throws IllegalArgumentException for a flight without
+     * airports, to its own departure airport, or not arriving after it departs.
+     */
+    public Timetable(Collection<Flight> flights, int defaultMinConnectionSeconds,
+            Map<String, Integer> minConnectionSeconds) {
+        int m = flights.size();
+        this.flights = flights.toArray(new Flight[0]);
+        this.ids = new HashMap<>();
+        List<String> codeList = new ArrayList<>();
+        long earliest = Long.MAX_VALUE;
+        long latest = Long.MIN_VALUE;
+        for (Flight flight : this.flights) {
+            if (flight.startingCode == null || flight.destinationCode == null
+                    || flight.startingCode.equals(flight.destinationCode)) {
+                throw new IllegalArgumentException("Invalid airports for flight " + flight.flightNumber);
+            }
+            if (flight.arrivalTime <= flight.departureTime) {
+                throw new IllegalArgumentException("Flight " + flight.flightNumber + " does not arrive after it departs");
+            }
+            for (String code : new String[] { flight.startingCode, flight.destinationCode }) {
+                if (!ids.containsKey(code)) {
+                    ids.put(code, codeList.size());
+                    codeList.add(code);
+                }
+            }
+            earliest = Math.min(earliest, flight.departureTime);
+            latest = Math.max(latest, flight.arrivalTime);
+        }
+        if (m > 0 && latest - earliest >= NONE / 2) {
+            throw new IllegalArgumentException("Timetable spans more than 34 years");
+        }
+        this.base = m == 0 ? 0 : earliest;
+        this.codes = codeList.toArray(new String[0]);
+        this.minConnection = new int[codes.length];
+        for (int id = 0; id < codes.length; id++) {
+            minConnection[id] = minConnectionSeconds.getOrDefault(codes[id], defaultMinConnectionSeconds);
+        }
+
+        // Sort by departure: key = relative departure << 32 | original position
+        long[] order = new long[m];
+        for (int i = 0; i < m; i++) {
+            order[i] = (this.flights[i].departureTime - base) << 32 | i;
+        }
+        Arrays.sort(order);
+        Flight[] sorted = new Flight[m];
+        this.connections = new int[m * STRIDE];
+        for (int c = 0; c < m; c++) {
+            Flight flight = this.flights[(int) order[c]];
+            sorted[c] = flight;
+            connections[c * STRIDE] = ids.get(flight.startingCode);
+            connections[c * STRIDE + 1] = ids.get(flight.destinationCode);
+            connections[c * STRIDE + 2] = (int) (flight.departureTime - base);
+            connections[c * STRIDE + 3] = (int) (flight.arrivalTime - base);
+        }
+        System.arraycopy(sorted, 0, this.flights, 0, m);
+    }
+
+    public int flightCount() {
+        return flights.length;
+    }
+
+    public int airportCount() {
+        return codes.length;
+    }
+
+    /**
+     * Journey that reaches end as early as possible when leaving start at or
+     * after departAfter (epoch seconds). Returns null if an airport has no
+     * flights, both are the same, or end cannot be reached.
+     */
+    public Journey earliestArrival(String start, String end, long departAfter) {
+        Integer source = ids.get(start);
+        Integer target = ids.get(end);
+        if (source == null || target == null || source.equals(target)) {
+            return null;
+        }
+
+        int n = codes.length;
+        int[] ready = new int[n];    // Earliest time a flight can be boarded at each airport
+        int[] arrival = new int[n];  // Earliest arrival at each airport
+        int[] via = new int[n];      // Connection that gives that arrival
+        Arrays.fill(ready, NONE);
+        Arrays.fill(arrival, NONE);
+        int t0 = relative(departAfter);
+        ready[source] = t0;
+
+        for (int c = firstDepartingAt(t0); c < flights.length; c++) {
+            int i = c * STRIDE;
+            int departure = connections[i + 2];
+            if (departure >= arrival[target]) {
+                break; // Nothing departing now can arrive earlier
+            }
+            if (ready[connections[i]] <= departure) {
+                int v = connections[i + 1];
+                int arrive = connections[i + 3];
+                if (arrive < arrival[v] && v != source) {
+                    arrival[v] = arrive;
+                    via[v] = c;
+                    ready[v] = arrive + minConnection[v];
+                }
+            }
+        }
+        if (arrival[target] == NONE) {
+            return null;
+        }
+
+        List<Flight> legs = new ArrayList<>();
+        for (int stop = target; stop != source; stop = connections[via[stop] * STRIDE]) {
+            legs.add(flights[via[stop]]);
+        }
+        Collections.reverse(legs);
+        return new Journey(legs);
+    }
+
+    /**
+     * All useful journeys from start to end departing between windowStart and
+     * windowEnd (epoch seconds, inclusive), earliest departure first. A journey
+     * is left out if another one in the window departs no earlier and arrives
+     * no later.
+     * Returns null if an airport has no flights or both are the same.
+     */
+    public List<Journey> profile(String start, String end, long windowStart, long windowEnd) {
+        Integer source = ids.get(start);
+        Integer target = ids.get(end);
+        if (source == null || target == null || source.equals(target)) {
+            return null;
+        }
+
+        // Per airport: (departure, arrival at end, connection) triples, departures
+        // decreasing and arrivals strictly decreasing in the order they were added
+        int n = codes.length;
+        int[][] profiles = new int[n][];
+        int[] sizes = new int[n];
+        int from = firstDepartingAt(relative(windowStart));
+        int last = relative(windowEnd);
+
+        for (int c = flights.length - 1; c >= from; c--) {
+            int i = c * STRIDE;
+            int u = connections[i];
+            int v = connections[i + 1];
+            if (u == target || (u == source && connections[i + 2] > last)) {
+                continue; // Departures after the window must not hide the ones inside it
+            }
+            int reach = v == target
+                    ? connections[i + 3]
+                    : lookup(profiles[v], sizes[v], connections[i + 3] + minConnection[v]);
+            if (reach == NONE) {
+                continue;
+            }
+            int departure = connections[i + 2];
+            int size = sizes[u];
+            int[] profile = profiles[u];
+            if (size > 0 && reach >= profile[(size - 1) * 3 + 1]) {
+                continue; // A later (or same time) departure arrives no later
+            }
+            if (size > 0 && profile[(size - 1) * 3] == departure) {
+                size--; // Same departure time, this one arrives earlier
+            }
+            if (profile == null || size * 3 == profile.length) {
+                profile = profiles[u] = profile == null ? new int[12] : Arrays.copyOf(profile, profile.length * 2);
+            }
+            profile[size * 3] = departure;
+            profile[size * 3 + 1] = reach;
+            profile[size * 3 + 2] = c;
+            sizes[u] = size + 1;
+        }
+
+        List<Journey> journeys = new ArrayList<>();
+        int[] profile = profiles[source];
+        for (int k = sizes[source] - 1; k >= 0; k--) {
+            List<Flight> legs = new ArrayList<>();
+            int c = profile[k * 3 + 2];
+            while (true) {
+                legs.add(flights[c]);
+                int v = connections[c * STRIDE + 1];
+                if (v == target) {
+                    break;
+                }
+                c = lookupConnection(profiles[v], sizes[v], connections[c * STRIDE + 3] + minConnection[v]);
+            }
+            journeys.add(new Journey(legs));
+        }
+        return journeys;
+    }
+
+    // Earliest arrival at the destination when ready to board at time t (NONE if impossible)
+    private static int lookup(int[] profile, int size, int t) {
+        int k = find(profile, size, t);
+        return k < 0 ? NONE : profile[k * 3 + 1];
+    }
+
+    private static int lookupConnection(int[] profile, int size, int t) {
+        return profile[find(profile, size, t) * 3 + 2];
+    }
+
+    // Entry with the smallest departure >= t, which is also the earliest arrival (-1 if none)
+    private static int find(int[] profile, int size, int t) {
+        int lo = 0;
+        int hi = size - 1;
+        int found = -1;
+        while (lo <= hi) { // Departures are decreasing: find the last entry with departure >= t
+            int mid = (lo + hi) >>> 1;
+            if (profile[mid * 3] >= t) {
+                found = mid;
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return found;
+    }
+
+    // First connection departing at or after t
+    private int firstDepartingAt(int t) {
+        int lo = 0;
+        int hi = flights.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (connections[mid * STRIDE + 2] < t) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private int relative(long epochSeconds) {
+        long t = epochSeconds - base;
+        return (int) Math.max(-(NONE / 2), Math.min(NONE / 2, t));
+    }
+}
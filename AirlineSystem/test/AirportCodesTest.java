@@ -0,0 +1,168 @@
+import java.util.*;
+
+/**
+ * Airport codes as int keys:
+ * - AirportCodes packs, encodes, releases and reuses keys like a plain map of
+ *   codes, and separate tables do not share fallback keys
+ * - Graph searches on changing graphs whose airports include codes that
+ *   cannot be packed (their keys are released when the airport is removed and
+ *   handed to other codes later) give the answers of Reference, and the
+ *   reverse index stays right
+ * - Edge equality and hashing do not depend on any table
+ */
+public class AirportCodesTest {
+    private static final String[] ODD_CODES = { "k-1", "Kul", "AB12", "\u00c5RH", "LONGCODE" }; // Fallback-table codes
+
+    public static void main(String[] args) {
+        long before = Check.passed();
+        packing();
+        for (long seed = 1; seed <= 5; seed++) {
+            table(new Random(seed));
+        }
+        for (long seed = 1; seed <= 20; seed++) {
+            TestGraphs.changing(TestGraphs.codes(40, ODD_CODES), new Random(seed),
+                    BidirectionalSearchTest::checkReverseIndex, AirportCodesTest::comparePair);
+        }
+        invalidQueries();
+        separateGraphs();
+        edgeEquality();
+        System.out.println("AirportCodesTest: " + (Check.passed() - before) + " checks passed");
+    }
+
+    private static void packing() {
+        AirportCodes keys = new AirportCodes();
+        for (String code : new String[] { "A", "KUL", "ZZZZZZ", "AAB" }) {
+            int key = AirportCodes.pack(code);
+            Check.that(key > 0, code + " packs to a positive key");
+            Check.equal(key, keys.encode(code), "encode(" + code + ") is the packed key");
+            Check.equal(code, keys.decode(key), "decode of " + code);
+        }
+        for (String code : new String[] { "", "kul", "K1", "ABCDEFG", "\u00c5RH", null }) {
+            Check.equal(0, AirportCodes.pack(code), "pack(" + code + ")");
+        }
+        Check.equal(0, keys.fallbackCount(), "packed codes are not in the table");
+    }
+
+    // Random encode/release against a map of the live codes
+    private static void table(Random random) {
+        AirportCodes keys = new AirportCodes();
+        Map<String, Integer> live = new HashMap<>();
+        int mostLive = 0;
+        for (int step = 0; step < 20_000; step++) {
+            String code = "x-" + random.nextInt(200);
+            if (random.nextInt(3) > 0) {
+                int key = keys.encode(code);
+                Check.that(key < 0, "fallback key of " + code + " is negative");
+                Integer before = live.putIfAbsent(code, key);
+                Check.equal(before == null ? key : before, key, "encode(" + code + ") again");
+            } else {
+                keys.release(code);
+                live.remove(code);
+                Check.equal(0, keys.find(code), "find(" + code + ") after release");
+            }
+            mostLive = Math.max(mostLive, live.size());
+        }
+        Check.equal(live.size(), keys.fallbackCount(), "codes in the table");
+        Set<Integer> distinct = new HashSet<>();
+        for (Map.Entry<String, Integer> entry : live.entrySet()) {
+            Check.equal(entry.getValue(), keys.find(entry.getKey()), "find(" + entry.getKey() + ")");
+            Check.equal(entry.getKey(), keys.decode(entry.getValue()), "decode of " + entry.getKey());
+            Check.that(-entry.getValue() <= mostLive, "released keys are reused, key of " + entry.getKey());
+            distinct.add(entry.getValue());
+        }
+        Check.equal(live.size(), distinct.size(), "live codes have distinct keys");
+        keys.clear();
+        Check.equal(0, keys.fallbackCount(), "table after clear");
+    }
+
+    private static void comparePair(Graph graph, String start, String end) {
+        for (boolean useCost : new boolean[] { true, false }) {
+            double expected = TestGraphs.expectedWeight(Reference.dijkstra(graph, start, end, useCost), useCost);
+            TestGraphs.checkPath(graph, graph.dijkstra(start, end, useCost), start, end, expected, useCost, "dijkstra");
+            TestGraphs.checkPath(graph, graph.bidirectionalDijkstra(start, end, useCost), start, end, expected, useCost,
+                    "bidirectionalDijkstra");
+        }
+        List<Edge> fewestTransits = Reference.bfsShortestPath(graph, start, end);
+        List<Edge> found = graph.bfsShortestPath(start, end);
+        if (fewestTransits == null) {
+            Check.that(found == null, "bfsShortestPath(" + start + ", " + end + ") should be null");
+        } else {
+            Check.equal(fewestTransits.size(), found.size(), "bfsShortestPath(" + start + ", " + end + ") transits");
+        }
+        if (graph.getAirports().containsKey(start) && graph.getAirports().containsKey(end) && !start.equals(end)) {
+            Edge route = graph.getRoute(start, end);
+            Check.equal(expectedRoute(graph, start, end), route, "getRoute(" + start + ", " + end + ")");
+        }
+    }
+
+    private static Edge expectedRoute(Graph graph, String start, String end) {
+        for (Edge route : graph.getAdjacencyList().get(start)) {
+            if (route.destinationCode.equals(end)) {
+                return route;
+            }
+        }
+        return null;
+    }
+
+    private static void invalidQueries() {
+        Graph graph = new Graph();
+        graph.addAirport(new Vertex("Kuala Lumpur", "KUL", "Selangor"));
+        graph.addAirport(new Vertex("Penang", "PEN", "Penang"));
+        graph.addAirport(new Vertex("Odd", "k-1", "Nowhere"));
+        graph.addRoute(new Edge("KUL", "k-1", 5, 1));
+        Check.that(graph.dijkstra("k-1", "KUL", false).isEmpty(), "unreachable");
+        Check.equal(1, graph.dijkstra("KUL", "k-1", false).size(), "route to a fallback code");
+        Check.that(!graph.addRoute(new Edge("k-1", "k-1", 1, 1)), "self-loop on a fallback code");
+        Check.that(!graph.addRoute(new Edge("KUL", "k-1", 9, 9)), "duplicate route to a fallback code");
+        Check.equal(GraphResult.Error.UNKNOWN_AIRPORT, graph.findShortestPath("KUL", "k-2", true).error,
+                "never seen fallback code");
+
+        // k-2 may get the key k-1 had; nothing of k-1 may show up under it
+        Check.that(graph.removeAirport("k-1"), "remove k-1");
+        graph.addAirport(new Vertex("Other", "k-2", "Nowhere"));
+        Check.that(graph.getIncomingRoutes("k-2").isEmpty(), "no routes inherited through a reused key");
+        Check.that(graph.getRoute("KUL", "k-2") == null, "no route inherited through a reused key");
+        Check.that(graph.addRoute(new Edge("KUL", "k-2", 3, 3)), "route to the code with the reused key");
+        Check.equal(GraphResult.Error.UNKNOWN_AIRPORT, graph.findShortestPath("KUL", "k-1", true).error,
+                "removed fallback code");
+    }
+
+    // The same odd codes in two graphs, added in a different order
+    private static void separateGraphs() {
+        Graph first = new Graph();
+        Graph second = new Graph();
+        for (String code : ODD_CODES) {
+            first.addAirport(new Vertex(code, code, "S"));
+        }
+        for (int i = ODD_CODES.length - 1; i >= 0; i--) {
+            second.addAirport(new Vertex(ODD_CODES[i], ODD_CODES[i], "S"));
+        }
+        Edge shared = new Edge("k-1", "LONGCODE", 1, 1); // One edge object in both graphs
+        Check.that(first.addRoute(shared) && second.addRoute(shared), "same edge in two graphs");
+        second.addRoute(new Edge("Kul", "AB12", 1, 1));
+        Check.that(first.getRoute("Kul", "AB12") == null, "route of the other graph");
+        Check.equal(shared, second.getRoute("k-1", "LONGCODE"), "shared edge found in the second graph");
+        Check.equal(1, first.dijkstra("k-1", "LONGCODE", true).size(), "shared edge used in the first graph");
+        Check.equal(1, first.snapshot().dijkstra("k-1", "LONGCODE", true).size(), "shared edge in a snapshot");
+    }
+
+    private static void edgeEquality() {
+        Edge packed = new Edge("KUL", "PEN", 1, 1);
+        Edge odd = new Edge("k-1", "Kul", 1, 1);
+        Check.that(packed.equals(new Edge("KUL", "PEN", 2, 2)), "equal packed edges");
+        Check.equal(packed.hashCode(), new Edge("KUL", "PEN", 2, 2).hashCode(), "hash of packed edges");
+        Check.that(!packed.equals(new Edge("PEN", "KUL", 1, 1)), "reversed edge");
+        Check.that(odd.equals(new Edge("k-1", "Kul", 3, 3)), "equal fallback edges");
+        Check.that(!odd.equals(new Edge("k-1", "KUL", 3, 3)), "codes differing in case");
+        Check.that(!packed.equals(new Edge(null, "PEN", 1, 1)) && new Edge(null, null, 1, 1).hashCode() == 0,
+                "edges without codes");
+
+        // Hash and equality do not change once the edge is in a graph and its keys are cached
+        Set<Edge> set = new HashSet<>(List.of(new Edge("zz-9", "KUL", 1, 1)));
+        Graph graph = new Graph();
+        graph.addAirport(new Vertex("Z", "zz-9", "S"));
+        graph.addAirport(new Vertex("K", "KUL", "S"));
+        graph.addRoute(new Edge("zz-9", "KUL", 1, 1));
+        Check.that(set.contains(graph.getRoute("zz-9", "KUL")), "edge found after its code was encoded");
+    }
+}
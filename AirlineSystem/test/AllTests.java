@@ -0,0 +1,22 @@
+/**
+ * Runs every test in this folder. Stops with an AssertionError (and a
+ * non-zero exit status) at the first failed check.
+ */
+public class AllTests {
+    public static void main(String[] args) throws Exception {
+        IntMapTest.main(args);
+        DijkstraTest.main(args);
+        BidirectionalSearchTest.main(args);
+        RouteIndexTest.main(args);
+        ConcurrentGraphTest.main(args);
+        ReachabilityIndexTest.main(args);
+        AirportCodesTest.main(args);
+        KShortestPathsTest.main(args);
+        TimetableTest.main(args);
+        GraphIOTest.main(args);
+        GraphJournalTest.main(args);
+        RouteServerTest.main(args);
+        SeatInventoryTest.main(args);
+        System.out.println("All tests passed: " + Check.passed() + " checks");
+    }
+}
@@ -0,0 +1,68 @@
+import java.util.*;
+
+/**
+ * bidirectionalDijkstra and bidirectionalBfsShortestPath against the original
+ * one-way searches in Reference, on random graphs that keep changing between
+ * queries; bfsShortestPath is compared too. Also checks that the reverse route
+ * index (getIncomingRoutes) the backward searches run on stays equal to the
+ * routes of the adjacency lists after every change.
+ */
+public class BidirectionalSearchTest {
+    public static void main(String[] args) {
+        long before = Check.passed();
+        for (long seed = 1; seed <= 20; seed++) {
+            TestGraphs.changing(TestGraphs.codes(40), new Random(seed), BidirectionalSearchTest::checkReverseIndex,
+                    BidirectionalSearchTest::comparePair);
+        }
+        TestGraphs.generated(new Random(3), BidirectionalSearchTest::checkReverseIndex,
+                BidirectionalSearchTest::comparePair);
+        System.out.println("BidirectionalSearchTest: " + (Check.passed() - before) + " checks passed");
+    }
+
+    private static void comparePair(Graph graph, String start, String end) {
+        for (boolean useCost : new boolean[] { true, false }) {
+            double expected = TestGraphs.expectedWeight(Reference.dijkstra(graph, start, end, useCost), useCost);
+            TestGraphs.checkPath(graph, graph.bidirectionalDijkstra(start, end, useCost), start, end, expected, useCost,
+                    "bidirectionalDijkstra");
+        }
+
+        List<Edge> fewestTransits = Reference.bfsShortestPath(graph, start, end);
+        double hops = fewestTransits == null ? Double.NaN : fewestTransits.size();
+        checkHops(graph, graph.bfsShortestPath(start, end), start, end, hops, "bfsShortestPath");
+        checkHops(graph, graph.bidirectionalBfsShortestPath(start, end), start, end, hops,
+                "bidirectionalBfsShortestPath");
+    }
+
+    // NaN = invalid query (null), 0 = unreachable (empty path)
+    private static void checkHops(Graph graph, List<Edge> path, String start, String end, double hops, String method) {
+        String query = method + "(" + start + ", " + end + ")";
+        if (Double.isNaN(hops)) {
+            Check.that(path == null, query + " should be null");
+        } else if (hops == 0) {
+            Check.that(path != null && path.isEmpty(), query + " should be empty");
+        } else {
+            Check.that(path != null && Reference.isLooplessPath(graph, path, start, end), query + " is not a path: " + path);
+            Check.equal((int) hops, path.size(), query + " transits");
+        }
+    }
+
+    // Incoming routes of every airport = routes of the adjacency lists that end there
+    static void checkReverseIndex(Graph graph) {
+        Map<String, Set<String>> incoming = new HashMap<>();
+        for (String code : graph.getAirports().keySet()) {
+            incoming.put(code, new HashSet<>());
+        }
+        for (List<Edge> routes : graph.getAdjacencyList().values()) {
+            for (Edge route : routes) {
+                incoming.get(route.destinationCode).add(route.startingCode);
+            }
+        }
+        for (String code : graph.getAirports().keySet()) {
+            Set<String> indexed = new HashSet<>();
+            for (Edge route : graph.getIncomingRoutes(code)) {
+                indexed.add(route.startingCode);
+            }
+            Check.equal(incoming.get(code), indexed, "incoming routes of " + code);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Minimal assertions for the tests in this folder (the project has no test
+ * framework). A failed check throws AssertionError, so a test main stops at
+ * the first failure with the reason.
+ */
+public final class Check {
+    private static final double EPSILON = 1e-9; // Sums of the same weights in another order may differ slightly
+
+    private static final AtomicLong passed = new AtomicLong(); // Reader threads of the concurrency tests check too
+
+    private Check() {
+    }
+
+    public static void that(boolean condition, String what) {
+        if (!condition) {
+            throw new AssertionError(what);
+        }
+        passed.incrementAndGet();
+    }
+
+    public static void equal(Object expected, Object actual, String what) {
+        that(Objects.equals(expected, actual), what + ": expected " + expected + " but was " + actual);
+    }
+
+    public static void close(double expected, double actual, String what) {
+        boolean same = expected == actual
+                || Math.abs(expected - actual) <= EPSILON * Math.max(1, Math.abs(expected));
+        that(same, what + ": expected " + expected + " but was " + actual);
+    }
+
+    /** Number of checks that passed so far. */
+    public static long passed() {
+        return passed.get();
+    }
+}
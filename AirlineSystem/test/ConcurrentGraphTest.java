@@ -0,0 +1,145 @@
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * ConcurrentGraph: reader threads querying while one thread submits random
+ * changes always see a complete snapshot, and after the last future the
+ * snapshot matches a plain Graph that got the same changes. A change that
+ * throws, even an Error, and a failure while publishing fail only the futures
+ * of their batch; the writer keeps going and later changes still complete.
+ */
+public class ConcurrentGraphTest {
+    public static void main(String[] args) throws Exception {
+        long before = Check.passed();
+        for (long seed = 1; seed <= 3; seed++) {
+            readersDuringChanges(new Random(seed));
+        }
+        failingChanges();
+        System.out.println("ConcurrentGraphTest: " + (Check.passed() - before) + " checks passed");
+    }
+
+    private static void readersDuringChanges(Random random) throws Exception {
+        List<String> codes = TestGraphs.codes(40);
+        Graph plain = new Graph();
+        ConcurrentGraph concurrent = new ConcurrentGraph();
+        ExecutorService readers = Executors.newFixedThreadPool(3);
+        List<Future<Integer>> queries = new ArrayList<>();
+        for (int r = 0; r < 3; r++) {
+            long readerSeed = random.nextLong();
+            queries.add(readers.submit(() -> read(concurrent, codes, new Random(readerSeed))));
+        }
+
+        List<CompletableFuture<Boolean>> results = new ArrayList<>();
+        List<Boolean> expected = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            String from = TestGraphs.pick(codes, random);
+            String to = TestGraphs.pick(codes, random);
+            switch (random.nextInt(8)) {
+                case 0 -> {
+                    expected.add(plain.addAirport(new Vertex(from, from, "S")));
+                    results.add(concurrent.addAirport(new Vertex(from, from, "S")));
+                }
+                case 1 -> {
+                    expected.add(plain.removeAirport(from));
+                    results.add(concurrent.removeAirport(from));
+                }
+                case 2 -> {
+                    expected.add(plain.removeRoute(from, to));
+                    results.add(concurrent.removeRoute(from, to));
+                }
+                default -> {
+                    double cost = 1 + random.nextInt(9);
+                    expected.add(plain.addRoute(new Edge(from, to, cost, 1)));
+                    results.add(concurrent.addRoute(new Edge(from, to, cost, 1)));
+                }
+            }
+        }
+        for (int i = 0; i < results.size(); i++) {
+            Check.equal(expected.get(i), results.get(i).get(10, TimeUnit.SECONDS), "result of change " + i);
+        }
+        readers.shutdownNow();
+        for (Future<Integer> reader : queries) {
+            Check.that(reader.get(10, TimeUnit.SECONDS) > 0, "reader ran queries");
+        }
+        concurrent.close();
+
+        GraphSnapshot snapshot = concurrent.snapshot();
+        Check.equal(plain.getAirports().size(), snapshot.airportCount(), "airports after all changes");
+        Check.equal(plain.snapshot().routeCount(), snapshot.routeCount(), "routes after all changes");
+        for (int i = 0; i < 200; i++) {
+            String start = TestGraphs.pick(codes, random);
+            String end = TestGraphs.pick(codes, random);
+            double weight = TestGraphs.expectedWeight(Reference.dijkstra(plain, start, end, true), true);
+            TestGraphs.checkPath(plain, snapshot.dijkstra(start, end, true), start, end, weight, true,
+                    "dijkstra on the last snapshot");
+        }
+    }
+
+    // Queries until interrupted; every path must be made of routes of the snapshot it came from
+    private static int read(ConcurrentGraph graph, List<String> codes, Random random) {
+        int count = 0;
+        while (!Thread.currentThread().isInterrupted()) {
+            GraphSnapshot snapshot = graph.snapshot();
+            String start = TestGraphs.pick(codes, random);
+            String end = TestGraphs.pick(codes, random);
+            List<Edge> path = snapshot.dijkstra(start, end, random.nextBoolean());
+            if (path != null && !path.isEmpty()) {
+                String at = start;
+                for (Edge edge : path) {
+                    Check.that(edge.startingCode.equals(at) && snapshot.edgeIndex(snapshot.idOf(edge.startingCode),
+                            snapshot.idOf(edge.destinationCode)) >= 0, "path from one snapshot: " + path);
+                    at = edge.destinationCode;
+                }
+                Check.equal(end, at, "path ends at " + end);
+            }
+            count++;
+        }
+        return count;
+    }
+
+    private static void failingChanges() throws Exception {
+        ConcurrentGraph graph = new ConcurrentGraph();
+        graph.addAirport(new Vertex("Kuala Lumpur", "KUL", "Selangor"));
+        graph.addAirport(new Vertex("Penang", "PEN", "Penang")).get(10, TimeUnit.SECONDS);
+
+        Error error = new Error("simulated failure");
+        CompletableFuture<Object> failing = graph.submit(g -> {
+            throw error;
+        });
+        CompletableFuture<Boolean> sameBatch = graph.addRoute(new Edge("KUL", "PEN", 1, 1));
+        Check.that(expectFailure(failing) == error, "the Error fails its own future");
+        Check.equal(Boolean.TRUE, sameBatch.get(10, TimeUnit.SECONDS), "other change of the batch completes");
+        Check.that(graph.snapshot().edgeIndex(graph.snapshot().idOf("KUL"), graph.snapshot().idOf("PEN")) >= 0,
+                "other change is published");
+
+        // Publishing fails once: the batch fails, the next one publishes both changes
+        RuntimeException publishFailure = new IllegalStateException("snapshot listener failed");
+        graph.batch(g -> g.addListener(new GraphListener() {
+            private boolean failed = false;
+
+            @Override
+            public void snapshotBuilt(GraphSnapshot snapshot) {
+                if (!failed) {
+                    failed = true;
+                    throw publishFailure;
+                }
+            }
+        })).get(10, TimeUnit.SECONDS);
+        CompletableFuture<Boolean> unpublished = graph.addAirport(new Vertex("Langkawi", "LGK", "Kedah"));
+        Check.that(expectFailure(unpublished) == publishFailure, "failed publish fails the batch");
+        Check.equal(Boolean.TRUE, graph.addRoute(new Edge("PEN", "LGK", 1, 1)).get(10, TimeUnit.SECONDS),
+                "writer still running after a failed publish");
+        Check.equal(2, graph.dijkstra("KUL", "LGK", true).size(), "changes of the failed batch published later");
+        graph.close();
+    }
+
+    private static Throwable expectFailure(CompletableFuture<?> future) throws Exception {
+        try {
+            future.get(10, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            return e.getCause();
+        }
+        Check.that(false, "future should have failed");
+        return null;
+    }
+}
@@ -0,0 +1,39 @@
+import java.util.*;
+
+/**
+ * Graph.dijkstra (indexed heap, per-thread arrays) against the original
+ * PriorityQueue version in Reference, on random graphs that keep changing
+ * between queries. Paths may differ from the original when several are
+ * equally good, so the test compares weights and checks that every path is
+ * made of real routes.
+ */
+public class DijkstraTest {
+    public static void main(String[] args) {
+        long before = Check.passed();
+        for (long seed = 1; seed <= 20; seed++) {
+            TestGraphs.changing(TestGraphs.codes(40), new Random(seed), graph -> { }, DijkstraTest::comparePair);
+        }
+        TestGraphs.generated(new Random(3), graph -> { }, DijkstraTest::comparePair);
+        invalidQueries();
+        System.out.println("DijkstraTest: " + (Check.passed() - before) + " checks passed");
+    }
+
+    private static void comparePair(Graph graph, String start, String end) {
+        for (boolean useCost : new boolean[] { true, false }) {
+            double expected = TestGraphs.expectedWeight(Reference.dijkstra(graph, start, end, useCost), useCost);
+            TestGraphs.checkPath(graph, graph.dijkstra(start, end, useCost), start, end, expected, useCost, "dijkstra");
+        }
+    }
+
+    private static void invalidQueries() {
+        Graph graph = new Graph();
+        graph.addAirport(new Vertex("Kuala Lumpur", "KUL", "Selangor"));
+        graph.addAirport(new Vertex("Penang", "PEN", "Penang"));
+        graph.addAirport(new Vertex("Langkawi", "LGK", "Kedah"));
+        graph.addRoute(new Edge("KUL", "LGK", 5, 1));
+        Check.that(graph.dijkstra("KUL", "XXX", true) == null, "unknown airport");
+        Check.that(graph.dijkstra("KUL", "KUL", true) == null, "same airport");
+        Check.that(graph.dijkstra("LGK", "KUL", false).isEmpty(), "unreachable");
+        Check.equal(1, graph.dijkstra("KUL", "LGK", false).size(), "direct route");
+    }
+}
@@ -0,0 +1,112 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * GraphIO loading: a saved graph loads back equal in both formats (also with
+ * codes that AirportCodes cannot pack), a binary file can be saved over right
+ * after it was loaded, and a file that cannot be loaded completely, e.g. a
+ * route without a code or with a code that is not a string, or a binary file
+ * with a damaged or missing byte, makes loadGraph return false and leaves the
+ * graph exactly as it was.
+ */
+public class GraphIOTest {
+    public static void main(String[] args) throws IOException {
+        long before = Check.passed();
+        Path dir = Files.createTempDirectory("graph-io-test");
+        try {
+            for (long seed = 1; seed <= 5; seed++) {
+                roundTrip(dir.resolve(seed + "-graph.json").toString(), new Random(seed));
+                roundTrip(dir.resolve(seed + "-graph.bin").toString(), new Random(seed));
+            }
+            badJson(dir.resolve("bad.json"));
+            badBinary(dir.resolve("bad.bin"));
+        } finally {
+            try (var files = Files.list(dir)) {
+                for (Path file : files.toList()) {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(dir);
+        }
+        System.out.println("GraphIOTest: " + (Check.passed() - before) + " checks passed");
+    }
+
+    private static void roundTrip(String file, Random random) {
+        Graph graph = randomGraph(random);
+        GraphIO.saveGraph(graph, file, GraphIO.formatFor(file));
+        Graph loaded = new Graph();
+        Check.that(GraphIO.loadGraph(loaded, file), "load " + file);
+        Check.equal(TestGraphs.describe(graph), TestGraphs.describe(loaded), "graph loaded from " + file);
+        Check.equal(graph.getAirports().size(), loaded.snapshot().airportCount(), "snapshot of the loaded graph");
+        String start = TestGraphs.pick(new ArrayList<>(graph.getAirports().keySet()), random);
+        String end = TestGraphs.pick(new ArrayList<>(graph.getAirports().keySet()), random);
+        double expected = TestGraphs.expectedWeight(graph.dijkstra(start, end, true), true);
+        TestGraphs.checkPath(loaded, loaded.dijkstra(start, end, true), start, end, expected, true, "loaded dijkstra");
+
+        // The loaded file is not held open, so it can be replaced at once
+        loaded.addRoute(new Edge(start, end, 1, 1));
+        GraphIO.saveGraph(loaded, file, GraphIO.formatFor(file));
+        Graph reloaded = new Graph();
+        Check.that(GraphIO.loadGraph(reloaded, file), "load " + file + " again");
+        Check.equal(TestGraphs.describe(loaded), TestGraphs.describe(reloaded), "graph saved over " + file);
+    }
+
+    private static void badJson(Path file) throws IOException {
+        String[] routes = {
+            "{ \"destinationCode\": \"PEN\", \"cost\": 1, \"time\": 1 }",                          // No startingCode
+            "{ \"startingCode\": \"KUL\", \"destinationCode\": null, \"cost\": 1, \"time\": 1 }",  // null
+            "{ \"startingCode\": 7, \"destinationCode\": \"PEN\", \"cost\": 1, \"time\": 1 }",     // Number
+            "{ \"startingCode\": \"KUL\", \"destinationCode\": [\"PEN\"], \"cost\": 1, \"time\": 1 }", // Array
+            "{ \"startingCode\": \"KUL\", \"destinationCode\": \"PEN\", \"cost\": \"x\", \"time\": 1 }", // Bad number
+        };
+        for (String route : routes) {
+            Graph graph = randomGraph(new Random(route.length()));
+            String expected = TestGraphs.describe(graph);
+            long version = graph.version();
+            Files.write(file, ("{ \"airports\": { \"KUL\": { \"name\": \"Kuala Lumpur\", \"code\": \"KUL\" },"
+                    + " \"PEN\": { \"name\": \"Penang\", \"code\": \"PEN\" } },"
+                    + " \"adjacencyList\": { \"KUL\": [ " + route + " ] } }").getBytes(StandardCharsets.UTF_8));
+            Check.that(!GraphIO.loadGraph(graph, file.toString()), "load should fail: " + route);
+            Check.equal(expected, TestGraphs.describe(graph), "graph unchanged after a failed load: " + route);
+            Check.equal(version, graph.version(), "no reload reported after a failed load: " + route);
+            Check.that(graph.addRoute(new Edge("AAC", "AAD", 1, 1)) || graph.getRoute("AAC", "AAD") != null,
+                    "graph still usable after a failed load");
+        }
+    }
+
+    private static void badBinary(Path file) throws IOException {
+        GraphIO.saveGraph(randomGraph(new Random(7)), file.toString(), GraphIO.Format.BINARY);
+        byte[] bytes = Files.readAllBytes(file);
+        Random random = new Random(7);
+        for (int i = 0; i < 20; i++) {
+            byte[] damaged = i % 2 == 0
+                    ? bytes.clone()
+                    : Arrays.copyOf(bytes, 5 + random.nextInt(bytes.length - 5)); // Truncated
+            if (i % 2 == 0) {
+                damaged[4 + random.nextInt(bytes.length - 4)] ^= 1 << random.nextInt(8);
+            }
+            Files.write(file, damaged);
+            Graph graph = randomGraph(new Random(i));
+            String expected = TestGraphs.describe(graph);
+            long version = graph.version();
+            Check.that(!GraphIO.loadGraph(graph, file.toString()), "damaged binary file " + i + " should not load");
+            Check.equal(expected, TestGraphs.describe(graph), "graph unchanged after damaged binary file " + i);
+            Check.equal(version, graph.version(), "no reload reported after damaged binary file " + i);
+        }
+    }
+
+    private static Graph randomGraph(Random random) {
+        Graph graph = new Graph();
+        List<String> codes = TestGraphs.codes(30, "k-1", "Kul");
+        for (String code : codes) {
+            graph.addAirport(new Vertex("Airport " + code, code, random.nextBoolean() ? "State" : null));
+        }
+        for (int i = 0; i < 90; i++) {
+            graph.addRoute(new Edge(TestGraphs.pick(codes, random), TestGraphs.pick(codes, random),
+                    1 + random.nextInt(500), 0.25 * (1 + random.nextInt(20))));
+        }
+        return graph;
+    }
+}
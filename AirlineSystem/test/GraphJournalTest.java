@@ -0,0 +1,153 @@
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * GraphJournal replay: a graph reopened from snapshot + journal must equal the
+ * graph the changes were made on, also when
+ * - the last record was only half written (crash while appending)
+ * - the journal was compacted many times on the way (small threshold)
+ * - a compaction did not finish and left its ".compacting" journal behind
+ * - that journal is replayed on a snapshot that already contains its changes
+ * - writing the snapshot fails: checkpoint throws, nothing is lost, and the
+ *   next checkpoint writes everything
+ * Every case runs for a JSON and a binary snapshot file.
+ */
+public class GraphJournalTest {
+    public static void main(String[] args) throws IOException {
+        long before = Check.passed();
+        Path dir = Files.createTempDirectory("graph-journal-test");
+        try {
+            for (String name : new String[] { "graph.json", "graph.bin" }) {
+                for (long seed = 1; seed <= 5; seed++) {
+                    String file = dir.resolve(seed + "-" + name).toString();
+                    replay(file, new Random(seed));
+                    tornRecord(file, new Random(seed));
+                    unfinishedCompaction(file, new Random(seed));
+                    replayOnNewerSnapshot(file, new Random(seed));
+                    compactions(file, new Random(seed));
+                    failedCompaction(dir.resolve(seed + "-failing-" + name), new Random(seed));
+                }
+            }
+        } finally {
+            try (var files = Files.list(dir)) {
+                for (Path file : files.toList()) {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(dir);
+        }
+        System.out.println("GraphJournalTest: " + (Check.passed() - before) + " checks passed");
+    }
+
+    private static void replay(String file, Random random) throws IOException {
+        Graph graph = new Graph();
+        GraphJournal journal = GraphJournal.open(graph, file);
+        mutate(graph, random, 300);
+        journal.close(); // No checkpoint: everything is only in the journal
+        Check.that(!Files.exists(Paths.get(file)), "no snapshot written without a checkpoint");
+        Check.equal(TestGraphs.describe(graph), TestGraphs.describe(reopen(file)), "replayed journal of " + file);
+    }
+
+    private static void tornRecord(String file, Random random) throws IOException {
+        Graph graph = reopen(file);
+        GraphJournal journal = GraphJournal.open(graph, file);
+        mutate(graph, random, 50);
+        journal.close();
+        Path journalPath = Paths.get(file + ".journal");
+        long valid = Files.size(journalPath);
+        Files.write(journalPath, new byte[] { 0, 0, 0, 40, 3, 0, 3, 'K' }, StandardOpenOption.APPEND);
+        Check.equal(TestGraphs.describe(graph), TestGraphs.describe(reopen(file)), "journal with a torn last record");
+        Check.equal(valid, Files.size(journalPath), "torn record cut off");
+    }
+
+    private static void unfinishedCompaction(String file, Random random) throws IOException {
+        Graph graph = reopen(file);
+        GraphJournal journal = GraphJournal.open(graph, file);
+        journal.checkpoint();
+        mutate(graph, random, 100);
+        journal.close();
+        // Crash right after the journal was renamed: its records are only in the ".compacting" file
+        Files.move(Paths.get(file + ".journal"), Paths.get(file + ".journal.compacting"));
+        Graph reopened = new Graph();
+        journal = GraphJournal.open(reopened, file);
+        Check.equal(TestGraphs.describe(graph), TestGraphs.describe(reopened), "snapshot + unfinished compaction");
+        mutate(reopened, random, 100); // New records go after the ones of the unfinished compaction
+        journal.close();
+        Check.equal(TestGraphs.describe(reopened), TestGraphs.describe(reopen(file)), "journal after an unfinished compaction");
+    }
+
+    private static void replayOnNewerSnapshot(String file, Random random) throws IOException {
+        Graph graph = reopen(file);
+        GraphJournal journal = GraphJournal.open(graph, file);
+        journal.checkpoint();
+        mutate(graph, random, 200);
+        journal.close();
+        Path journalPath = Paths.get(file + ".journal");
+        byte[] records = Files.readAllBytes(journalPath);
+        // Crash after the new snapshot was written but before the old journal was deleted
+        journal = GraphJournal.open(new Graph(), file);
+        journal.checkpoint();
+        journal.close();
+        Files.write(Paths.get(file + ".journal.compacting"), records);
+        Check.equal(TestGraphs.describe(graph), TestGraphs.describe(reopen(file)), "journal replayed on a snapshot that contains it");
+    }
+
+    private static void compactions(String file, Random random) throws IOException {
+        Graph graph = reopen(file);
+        GraphJournal journal = GraphJournal.open(graph, file, 512); // Compacts every few records
+        mutate(graph, random, 400);
+        journal.checkpoint();
+        journal.close();
+        Check.that(!Files.exists(Paths.get(file + ".journal.compacting")), "compaction journal deleted");
+        GraphIO.Format format = file.endsWith(".bin") ? GraphIO.Format.BINARY : GraphIO.Format.JSON;
+        Check.equal(format, GraphIO.detectFormat(file), "snapshot format of " + file);
+        Check.equal(TestGraphs.describe(graph), TestGraphs.describe(reopen(file)), "graph after many compactions");
+    }
+
+    private static void failedCompaction(Path file, Random random) throws IOException {
+        Graph graph = new Graph();
+        GraphJournal journal = GraphJournal.open(graph, file.toString());
+        mutate(graph, random, 100);
+        // A non-empty directory where the snapshot goes: neither JSON nor binary can be written there
+        Path blocker = Files.createDirectories(file).resolve("blocker");
+        Files.createFile(blocker);
+        for (int attempt = 0; attempt < 2; attempt++) { // The second one finds the journal of the first
+            try {
+                journal.checkpoint();
+                Check.that(false, "checkpoint onto a directory should throw");
+            } catch (IOException e) {
+                Check.that(Files.exists(Paths.get(file + ".journal.compacting")), "records kept after a failed compaction");
+            }
+            mutate(graph, random, 50); // Journaling goes on after a failure
+        }
+        Files.delete(blocker);
+        Files.delete(file);
+        journal.checkpoint();
+        journal.close();
+        Check.that(!Files.exists(Paths.get(file + ".journal.compacting")), "compaction journal deleted after the retry");
+        Check.equal(TestGraphs.describe(graph), TestGraphs.describe(reopen(file.toString())), "graph after a failed compaction");
+    }
+
+    // Loads file + journal into a new graph without journaling it further
+    private static Graph reopen(String file) throws IOException {
+        Graph graph = new Graph();
+        GraphJournal.open(graph, file).close();
+        return graph;
+    }
+
+    // Random changes; airports come and go (with other names), so replay order matters
+    private static void mutate(Graph graph, Random random, int changes) {
+        for (int i = 0; i < changes; i++) {
+            String from = NetworkGenerator.code(random.nextInt(30));
+            String to = random.nextInt(10) == 0 ? "k-" + random.nextInt(3) : NetworkGenerator.code(random.nextInt(30));
+            switch (random.nextInt(6)) {
+                case 0 -> graph.addAirport(new Vertex("Airport " + random.nextInt(1000), from, "State " + i));
+                case 1 -> graph.addAirport(new Vertex("Odd " + i, to, null));
+                case 2 -> graph.removeAirport(from);
+                case 3 -> graph.removeRoute(from, to);
+                default -> graph.addRoute(new Edge(from, to, 1 + random.nextInt(500), 0.25 * (1 + random.nextInt(20))));
+            }
+        }
+    }
+}
@@ -0,0 +1,98 @@
+import java.util.*;
+
+/**
+ * IntMap and IntIntMap against java.util.HashMap: random puts and removes,
+ * with keys chosen so that many of them share a probe run, which is where
+ * backward-shift deletion can lose or duplicate an entry.
+ */
+public class IntMapTest {
+    public static void main(String[] args) {
+        long before = Check.passed();
+        randomOperations(new Random(1), 64);          // Small key space: long probe runs, many deletes hit
+        randomOperations(new Random(2), 1 << 20);     // Mostly distinct keys, table grows several times
+        collidingKeys();
+        packedCodes();
+        System.out.println("IntMapTest: " + (Check.passed() - before) + " checks passed");
+    }
+
+    private static void randomOperations(Random random, int keySpace) {
+        IntMap<String> map = new IntMap<>();
+        IntIntMap ints = new IntIntMap();
+        Map<Integer, String> expected = new HashMap<>();
+        for (int step = 0; step < 200_000; step++) {
+            int key = random.nextInt(keySpace) - keySpace / 2;
+            if (key == 0) {
+                continue; // Reserved
+            }
+            int op = random.nextInt(10);
+            if (op < 5) {
+                int value = random.nextInt(1000);
+                String previous = expected.put(key, String.valueOf(value));
+                Check.equal(previous, map.put(key, String.valueOf(value)), "IntMap.put(" + key + ")");
+                Check.equal(previous == null ? -1 : Integer.parseInt(previous), ints.put(key, value),
+                        "IntIntMap.put(" + key + ")");
+            } else if (op < 9) {
+                String removed = expected.remove(key);
+                Check.equal(removed, map.remove(key), "IntMap.remove(" + key + ")");
+                Check.equal(removed == null ? -1 : Integer.parseInt(removed), ints.remove(key),
+                        "IntIntMap.remove(" + key + ")");
+            } else {
+                Check.equal(expected.get(key), map.get(key), "IntMap.get(" + key + ")");
+                Check.equal(expected.containsKey(key), ints.containsKey(key), "IntIntMap.containsKey(" + key + ")");
+            }
+            Check.equal(expected.size(), map.size(), "IntMap.size");
+            Check.equal(expected.size(), ints.size(), "IntIntMap.size");
+        }
+        for (Map.Entry<Integer, String> entry : expected.entrySet()) {
+            Check.equal(entry.getValue(), map.get(entry.getKey()), "IntMap entry " + entry.getKey());
+            Check.equal(Integer.parseInt(entry.getValue()), ints.get(entry.getKey()), "IntIntMap entry " + entry.getKey());
+        }
+    }
+
+    // Keys with the same home slot in a 16-slot table, removed from the middle of their run
+    private static void collidingKeys() {
+        List<Integer> sameSlot = new ArrayList<>();
+        for (int key = 1; sameSlot.size() < 6; key++) {
+            if ((IntIntMap.hash(key) & 15) == 3) {
+                sameSlot.add(key);
+            }
+        }
+        for (int removed = 0; removed < sameSlot.size(); removed++) {
+            IntIntMap ints = new IntIntMap(8); // 16 slots, no growth while filling
+            IntMap<Integer> map = new IntMap<>(8);
+            for (int i = 0; i < sameSlot.size(); i++) {
+                ints.put(sameSlot.get(i), i);
+                map.put(sameSlot.get(i), i);
+            }
+            Check.equal(removed, ints.remove(sameSlot.get(removed)), "IntIntMap.remove in a probe run");
+            Check.equal(removed, map.remove(sameSlot.get(removed)), "IntMap.remove in a probe run");
+            for (int i = 0; i < sameSlot.size(); i++) {
+                int expected = i == removed ? -1 : i;
+                Check.equal(expected, ints.get(sameSlot.get(i)), "IntIntMap.get after removing #" + removed);
+                Check.equal(i == removed ? null : i, map.get(sameSlot.get(i)), "IntMap.get after removing #" + removed);
+            }
+        }
+    }
+
+    // The keys Graph actually stores: packed codes and fallback keys
+    private static void packedCodes() {
+        AirportCodes keys = new AirportCodes();
+        IntIntMap ints = new IntIntMap();
+        List<String> codes = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            codes.add(NetworkGenerator.code(i));
+        }
+        codes.add("k-1");
+        codes.add("Kul");
+        for (int i = 0; i < codes.size(); i++) {
+            ints.put(keys.encode(codes.get(i)), i);
+        }
+        for (int i = 0; i < codes.size(); i += 2) {
+            ints.remove(keys.find(codes.get(i)));
+        }
+        for (int i = 0; i < codes.size(); i++) {
+            Check.equal(i % 2 == 0 ? -1 : i, ints.get(keys.find(codes.get(i))), "key of " + codes.get(i));
+            Check.equal(codes.get(i), keys.decode(keys.find(codes.get(i))), "decode " + codes.get(i));
+        }
+    }
+}
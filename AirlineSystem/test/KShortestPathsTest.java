@@ -0,0 +1,81 @@
+import java.util.*;
+
+/**
+ * KShortestPaths (Yen with Lawler's improvement) against all loopless paths
+ * enumerated depth-first on small random graphs: the k best weights must
+ * be the k smallest of all paths, every path must be loopless and made of
+ * real routes, and no path may come twice. Asking for more paths must not
+ * change the ones returned before.
+ */
+public class KShortestPathsTest {
+    public static void main(String[] args) {
+        long before = Check.passed();
+        for (long seed = 1; seed <= 300; seed++) {
+            randomGraph(new Random(seed));
+        }
+        System.out.println("KShortestPathsTest: " + (Check.passed() - before) + " checks passed");
+    }
+
+    private static void randomGraph(Random random) {
+        int n = 5 + random.nextInt(5);
+        Graph graph = new Graph();
+        for (int i = 0; i < n; i++) {
+            String code = NetworkGenerator.code(i);
+            graph.addAirport(new Vertex("Airport " + code, code, "State"));
+        }
+        int routes = n * (1 + random.nextInt(3));
+        for (int i = 0; i < routes; i++) {
+            // Few distinct weights: many paths of equal weight
+            graph.addRoute(new Edge(NetworkGenerator.code(random.nextInt(n)), NetworkGenerator.code(random.nextInt(n)),
+                    1 + random.nextInt(4), 0.5 + random.nextInt(6) * 0.25));
+        }
+
+        int from = random.nextInt(n);
+        String start = NetworkGenerator.code(from);
+        String end = NetworkGenerator.code((from + 1 + random.nextInt(n - 1)) % n); // Any other airport
+        Check.that(graph.kShortestPaths(start, start, 3, true) == null, "same airport");
+        for (boolean useCost : new boolean[] { true, false }) {
+            String query = "kShortestPaths(" + start + ", " + end + ", " + (useCost ? "cost" : "time") + ")";
+            List<Double> all = allPathWeights(graph, start, end, useCost);
+            int k = 1 + random.nextInt(Math.max(1, all.size() + 2)); // Sometimes more than there are
+            List<List<Edge>> paths = graph.kShortestPaths(start, end, k, useCost);
+            Check.equal(Math.min(k, all.size()), paths.size(), query + " count, k = " + k);
+
+            Set<List<String>> distinct = new HashSet<>();
+            for (int rank = 0; rank < paths.size(); rank++) {
+                List<Edge> path = paths.get(rank);
+                Check.that(Reference.isLooplessPath(graph, path, start, end), query + " #" + rank + " is not a path: " + path);
+                Check.close(all.get(rank), Reference.weight(path, useCost), query + " #" + rank + " weight");
+                List<String> stops = new ArrayList<>();
+                for (Edge edge : path) {
+                    stops.add(edge.destinationCode);
+                }
+                Check.that(distinct.add(stops), query + " #" + rank + " repeats an earlier path");
+            }
+
+            List<List<Edge>> more = graph.kShortestPaths(start, end, k + 3, useCost);
+            Check.equal(paths.toString(), more.subList(0, paths.size()).toString(), query + " prefix with k + 3");
+        }
+    }
+
+    // Weights of all loopless paths from start to end, smallest first
+    private static List<Double> allPathWeights(Graph graph, String start, String end, boolean useCost) {
+        List<Double> weights = new ArrayList<>();
+        enumerate(graph, start, end, useCost, new HashSet<>(Set.of(start)), 0, weights);
+        Collections.sort(weights);
+        return weights;
+    }
+
+    private static void enumerate(Graph graph, String at, String end, boolean useCost, Set<String> onPath,
+            double weight, List<Double> weights) {
+        for (Edge edge : graph.getAdjacencyList().get(at)) {
+            double next = weight + (useCost ? edge.cost : edge.time);
+            if (edge.destinationCode.equals(end)) {
+                weights.add(next);
+            } else if (onPath.add(edge.destinationCode)) {
+                enumerate(graph, edge.destinationCode, end, useCost, onPath, next, weights);
+                onPath.remove(edge.destinationCode);
+            }
+        }
+    }
+}
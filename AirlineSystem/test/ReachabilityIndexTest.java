@@ -0,0 +1,78 @@
+import java.util.*;
+
+/**
+ * The SCC/bitset reachability index against the original BFS in Reference:
+ * bfsReachable, reachableCount and canReach on random graphs that keep
+ * changing between queries (the index is updated for new airports and routes
+ * and rebuilt after removals). CompactBitSet is compared with
+ * java.util.BitSet, across the point where a sparse chunk becomes a bitmap.
+ */
+public class ReachabilityIndexTest {
+    public static void main(String[] args) {
+        long before = Check.passed();
+        for (long seed = 1; seed <= 20; seed++) {
+            TestGraphs.changing(TestGraphs.codes(40), new Random(seed), graph -> { },
+                    ReachabilityIndexTest::comparePair);
+        }
+        TestGraphs.generated(new Random(3), graph -> { }, ReachabilityIndexTest::comparePair);
+        for (long seed = 1; seed <= 5; seed++) {
+            compactBitSet(new Random(seed));
+        }
+        System.out.println("ReachabilityIndexTest: " + (Check.passed() - before) + " checks passed");
+    }
+
+    private static void comparePair(Graph graph, String start, String end) {
+        Set<String> reachable = Reference.bfsReachable(graph, start);
+        List<Vertex> found = graph.bfsReachable(start);
+        if (reachable == null) {
+            Check.that(found == null, "bfsReachable(" + start + ") of a missing airport");
+            Check.equal(-1, graph.reachability().reachableCount(start), "reachableCount(" + start + ") of a missing airport");
+            Check.that(!graph.reachability().canReach(start, end), "canReach from a missing airport");
+            return;
+        }
+        Set<String> foundCodes = new HashSet<>();
+        for (Vertex airport : found) {
+            foundCodes.add(airport.code);
+        }
+        Check.equal(reachable, foundCodes, "bfsReachable(" + start + ")");
+        Check.equal(reachable.size(), found.size(), "bfsReachable(" + start + ") size");
+        Check.equal(reachable.size(), graph.reachability().reachableCount(start), "reachableCount(" + start + ")");
+        // The original BFS drops start itself, so canReach(x, x) (a cycle back) is not compared
+        if (!start.equals(end)) {
+            Check.equal(reachable.contains(end), graph.reachability().canReach(start, end),
+                    "canReach(" + start + ", " + end + ")");
+        }
+    }
+
+    private static void compactBitSet(Random random) {
+        CompactBitSet set = new CompactBitSet();
+        BitSet expected = new BitSet();
+        int range = 1 << (12 + random.nextInt(6)); // One to several 16-bit chunks
+        for (int i = 0; i < 20_000; i++) {
+            int value = random.nextInt(range);
+            Check.equal(!expected.get(value), set.add(value), "add(" + value + ")");
+            expected.set(value);
+        }
+        CompactBitSet other = new CompactBitSet();
+        BitSet otherExpected = new BitSet();
+        for (int i = 0; i < 3000; i++) {
+            int value = random.nextInt(range * 2);
+            other.add(value);
+            otherExpected.set(value);
+        }
+        CompactBitSet union = set.copy();
+        union.or(other);
+        BitSet expectedUnion = (BitSet) expected.clone();
+        expectedUnion.or(otherExpected);
+
+        Check.equal(expected.cardinality(), set.cardinality(), "cardinality");
+        Check.equal(expectedUnion.cardinality(), union.cardinality(), "cardinality of the union");
+        for (int value = 0; value < range * 2; value++) {
+            Check.equal(expected.get(value), set.contains(value), "contains(" + value + ")");
+            Check.equal(expectedUnion.get(value), union.contains(value), "union contains(" + value + ")");
+        }
+        BitSet listed = new BitSet();
+        union.forEach(listed::set);
+        Check.equal(expectedUnion, listed, "forEach of the union");
+    }
+}
@@ -0,0 +1,151 @@
+import java.util.*;
+
+/**
+ * Straightforward versions of the algorithms the optimised classes replaced,
+ * used as the expected answers in the tests.
+ *
+ * dijkstra, bfsShortestPath and bfsReachable are the original Graph methods
+ * (String maps, java.util.PriorityQueue with remove(), LinkedList queue)
+ * without their console output.
+ */
+public final class Reference {
+    private Reference() {
+    }
+
+    public static List<Edge> dijkstra(Graph graph, String start, String end, boolean useCost) {
+        Map<String, Vertex> airports = graph.getAirports();
+        Map<String, List<Edge>> adjacencyList = graph.getAdjacencyList();
+        if (!airports.containsKey(start) || !airports.containsKey(end) || start.equals(end)) {
+            return null;
+        }
+        Map<String, Double> dist = new HashMap<>();
+        Map<String, String> prev = new HashMap<>();
+        Map<String, Edge> prevEdge = new HashMap<>();
+        for (String code : airports.keySet()) {
+            dist.put(code, Double.POSITIVE_INFINITY);
+            prev.put(code, null);
+            prevEdge.put(code, null);
+        }
+        dist.put(start, 0.0);
+
+        PriorityQueue<String> pq = new PriorityQueue<>(Comparator.comparingDouble(dist::get));
+        pq.add(start);
+        while (!pq.isEmpty()) {
+            String current = pq.poll();
+            if (current.equals(end)) {
+                break;
+            }
+            for (Edge edge : adjacencyList.getOrDefault(current, new ArrayList<>())) {
+                double weight = useCost ? edge.cost : edge.time;
+                double alt = dist.get(current) + weight;
+                if (alt < dist.get(edge.destinationCode)) {
+                    dist.put(edge.destinationCode, alt);
+                    prev.put(edge.destinationCode, current);
+                    prevEdge.put(edge.destinationCode, edge);
+                    pq.remove(edge.destinationCode);
+                    pq.add(edge.destinationCode);
+                }
+            }
+        }
+
+        List<Edge> path = new ArrayList<>();
+        String node = end;
+        while (prev.get(node) != null) {
+            Edge edge = prevEdge.get(node);
+            if (edge == null) {
+                break;
+            }
+            path.add(edge);
+            node = prev.get(node);
+        }
+        Collections.reverse(path);
+        return path;
+    }
+
+    public static List<Edge> bfsShortestPath(Graph graph, String startCode, String destinationCode) {
+        Map<String, Vertex> airports = graph.getAirports();
+        Map<String, List<Edge>> adjacencyList = graph.getAdjacencyList();
+        if (!airports.containsKey(startCode) || !airports.containsKey(destinationCode)
+                || startCode.equals(destinationCode)) {
+            return null;
+        }
+        Queue<String> queue = new LinkedList<>();
+        Map<String, String> parents = new HashMap<>();
+        Set<String> visited = new HashSet<>();
+        queue.offer(startCode);
+        visited.add(startCode);
+        parents.put(startCode, null);
+
+        while (!queue.isEmpty()) {
+            String current = queue.poll();
+            if (current.equals(destinationCode)) {
+                List<Edge> path = new ArrayList<>();
+                for (String node = destinationCode; node != null; node = parents.get(node)) {
+                    String parentNode = parents.get(node);
+                    if (parentNode != null) {
+                        for (Edge edge : adjacencyList.get(parentNode)) {
+                            if (edge.destinationCode.equals(node)) {
+                                path.add(edge);
+                                break;
+                            }
+                        }
+                    }
+                }
+                Collections.reverse(path);
+                return path;
+            }
+            for (Edge edge : adjacencyList.getOrDefault(current, new ArrayList<>())) {
+                if (!visited.contains(edge.destinationCode)) {
+                    visited.add(edge.destinationCode);
+                    parents.put(edge.destinationCode, current);
+                    queue.offer(edge.destinationCode);
+                }
+            }
+        }
+        return Collections.emptyList();
+    }
+
+    /** Codes of the airports reachable from startCode (without it), null if it does not exist. */
+    public static Set<String> bfsReachable(Graph graph, String startCode) {
+        if (!graph.getAirports().containsKey(startCode)) {
+            return null;
+        }
+        Set<String> visited = new HashSet<>();
+        Queue<String> queue = new LinkedList<>();
+        queue.offer(startCode);
+        visited.add(startCode);
+        while (!queue.isEmpty()) {
+            String current = queue.poll();
+            for (Edge edge : graph.getAdjacencyList().getOrDefault(current, new ArrayList<>())) {
+                if (visited.add(edge.destinationCode)) {
+                    queue.offer(edge.destinationCode);
+                }
+            }
+        }
+        visited.remove(startCode);
+        return visited;
+    }
+
+    /** Total cost or time of a path. */
+    public static double weight(List<Edge> path, boolean useCost) {
+        double total = 0;
+        for (Edge edge : path) {
+            total += useCost ? edge.cost : edge.time;
+        }
+        return total;
+    }
+
+    /** Whether path is a chain of routes of graph from start to end that visits no airport twice. */
+    public static boolean isLooplessPath(Graph graph, List<Edge> path, String start, String end) {
+        Set<String> visited = new HashSet<>(Set.of(start));
+        String at = start;
+        for (Edge edge : path) {
+            if (!edge.startingCode.equals(at) || graph.getRoute(edge.startingCode, edge.destinationCode) == null
+                    || !visited.add(edge.destinationCode)) {
+                return false;
+            }
+            at = edge.destinationCode;
+        }
+        return !path.isEmpty() && at.equals(end);
+    }
+}
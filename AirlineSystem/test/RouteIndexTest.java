@@ -0,0 +1,112 @@
+import java.util.*;
+
+/**
+ * Graph's per-airport route index (O(1) getRoute and removal, reverse index)
+ * against a plain map of the routes, under random adds and removals of
+ * airports and routes. Also checks that refreshIndexes drops routes that
+ * addRoute would not have taken, including a route filed under another
+ * airport than its startingCode and routes without codes, so removing an
+ * airport afterwards leaves no stale incoming route behind.
+ */
+public class RouteIndexTest {
+    public static void main(String[] args) {
+        long before = Check.passed();
+        for (long seed = 1; seed <= 10; seed++) {
+            randomChanges(new Random(seed));
+        }
+        misfiledRoute();
+        routesWithoutCodes();
+        System.out.println("RouteIndexTest: " + (Check.passed() - before) + " checks passed");
+    }
+
+    private static void randomChanges(Random random) {
+        Graph graph = new Graph();
+        List<String> codes = TestGraphs.codes(25, "k-1", "Kul");
+        Map<String, Map<String, Edge>> expected = new HashMap<>(); // origin -> destination -> route
+        for (int step = 0; step < 5000; step++) {
+            String from = TestGraphs.pick(codes, random);
+            String to = TestGraphs.pick(codes, random);
+            int op = random.nextInt(10);
+            if (op < 5) {
+                Edge route = new Edge(from, to, 1 + random.nextInt(9), 1);
+                boolean valid = expected.containsKey(from) && expected.containsKey(to) && !from.equals(to)
+                        && !expected.get(from).containsKey(to);
+                Check.equal(valid, graph.addRoute(route), "addRoute " + from + " -> " + to);
+                if (valid) {
+                    expected.get(from).put(to, route);
+                }
+            } else if (op < 8) {
+                boolean exists = expected.containsKey(from) && expected.get(from).remove(to) != null;
+                Check.equal(exists, graph.removeRoute(from, to), "removeRoute " + from + " -> " + to);
+            } else if (op < 9) {
+                boolean exists = expected.remove(from) != null;
+                if (exists) {
+                    for (Map<String, Edge> routes : expected.values()) {
+                        routes.remove(from);
+                    }
+                }
+                Check.equal(exists, graph.removeAirport(from), "removeAirport " + from);
+            } else {
+                boolean added = expected.putIfAbsent(from, new HashMap<>()) == null;
+                Check.equal(added, graph.addAirport(new Vertex("Airport " + from, from, "State")), "addAirport " + from);
+            }
+            Check.equal(expected.containsKey(from) ? expected.get(from).get(to) : null, graph.getRoute(from, to),
+                    "getRoute " + from + " -> " + to);
+            if (step % 100 == 0) {
+                compare(graph, expected);
+            }
+        }
+        compare(graph, expected);
+    }
+
+    private static void compare(Graph graph, Map<String, Map<String, Edge>> expected) {
+        Check.equal(expected.keySet(), graph.getAirports().keySet(), "airports");
+        for (Map.Entry<String, Map<String, Edge>> entry : expected.entrySet()) {
+            Check.equal(new HashSet<>(entry.getValue().values()), new HashSet<>(graph.getAdjacencyList().get(entry.getKey())),
+                    "routes of " + entry.getKey());
+        }
+        BidirectionalSearchTest.checkReverseIndex(graph);
+    }
+
+    // A route stored under KUL although it starts at PEN
+    private static void misfiledRoute() {
+        Graph graph = threeAirports();
+        graph.getAdjacencyList().get("KUL").add(new Edge("PEN", "LGK", 1, 1));
+        graph.getAdjacencyList().get("KUL").add(new Edge("KUL", "LGK", 2, 2));
+        graph.refreshIndexes();
+        Check.equal(1, graph.getAdjacencyList().get("KUL").size(), "misfiled route dropped");
+        Check.that(graph.getRoute("PEN", "LGK") == null, "misfiled route not indexed under its origin");
+        Check.equal(1, graph.getIncomingRoutes("LGK").size(), "only the real route arrives at LGK");
+        Check.that(graph.removeAirport("KUL"), "remove KUL");
+        Check.that(graph.getIncomingRoutes("LGK").isEmpty(), "no stale incoming route after removing KUL");
+        BidirectionalSearchTest.checkReverseIndex(graph);
+        Check.that(graph.addRoute(new Edge("PEN", "LGK", 1, 1)), "PEN -> LGK can be added properly");
+    }
+
+    private static void routesWithoutCodes() {
+        Graph graph = threeAirports();
+        graph.getAdjacencyList().get("KUL").add(new Edge(null, "PEN", 1, 1));
+        graph.getAdjacencyList().get("KUL").add(new Edge("KUL", null, 1, 1));
+        graph.refreshIndexes();
+        Check.that(graph.getAdjacencyList().get("KUL").isEmpty(), "routes without codes dropped");
+        BidirectionalSearchTest.checkReverseIndex(graph);
+
+        GraphBuilder builder = new GraphBuilder()
+                .addAirport(new Vertex("Kuala Lumpur", "KUL", "Selangor"))
+                .addAirport(new Vertex("Penang", "PEN", "Penang"))
+                .addRoute(new Edge(null, "PEN", 1, 1))
+                .addRoute(new Edge("KUL", null, 1, 1))
+                .addRoute(new Edge("KUL", "PEN", 1, 1));
+        Graph built = builder.build();
+        Check.equal(2L, builder.report().rejectedCount(ImportReport.Reason.UNKNOWN_AIRPORT), "builder rows without codes");
+        Check.equal(1, built.getIncomingRoutes("PEN").size(), "builder keeps the valid route");
+    }
+
+    private static Graph threeAirports() {
+        Graph graph = new Graph();
+        graph.addAirport(new Vertex("Kuala Lumpur", "KUL", "Selangor"));
+        graph.addAirport(new Vertex("Penang", "PEN", "Penang"));
+        graph.addAirport(new Vertex("Langkawi", "LGK", "Kedah"));
+        return graph;
+    }
+}
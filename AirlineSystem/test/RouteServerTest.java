@@ -0,0 +1,117 @@
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+/**
+ * RouteServer input handling over real HTTP on a free port: status codes for
+ * good and bad queries, bodies that are missing, malformed or carry a cost or
+ * time that is not a positive number, wrong methods, and a change that fails
+ * with an Error (500, and the server keeps answering afterwards).
+ */
+public class RouteServerTest {
+    private static final HttpClient client = HttpClient.newHttpClient();
+
+    public static void main(String[] args) throws Exception {
+        long before = Check.passed();
+        Graph graph = new Graph();
+        graph.addAirport(new Vertex("Kuala Lumpur", "KUL", "Selangor"));
+        graph.addAirport(new Vertex("Penang", "PEN", "Penang"));
+        graph.addAirport(new Vertex("Langkawi", "LGK", "Kedah"));
+        graph.addRoute(new Edge("KUL", "PEN", 100, 1));
+        graph.addListener(new GraphListener() {
+            @Override
+            public void airportAdded(Vertex airport) {
+                if (airport.code.equals("ERR")) {
+                    throw new Error("simulated failure");
+                }
+            }
+        });
+        RouteServer server = new RouteServer(graph, 0, 16, 5000);
+        server.start();
+        try {
+            String base = "http://localhost:" + server.port();
+            queries(base);
+            routeBodies(base);
+            airportBodies(base);
+            failingChange(base);
+        } finally {
+            server.stop(0);
+        }
+        System.out.println("RouteServerTest: " + (Check.passed() - before) + " checks passed");
+    }
+
+    private static void queries(String base) throws Exception {
+        expect(200, get(base + "/health"), "health");
+        expect(200, get(base + "/path?from=kul&to=PEN&by=time"), "path");
+        expect(200, get(base + "/transits?from=KUL&to=PEN"), "transits");
+        expect(200, get(base + "/reachable?from=KUL"), "reachable");
+        expect(400, get(base + "/path?from=KUL"), "missing parameter");
+        expect(400, get(base + "/path?from=KUL&to=PEN&by=distance"), "bad 'by'");
+        expect(400, get(base + "/path?from=KUL&to=KUL"), "same airport");
+        expect(404, get(base + "/path?from=KUL&to=XXX"), "unknown airport");
+        expect(404, get(base + "/reachable?from=XXX"), "reachable from an unknown airport");
+        expect(405, send(base + "/path?from=KUL&to=PEN", "POST", "{}"), "POST on a query");
+        expect(405, send(base + "/routes", "PUT", "{}"), "PUT on routes");
+    }
+
+    private static void routeBodies(String base) throws Exception {
+        String[] invalid = {
+            "{\"startingCode\":\"PEN\",\"destinationCode\":\"LGK\",\"cost\":0,\"time\":1}",
+            "{\"startingCode\":\"PEN\",\"destinationCode\":\"LGK\",\"cost\":50,\"time\":-1}",
+            "{\"startingCode\":\"PEN\",\"destinationCode\":\"LGK\",\"cost\":50}",
+            "{\"startingCode\":\"PEN\",\"destinationCode\":\"LGK\",\"cost\":NaN,\"time\":1}",
+            "{\"startingCode\":\"PEN\",\"destinationCode\":\"LGK\",\"cost\":Infinity,\"time\":1}",
+            "{\"startingCode\":\"PEN\",\"destinationCode\":\"LGK\",\"cost\":\"cheap\",\"time\":1}",
+            "{\"destinationCode\":\"LGK\",\"cost\":50,\"time\":1}",
+            "{\"startingCode\":\"PEN\",",
+            "",
+        };
+        for (String body : invalid) {
+            expect(400, send(base + "/routes", "POST", body), "POST /routes " + body);
+        }
+        String transits = get(base + "/transits?from=PEN&to=LGK").body();
+        Check.that(transits.contains("\"found\":false"), "no invalid route was added: " + transits);
+
+        String valid = "{\"startingCode\":\"pen\",\"destinationCode\":\"LGK\",\"cost\":50,\"time\":0.75}";
+        expect(201, send(base + "/routes", "POST", valid), "valid route");
+        expect(409, send(base + "/routes", "POST", valid), "duplicate route");
+        expect(409, send(base + "/routes", "POST",
+                "{\"startingCode\":\"PEN\",\"destinationCode\":\"XXX\",\"cost\":5,\"time\":1}"), "unknown airport");
+        expect(200, send(base + "/routes?from=PEN&to=LGK", "DELETE", ""), "delete route");
+        expect(404, send(base + "/routes?from=PEN&to=LGK", "DELETE", ""), "delete it again");
+    }
+
+    private static void airportBodies(String base) throws Exception {
+        expect(400, send(base + "/airports", "POST", "{\"name\":\"No code\"}"), "airport without code");
+        expect(400, send(base + "/airports", "POST", "[1, 2]"), "airport body that is not an object");
+        expect(201, send(base + "/airports", "POST", "{\"name\":\"Kuching\",\"code\":\"kch\",\"state\":\"Sarawak\"}"),
+                "valid airport");
+        expect(409, send(base + "/airports", "POST", "{\"name\":\"Kuching\",\"code\":\"KCH\"}"), "duplicate airport");
+        expect(200, send(base + "/airports?code=KCH", "DELETE", ""), "delete airport");
+        expect(404, send(base + "/airports?code=KCH", "DELETE", ""), "delete it again");
+    }
+
+    private static void failingChange(String base) throws Exception {
+        HttpResponse<String> failed = send(base + "/airports", "POST", "{\"name\":\"Broken\",\"code\":\"ERR\"}");
+        expect(500, failed, "change that throws an Error");
+        Check.that(failed.body().contains("simulated failure"), "500 names the failure: " + failed.body());
+        expect(201, send(base + "/airports", "POST", "{\"name\":\"Sibu\",\"code\":\"SBW\"}"), "change after the Error");
+        expect(200, get(base + "/health"), "health after the Error");
+    }
+
+    private static HttpResponse<String> get(String url) throws Exception {
+        return client.send(HttpRequest.newBuilder(URI.create(url)).GET().build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static HttpResponse<String> send(String url, String method, String body) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url))
+                .method(method, HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static void expect(int status, HttpResponse<String> response, String what) {
+        Check.equal(status, response.statusCode(), what + " (" + response.body() + ")");
+    }
+}
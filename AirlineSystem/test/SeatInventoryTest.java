@@ -0,0 +1,132 @@
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * SeatInventory: threads holding seats on overlapping itineraries at the same
+ * time never oversell a flight, a multi-leg hold takes every leg or none,
+ * confirmed, released and cancelled holds give their seats back exactly once,
+ * and holds spread over all expiry queues run out and return their seats.
+ */
+public class SeatInventoryTest {
+    private static final LocalDate DAY = LocalDate.of(2026, 1, 1);
+
+    public static void main(String[] args) throws Exception {
+        long before = Check.passed();
+        concurrentHolds();
+        allOrNothing();
+        stateChanges();
+        expiry();
+        System.out.println("SeatInventoryTest: " + (Check.passed() - before) + " checks passed");
+    }
+
+    private static void concurrentHolds() throws Exception {
+        List<Edge> routes = List.of(new Edge("KUL", "PEN", 1, 1), new Edge("PEN", "LGK", 1, 1),
+                new Edge("KUL", "LGK", 1, 1));
+        int capacity = 500;
+        try (SeatInventory inventory = new SeatInventory(capacity, Duration.ofHours(1))) {
+            ExecutorService threads = Executors.newFixedThreadPool(8);
+            List<Future<List<SeatInventory.Hold>>> results = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                long seed = t;
+                results.add(threads.submit(() -> {
+                    Random random = new Random(seed);
+                    List<SeatInventory.Hold> held = new ArrayList<>();
+                    for (int i = 0; i < 400; i++) {
+                        List<Edge> path = random.nextBoolean() ? routes.subList(0, 2) : routes.subList(2, 3);
+                        SeatInventory.Hold hold = inventory.hold(path, DAY, 1 + random.nextInt(3));
+                        if (hold != null) {
+                            held.add(hold);
+                        }
+                    }
+                    return held;
+                }));
+            }
+            Map<String, Integer> taken = new HashMap<>();
+            long holds = 0;
+            for (Future<List<SeatInventory.Hold>> result : results) {
+                for (SeatInventory.Hold hold : result.get(30, TimeUnit.SECONDS)) {
+                    holds++;
+                    String legs = hold.legCount() == 2 ? "KUL-PEN,PEN-LGK" : "KUL-LGK";
+                    for (String leg : legs.split(",")) {
+                        taken.merge(leg, hold.seats, Integer::sum);
+                    }
+                }
+            }
+            threads.shutdown();
+            for (Edge route : routes) {
+                String leg = route.startingCode + "-" + route.destinationCode;
+                int seats = taken.getOrDefault(leg, 0);
+                Check.that(seats <= capacity, "no oversell on " + leg + ": " + seats);
+                Check.equal(capacity - seats, inventory.available(route, DAY), "free seats on " + leg);
+            }
+            Check.equal(holds, inventory.holdCount(), "holds counted");
+            Check.equal(8 * 400 - holds, inventory.rejectedCount(), "rejections counted");
+        }
+    }
+
+    private static void allOrNothing() {
+        Edge first = new Edge("KUL", "PEN", 1, 1);
+        Edge second = new Edge("PEN", "LGK", 1, 1);
+        try (SeatInventory inventory = new SeatInventory(10, Duration.ofHours(1))) {
+            Check.that(inventory.setCapacity(second, DAY, 2), "set capacity of an unused flight");
+            Check.that(!inventory.setCapacity(second, DAY, 5), "capacity is only set once");
+            Check.that(inventory.hold(List.of(first, second), DAY, 3) == null, "second leg has too few seats");
+            Check.equal(10, inventory.available(first, DAY), "first leg given back");
+            Check.equal(2, inventory.available(second, DAY), "second leg untouched");
+            SeatInventory.Hold hold = inventory.hold(List.of(first, second), List.of(DAY, DAY.plusDays(1)), 3);
+            Check.that(hold != null, "legs on different days");
+            Check.equal(7, inventory.available(first, DAY), "first leg held");
+            Check.equal(7, inventory.available(second, DAY.plusDays(1)), "second leg held on its own day");
+        }
+    }
+
+    private static void stateChanges() {
+        Edge route = new Edge("KUL", "PEN", 1, 1);
+        try (SeatInventory inventory = new SeatInventory(10, Duration.ofHours(1))) {
+            SeatInventory.Hold confirmed = inventory.hold(List.of(route), DAY, 4);
+            SeatInventory.Hold released = inventory.hold(List.of(route), DAY, 3);
+            Check.that(inventory.confirm(confirmed), "confirm");
+            Check.that(!inventory.confirm(confirmed), "confirm only once");
+            Check.that(!inventory.release(confirmed), "a confirmed hold is not released");
+            Check.that(inventory.release(released), "release");
+            Check.that(!inventory.release(released), "release only once");
+            Check.that(!inventory.confirm(released), "a released hold is not confirmed");
+            Check.equal(6, inventory.available(route, DAY), "released seats are free again");
+            Check.that(inventory.cancel(confirmed), "cancel a booking");
+            Check.that(!inventory.cancel(confirmed), "cancel only once");
+            Check.equal(10, inventory.available(route, DAY), "cancelled seats are free again");
+            Check.equal(SeatInventory.State.RELEASED, confirmed.state(), "state after cancel");
+        }
+    }
+
+    private static void expiry() throws Exception {
+        List<Edge> routes = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            routes.add(new Edge("A" + i, "B" + i, 1, 1));
+        }
+        try (SeatInventory inventory = new SeatInventory(5, Duration.ofMillis(50))) {
+            List<SeatInventory.Hold> holds = new ArrayList<>();
+            for (Edge route : routes) { // 40 holds, so every expiry queue gets some
+                holds.add(inventory.hold(List.of(route), DAY, 2));
+            }
+            Check.that(inventory.confirm(holds.get(0)), "confirm before the hold time runs out");
+            Check.that(inventory.release(holds.get(1)), "release before the hold time runs out");
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (inventory.expiredCount() < routes.size() - 2 && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            Check.equal((long) routes.size() - 2, inventory.expiredCount(), "held seats expired");
+            Check.equal(SeatInventory.State.CONFIRMED, holds.get(0).state(), "confirmed hold does not expire");
+            Check.equal(3, inventory.available(routes.get(0), DAY), "confirmed seats stay taken");
+            for (int i = 1; i < routes.size(); i++) {
+                Check.equal(5, inventory.available(routes.get(i), DAY), "seats back after expiry on " + routes.get(i));
+            }
+            for (int i = 2; i < holds.size(); i++) {
+                Check.equal(SeatInventory.State.EXPIRED, holds.get(i).state(), "state of hold " + holds.get(i).id);
+                Check.that(!inventory.confirm(holds.get(i)), "an expired hold is not confirmed");
+            }
+        }
+    }
+}
@@ -0,0 +1,130 @@
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Random graphs for the search tests: graphs that keep changing between
+ * queries (routes come and go, airports are removed and added back), and the
+ * networks of NetworkGenerator. The tests pass what they compare as a
+ * PairCheck and get it called on many (start, end) pairs of each graph.
+ * describe() turns a whole graph into text that two graphs can be compared by.
+ */
+public final class TestGraphs {
+    /** Compares one query on the graph as it is at the moment. */
+    public interface PairCheck {
+        void check(Graph graph, String start, String end);
+    }
+
+    private TestGraphs() {
+    }
+
+    /** The given codes followed by NetworkGenerator codes, count in total. */
+    public static List<String> codes(int count, String... first) {
+        List<String> codes = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            codes.add(i < first.length ? first[i] : NetworkGenerator.code(i));
+        }
+        return codes;
+    }
+
+    /**
+     * A graph of the given airports that changes 15 times between every 25
+     * queries, for 30 rounds. graphCheck runs once per round.
+     */
+    public static void changing(List<String> codes, Random random, Consumer<Graph> graphCheck, PairCheck pairCheck) {
+        Graph graph = new Graph();
+        for (String code : codes) {
+            graph.addAirport(new Vertex("Airport " + code, code, "State"));
+        }
+        for (int round = 0; round < 30; round++) {
+            for (int i = 0; i < 15; i++) {
+                mutate(graph, codes, random);
+            }
+            graphCheck.accept(graph);
+            for (int i = 0; i < 25; i++) {
+                pairCheck.check(graph, pick(codes, random), pick(codes, random));
+            }
+        }
+    }
+
+    /** Every NetworkGenerator topology with 400 airports, queried before and after 100 changes. */
+    public static void generated(Random random, Consumer<Graph> graphCheck, PairCheck pairCheck) {
+        for (NetworkGenerator.Topology topology : NetworkGenerator.Topology.values()) {
+            Graph graph = new NetworkGenerator(topology, 400, 11).generate();
+            List<String> codes = new ArrayList<>(graph.getAirports().keySet());
+            graphCheck.accept(graph);
+            for (int i = 0; i < 200; i++) {
+                pairCheck.check(graph, pick(codes, random), pick(codes, random));
+            }
+            for (int i = 0; i < 100; i++) {
+                mutate(graph, codes, random);
+            }
+            graphCheck.accept(graph);
+            for (int i = 0; i < 200; i++) {
+                pairCheck.check(graph, pick(codes, random), pick(codes, random));
+            }
+        }
+    }
+
+    // Random change: mostly new routes, some removed routes, now and then an airport goes and comes back
+    private static void mutate(Graph graph, List<String> codes, Random random) {
+        String from = pick(codes, random);
+        String to = pick(codes, random);
+        int op = random.nextInt(20);
+        if (op < 12) {
+            // Small integer weights, so equally good paths are common
+            graph.addRoute(new Edge(from, to, 1 + random.nextInt(9), 1 + random.nextInt(5)));
+        } else if (op < 18) {
+            List<Edge> routes = graph.getAdjacencyList().get(from);
+            if (routes != null && !routes.isEmpty()) {
+                Edge route = routes.get(random.nextInt(routes.size()));
+                Check.that(graph.removeRoute(route.startingCode, route.destinationCode), "removeRoute " + route);
+            }
+        } else if (graph.getAirports().containsKey(from)) {
+            graph.removeAirport(from);
+        } else {
+            graph.addAirport(new Vertex("Airport " + from, from, "State"));
+        }
+    }
+
+    /** Weight of a Reference answer: NaN = invalid query (null), infinity = unreachable (empty path). */
+    public static double expectedWeight(List<Edge> path, boolean useCost) {
+        if (path == null) {
+            return Double.NaN;
+        }
+        return path.isEmpty() ? Double.POSITIVE_INFINITY : Reference.weight(path, useCost);
+    }
+
+    /** Checks a path found by method against the weight expectedWeight gave for the same query. */
+    public static void checkPath(Graph graph, List<Edge> path, String start, String end, double expected,
+            boolean useCost, String method) {
+        String query = method + "(" + start + ", " + end + ", " + (useCost ? "cost" : "time") + ")";
+        if (Double.isNaN(expected)) {
+            Check.that(path == null, query + " should be null");
+        } else if (expected == Double.POSITIVE_INFINITY) {
+            Check.that(path != null && path.isEmpty(), query + " should be empty");
+        } else {
+            Check.that(path != null && Reference.isLooplessPath(graph, path, start, end), query + " is not a path: " + path);
+            Check.close(expected, Reference.weight(path, useCost), query + " weight");
+        }
+    }
+
+    /** Airports and routes in a canonical order (route order within an airport is not kept by all formats). */
+    public static String describe(Graph graph) {
+        StringBuilder out = new StringBuilder();
+        for (String code : new TreeSet<>(graph.getAirports().keySet())) {
+            Vertex airport = graph.getAirports().get(code);
+            out.append(code).append(" ").append(airport.name).append(" / ").append(airport.state).append(":");
+            List<String> routes = new ArrayList<>();
+            for (Edge route : graph.getAdjacencyList().get(code)) {
+                routes.add(route.destinationCode + "@" + route.cost + "/" + route.time);
+            }
+            Collections.sort(routes);
+            out.append(routes).append("\n");
+        }
+        return out.toString();
+    }
+
+    public static String pick(List<String> codes, Random random) {
+        return codes.get(random.nextInt(codes.size()));
+    }
+}
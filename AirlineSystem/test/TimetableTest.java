@@ -0,0 +1,180 @@
+import java.util.*;
+
+/**
+ * Timetable (Connection Scan) against brute force on random timetables:
+ * earliestArrival must land exactly when relaxing every flight until nothing
+ * changes says it can, and profile must return the same (departure, arrival)
+ * pairs as trying every first flight in the window and dropping the journeys
+ * that a later departure beats. Every journey returned must be flyable: it
+ * starts and ends at the right airports, each flight leaves from where the
+ * previous one landed and no earlier than the connection time allows.
+ */
+public class TimetableTest {
+    private static final long DAY = 24 * 3600;
+    private static final long START = 1_700_000_000L; // Some epoch second, timetables begin here
+    private static final int MCT = 30 * 60;
+
+    public static void main(String[] args) {
+        long before = Check.passed();
+        for (long seed = 1; seed <= 200; seed++) {
+            randomTimetable(new Random(seed));
+        }
+        invalidQueries();
+        System.out.println("TimetableTest: " + (Check.passed() - before) + " checks passed");
+    }
+
+    private static void randomTimetable(Random random) {
+        int airports = 4 + random.nextInt(5);
+        List<Flight> flights = new ArrayList<>();
+        int count = 20 + random.nextInt(100);
+        for (int i = 0; i < count; i++) {
+            int from = random.nextInt(airports);
+            int to = (from + 1 + random.nextInt(airports - 1)) % airports;
+            long departure = START + 300L * random.nextInt((int) (2 * DAY / 300)); // 5-minute slots over 2 days
+            long arrival = departure + 1800 + 300L * random.nextInt(40);
+            flights.add(new Flight("MH" + i, NetworkGenerator.code(from), NetworkGenerator.code(to), departure,
+                    arrival, 50 + random.nextInt(200)));
+        }
+        Timetable timetable = new Timetable(flights, MCT);
+
+        for (int q = 0; q < 20; q++) {
+            int from = random.nextInt(airports);
+            String start = NetworkGenerator.code(from);
+            String end = NetworkGenerator.code((from + 1 + random.nextInt(airports - 1)) % airports);
+
+            long departAfter = START + 60L * random.nextInt((int) (2 * DAY / 60));
+            String query = "earliestArrival(" + start + ", " + end + ", " + departAfter + ")";
+            long expected = earliestArrival(flights, start, end, departAfter, MCT);
+            Timetable.Journey journey = timetable.earliestArrival(start, end, departAfter);
+            if (expected == Long.MAX_VALUE) {
+                Check.that(journey == null, query + " should be null: " + journey);
+            } else {
+                Check.that(journey != null, query + " found nothing, expected arrival " + expected);
+                Check.equal(expected, journey.arrivalTime, query + " arrival");
+                checkFlyable(journey, start, end, departAfter, query);
+            }
+
+            long windowStart = START + 60L * random.nextInt((int) (DAY / 60));
+            long windowEnd = windowStart + 60L * random.nextInt((int) (DAY / 60));
+            query = "profile(" + start + ", " + end + ", " + windowStart + ", " + windowEnd + ")";
+            List<long[]> pairs = profile(flights, start, end, windowStart, windowEnd, MCT);
+            List<Timetable.Journey> journeys = timetable.profile(start, end, windowStart, windowEnd);
+            if (!knows(timetable, start, end)) {
+                Check.that(journeys == null, query + " with an airport without flights");
+                continue;
+            }
+            Check.equal(pairs.size(), journeys.size(), query + " journeys");
+            for (int i = 0; i < pairs.size(); i++) {
+                Timetable.Journey found = journeys.get(i);
+                Check.equal(pairs.get(i)[0], found.departureTime, query + " #" + i + " departure");
+                Check.equal(pairs.get(i)[1], found.arrivalTime, query + " #" + i + " arrival");
+                Check.that(found.departureTime <= windowEnd, query + " #" + i + " leaves after the window");
+                checkFlyable(found, start, end, windowStart, query + " #" + i);
+            }
+        }
+    }
+
+    private static void checkFlyable(Timetable.Journey journey, String start, String end, long notBefore, String query) {
+        List<Flight> legs = journey.flights;
+        Check.equal(start, legs.get(0).startingCode, query + " first departure airport");
+        Check.that(legs.get(0).departureTime >= notBefore, query + " leaves too early");
+        for (int i = 1; i < legs.size(); i++) {
+            Flight previous = legs.get(i - 1);
+            Flight next = legs.get(i);
+            Check.equal(previous.destinationCode, next.startingCode, query + " leg " + i + " airport");
+            Check.that(next.departureTime >= previous.arrivalTime + MCT, query + " leg " + i + " misses the connection");
+        }
+        Check.equal(end, legs.get(legs.size() - 1).destinationCode, query + " last arrival airport");
+        Check.equal(legs.get(0).departureTime, journey.departureTime, query + " departure time");
+        Check.equal(legs.get(legs.size() - 1).arrivalTime, journey.arrivalTime, query + " arrival time");
+    }
+
+    // Whether both airports have at least one flight (otherwise the timetable does not know them)
+    private static boolean knows(Timetable timetable, String start, String end) {
+        return timetable.profile(start, end, START, START) != null;
+    }
+
+    private static void invalidQueries() {
+        List<Flight> flights = List.of(
+                new Flight("MH1", "KUL", "PEN", START, START + 3600, 100),
+                new Flight("MH2", "PEN", "LGK", START + 3600 + MCT - 60, START + 7200, 80),  // Connection too short
+                new Flight("MH3", "PEN", "LGK", START + 3600 + MCT, START + 9000, 90));     // Just long enough
+        Timetable timetable = new Timetable(flights, MCT);
+        Check.that(timetable.earliestArrival("KUL", "XXX", START) == null, "unknown airport");
+        Check.that(timetable.earliestArrival("KUL", "KUL", START) == null, "same airport");
+        Check.that(timetable.profile("KUL", "KUL", START, START + DAY) == null, "profile for the same airport");
+        Check.equal("MH3", timetable.earliestArrival("KUL", "LGK", START).flights.get(1).flightNumber,
+                "minimum connection time is respected");
+        Check.that(timetable.earliestArrival("KUL", "LGK", START + 1) == null, "first flight already gone");
+    }
+
+    /**
+     * Earliest arrival at end when leaving start at or after departAfter, by
+     * relaxing every flight until nothing changes (no ordering tricks).
+     * Long.MAX_VALUE if end cannot be reached.
+     */
+    private static long earliestArrival(List<Flight> flights, String start, String end, long departAfter,
+            int minConnectionSeconds) {
+        return earliestArrival(flights, start, end, departAfter, minConnectionSeconds, null);
+    }
+
+    // With first != null the journey must begin with that flight
+    private static long earliestArrival(List<Flight> flights, String start, String end, long departAfter,
+            int minConnectionSeconds, Flight first) {
+        Map<String, Long> ready = new HashMap<>();   // Earliest boarding time per airport
+        Map<String, Long> arrival = new HashMap<>(); // Earliest arrival per airport
+        if (first == null) {
+            ready.put(start, departAfter);
+        } else {
+            arrival.put(first.destinationCode, first.arrivalTime);
+            ready.put(first.destinationCode, first.arrivalTime + minConnectionSeconds);
+        }
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (Flight flight : flights) {
+                Long boarding = ready.get(flight.startingCode);
+                if (boarding == null || flight.departureTime < boarding || flight.destinationCode.equals(start)) {
+                    continue;
+                }
+                if (flight.arrivalTime < arrival.getOrDefault(flight.destinationCode, Long.MAX_VALUE)) {
+                    arrival.put(flight.destinationCode, flight.arrivalTime);
+                    ready.put(flight.destinationCode, flight.arrivalTime + minConnectionSeconds);
+                    changed = true;
+                }
+            }
+        }
+        return arrival.getOrDefault(end, Long.MAX_VALUE);
+    }
+
+    /**
+     * (departure, arrival) of the journeys from start to end that leave in
+     * [windowStart, windowEnd] and that no other such journey beats by leaving
+     * no earlier and arriving no later; earliest departure first.
+     */
+    private static List<long[]> profile(List<Flight> flights, String start, String end, long windowStart,
+            long windowEnd, int minConnectionSeconds) {
+        TreeMap<Long, Long> best = new TreeMap<>(); // departure -> earliest arrival
+        for (Flight first : flights) {
+            if (first.startingCode.equals(start) && first.departureTime >= windowStart
+                    && first.departureTime <= windowEnd) {
+                long arrive = first.destinationCode.equals(end)
+                        ? first.arrivalTime
+                        : earliestArrival(flights, start, end, first.departureTime, minConnectionSeconds, first);
+                if (arrive != Long.MAX_VALUE) {
+                    best.merge(first.departureTime, arrive, Math::min);
+                }
+            }
+        }
+        List<long[]> useful = new ArrayList<>();
+        long bestLater = Long.MAX_VALUE; // Earliest arrival of the departures after the current one
+        for (Map.Entry<Long, Long> entry : best.descendingMap().entrySet()) {
+            if (entry.getValue() < bestLater) {
+                useful.add(new long[] { entry.getKey(), entry.getValue() });
+                bestLater = entry.getValue();
+            }
+        }
+        Collections.reverse(useful);
+        return useful;
+    }
+}